@@ -15,6 +15,91 @@ pub struct Config {
     pub output: Option<OutputConfig>,
     pub logging: Option<LoggingConfig>,
     pub spring: Option<SpringConfig>,
+    pub changes: Option<ChangesConfig>,
+    pub parallel: Option<ParallelConfig>,
+    pub jobs: Option<JobsConfig>,
+}
+
+/// Configuration of building the modules affected by local changes
+#[derive(Deserialize, Clone, Debug, PartialEq)]
+pub struct ChangesConfig {
+    /// Git ref whose changes since the branch diverged from it are included,
+    /// besides uncommitted changes (default: none)
+    #[serde(default)]
+    pub base_ref: Option<String>,
+
+    /// Goals run on the affected modules (default: ["verify"])
+    #[serde(default = "default_changes_goals")]
+    pub goals: Vec<String>,
+}
+
+fn default_changes_goals() -> Vec<String> {
+    vec!["verify".to_string()]
+}
+
+impl Default for ChangesConfig {
+    fn default() -> Self {
+        Self {
+            base_ref: None,
+            goals: default_changes_goals(),
+        }
+    }
+}
+
+/// Configuration of running a goal on several modules at once
+#[derive(Deserialize, Clone, Debug, PartialEq)]
+pub struct ParallelConfig {
+    /// Maximum number of Maven processes running at the same time (default: 2)
+    #[serde(default = "default_max_concurrent")]
+    pub max_concurrent: usize,
+}
+
+fn default_max_concurrent() -> usize {
+    2
+}
+
+impl Default for ParallelConfig {
+    fn default() -> Self {
+        Self {
+            max_concurrent: default_max_concurrent(),
+        }
+    }
+}
+
+/// Configuration of the job queue shared by every tab
+#[derive(Deserialize, Clone, Debug, PartialEq)]
+pub struct JobsConfig {
+    /// Maximum number of jobs running at the same time
+    /// (default: half the CPUs, at least 2)
+    #[serde(default)]
+    pub max_jobs: Option<usize>,
+
+    /// Load average per CPU above which jobs wait, 0 to disable (default: 1.0)
+    #[serde(default = "default_max_load_per_cpu")]
+    pub max_load_per_cpu: f64,
+
+    /// Available memory below which jobs wait, in MiB, 0 to disable
+    /// (default: 1024)
+    #[serde(default = "default_min_free_memory_mb")]
+    pub min_free_memory_mb: u64,
+}
+
+fn default_max_load_per_cpu() -> f64 {
+    1.0
+}
+
+fn default_min_free_memory_mb() -> u64 {
+    1024
+}
+
+impl Default for JobsConfig {
+    fn default() -> Self {
+        Self {
+            max_jobs: None,
+            max_load_per_cpu: default_max_load_per_cpu(),
+            min_free_memory_mb: default_min_free_memory_mb(),
+        }
+    }
 }
 
 /// Spring Boot configuration overrides
@@ -45,7 +130,21 @@ pub struct OutputConfig {
     #[serde(default = "default_max_lines")]
     pub max_lines: usize,
 
+    /// Move lines beyond `max_lines` to a file in the cache directory instead of dropping them (default: true)
+    ///
+    /// Spilled lines can still be scrolled to, searched and copied.
+    #[serde(default = "default_spill_to_disk")]
+    pub spill_to_disk: bool,
+
+    /// Maximum number of spilled lines kept per output (default: 1000000)
+    ///
+    /// The oldest spilled lines are dropped beyond it.
+    #[serde(default = "default_max_spilled_lines")]
+    pub max_spilled_lines: usize,
+
     /// Maximum number of updates to process per poll cycle (default: 100)
+    ///
+    /// Output lines are delivered in batches, so each batch counts as one update.
     #[serde(default = "default_max_updates_per_poll")]
     pub max_updates_per_poll: usize,
 }
@@ -54,6 +153,14 @@ fn default_max_lines() -> usize {
     10_000
 }
 
+fn default_spill_to_disk() -> bool {
+    true
+}
+
+fn default_max_spilled_lines() -> usize {
+    1_000_000
+}
+
 fn default_max_updates_per_poll() -> usize {
     100
 }
@@ -62,11 +169,20 @@ impl Default for OutputConfig {
     fn default() -> Self {
         Self {
             max_lines: default_max_lines(),
+            spill_to_disk: default_spill_to_disk(),
+            max_spilled_lines: default_max_spilled_lines(),
             max_updates_per_poll: default_max_updates_per_poll(),
         }
     }
 }
 
+impl OutputConfig {
+    /// Number of lines to keep spilled to disk, or None when lines beyond `max_lines` are dropped
+    pub fn spill_limit(&self) -> Option<usize> {
+        self.spill_to_disk.then_some(self.max_spilled_lines)
+    }
+}
+
 /// File watching configuration
 #[derive(Deserialize, Clone, Debug, PartialEq)]
 pub struct WatchConfig {
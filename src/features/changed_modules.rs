@@ -0,0 +1,102 @@
+//! Build what changed
+//!
+//! Changed files are mapped to the reactor modules owning them, and the
+//! selection is extended to every module depending on those through the
+//! reactor graph. Building the selection with a single `-pl` invocation
+//! verifies a change without rebuilding the whole reactor.
+
+use crate::maven::ReactorGraph;
+
+/// Modules to build for a set of changed files
+#[derive(Clone, Debug, Default, PartialEq, Eq)]
+pub struct ChangePlan {
+    /// Modules owning changed files, as paths relative to the project root
+    pub changed: Vec<String>,
+    /// Changed modules and every module depending on them, in build order
+    pub modules: Vec<String>,
+    /// Number of modules in the reactor
+    pub total: usize,
+}
+
+impl ChangePlan {
+    pub fn is_empty(&self) -> bool {
+        self.modules.is_empty()
+    }
+
+    /// Whether every module of the reactor has to be built
+    pub fn is_full_build(&self) -> bool {
+        !self.modules.is_empty() && self.modules.len() == self.total
+    }
+
+    /// Value of the `-pl` option selecting the planned modules
+    pub fn project_list(&self) -> String {
+        self.modules.join(",")
+    }
+}
+
+/// Plan the modules to build for files changed relative to the project root
+///
+/// Files of the root project only count when they can affect the build, that
+/// is its POM and sources; documentation or tooling at the top of the
+/// repository does not trigger a full build.
+pub fn plan_changed_build(graph: &ReactorGraph, changed_files: &[String]) -> ChangePlan {
+    let mut owners: Vec<usize> = Vec::new();
+    for file in changed_files {
+        let Some(owner) = graph.owner_of(file) else {
+            continue;
+        };
+        let module = &graph.modules()[owner];
+        if module.path == "." && file != "pom.xml" && !file.starts_with("src/") {
+            continue;
+        }
+        if !owners.contains(&owner) {
+            owners.push(owner);
+        }
+    }
+
+    let path_of = |index: usize| graph.modules()[index].path.clone();
+    let changed = graph
+        .build_order()
+        .into_iter()
+        .filter(|index| owners.contains(index))
+        .map(path_of)
+        .collect();
+    ChangePlan {
+        changed,
+        modules: graph.downstream(&owners).into_iter().map(path_of).collect(),
+        total: graph.modules().len(),
+    }
+}
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+    use crate::maven::reactor::sample_graph;
+
+    fn files(files: &[&str]) -> Vec<String> {
+        files.iter().map(|file| file.to_string()).collect()
+    }
+
+    #[test]
+    fn test_changed_module_and_dependents_are_planned() {
+        let graph = sample_graph();
+        let plan = plan_changed_build(
+            &graph,
+            &files(&["service/src/main/java/A.java", "service/pom.xml"]),
+        );
+        assert_eq!(plan.changed, vec!["service"]);
+        assert_eq!(plan.modules, vec!["service", "web"]);
+        assert_eq!(plan.project_list(), "service,web");
+        assert!(!plan.is_full_build());
+    }
+
+    #[test]
+    fn test_root_files_outside_the_build_are_ignored() {
+        let graph = sample_graph();
+        assert!(plan_changed_build(&graph, &files(&["README.md", "docs/index.md"])).is_empty());
+
+        let plan = plan_changed_build(&graph, &files(&["pom.xml", "tools/run.sh"]));
+        assert_eq!(plan.changed, vec![".", "tools"]);
+        assert!(plan.is_full_build());
+    }
+}
@@ -1,8 +1,13 @@
 use serde::{Deserialize, Serialize};
+use std::collections::BTreeMap;
 use std::fs;
 use std::path::PathBuf;
 
 /// A favorite command bookmark
+///
+/// A favorite with steps is a pipeline: its steps run one after the other,
+/// each once the previous one succeeded, and its own module, goal, profiles
+/// and flags are those of the first step.
 #[derive(Debug, Clone, Serialize, Deserialize)]
 pub struct Favorite {
     pub name: String,
@@ -10,6 +15,70 @@ pub struct Favorite {
     pub goal: String,
     pub profiles: Vec<String>,
     pub flags: Vec<String>,
+    #[serde(default, skip_serializing_if = "Vec::is_empty")]
+    pub steps: Vec<PipelineStep>,
+}
+
+/// A command of a pipeline or of a tab's command queue
+#[derive(Debug, Clone, PartialEq, Serialize, Deserialize)]
+pub struct PipelineStep {
+    pub module: String,
+    pub goal: String,
+    /// Exact arguments, when splitting `goal` on whitespace does not give them back
+    #[serde(default, skip_serializing_if = "Vec::is_empty")]
+    pub args: Vec<String>,
+    #[serde(default)]
+    pub profiles: Vec<String>,
+    #[serde(default)]
+    pub flags: Vec<String>,
+    /// Select the module with `-f` instead of `-pl`
+    #[serde(default, skip_serializing_if = "std::ops::Not::not")]
+    pub use_file_flag: bool,
+}
+
+impl PipelineStep {
+    /// Create a step running `args` on `module`
+    pub fn new(
+        module: String,
+        args: &[&str],
+        profiles: Vec<String>,
+        flags: Vec<String>,
+        use_file_flag: bool,
+    ) -> Self {
+        let goal = args.join(" ");
+        let splits_back = goal.split_whitespace().eq(args.iter().copied());
+        Self {
+            module,
+            args: if splits_back {
+                Vec::new()
+            } else {
+                args.iter().map(|arg| arg.to_string()).collect()
+            },
+            goal,
+            profiles,
+            flags,
+            use_file_flag,
+        }
+    }
+
+    /// Arguments passed to Maven
+    pub fn args(&self) -> Vec<String> {
+        if self.args.is_empty() {
+            self.goal.split_whitespace().map(str::to_string).collect()
+        } else {
+            self.args.clone()
+        }
+    }
+
+    /// Format the step for display
+    pub fn format_summary(&self) -> String {
+        let module_display = if self.module == "." {
+            "(root)"
+        } else {
+            self.module.as_str()
+        };
+        format!("[{}] {}", module_display, self.goal)
+    }
 }
 
 impl Favorite {
@@ -27,18 +96,50 @@ impl Favorite {
             goal,
             profiles,
             flags,
+            steps: Vec::new(),
+        }
+    }
+
+    /// Create a pipeline running `steps` in order, None without steps
+    pub fn pipeline(name: String, steps: Vec<PipelineStep>) -> Option<Self> {
+        let first = steps.first()?.clone();
+        Some(Self {
+            name,
+            module: first.module,
+            goal: first.goal,
+            profiles: first.profiles,
+            flags: first.flags,
+            steps,
+        })
+    }
+
+    pub fn is_pipeline(&self) -> bool {
+        !self.steps.is_empty()
+    }
+
+    /// Commands run by this favorite, in order
+    pub fn steps(&self) -> Vec<PipelineStep> {
+        if self.is_pipeline() {
+            return self.steps.clone();
         }
+        vec![PipelineStep {
+            module: self.module.clone(),
+            goal: self.goal.clone(),
+            args: Vec::new(),
+            profiles: self.profiles.clone(),
+            flags: self.flags.clone(),
+            use_file_flag: false,
+        }]
     }
 
     /// Format the favorite for display in list
     pub fn format_summary(&self) -> String {
-        let module_display = if self.module == "." {
-            "(root)".to_string()
-        } else {
-            self.module.clone()
-        };
-
-        format!("{} → [{}] {}", self.name, module_display, self.goal)
+        let steps: Vec<String> = self
+            .steps()
+            .iter()
+            .map(PipelineStep::format_summary)
+            .collect();
+        format!("{} → {}", self.name, steps.join(" ⇒ "))
     }
 }
 
@@ -148,10 +249,128 @@ impl Favorites {
     }
 }
 
+/// Commands waiting in each project's queue, kept across sessions
+///
+/// Queues are stored per project root as lists of pipeline steps, so
+/// commands still waiting when LazyMVN exits are restored with the project.
+#[derive(Debug, Default)]
+pub struct SavedQueues {
+    queues: BTreeMap<String, Vec<PipelineStep>>,
+    /// Where the queues are saved, or empty to keep them in memory
+    file_path: PathBuf,
+}
+
+impl SavedQueues {
+    /// Load saved queues from disk
+    pub fn load() -> Self {
+        let file_path = dirs::config_dir()
+            .unwrap_or_else(|| PathBuf::from("."))
+            .join("lazymvn")
+            .join("queues.json");
+
+        let queues = match fs::read_to_string(&file_path) {
+            Ok(contents) => serde_json::from_str(&contents).unwrap_or_else(|e| {
+                log::warn!("Failed to parse saved command queues: {}", e);
+                BTreeMap::new()
+            }),
+            Err(e) => {
+                if file_path.exists() {
+                    log::warn!("Failed to read saved command queues: {}", e);
+                }
+                BTreeMap::new()
+            }
+        };
+
+        Self { queues, file_path }
+    }
+
+    /// Commands queued for a project
+    pub fn get(&self, project: &str) -> &[PipelineStep] {
+        self.queues.get(project).map_or(&[], Vec::as_slice)
+    }
+
+    /// Replace the commands queued for a project, saving them if they changed
+    pub fn set(&mut self, project: &str, steps: Vec<PipelineStep>) {
+        if self.get(project) == steps.as_slice() {
+            return;
+        }
+        if steps.is_empty() {
+            self.queues.remove(project);
+        } else {
+            self.queues.insert(project.to_string(), steps);
+        }
+        self.save();
+    }
+
+    fn save(&self) {
+        if self.file_path.as_os_str().is_empty() {
+            return;
+        }
+        if let Some(parent) = self.file_path.parent() {
+            let _ = fs::create_dir_all(parent);
+        }
+
+        match serde_json::to_string_pretty(&self.queues) {
+            Ok(json) => {
+                if let Err(e) = fs::write(&self.file_path, json) {
+                    log::error!("Failed to save command queues: {}", e);
+                }
+            }
+            Err(e) => {
+                log::error!("Failed to serialize command queues: {}", e);
+            }
+        }
+    }
+}
+
 #[cfg(test)]
 mod tests {
     use super::*;
 
+    #[test]
+    fn pipeline_steps_roundtrip_in_favorites_format() {
+        let steps = vec![
+            PipelineStep::new(
+                "library".to_string(),
+                &["clean", "install"],
+                vec!["dev".to_string()],
+                vec![],
+                false,
+            ),
+            PipelineStep::new(
+                "app".to_string(),
+                &["spring-boot:run", "-Dspring-boot.run.jvmArguments=-Xmx1g -Da=b"],
+                vec![],
+                vec![],
+                true,
+            ),
+        ];
+        let pipeline = Favorite::pipeline("Run app".to_string(), steps.clone()).unwrap();
+        assert_eq!(pipeline.module, "library");
+        assert_eq!(
+            pipeline.format_summary(),
+            "Run app → [library] clean install ⇒ [app] spring-boot:run \
+             -Dspring-boot.run.jvmArguments=-Xmx1g -Da=b"
+        );
+
+        let json = serde_json::to_string(&vec![pipeline]).unwrap();
+        let loaded: Vec<Favorite> = serde_json::from_str(&json).unwrap();
+        assert_eq!(loaded[0].steps(), steps);
+        // Arguments containing spaces survive, plain goals are split back
+        assert_eq!(steps[0].args(), vec!["clean", "install"]);
+        assert_eq!(steps[1].args().len(), 2);
+    }
+
+    #[test]
+    fn favorites_without_steps_still_load() {
+        let json = r#"[{"name":"Build","module":".","goal":"install","profiles":[],"flags":[]}]"#;
+        let loaded: Vec<Favorite> = serde_json::from_str(json).unwrap();
+        assert!(!loaded[0].is_pipeline());
+        assert_eq!(loaded[0].steps().len(), 1);
+        assert_eq!(loaded[0].steps()[0].args(), vec!["install"]);
+        assert!(!serde_json::to_string(&loaded).unwrap().contains("steps"));
+    }
+
     #[test]
     fn favorite_format_summary_with_root_module() {
         let fav = Favorite::new(
@@ -0,0 +1,313 @@
+//! Process-wide job queue
+//!
+//! Every Maven or Spring Boot process started by any tab goes through one
+//! queue. A job starts right away while the machine has room for it and waits
+//! otherwise; waiting jobs are admitted by priority as running jobs finish and
+//! the load drops. [`JobLimits`] defines the room: a number of job slots, a
+//! load average per CPU and an amount of available memory.
+
+use crate::core::config::JobsConfig;
+use crate::utils::system_load::SystemLoad;
+use std::cmp::Reverse;
+use std::collections::VecDeque;
+use std::time::{Duration, Instant};
+
+/// How long a started job takes to show in the one-minute load average
+///
+/// Each job started more recently counts as one more unit of load, so a burst
+/// of admissions does not overshoot before the load average catches up.
+const LOAD_SETTLE_TIME: Duration = Duration::from_secs(30);
+
+/// A process some tab wants to start
+#[derive(Clone, Debug, PartialEq, Eq, Hash)]
+pub struct JobId {
+    pub tab_id: usize,
+    /// Module of a parallel run, or None for the tab's own command
+    pub module: Option<String>,
+}
+
+impl JobId {
+    pub fn command(tab_id: usize) -> Self {
+        Self {
+            tab_id,
+            module: None,
+        }
+    }
+
+    pub fn module(tab_id: usize, module: &str) -> Self {
+        Self {
+            tab_id,
+            module: Some(module.to_string()),
+        }
+    }
+}
+
+/// Priority of a waiting job, the highest being admitted first
+#[derive(Clone, Copy, Debug, PartialEq, Eq, PartialOrd, Ord)]
+pub enum JobPriority {
+    /// A module of a parallel run
+    Background,
+    /// A command started in a tab, whose output the user is waiting for
+    Command,
+}
+
+/// Limits on the jobs running at the same time
+#[derive(Clone, Debug, PartialEq)]
+pub struct JobLimits {
+    pub max_jobs: usize,
+    /// Highest load average per CPU at which another job may start
+    pub max_load_per_cpu: Option<f64>,
+    /// Memory that has to stay available for another job to start, in MiB
+    pub min_free_memory_mb: Option<u64>,
+}
+
+impl JobLimits {
+    /// Limits from the configuration, with zero disabling a check
+    pub fn from_config(config: &JobsConfig, cpus: usize) -> Self {
+        Self {
+            max_jobs: config
+                .max_jobs
+                .unwrap_or((cpus / 2).max(2))
+                .max(1),
+            max_load_per_cpu: Some(config.max_load_per_cpu).filter(|&load| load > 0.0),
+            min_free_memory_mb: Some(config.min_free_memory_mb).filter(|&memory| memory > 0),
+        }
+    }
+
+    /// Check whether one more job may start, explaining why not otherwise
+    ///
+    /// `recent_starts` jobs started too recently to show in the load average.
+    /// The first job always starts, so builds make progress even while other
+    /// programs keep the machine busy.
+    pub fn check(&self, running: usize, recent_starts: usize, load: &SystemLoad) -> Result<(), String> {
+        if running >= self.max_jobs {
+            return Err(format!("{}/{} job slots busy", running, self.max_jobs));
+        }
+        if running == 0 {
+            return Ok(());
+        }
+        if let (Some(max_load), Some(load_average)) = (self.max_load_per_cpu, load.load_average) {
+            let projected = load_average + recent_starts as f64;
+            if projected > max_load * load.cpus as f64 {
+                return Err(format!(
+                    "load average {:.1} on {} CPUs",
+                    load_average, load.cpus
+                ));
+            }
+        }
+        if let (Some(min_memory), Some(available)) =
+            (self.min_free_memory_mb, load.available_memory_mb)
+            && available < min_memory
+        {
+            return Err(format!("only {} MiB of memory available", available));
+        }
+        Ok(())
+    }
+}
+
+#[derive(Clone, Debug)]
+struct WaitingJob {
+    id: JobId,
+    priority: JobPriority,
+    queued_at: Instant,
+}
+
+/// Jobs waiting for room to start
+#[derive(Debug, Default)]
+pub struct JobQueue {
+    /// Waiting jobs in arrival order
+    waiting: Vec<WaitingJob>,
+    /// When the recently started jobs started, oldest first
+    recent_starts: VecDeque<Instant>,
+    /// Why the next job could not start at the last admission
+    blocked_by: Option<String>,
+}
+
+impl JobQueue {
+    /// Add a job to wait for its turn, unless it already waits
+    pub fn enqueue(&mut self, id: JobId, priority: JobPriority) {
+        if self.contains(&id) {
+            return;
+        }
+        log::debug!("Queued job {:?} with priority {:?}", id, priority);
+        self.waiting.push(WaitingJob {
+            id,
+            priority,
+            queued_at: Instant::now(),
+        });
+    }
+
+    /// Remove a waiting job, returning whether it was waiting
+    pub fn remove(&mut self, id: &JobId) -> bool {
+        let before = self.waiting.len();
+        self.waiting.retain(|job| job.id != *id);
+        self.clear_if_empty();
+        self.waiting.len() != before
+    }
+
+    /// Remove every waiting job of a tab
+    pub fn remove_tab(&mut self, tab_id: usize) {
+        self.waiting.retain(|job| job.id.tab_id != tab_id);
+        self.clear_if_empty();
+    }
+
+    fn clear_if_empty(&mut self) {
+        if self.waiting.is_empty() {
+            self.blocked_by = None;
+        }
+    }
+
+    pub fn contains(&self, id: &JobId) -> bool {
+        self.waiting.iter().any(|job| job.id == *id)
+    }
+
+    pub fn len(&self) -> usize {
+        self.waiting.len()
+    }
+
+    pub fn is_empty(&self) -> bool {
+        self.waiting.is_empty()
+    }
+
+    /// Why the next job could not start, while jobs are waiting
+    pub fn blocked_by(&self) -> Option<&str> {
+        self.blocked_by.as_deref()
+    }
+
+    /// Indices of the waiting jobs in admission order
+    ///
+    /// Higher priorities come first, then jobs of `preferred_tab`, then the
+    /// oldest.
+    fn admission_order(&self, preferred_tab: usize) -> Vec<usize> {
+        let mut order: Vec<usize> = (0..self.waiting.len()).collect();
+        order.sort_by_key(|&index| {
+            let job = &self.waiting[index];
+            (Reverse(job.priority), job.id.tab_id != preferred_tab)
+        });
+        order
+    }
+
+    /// Position of a waiting job in admission order, 0 being next
+    pub fn position(&self, id: &JobId, preferred_tab: usize) -> Option<usize> {
+        self.admission_order(preferred_tab)
+            .into_iter()
+            .position(|index| self.waiting[index].id == *id)
+    }
+
+    /// Take the next job if the limits let one more start
+    ///
+    /// `running` is the number of jobs running now. The caller reports the
+    /// job's process with [`record_start`](Self::record_start) once started.
+    pub fn admit_next(
+        &mut self,
+        limits: &JobLimits,
+        running: usize,
+        load: &SystemLoad,
+        preferred_tab: usize,
+    ) -> Option<JobId> {
+        let next = *self.admission_order(preferred_tab).first()?;
+        match limits.check(running, self.recent_start_count(), load) {
+            Ok(()) => {
+                let job = self.waiting.remove(next);
+                log::info!(
+                    "Admitted job {:?} after waiting {:?}",
+                    job.id,
+                    job.queued_at.elapsed()
+                );
+                self.blocked_by = None;
+                self.clear_if_empty();
+                Some(job.id)
+            }
+            Err(reason) => {
+                if self.blocked_by.as_deref() != Some(reason.as_str()) {
+                    log::info!("{} jobs waiting: {}", self.waiting.len(), reason);
+                }
+                self.blocked_by = Some(reason);
+                None
+            }
+        }
+    }
+
+    /// Record that an admitted job started its process
+    pub fn record_start(&mut self) {
+        self.recent_starts.push_back(Instant::now());
+    }
+
+    fn recent_start_count(&mut self) -> usize {
+        while self
+            .recent_starts
+            .front()
+            .is_some_and(|start| start.elapsed() > LOAD_SETTLE_TIME)
+        {
+            self.recent_starts.pop_front();
+        }
+        self.recent_starts.len()
+    }
+}
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+
+    fn load(load_average: f64, available_memory_mb: u64) -> SystemLoad {
+        SystemLoad {
+            load_average: Some(load_average),
+            available_memory_mb: Some(available_memory_mb),
+            cpus: 4,
+            sampled_at: Instant::now(),
+        }
+    }
+
+    fn limits() -> JobLimits {
+        JobLimits {
+            max_jobs: 3,
+            max_load_per_cpu: Some(1.0),
+            min_free_memory_mb: Some(1024),
+        }
+    }
+
+    #[test]
+    fn test_limits_check_slots_load_and_memory() {
+        let limits = limits();
+        assert!(limits.check(1, 0, &load(1.0, 8192)).is_ok());
+        assert!(limits.check(3, 0, &load(0.0, 8192)).is_err());
+        assert!(limits.check(1, 0, &load(4.5, 8192)).is_err());
+        // Jobs started recently count before the load average shows them
+        assert!(limits.check(1, 2, &load(2.5, 8192)).is_err());
+        assert!(limits.check(1, 0, &load(1.0, 512)).is_err());
+        // The first job always starts
+        assert!(limits.check(0, 0, &load(16.0, 128)).is_ok());
+    }
+
+    #[test]
+    fn test_admits_by_priority_then_tab_then_age() {
+        let mut queue = JobQueue::default();
+        queue.enqueue(JobId::module(1, "a"), JobPriority::Background);
+        queue.enqueue(JobId::command(2), JobPriority::Command);
+        queue.enqueue(JobId::command(1), JobPriority::Command);
+        queue.enqueue(JobId::command(1), JobPriority::Command);
+        assert_eq!(queue.len(), 3);
+        assert_eq!(queue.position(&JobId::command(1), 1), Some(0));
+
+        let idle = load(0.0, 8192);
+        let admitted: Vec<JobId> =
+            std::iter::from_fn(|| queue.admit_next(&limits(), 0, &idle, 1)).collect();
+        assert_eq!(
+            admitted,
+            vec![JobId::command(1), JobId::command(2), JobId::module(1, "a")]
+        );
+    }
+
+    #[test]
+    fn test_waits_while_the_limits_are_reached() {
+        let mut queue = JobQueue::default();
+        queue.enqueue(JobId::command(1), JobPriority::Command);
+        assert_eq!(queue.admit_next(&limits(), 3, &load(0.0, 8192), 1), None);
+        assert_eq!(queue.blocked_by(), Some("3/3 job slots busy"));
+        assert_eq!(
+            queue.admit_next(&limits(), 2, &load(0.0, 8192), 1),
+            Some(JobId::command(1))
+        );
+        assert_eq!(queue.blocked_by(), None);
+    }
+}
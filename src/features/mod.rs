@@ -1,12 +1,18 @@
 //! Optional features module
 //!
 //! This module contains optional features that enhance the user experience:
+//! - `changed_modules`: Plan builds of the modules affected by local changes
 //! - `favorites`: Save and load favorite command configurations
 //! - `history`: Track command execution history
+//! - `job_queue`: Admit builds of every tab according to the machine's load
+//! - `parallel_build`: Schedule goals run on several modules at once
 //! - `starters`: Spring Boot starter dependency management
 
+pub mod changed_modules;
 pub mod favorites;
 pub mod history;
+pub mod job_queue;
+pub mod parallel_build;
 pub mod starters;
 
 // Re-export main types for convenience (used by UI state and other modules)
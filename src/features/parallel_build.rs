@@ -0,0 +1,342 @@
+//! Parallel module builds
+//!
+//! A goal run on several marked modules starts one Maven process per module.
+//! The schedule decides when each of them may start: a module waits for the
+//! marked modules it depends on, directly or through other modules, so their
+//! artifacts are built first, and is skipped when one of them fails. At most
+//! `max_concurrent` modules are queued or running at the same time; queued
+//! modules start once the job queue admits them.
+
+use crate::maven::ReactorGraph;
+use std::time::{Duration, Instant};
+
+/// Progress of a module in a parallel build
+#[derive(Clone, Debug, PartialEq, Eq)]
+pub enum JobState {
+    /// Waiting for a free slot or for the modules it depends on
+    Pending,
+    /// Ready, waiting for the job queue to admit it
+    Queued,
+    Running,
+    Succeeded,
+    Failed(String),
+    /// Never started, with the reason
+    Skipped(String),
+}
+
+impl JobState {
+    /// Symbol shown next to the module
+    pub fn symbol(&self) -> &'static str {
+        match self {
+            JobState::Pending => "◌",
+            JobState::Queued => "◔",
+            JobState::Running => "⟳",
+            JobState::Succeeded => "✓",
+            JobState::Failed(_) => "✗",
+            JobState::Skipped(_) => "⊘",
+        }
+    }
+
+    pub fn is_done(&self) -> bool {
+        matches!(
+            self,
+            JobState::Succeeded | JobState::Failed(_) | JobState::Skipped(_)
+        )
+    }
+}
+
+/// A module of a parallel build
+#[derive(Clone, Debug)]
+pub struct ModuleJob {
+    pub module: String,
+    pub state: JobState,
+    started: Option<Instant>,
+    finished: Option<Instant>,
+    /// Indices of the jobs that have to succeed before this one starts
+    waits_for: Vec<usize>,
+}
+
+impl ModuleJob {
+    /// Time spent running so far, or in total once finished
+    pub fn elapsed(&self) -> Option<Duration> {
+        let started = self.started?;
+        Some(
+            self.finished
+                .unwrap_or_else(Instant::now)
+                .duration_since(started),
+        )
+    }
+}
+
+/// Number of modules in each state
+#[derive(Clone, Copy, Debug, Default, PartialEq, Eq)]
+pub struct ScheduleSummary {
+    pub pending: usize,
+    pub queued: usize,
+    pub running: usize,
+    pub succeeded: usize,
+    pub failed: usize,
+    pub skipped: usize,
+}
+
+impl ScheduleSummary {
+    pub fn total(&self) -> usize {
+        self.pending + self.queued + self.running + self.succeeded + self.failed + self.skipped
+    }
+
+    pub fn done(&self) -> usize {
+        self.succeeded + self.failed + self.skipped
+    }
+}
+
+/// Order in which the modules of a parallel build may start
+#[derive(Clone, Debug)]
+pub struct BuildSchedule {
+    /// Jobs in reactor build order
+    jobs: Vec<ModuleJob>,
+    max_concurrent: usize,
+}
+
+impl BuildSchedule {
+    /// Schedule `modules`, constrained by the reactor graph when it is known
+    ///
+    /// Without a graph the modules are independent and start in the given order.
+    pub fn new(graph: Option<&ReactorGraph>, modules: &[String], max_concurrent: usize) -> Self {
+        let mut modules: Vec<&String> = modules.iter().collect();
+        let mut seen = std::collections::HashSet::new();
+        modules.retain(|module| seen.insert(*module));
+
+        let mut indices: Vec<(Option<usize>, &String)> = modules
+            .into_iter()
+            .map(|module| (graph.and_then(|graph| graph.index_of(module)), module))
+            .collect();
+        if let Some(graph) = graph {
+            let order = graph.build_order();
+            let mut rank = vec![0; order.len()];
+            for (position, &index) in order.iter().enumerate() {
+                rank[index] = position;
+            }
+            // Modules missing from the graph keep their place after the others
+            indices.sort_by_key(|(index, _)| index.map_or(usize::MAX, |index| rank[index]));
+        }
+
+        let jobs = indices
+            .iter()
+            .enumerate()
+            .map(|(position, (index, module))| {
+                let upstream = match (graph, index) {
+                    (Some(graph), Some(index)) => graph.upstream(&[*index]),
+                    _ => Vec::new(),
+                };
+                let waits_for = indices
+                    .iter()
+                    .enumerate()
+                    .filter(|(other, (other_index, _))| {
+                        *other != position
+                            && other_index.is_some_and(|other_index| upstream.contains(&other_index))
+                    })
+                    .map(|(other, _)| other)
+                    .collect();
+                ModuleJob {
+                    module: (*module).clone(),
+                    state: JobState::Pending,
+                    started: None,
+                    finished: None,
+                    waits_for,
+                }
+            })
+            .collect();
+
+        Self {
+            jobs,
+            max_concurrent: max_concurrent.max(1),
+        }
+    }
+
+    pub fn jobs(&self) -> &[ModuleJob] {
+        &self.jobs
+    }
+
+    pub fn max_concurrent(&self) -> usize {
+        self.max_concurrent
+    }
+
+    pub fn state_of(&self, module: &str) -> Option<&JobState> {
+        self.jobs
+            .iter()
+            .find(|job| job.module == module)
+            .map(|job| &job.state)
+    }
+
+    pub fn summary(&self) -> ScheduleSummary {
+        let mut summary = ScheduleSummary::default();
+        for job in &self.jobs {
+            match job.state {
+                JobState::Pending => summary.pending += 1,
+                JobState::Queued => summary.queued += 1,
+                JobState::Running => summary.running += 1,
+                JobState::Succeeded => summary.succeeded += 1,
+                JobState::Failed(_) => summary.failed += 1,
+                JobState::Skipped(_) => summary.skipped += 1,
+            }
+        }
+        summary
+    }
+
+    /// Whether every module succeeded, failed or was skipped
+    pub fn is_finished(&self) -> bool {
+        self.jobs.iter().all(|job| job.state.is_done())
+    }
+
+    /// Mark the modules that may start as queued, while slots are free
+    ///
+    /// Returns the modules to queue, in build order. Each one runs once
+    /// [`start`](Self::start) is called for it.
+    pub fn start_ready(&mut self) -> Vec<String> {
+        let summary = self.summary();
+        let mut running = summary.queued + summary.running;
+        let mut started = Vec::new();
+        for index in 0..self.jobs.len() {
+            if running >= self.max_concurrent {
+                break;
+            }
+            let job = &self.jobs[index];
+            let ready = job.state == JobState::Pending
+                && job
+                    .waits_for
+                    .iter()
+                    .all(|&other| self.jobs[other].state == JobState::Succeeded);
+            if !ready {
+                continue;
+            }
+            let job = &mut self.jobs[index];
+            job.state = JobState::Queued;
+            started.push(job.module.clone());
+            running += 1;
+        }
+        started
+    }
+
+    /// Mark a queued module as running, returning whether it was queued
+    pub fn start(&mut self, module: &str) -> bool {
+        let Some(job) = self
+            .jobs
+            .iter_mut()
+            .find(|job| job.module == module && job.state == JobState::Queued)
+        else {
+            return false;
+        };
+        job.state = JobState::Running;
+        job.started = Some(Instant::now());
+        true
+    }
+
+    /// Record the outcome of a running module
+    ///
+    /// A failure skips every pending module waiting for this one.
+    pub fn finish(&mut self, module: &str, result: Result<(), String>) {
+        let Some(index) = self
+            .jobs
+            .iter()
+            .position(|job| job.module == module && job.state == JobState::Running)
+        else {
+            return;
+        };
+        self.jobs[index].finished = Some(Instant::now());
+        match result {
+            Ok(()) => self.jobs[index].state = JobState::Succeeded,
+            Err(message) => {
+                self.jobs[index].state = JobState::Failed(message);
+                let reason = format!("{} failed", module);
+                for job in &mut self.jobs {
+                    if job.state == JobState::Pending && job.waits_for.contains(&index) {
+                        job.state = JobState::Skipped(reason.clone());
+                    }
+                }
+            }
+        }
+    }
+
+    /// Skip every module that has not started yet
+    pub fn cancel(&mut self, reason: &str) {
+        for job in &mut self.jobs {
+            if matches!(job.state, JobState::Pending | JobState::Queued) {
+                job.state = JobState::Skipped(reason.to_string());
+            }
+        }
+    }
+}
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+    use crate::maven::reactor::sample_graph;
+
+    fn modules(modules: &[&str]) -> Vec<String> {
+        modules.iter().map(|module| module.to_string()).collect()
+    }
+
+    /// Queue the ready modules and start them right away
+    fn start_ready(schedule: &mut BuildSchedule) -> Vec<String> {
+        let ready = schedule.start_ready();
+        for module in &ready {
+            assert!(schedule.start(module));
+        }
+        ready
+    }
+
+    #[test]
+    fn test_modules_wait_for_marked_upstream_modules() {
+        let graph = sample_graph();
+        // web depends on model through service, which is not marked
+        let mut schedule =
+            BuildSchedule::new(Some(&graph), &modules(&["web", "tools", "model"]), 2);
+        let order: Vec<&str> = schedule.jobs().iter().map(|job| job.module.as_str()).collect();
+        assert_eq!(order, vec!["model", "web", "tools"]);
+
+        assert_eq!(start_ready(&mut schedule), vec!["model", "tools"]);
+        assert!(start_ready(&mut schedule).is_empty());
+
+        schedule.finish("tools", Ok(()));
+        assert!(start_ready(&mut schedule).is_empty());
+        schedule.finish("model", Ok(()));
+        assert_eq!(start_ready(&mut schedule), vec!["web"]);
+        schedule.finish("web", Ok(()));
+
+        assert!(schedule.is_finished());
+        assert_eq!(schedule.summary().succeeded, 3);
+    }
+
+    #[test]
+    fn test_failure_skips_dependents() {
+        let graph = sample_graph();
+        let mut schedule =
+            BuildSchedule::new(Some(&graph), &modules(&["model", "web", "tools"]), 1);
+        assert_eq!(start_ready(&mut schedule), vec!["model"]);
+        schedule.finish("model", Err("exit code 1".to_string()));
+
+        assert_eq!(
+            schedule.state_of("web"),
+            Some(&JobState::Skipped("model failed".to_string()))
+        );
+        assert_eq!(start_ready(&mut schedule), vec!["tools"]);
+        schedule.cancel("cancelled");
+        schedule.finish("tools", Ok(()));
+
+        let summary = schedule.summary();
+        assert_eq!((summary.failed, summary.skipped, summary.succeeded), (1, 1, 1));
+        assert!(schedule.is_finished());
+    }
+
+    #[test]
+    fn test_modules_are_independent_without_graph() {
+        let mut schedule = BuildSchedule::new(None, &modules(&["b", "a", "b"]), 4);
+        assert_eq!(schedule.jobs().len(), 2);
+        assert_eq!(schedule.start_ready(), vec!["b", "a"]);
+        // Queued modules hold their slot until they start
+        assert_eq!(schedule.summary().queued, 2);
+        assert!(schedule.start("a"));
+        assert!(!schedule.start("a"));
+        assert_eq!(schedule.state_of("a"), Some(&JobState::Running));
+    }
+}
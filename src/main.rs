@@ -49,6 +49,18 @@ struct Cli {
     /// Generate a lazymvn.toml configuration file in the current directory
     #[arg(long)]
     setup: bool,
+
+    /// Rotate log files once they reach this size in megabytes (at least 1)
+    #[arg(long, value_parser = clap::value_parser!(u64).range(1..), default_value_t = 10)]
+    log_max_size_mb: u64,
+
+    /// Rotate log files once they are older than this many hours (at least 1)
+    #[arg(long, value_parser = clap::value_parser!(u64).range(1..), default_value_t = 24)]
+    log_max_age_hours: u64,
+
+    /// Number of rotated log files to keep
+    #[arg(long, default_value_t = 5)]
+    log_retention: usize,
 }
 
 fn main() -> Result<(), Box<dyn std::error::Error>> {
@@ -61,9 +73,16 @@ fn main() -> Result<(), Box<dyn std::error::Error>> {
 
     // Initialize logger based on debug flag
     let log_level = if cli.debug { Some("debug") } else { None };
-    if let Err(e) = utils::logger::init(log_level) {
+    let log_rotation = utils::log_rotation::LogRotation {
+        max_bytes: cli.log_max_size_mb.saturating_mul(1024 * 1024),
+        max_age: std::time::Duration::from_secs(cli.log_max_age_hours.saturating_mul(3600)),
+        retention: cli.log_retention,
+    };
+    if let Err(e) = utils::logger::init(log_level, log_rotation) {
         eprintln!("Failed to initialize logger: {}", e);
     }
+    // Queued log records are written out however main returns
+    let _flush_logs = utils::logger::FlushGuard;
 
     // Show log location if debug is enabled
     if cli.debug {
@@ -245,25 +264,70 @@ fn run<B: ratatui::backend::Backend>(
     ctrlc::set_handler(move || {
         log::info!("Received interrupt signal (Ctrl+C), initiating shutdown");
         r.store(false, Ordering::SeqCst);
+        utils::wakeup::wake();
     })
     .expect("Error setting Ctrl-C handler");
 
-    loop {
+    // Frames are only drawn when a pane changed, see tui::FrameScheduler
+    let mut frames = tui::FrameScheduler::new();
+    let input = tui::InputReader::spawn();
+
+    // Every producer wakes the loop through utils::wakeup; it sleeps otherwise
+    'main: loop {
         // Check if we received an interrupt signal
         if !running.load(Ordering::SeqCst) {
             log::info!("Interrupt signal detected, breaking main loop");
             break;
         }
-        // Poll for command updates first
-        state.poll_command_updates();
+
+        // Handle all pending input first so it is drawn in this pass
+        while let Some(event) = input.try_next() {
+            // Any input may change what is shown anywhere
+            frames.mark(tui::DirtyPanes::ALL);
+            match event? {
+                event::Event::Key(key) => {
+                    if key.code == event::KeyCode::Char('q') && !state.show_projects_popup {
+                        log::info!("User requested quit");
+                        break 'main;
+                    }
+                    tui::handle_key_event(key, &mut state);
+                }
+                event::Event::Mouse(mouse) => {
+                    tui::handle_mouse_event(mouse, &mut state);
+                }
+                _ => {}
+            }
+        }
+
+        // Then drain the background producers
+        if state.poll_command_updates() {
+            frames.mark(tui::DirtyPanes::OUTPUT);
+        }
+        if state.poll_global_search() {
+            frames.mark(tui::DirtyPanes::OUTPUT | tui::DirtyPanes::FOOTER);
+        }
+        if state.poll_export() {
+            frames.mark(tui::DirtyPanes::OUTPUT | tui::DirtyPanes::FOOTER);
+        }
 
         // Poll for profile loading updates
-        state.poll_profiles_updates();
+        if state.poll_profiles_updates() {
+            frames.mark(tui::DirtyPanes::PROFILES);
+        }
 
         // Check file watcher for auto-reload
-        state.check_file_watcher();
+        if state.check_file_watcher() {
+            frames.mark(tui::DirtyPanes::ALL);
+        }
+
+        // The running command indicator counts seconds
+        frames.tick_elapsed(state.command_elapsed_seconds());
 
-        tui::draw(terminal, &mut state)?;
+        let now = std::time::Instant::now();
+        if frames.should_draw(now) {
+            tui::draw(terminal, &mut state)?;
+            frames.frame_drawn(now, now.elapsed(), state.command_elapsed_seconds());
+        }
 
         // TODO: Project switching disabled during tabs migration
         // This will be replaced with tab management in Phase 5
@@ -276,7 +340,8 @@ fn run<B: ratatui::backend::Backend>(
             if let Err(e) = std::env::set_current_dir(&new_project) {
                 log::error!("Failed to switch to project: {}", e);
                 let tab = state.get_active_tab_mut();
-                tab.command_output = vec![format!("Error: Failed to switch to project: {}", e)];
+                tab.command_output
+                    .set_lines(vec![format!("Error: Failed to switch to project: {}", e)]);
                 continue;
             }
 
@@ -312,7 +377,8 @@ fn run<B: ratatui::backend::Backend>(
                 Err(e) => {
                     log::error!("Failed to load new project: {}", e);
                     let tab = state.get_active_tab_mut();
-                    tab.command_output = vec![format!("Error: Failed to load project: {}", e)];
+                    tab.command_output
+                        .set_lines(vec![format!("Error: Failed to load project: {}", e)]);
                 }
             }
         }
@@ -322,6 +388,9 @@ fn run<B: ratatui::backend::Backend>(
         if let Some((editor, file_path)) = state.editor_command.take() {
             log::info!("Opening editor: {} {}", editor, file_path);
 
+            // Leave the terminal's input to the editor
+            input.pause();
+
             // Exit raw mode and alternate screen
             crossterm::terminal::disable_raw_mode()?;
             crossterm::execute!(io::stdout(), crossterm::terminal::LeaveAlternateScreen)?;
@@ -347,57 +416,50 @@ fn run<B: ratatui::backend::Backend>(
 
                         if config_changed {
                             let tab = state.get_active_tab_mut();
-                            tab.command_output = vec![
+                            tab.command_output.set_lines(vec![
                                 "✅ Configuration file saved and reloaded.".to_string(),
                                 String::new(),
                                 "Changes have been applied successfully.".to_string(),
-                            ];
+                            ]);
                             log::info!("Configuration reloaded successfully");
                         } else {
                             let tab = state.get_active_tab_mut();
-                            tab.command_output = vec![
+                            tab.command_output.set_lines(vec![
                                 "✅ Configuration file saved (no changes detected).".to_string(),
-                            ];
+                            ]);
                             log::info!("Configuration unchanged");
                         }
                     } else {
                         log::warn!("Editor exited with non-zero status: {:?}", exit_status);
                         let tab = state.get_active_tab_mut();
-                        tab.command_output =
-                            vec![format!("⚠️  Editor exited with status: {:?}", exit_status)];
+                        tab.command_output.set_lines(vec![format!(
+                            "⚠️  Editor exited with status: {:?}",
+                            exit_status
+                        )]);
                     }
                 }
                 Err(e) => {
                     log::error!("Failed to launch editor: {}", e);
                     let tab = state.get_active_tab_mut();
-                    tab.command_output = vec![
+                    tab.command_output.set_lines(vec![
                         format!("❌ Failed to launch editor '{}': {}", editor, e),
                         String::new(),
                         "Please check that the EDITOR environment variable is set correctly."
                             .to_string(),
-                    ];
+                    ]);
                 }
             }
 
             // Clear the terminal to refresh the display
             terminal.clear()?;
+            input.resume();
+            frames.mark(tui::DirtyPanes::ALL);
+            continue;
         }
 
-        if event::poll(std::time::Duration::from_millis(50))? {
-            match event::read()? {
-                event::Event::Key(key) => {
-                    if key.code == event::KeyCode::Char('q') && !state.show_projects_popup {
-                        log::info!("User requested quit");
-                        break;
-                    }
-                    tui::handle_key_event(key, &mut state);
-                }
-                event::Event::Mouse(mouse) => {
-                    tui::handle_mouse_event(mouse, &mut state);
-                }
-                _ => {}
-            }
-        }
+        // Sleep until a producer wakes us, a pending frame is due or a timer ticks
+        let now = std::time::Instant::now();
+        utils::wakeup::wait(frames.sleep_time(now, state.next_tick_in()));
     }
 
     // Cleanup before exit - kill any running Maven processes
@@ -3,14 +3,15 @@
 use crate::core::config::LoggingConfig;
 use crate::utils;
 use std::{
-    io::{BufRead, BufReader},
+    io::{BufRead, BufReader, Read},
     path::Path,
     process::{Command, Stdio},
     sync::mpsc,
     thread,
+    time::{Duration, Instant},
 };
 
-use super::process::CommandUpdate;
+use super::process::{COMMAND_CHANNEL_CAPACITY, CommandUpdate};
 
 /// Extract logging overrides from config
 ///
@@ -375,6 +376,78 @@ pub fn execute_maven_command_with_options(
     Ok(output)
 }
 
+/// Maximum number of lines coalesced into a single output batch
+const OUTPUT_BATCH_MAX_LINES: usize = 256;
+
+/// Maximum time a line may wait in a batch while more output keeps arriving
+const OUTPUT_BATCH_MAX_DELAY: Duration = Duration::from_millis(20);
+
+/// Read a process stream and forward its cleaned lines as output batches
+///
+/// Lines are cleaned once here, straight from the bytes read from the pipe,
+/// and stored clean; nothing downstream strips escape codes again. Lines that
+/// are not valid UTF-8 are skipped.
+///
+/// A batch is sent when it is full, when its oldest line has waited for
+/// `OUTPUT_BATCH_MAX_DELAY`, or as soon as no more data is buffered, so a
+/// quiet process never leaves lines stuck in a partial batch.
+fn forward_output_batches<R: Read>(
+    stream: R,
+    tx: &mpsc::SyncSender<CommandUpdate>,
+    prefix: &str,
+) {
+    let mut reader = BufReader::new(stream);
+    let mut line = Vec::new();
+    let mut batch = Vec::new();
+    let mut batch_started = Instant::now();
+
+    loop {
+        line.clear();
+        match reader.read_until(b'\n', &mut line) {
+            Ok(0) => break,
+            Ok(_) => {
+                let raw = line.strip_suffix(b"\n").unwrap_or(&line[..]);
+                if let Some(text) = utils::clean_log_bytes(raw) {
+                    if batch.is_empty() {
+                        batch_started = Instant::now();
+                    }
+                    if prefix.is_empty() {
+                        batch.push(text.into_owned());
+                    } else {
+                        batch.push(format!("{prefix}{text}"));
+                    }
+                }
+            }
+            Err(_) => break,
+        }
+
+        let should_flush = batch.len() >= OUTPUT_BATCH_MAX_LINES
+            || batch_started.elapsed() >= OUTPUT_BATCH_MAX_DELAY
+            || reader.buffer().is_empty();
+        if !batch.is_empty()
+            && should_flush
+            && !send_update(tx, CommandUpdate::OutputBatch(std::mem::take(&mut batch)))
+        {
+            return;
+        }
+    }
+
+    if !batch.is_empty() {
+        send_update(tx, CommandUpdate::OutputBatch(batch));
+    }
+}
+
+/// Send an update to the UI and wake the main loop to handle it
+///
+/// Returns false once the UI dropped the receiving end.
+fn send_update(tx: &mpsc::SyncSender<CommandUpdate>, update: CommandUpdate) -> bool {
+    let sent = tx.send(update).is_ok();
+    if sent {
+        utils::wakeup::wake();
+    }
+    sent
+}
+
 /// Async version that streams output line by line
 /// Returns a receiver that will receive output lines as they arrive
 #[allow(dead_code)]
@@ -495,11 +568,11 @@ pub fn execute_maven_command_async_with_options(
     let project_root = project_root.to_path_buf();
     let args: Vec<String> = args.iter().map(|s| s.to_string()).collect();
 
-    let (tx, rx) = mpsc::channel();
+    let (tx, rx) = mpsc::sync_channel(COMMAND_CHANNEL_CAPACITY);
 
     // Send the command string as the first output line
-    let _ = tx.send(CommandUpdate::OutputLine(format!("$ {}", command_str)));
-    let _ = tx.send(CommandUpdate::OutputLine(String::new()));
+    send_update(&tx, CommandUpdate::OutputLine(format!("$ {}", command_str)));
+    send_update(&tx, CommandUpdate::OutputLine(String::new()));
 
     // Spawn command execution in background thread
     thread::spawn(move || {
@@ -525,7 +598,7 @@ pub fn execute_maven_command_async_with_options(
             log::debug!("Maven process spawned with PID: {}", pid);
 
             // Send the PID immediately so it can be stored for potential kill
-            let _ = tx.send(CommandUpdate::Started(pid));
+            send_update(&tx, CommandUpdate::Started(pid));
 
             let stdout_tx = tx.clone();
             let stderr_tx = tx.clone();
@@ -533,28 +606,13 @@ pub fn execute_maven_command_async_with_options(
 
             if let Some(stdout) = child.stdout.take() {
                 handles.push(thread::spawn(move || {
-                    let reader = BufReader::new(stdout);
-                    for line in reader.lines() {
-                        if let Ok(line) = line
-                            && let Some(text) = utils::clean_log_line(&line)
-                        {
-                            let _ = stdout_tx.send(CommandUpdate::OutputLine(text));
-                        }
-                    }
+                    forward_output_batches(stdout, &stdout_tx, "");
                 }));
             }
 
             if let Some(stderr) = child.stderr.take() {
                 handles.push(thread::spawn(move || {
-                    let reader = BufReader::new(stderr);
-                    for line in reader.lines() {
-                        if let Ok(line) = line
-                            && let Some(text) = utils::clean_log_line(&line)
-                        {
-                            let _ =
-                                stderr_tx.send(CommandUpdate::OutputLine(format!("[ERR] {text}")));
-                        }
-                    }
+                    forward_output_batches(stderr, &stderr_tx, "[ERR] ");
                 }));
             }
 
@@ -566,12 +624,15 @@ pub fn execute_maven_command_async_with_options(
             log::info!("Maven process completed with status: {:?}", exit_status);
 
             if exit_status.success() {
-                let _ = tx.send(CommandUpdate::Completed);
+                send_update(&tx, CommandUpdate::Completed);
             } else {
-                let _ = tx.send(CommandUpdate::Error(format!(
-                    "Command failed with exit code: {:?}",
-                    exit_status.code()
-                )));
+                send_update(
+                    &tx,
+                    CommandUpdate::Error(format!(
+                        "Command failed with exit code: {:?}",
+                        exit_status.code()
+                    )),
+                );
             }
 
             Ok(())
@@ -579,7 +640,7 @@ pub fn execute_maven_command_async_with_options(
 
         if let Err(e) = result {
             log::error!("Command execution error: {}", e);
-            let _ = tx.send(CommandUpdate::Error(format!("Execution error: {e}")));
+            send_update(&tx, CommandUpdate::Error(format!("Execution error: {e}")));
         }
     });
 
@@ -817,4 +878,41 @@ mod tests {
         assert!(result.contains(&("com.example".to_string(), "DEBUG".to_string())));
         assert!(result.contains(&("org.springframework".to_string(), "INFO".to_string())));
     }
+
+    #[test]
+    fn test_forward_output_batches_coalesces_lines() {
+        let input = std::io::Cursor::new(b"one\r\n\x1b[32mtwo\x1b[0m\n\nthree".to_vec());
+        let (tx, rx) = mpsc::sync_channel(16);
+        forward_output_batches(input, &tx, "[ERR] ");
+        drop(tx);
+
+        let batches: Vec<CommandUpdate> = rx.iter().collect();
+        assert_eq!(batches.len(), 1);
+        match &batches[0] {
+            CommandUpdate::OutputBatch(lines) => {
+                assert_eq!(lines, &["[ERR] one", "[ERR] two", "[ERR] three"]);
+            }
+            other => panic!("unexpected update: {:?}", other),
+        }
+    }
+
+    #[test]
+    fn test_forward_output_batches_splits_large_output() {
+        let input: String = (0..OUTPUT_BATCH_MAX_LINES + 10)
+            .map(|i| format!("line {}\n", i))
+            .collect();
+        let (tx, rx) = mpsc::sync_channel(16);
+        forward_output_batches(std::io::Cursor::new(input.into_bytes()), &tx, "");
+        drop(tx);
+
+        let sizes: Vec<usize> = rx
+            .iter()
+            .map(|update| match update {
+                CommandUpdate::OutputBatch(lines) => lines.len(),
+                other => panic!("unexpected update: {:?}", other),
+            })
+            .collect();
+        assert_eq!(sizes.iter().sum::<usize>(), OUTPUT_BATCH_MAX_LINES + 10);
+        assert!(sizes.iter().all(|&size| size <= OUTPUT_BATCH_MAX_LINES));
+    }
 }
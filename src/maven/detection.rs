@@ -1,10 +1,11 @@
 //! Spring Boot detection and launch strategy
 
 use crate::core::config::LaunchMode;
+use serde::{Deserialize, Serialize};
 use std::path::Path;
 
 /// Information about a module's Spring Boot capabilities
-#[derive(Debug, Clone)]
+#[derive(Debug, Clone, PartialEq, Serialize, Deserialize)]
 pub struct SpringBootDetection {
     pub has_spring_boot_plugin: bool,
     pub has_exec_plugin: bool,
@@ -155,9 +156,15 @@ pub fn build_launch_command(
 }
 
 /// Detect Spring Boot capabilities for a module
+///
+/// POM files are read directly when possible (see [`super::pom_model`]).
+/// Otherwise the effective POM is cached on disk (see [`super::effective_pom`]),
+/// so Maven only runs when a POM in the parent chain, the active profiles or
+/// the settings file changed since the last detection.
 pub fn detect_spring_boot_capabilities(
     project_root: &Path,
     module: Option<&str>,
+    profiles: &[String],
 ) -> Result<SpringBootDetection, std::io::Error> {
     log::debug!(
         "Detecting Spring Boot capabilities for module: {:?}",
@@ -165,6 +172,24 @@ pub fn detect_spring_boot_capabilities(
     );
 
     let config = crate::core::config::load_config(project_root);
+    let settings_path = config.maven_settings.as_deref();
+
+    // Reading the POMs directly answers most projects without starting Maven
+    let resolver = super::pom_model::PomResolver::new(project_root, settings_path);
+    if let Some(detection) = resolver.spring_boot_detection(module, profiles) {
+        log::info!("Resolved Spring Boot capabilities from POM files: {:?}", detection);
+        return Ok(detection);
+    }
+
+    let key = super::effective_pom::cache_key(project_root, module, profiles, settings_path);
+    if let Some(entry) = super::effective_pom::load(project_root, &key) {
+        log::info!(
+            "Using cached effective POM for module {:?}: {:?}",
+            module,
+            entry.detection
+        );
+        return Ok(entry.detection);
+    }
 
     // Get effective POM for the module
     let args = vec!["help:effective-pom"];
@@ -173,13 +198,30 @@ pub fn detect_spring_boot_capabilities(
         project_root,
         module,
         &args,
-        &[],
-        config.maven_settings.as_deref(),
+        profiles,
+        settings_path,
         &[],
     )?;
 
     let pom_content = output.join("\n");
+    let detection = parse_spring_boot_detection(&pom_content);
 
+    // Only cache a successful run; a failed one must be retried next time
+    if pom_content.contains("<project") {
+        let entry = super::effective_pom::EffectivePomEntry {
+            effective_pom: pom_content,
+            detection: detection.clone(),
+        };
+        if let Err(e) = super::effective_pom::store(project_root, &key, &entry) {
+            log::warn!("Failed to cache effective POM: {}", e);
+        }
+    }
+
+    Ok(detection)
+}
+
+/// Extract Spring Boot capabilities from an effective POM
+pub fn parse_spring_boot_detection(pom_content: &str) -> SpringBootDetection {
     let mut detection = SpringBootDetection {
         has_spring_boot_plugin: false,
         has_exec_plugin: false,
@@ -294,7 +336,7 @@ pub fn detect_spring_boot_capabilities(
         detection.packaging
     );
 
-    Ok(detection)
+    detection
 }
 
 /// Quote arguments appropriately for the platform (especially PowerShell on Windows)
@@ -374,6 +416,37 @@ pub fn extract_tag_content(line: &str, tag_name: &str) -> Option<String> {
 mod tests {
     use super::*;
 
+    #[test]
+    fn test_parse_spring_boot_detection_from_effective_pom() {
+        let pom = r#"[INFO] Effective POMs
+<project>
+  <packaging>war</packaging>
+  <properties>
+    <start-class>com.example.FromProperty</start-class>
+  </properties>
+  <build>
+    <plugins>
+      <plugin>
+        <groupId>org.springframework.boot</groupId>
+        <artifactId>spring-boot-maven-plugin</artifactId>
+        <configuration>
+          <mainClass>com.example.Application</mainClass>
+        </configuration>
+      </plugin>
+    </plugins>
+  </build>
+</project>"#;
+
+        let detection = parse_spring_boot_detection(pom);
+        assert!(detection.has_spring_boot_plugin);
+        assert!(!detection.has_exec_plugin);
+        assert_eq!(detection.packaging.as_deref(), Some("war"));
+        assert_eq!(
+            detection.main_class.as_deref(),
+            Some("com.example.Application")
+        );
+    }
+
     // SpringBootDetection tests
     #[test]
     fn test_can_use_spring_boot_run_with_plugin_and_jar() {
@@ -0,0 +1,231 @@
+//! Persistent effective POM cache
+//!
+//! Running `mvn help:effective-pom` costs several seconds of JVM startup. The
+//! effective POM only depends on the POMs in the module's parent chain, the
+//! active profiles and the Maven settings file, so it is stored on disk under a
+//! key derived from all of them and reused until one of them changes.
+
+use super::detection::SpringBootDetection;
+use serde::{Deserialize, Serialize};
+use std::fs;
+use std::path::{Path, PathBuf};
+
+/// Number of cache entries kept per project
+const MAX_ENTRIES_PER_PROJECT: usize = 32;
+
+/// A cached effective POM and the detection derived from it
+#[derive(Serialize, Deserialize, Debug, Clone)]
+pub struct EffectivePomEntry {
+    pub effective_pom: String,
+    pub detection: SpringBootDetection,
+}
+
+/// Compute the cache key of a module's effective POM
+///
+/// Hashes every POM in the module's local parent chain, as the POM resolver
+/// follows it, the active profiles and the settings file Maven will read.
+pub fn cache_key(
+    project_root: &Path,
+    module: Option<&str>,
+    profiles: &[String],
+    settings_path: Option<&str>,
+) -> String {
+    let pom_path = match module {
+        Some(module) if module != "." => project_root.join(module).join("pom.xml"),
+        _ => project_root.join("pom.xml"),
+    };
+
+    let mut context = md5::Context::new();
+    let chain = super::pom_model::local_parent_chain(&pom_path);
+    let paths = if chain.is_empty() {
+        // An unparsable POM still changes the key whenever it is edited
+        vec![pom_path]
+    } else {
+        chain.into_iter().map(|pom| pom.path).collect()
+    };
+    for path in paths {
+        context.consume(path.to_string_lossy().as_bytes());
+        context.consume(b"\0");
+        if let Ok(content) = fs::read(&path) {
+            context.consume(&content);
+        }
+        context.consume(b"\0");
+    }
+
+    context.consume(b"profiles\0");
+    for profile in profiles {
+        context.consume(profile.as_bytes());
+        context.consume(b"\0");
+    }
+
+    if let Some(settings) = super::pom_model::settings_file(settings_path) {
+        context.consume(b"settings\0");
+        context.consume(settings.to_string_lossy().as_bytes());
+        context.consume(b"\0");
+        if let Ok(content) = fs::read(&settings) {
+            context.consume(&content);
+        }
+    }
+
+    format!("{:x}", context.compute())
+}
+
+/// Load a cached entry for a project
+pub fn load(project_root: &Path, key: &str) -> Option<EffectivePomEntry> {
+    load_from(&get_cache_dir(project_root), key)
+}
+
+/// Store an entry for a project, evicting the oldest entries beyond the limit
+pub fn store(project_root: &Path, key: &str, entry: &EffectivePomEntry) -> Result<(), String> {
+    store_in(&get_cache_dir(project_root), key, entry)
+}
+
+/// Get the effective POM cache directory for a project
+fn get_cache_dir(project_root: &Path) -> PathBuf {
+    let config_dir = dirs::config_dir()
+        .unwrap_or_else(|| dirs::home_dir().unwrap_or_else(|| PathBuf::from(".")))
+        .join("lazymvn")
+        .join("effective-pom");
+
+    let hash = format!(
+        "{:x}",
+        md5::compute(project_root.to_string_lossy().as_bytes())
+    );
+    config_dir.join(hash)
+}
+
+fn load_from(dir: &Path, key: &str) -> Option<EffectivePomEntry> {
+    let content = fs::read_to_string(dir.join(format!("{}.json", key))).ok()?;
+    match serde_json::from_str(&content) {
+        Ok(entry) => Some(entry),
+        Err(e) => {
+            log::warn!("Ignoring unreadable effective POM cache entry {}: {}", key, e);
+            None
+        }
+    }
+}
+
+fn store_in(dir: &Path, key: &str, entry: &EffectivePomEntry) -> Result<(), String> {
+    fs::create_dir_all(dir)
+        .map_err(|e| format!("Failed to create effective POM cache directory: {}", e))?;
+
+    let json = serde_json::to_string(entry)
+        .map_err(|e| format!("Failed to serialize effective POM cache entry: {}", e))?;
+    fs::write(dir.join(format!("{}.json", key)), json)
+        .map_err(|e| format!("Failed to write effective POM cache entry: {}", e))?;
+
+    log::debug!("Cached effective POM under key {}", key);
+    prune(dir, MAX_ENTRIES_PER_PROJECT);
+    Ok(())
+}
+
+/// Remove the least recently written entries beyond `max_entries`
+fn prune(dir: &Path, max_entries: usize) {
+    let Ok(read_dir) = fs::read_dir(dir) else {
+        return;
+    };
+    let mut entries: Vec<(std::time::SystemTime, PathBuf)> = read_dir
+        .filter_map(|entry| entry.ok())
+        .map(|entry| entry.path())
+        .filter(|path| path.extension().is_some_and(|ext| ext == "json"))
+        .filter_map(|path| {
+            let modified = fs::metadata(&path).and_then(|m| m.modified()).ok()?;
+            Some((modified, path))
+        })
+        .collect();
+
+    if entries.len() <= max_entries {
+        return;
+    }
+    entries.sort();
+    let excess = entries.len() - max_entries;
+    for (_, path) in entries.into_iter().take(excess) {
+        log::debug!("Evicting effective POM cache entry {:?}", path);
+        let _ = fs::remove_file(path);
+    }
+}
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+    use tempfile::tempdir;
+
+    fn entry() -> EffectivePomEntry {
+        EffectivePomEntry {
+            effective_pom: "<project><packaging>jar</packaging></project>".to_string(),
+            detection: SpringBootDetection {
+                has_spring_boot_plugin: true,
+                has_exec_plugin: false,
+                main_class: Some("com.example.App".to_string()),
+                packaging: Some("jar".to_string()),
+            },
+        }
+    }
+
+    #[test]
+    fn test_store_and_load_roundtrip() {
+        let dir = tempdir().unwrap();
+        assert!(load_from(dir.path(), "abc").is_none());
+
+        store_in(dir.path(), "abc", &entry()).unwrap();
+        let loaded = load_from(dir.path(), "abc").unwrap();
+        assert_eq!(loaded.detection, entry().detection);
+        assert_eq!(loaded.effective_pom, entry().effective_pom);
+    }
+
+    #[test]
+    fn test_prune_keeps_newest_entries() {
+        let dir = tempdir().unwrap();
+        for i in 0..5 {
+            fs::write(dir.path().join(format!("{}.json", i)), "{}").unwrap();
+            let file = fs::File::options()
+                .write(true)
+                .open(dir.path().join(format!("{}.json", i)))
+                .unwrap();
+            let modified =
+                std::time::SystemTime::UNIX_EPOCH + std::time::Duration::from_secs(i * 60);
+            file.set_modified(modified).unwrap();
+        }
+
+        prune(dir.path(), 2);
+        let mut left: Vec<String> = fs::read_dir(dir.path())
+            .unwrap()
+            .map(|e| e.unwrap().file_name().to_string_lossy().to_string())
+            .collect();
+        left.sort();
+        assert_eq!(left, vec!["3.json", "4.json"]);
+    }
+
+    #[test]
+    fn test_cache_key_tracks_parent_chain_and_profiles() {
+        let dir = tempdir().unwrap();
+        let root = dir.path();
+        let root_pom = |version: u32| {
+            format!("<project><artifactId>root</artifactId><version>{version}</version></project>")
+        };
+        fs::write(root.join("pom.xml"), root_pom(1)).unwrap();
+        fs::create_dir(root.join("app")).unwrap();
+        fs::write(
+            root.join("app").join("pom.xml"),
+            "<project><parent><artifactId>root</artifactId></parent></project>",
+        )
+        .unwrap();
+
+        let key = cache_key(root, Some("app"), &[], None);
+        assert_eq!(key, cache_key(root, Some("app"), &[], None));
+
+        let with_profile = cache_key(root, Some("app"), &["dev".to_string()], None);
+        assert_ne!(key, with_profile);
+
+        // Editing the parent POM invalidates the child's entry
+        fs::write(root.join("pom.xml"), root_pom(2)).unwrap();
+        assert_ne!(key, cache_key(root, Some("app"), &[], None));
+
+        // Maven ignores a parent POM of another artifact, and so does the key
+        let other = "<project><artifactId>other</artifactId><version>1</version></project>";
+        fs::write(root.join("pom.xml"), other).unwrap();
+        let unrelated = cache_key(root, Some("app"), &[], None);
+        fs::write(root.join("pom.xml"), other.replace('1', "2")).unwrap();
+        assert_eq!(unrelated, cache_key(root, Some("app"), &[], None));
+    }
+}
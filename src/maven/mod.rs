@@ -1,13 +1,17 @@
 //! Maven command execution and management
 //!
 //! This module provides functionality for executing Maven commands,
-//! detecting Spring Boot capabilities, and managing Maven profiles.
+//! detecting Spring Boot capabilities, managing Maven profiles, and modelling
+//! the dependencies between reactor modules.
 
 pub(crate) mod command;
 pub(crate) mod detection;
+pub(crate) mod effective_pom;
 pub(crate) mod log4j;
+pub(crate) mod pom_model;
 pub(crate) mod process;
 pub(crate) mod profiles;
+pub(crate) mod reactor;
 pub(crate) mod spring;
 
 // Re-export public APIs
@@ -17,13 +21,16 @@ pub use command::{
 };
 pub use detection::{
     LaunchStrategy, SpringBootDetection, build_launch_command, decide_launch_strategy,
-    detect_spring_boot_capabilities, extract_tag_content, quote_arg_for_platform,
+    detect_spring_boot_capabilities, extract_tag_content, parse_spring_boot_detection,
+    quote_arg_for_platform,
 };
 pub use log4j::generate_log4j_config;
 pub use process::{CommandUpdate, kill_process};
 pub use profiles::{
-    extract_profiles_from_settings_xml, get_active_profiles, get_profile_xml, get_profiles,
+    ProfileUpdate, discover_profiles, extract_profiles_from_settings_xml, get_active_profiles,
+    get_profile_xml, get_profiles,
 };
+pub use reactor::{ReactorGraph, ReactorModule, load_reactor_graph};
 pub use spring::generate_spring_properties;
 
 // Tests are in a separate file at the crate level
@@ -0,0 +1,1393 @@
+//! Native POM model resolver
+//!
+//! Reads POM files directly instead of starting a Maven JVM for metadata. The
+//! resolver walks the module tree, follows parents through `relativePath`,
+//! interpolates properties and evaluates profile activation (property, file,
+//! JDK and OS). Whenever it cannot answer with certainty it returns `None`, and
+//! callers fall back to running Maven.
+
+use super::detection::SpringBootDetection;
+use quick_xml::Reader;
+use quick_xml::events::Event;
+use std::collections::{BTreeSet, HashMap, HashSet, VecDeque};
+use std::fs;
+use std::path::{Path, PathBuf};
+use std::sync::{Condvar, Mutex};
+use std::thread;
+
+/// Upper bound on parent POMs followed, in case of a `relativePath` cycle
+const MAX_PARENT_DEPTH: usize = 32;
+
+/// Upper bound on threads parsing module POMs
+const MAX_SCAN_WORKERS: usize = 8;
+
+/// Upper bound on nested `${...}` expansions
+const MAX_INTERPOLATION_DEPTH: usize = 8;
+
+/// Properties Maven reads a main class from, in order of precedence
+const MAIN_CLASS_PROPERTIES: [&str; 3] = [
+    "spring-boot.run.mainClass",
+    "spring-boot.main-class",
+    "start-class",
+];
+
+/// Minimal XML element tree
+#[derive(Debug, Default, Clone)]
+struct XmlNode {
+    name: String,
+    text: String,
+    children: Vec<XmlNode>,
+}
+
+impl XmlNode {
+    fn child(&self, name: &str) -> Option<&XmlNode> {
+        self.children.iter().find(|c| c.name == name)
+    }
+
+    fn children_named<'a>(&'a self, name: &'a str) -> impl Iterator<Item = &'a XmlNode> + 'a {
+        self.children.iter().filter(move |c| c.name == name)
+    }
+
+    /// Follow a path of child elements
+    fn path(&self, path: &[&str]) -> Option<&XmlNode> {
+        path.iter().try_fold(self, |node, name| node.child(name))
+    }
+
+    /// Trimmed text of a child element, if present and not blank
+    fn child_text(&self, name: &str) -> Option<String> {
+        let text = self.child(name)?.text.trim();
+        (!text.is_empty()).then(|| text.to_string())
+    }
+
+    /// Children of `<container><item/>...</container>`
+    fn list<'a>(&'a self, container: &str, item: &'a str) -> Vec<&'a XmlNode> {
+        self.child(container)
+            .map(|c| c.children_named(item).collect())
+            .unwrap_or_default()
+    }
+}
+
+/// Parse an XML document into an element tree
+fn parse_xml(content: &str) -> Option<XmlNode> {
+    let mut reader = Reader::from_str(content);
+    reader.config_mut().trim_text(false);
+    let mut stack: Vec<XmlNode> = Vec::new();
+
+    loop {
+        match reader.read_event() {
+            Ok(Event::Start(e)) => stack.push(XmlNode {
+                name: String::from_utf8_lossy(e.local_name().as_ref()).into_owned(),
+                ..Default::default()
+            }),
+            Ok(Event::Empty(e)) => {
+                let node = XmlNode {
+                    name: String::from_utf8_lossy(e.local_name().as_ref()).into_owned(),
+                    ..Default::default()
+                };
+                match stack.last_mut() {
+                    Some(parent) => parent.children.push(node),
+                    None => return Some(node),
+                }
+            }
+            Ok(Event::Text(e)) => {
+                if let Some(node) = stack.last_mut() {
+                    node.text.push_str(&e.decode().ok()?);
+                }
+            }
+            Ok(Event::CData(e)) => {
+                if let Some(node) = stack.last_mut() {
+                    node.text.push_str(&String::from_utf8_lossy(&e));
+                }
+            }
+            Ok(Event::GeneralRef(e)) => {
+                if let Some(node) = stack.last_mut() {
+                    let entity = e.decode().ok()?;
+                    node.text.push(resolve_entity(&entity)?);
+                }
+            }
+            Ok(Event::End(_)) => {
+                let node = stack.pop()?;
+                match stack.last_mut() {
+                    Some(parent) => parent.children.push(node),
+                    None => return Some(node),
+                }
+            }
+            Ok(Event::Eof) => return None,
+            Err(e) => {
+                log::debug!("Failed to parse XML: {}", e);
+                return None;
+            }
+            _ => (),
+        }
+    }
+}
+
+fn resolve_entity(entity: &str) -> Option<char> {
+    match entity {
+        "amp" => Some('&'),
+        "lt" => Some('<'),
+        "gt" => Some('>'),
+        "quot" => Some('"'),
+        "apos" => Some('\''),
+        _ => {
+            let code = entity.strip_prefix('#')?;
+            let value = match code.strip_prefix('x') {
+                Some(hex) => u32::from_str_radix(hex, 16).ok()?,
+                None => code.parse().ok()?,
+            };
+            char::from_u32(value)
+        }
+    }
+}
+
+/// Reference to a parent POM
+#[derive(Debug, Clone)]
+pub(super) struct ParentRef {
+    pub(super) group_id: Option<String>,
+    pub(super) artifact_id: String,
+    version: Option<String>,
+    /// `None` means Maven's default of `../pom.xml`; empty means repository only
+    pub(super) relative_path: Option<String>,
+}
+
+/// Coordinates of a dependency or imported BOM, before interpolation
+#[derive(Debug, Clone)]
+pub(super) struct ArtifactRef {
+    pub(super) group_id: Option<String>,
+    pub(super) artifact_id: String,
+}
+
+impl ArtifactRef {
+    fn from_xml(node: &XmlNode) -> Option<Self> {
+        Some(ArtifactRef {
+            group_id: node.child_text("groupId"),
+            artifact_id: node.child_text("artifactId")?,
+        })
+    }
+}
+
+/// `<os>` activation condition
+#[derive(Debug, Clone, Default)]
+struct OsActivation {
+    name: Option<String>,
+    family: Option<String>,
+    arch: Option<String>,
+    version: Option<String>,
+}
+
+/// `<activation>` block of a profile
+#[derive(Debug, Clone, Default)]
+struct Activation {
+    active_by_default: bool,
+    jdk: Option<String>,
+    os: Option<OsActivation>,
+    property: Option<(String, Option<String>)>,
+    file_exists: Option<String>,
+    file_missing: Option<String>,
+    /// Conditions this resolver does not know how to evaluate
+    unsupported: bool,
+}
+
+impl Activation {
+    fn from_xml(node: &XmlNode) -> Self {
+        let mut activation = Activation::default();
+        for child in &node.children {
+            match child.name.as_str() {
+                "activeByDefault" => activation.active_by_default = child.text.trim() == "true",
+                "jdk" => activation.jdk = Some(child.text.trim().to_string()),
+                "os" => {
+                    activation.os = Some(OsActivation {
+                        name: child.child_text("name"),
+                        family: child.child_text("family"),
+                        arch: child.child_text("arch"),
+                        version: child.child_text("version"),
+                    })
+                }
+                "property" => {
+                    activation.property = child
+                        .child_text("name")
+                        .map(|name| (name, child.child_text("value")));
+                }
+                "file" => {
+                    activation.file_exists = child.child_text("exists");
+                    activation.file_missing = child.child_text("missing");
+                }
+                _ => activation.unsupported = true,
+            }
+        }
+        activation
+    }
+
+    fn has_conditions(&self) -> bool {
+        self.unsupported
+            || self.jdk.is_some()
+            || self.os.is_some()
+            || self.property.is_some()
+            || self.file_exists.is_some()
+            || self.file_missing.is_some()
+    }
+}
+
+/// A build plugin declaration
+#[derive(Debug, Clone)]
+pub(super) struct Plugin {
+    pub(super) group_id: Option<String>,
+    pub(super) artifact_id: String,
+    main_class: Option<String>,
+}
+
+impl Plugin {
+    fn from_xml(node: &XmlNode) -> Option<Self> {
+        let configuration = node.child("configuration");
+        Some(Plugin {
+            group_id: node.child_text("groupId"),
+            artifact_id: node.child_text("artifactId")?,
+            main_class: configuration.and_then(|c| {
+                c.child_text("mainClass")
+                    .or_else(|| c.child_text("main-class"))
+            }),
+        })
+    }
+}
+
+/// Properties, modules, dependencies and plugins shared by projects and profiles
+#[derive(Debug, Clone, Default)]
+pub(super) struct ModelBase {
+    pub(super) properties: Vec<(String, String)>,
+    modules: Vec<String>,
+    /// Dependencies and BOMs imported through dependency management
+    pub(super) dependencies: Vec<ArtifactRef>,
+    pub(super) plugins: Vec<Plugin>,
+    managed_plugins: Vec<Plugin>,
+}
+
+impl ModelBase {
+    fn from_xml(node: &XmlNode) -> Self {
+        let plugins_of = |path: &[&str]| -> Vec<Plugin> {
+            node.path(path)
+                .map(|plugins| {
+                    plugins
+                        .children_named("plugin")
+                        .filter_map(Plugin::from_xml)
+                        .collect()
+                })
+                .unwrap_or_default()
+        };
+
+        ModelBase {
+            properties: node
+                .child("properties")
+                .map(|p| {
+                    p.children
+                        .iter()
+                        .map(|c| (c.name.clone(), c.text.trim().to_string()))
+                        .collect()
+                })
+                .unwrap_or_default(),
+            modules: node
+                .list("modules", "module")
+                .into_iter()
+                .map(|m| m.text.trim().to_string())
+                .filter(|m| !m.is_empty())
+                .collect(),
+            dependencies: node
+                .list("dependencies", "dependency")
+                .into_iter()
+                .chain(
+                    node.path(&["dependencyManagement", "dependencies"])
+                        .into_iter()
+                        .flat_map(|d| d.children_named("dependency"))
+                        .filter(|d| d.child_text("scope").as_deref() == Some("import")),
+                )
+                .filter_map(ArtifactRef::from_xml)
+                .collect(),
+            plugins: plugins_of(&["build", "plugins"]),
+            managed_plugins: plugins_of(&["build", "pluginManagement", "plugins"]),
+        }
+    }
+}
+
+/// A `<profile>` from a POM or settings file
+#[derive(Debug, Clone)]
+struct Profile {
+    id: String,
+    activation: Option<Activation>,
+    model: ModelBase,
+}
+
+impl Profile {
+    fn from_xml(node: &XmlNode) -> Option<Self> {
+        Some(Profile {
+            id: node.child_text("id")?,
+            activation: node.child("activation").map(Activation::from_xml),
+            model: ModelBase::from_xml(node),
+        })
+    }
+}
+
+/// MD5 of a POM's content, stable across builds of lazymvn
+pub(super) fn content_hash(content: &str) -> String {
+    format!("{:x}", md5::compute(content))
+}
+
+/// A single parsed POM file
+#[derive(Debug, Clone)]
+pub(super) struct PomFile {
+    pub(super) path: PathBuf,
+    /// MD5 of the file content, telling whether data cached from it is still valid
+    pub(super) content_hash: String,
+    pub(super) group_id: Option<String>,
+    pub(super) artifact_id: Option<String>,
+    version: Option<String>,
+    packaging: Option<String>,
+    pub(super) parent: Option<ParentRef>,
+    pub(super) model: ModelBase,
+    profiles: Vec<Profile>,
+}
+
+impl PomFile {
+    fn read(path: &Path) -> Option<Self> {
+        let content = fs::read_to_string(path).ok()?;
+        let Some(project) = parse_xml(&content).filter(|root| root.name == "project") else {
+            log::debug!("Could not parse POM {:?}", path);
+            return None;
+        };
+
+        let parent = project.child("parent").and_then(|p| {
+            Some(ParentRef {
+                group_id: p.child_text("groupId"),
+                artifact_id: p.child_text("artifactId")?,
+                version: p.child_text("version"),
+                relative_path: p.child("relativePath").map(|r| r.text.trim().to_string()),
+            })
+        });
+
+        Some(PomFile {
+            path: path.to_path_buf(),
+            content_hash: content_hash(&content),
+            group_id: project.child_text("groupId"),
+            artifact_id: project.child_text("artifactId"),
+            version: project.child_text("version"),
+            packaging: project.child_text("packaging"),
+            parent,
+            model: ModelBase::from_xml(&project),
+            profiles: project
+                .list("profiles", "profile")
+                .into_iter()
+                .filter_map(Profile::from_xml)
+                .collect(),
+        })
+    }
+
+    pub(super) fn base_dir(&self) -> &Path {
+        self.path.parent().unwrap_or(Path::new("."))
+    }
+}
+
+/// Profiles and activations declared in a Maven settings file
+#[derive(Debug, Clone, Default)]
+struct SettingsModel {
+    profiles: Vec<Profile>,
+    active_profiles: Vec<String>,
+}
+
+impl SettingsModel {
+    fn read(path: &Path) -> Option<Self> {
+        let content = fs::read_to_string(path).ok()?;
+        let settings = parse_xml(&content)?;
+        Some(SettingsModel {
+            profiles: settings
+                .list("profiles", "profile")
+                .into_iter()
+                .filter_map(Profile::from_xml)
+                .collect(),
+            active_profiles: settings
+                .list("activeProfiles", "activeProfile")
+                .into_iter()
+                .map(|p| p.text.trim().to_string())
+                .collect(),
+        })
+    }
+}
+
+/// Facts about the machine that profile activation is evaluated against
+#[derive(Debug, Clone, Default)]
+struct ActivationEnvironment {
+    /// `java.version` of the JDK Maven would run on
+    jdk_version: Option<String>,
+    /// Lowercase `os.name` as Java reports it
+    os_name: Option<String>,
+    /// Lowercase `os.arch` as Java reports it
+    os_arch: Option<String>,
+    os_families: Vec<&'static str>,
+    /// System properties visible to property activation
+    properties: HashMap<String, String>,
+}
+
+impl ActivationEnvironment {
+    fn detect() -> Self {
+        let jdk_version = detect_jdk_version();
+        let os_name = match std::env::consts::OS {
+            "linux" => Some("linux".to_string()),
+            "macos" => Some("mac os x".to_string()),
+            "freebsd" => Some("freebsd".to_string()),
+            // Windows reports its release, e.g. "windows 11"
+            _ => None,
+        };
+        let os_arch = match std::env::consts::ARCH {
+            "x86_64" => "amd64",
+            arch => arch,
+        }
+        .to_string();
+        let os_families = match std::env::consts::OS {
+            "windows" => vec!["windows", "dos"],
+            "macos" => vec!["mac", "unix"],
+            _ if cfg!(unix) => vec!["unix"],
+            _ => vec![],
+        };
+
+        let mut properties = HashMap::new();
+        if let Some(version) = jdk_version.as_ref() {
+            properties.insert("java.version".to_string(), version.clone());
+        }
+        if let Some(name) = os_name.as_ref() {
+            properties.insert("os.name".to_string(), name.clone());
+        }
+        properties.insert("os.arch".to_string(), os_arch.clone());
+        if let Some(home) = dirs::home_dir() {
+            properties.insert("user.home".to_string(), home.to_string_lossy().into_owned());
+        }
+
+        ActivationEnvironment {
+            jdk_version,
+            os_name,
+            os_arch: Some(os_arch),
+            os_families,
+            properties,
+        }
+    }
+
+    fn property(&self, name: &str) -> Option<String> {
+        match name.strip_prefix("env.") {
+            Some(var) => std::env::var(var).ok(),
+            None => self.properties.get(name).cloned(),
+        }
+    }
+
+    /// Evaluate an activation, `None` when the outcome cannot be known
+    fn matches(&self, activation: &Activation, base_dir: &Path) -> Option<bool> {
+        if activation.unsupported {
+            return None;
+        }
+
+        let mut outcomes = Vec::new();
+        if let Some(jdk) = activation.jdk.as_deref() {
+            outcomes.push(self.jdk_version.as_deref().map(|v| jdk_matches(jdk, v)));
+        }
+        if let Some(os) = activation.os.as_ref() {
+            outcomes.push(self.os_matches(os));
+        }
+        if let Some((name, value)) = activation.property.as_ref() {
+            outcomes.push(Some(self.property_matches(name, value.as_deref())));
+        }
+        if let Some(path) = activation.file_exists.as_deref() {
+            outcomes.push(resolve_activation_file(path, base_dir).map(|p| p.exists()));
+        }
+        if let Some(path) = activation.file_missing.as_deref() {
+            outcomes.push(resolve_activation_file(path, base_dir).map(|p| !p.exists()));
+        }
+
+        // All conditions must hold; a single false one settles it
+        if outcomes.contains(&Some(false)) {
+            Some(false)
+        } else if outcomes.contains(&None) {
+            None
+        } else {
+            Some(!outcomes.is_empty())
+        }
+    }
+
+    fn os_matches(&self, os: &OsActivation) -> Option<bool> {
+        if os.version.is_some() {
+            return None;
+        }
+        let mut matched = true;
+        if let Some(name) = os.name.as_deref() {
+            let actual = self.os_name.as_deref()?;
+            matched &= negatable_matches(name, |expected| expected.eq_ignore_ascii_case(actual));
+        }
+        if let Some(arch) = os.arch.as_deref() {
+            let actual = self.os_arch.as_deref()?;
+            matched &= negatable_matches(arch, |expected| expected.eq_ignore_ascii_case(actual));
+        }
+        if let Some(family) = os.family.as_deref() {
+            matched &= negatable_matches(family, |expected| {
+                self.os_families
+                    .iter()
+                    .any(|f| f.eq_ignore_ascii_case(expected))
+            });
+        }
+        Some(matched)
+    }
+
+    fn property_matches(&self, name: &str, value: Option<&str>) -> bool {
+        if let Some(name) = name.strip_prefix('!') {
+            return self.property(name.trim()).is_none();
+        }
+        let actual = self.property(name);
+        match value {
+            None => actual.is_some(),
+            Some(expected) => {
+                negatable_matches(expected, |expected| actual.as_deref() == Some(expected))
+            }
+        }
+    }
+}
+
+/// Apply a `!`-negatable condition
+fn negatable_matches(condition: &str, matches: impl Fn(&str) -> bool) -> bool {
+    match condition.trim().strip_prefix('!') {
+        Some(negated) => !matches(negated.trim()),
+        None => matches(condition.trim()),
+    }
+}
+
+/// Read the version of the JDK `JAVA_HOME` points to, which Maven runs on
+fn detect_jdk_version() -> Option<String> {
+    let java_home = std::env::var_os("JAVA_HOME")?;
+    let release = fs::read_to_string(Path::new(&java_home).join("release")).ok()?;
+    release.lines().find_map(|line| {
+        let value = line.strip_prefix("JAVA_VERSION=")?;
+        Some(value.trim().trim_matches('"').to_string())
+    })
+}
+
+/// Check a `<jdk>` activation value against a Java version
+fn jdk_matches(condition: &str, version: &str) -> bool {
+    let condition = condition.trim();
+    if condition.starts_with('[') || condition.starts_with('(') {
+        version_in_ranges(condition, version)
+    } else {
+        negatable_matches(condition, |prefix| version.starts_with(prefix))
+    }
+}
+
+/// Check a version against a list of ranges such as `[1.8,11),[17,)`
+fn version_in_ranges(spec: &str, version: &str) -> bool {
+    let mut rest = spec.trim();
+    while !rest.is_empty() {
+        let Some(close) = rest.find([']', ')']) else {
+            return false;
+        };
+        if version_in_range(&rest[..=close], version) {
+            return true;
+        }
+        rest = rest[close + 1..].trim_start_matches(',').trim();
+    }
+    false
+}
+
+fn version_in_range(range: &str, version: &str) -> bool {
+    if range.len() < 2 {
+        return false;
+    }
+    let inclusive_low = range.starts_with('[');
+    let inclusive_high = range.ends_with(']');
+    let inner = &range[1..range.len() - 1];
+    let (low, high) = inner.split_once(',').unwrap_or((inner, inner));
+    let version = version_components(version);
+
+    let low = low.trim();
+    if !low.is_empty() {
+        let order = compare_to_bound(&version, &version_components(low));
+        if order.is_lt() || (order.is_eq() && !inclusive_low) {
+            return false;
+        }
+    }
+    let high = high.trim();
+    if !high.is_empty() {
+        let order = compare_to_bound(&version, &version_components(high));
+        if order.is_gt() || (order.is_eq() && !inclusive_high) {
+            return false;
+        }
+    }
+    true
+}
+
+fn version_components(version: &str) -> Vec<u64> {
+    version
+        .split(['.', '_', '-', '+'])
+        .map_while(|part| part.parse().ok())
+        .collect()
+}
+
+/// Compare a version to a range bound on as many components as the bound has
+fn compare_to_bound(version: &[u64], bound: &[u64]) -> std::cmp::Ordering {
+    bound
+        .iter()
+        .enumerate()
+        .map(|(i, b)| version.get(i).copied().unwrap_or(0).cmp(b))
+        .find(|order| order.is_ne())
+        .unwrap_or(std::cmp::Ordering::Equal)
+}
+
+/// Resolve a file activation path against the POM directory
+fn resolve_activation_file(path: &str, base_dir: &Path) -> Option<PathBuf> {
+    let mut properties = HashMap::new();
+    let base = base_dir.to_string_lossy().into_owned();
+    properties.insert("basedir".to_string(), base.clone());
+    properties.insert("project.basedir".to_string(), base);
+    let path = interpolate(path, &properties);
+    if path.contains("${") {
+        return None;
+    }
+    let path = PathBuf::from(path);
+    Some(if path.is_absolute() {
+        path
+    } else {
+        base_dir.join(path)
+    })
+}
+
+/// Expand `${name}` references, leaving unknown ones in place
+pub(super) fn interpolate(value: &str, properties: &HashMap<String, String>) -> String {
+    let mut current = value.to_string();
+    for _ in 0..MAX_INTERPOLATION_DEPTH {
+        if !current.contains("${") {
+            break;
+        }
+        let next = interpolate_once(&current, properties);
+        if next == current {
+            break;
+        }
+        current = next;
+    }
+    current
+}
+
+fn interpolate_once(value: &str, properties: &HashMap<String, String>) -> String {
+    let mut result = String::with_capacity(value.len());
+    let mut rest = value;
+    while let Some(start) = rest.find("${") {
+        result.push_str(&rest[..start]);
+        let after = &rest[start + 2..];
+        let Some(end) = after.find('}') else {
+            result.push_str(&rest[start..]);
+            return result;
+        };
+        let name = &after[..end];
+        let resolved = match name.strip_prefix("env.") {
+            Some(var) => std::env::var(var).ok(),
+            None => properties.get(name).cloned(),
+        };
+        match resolved {
+            Some(value) => result.push_str(&value),
+            None => result.push_str(&rest[start..start + end + 3]),
+        }
+        rest = &after[end + 1..];
+    }
+    result.push_str(rest);
+    result
+}
+
+/// Profiles requested explicitly with `-P` or `<activeProfiles>`
+#[derive(Debug, Default)]
+struct ExplicitProfiles {
+    enabled: HashSet<String>,
+    disabled: HashSet<String>,
+}
+
+impl ExplicitProfiles {
+    fn from_args<'a>(args: impl IntoIterator<Item = &'a String>) -> Self {
+        let mut explicit = ExplicitProfiles::default();
+        for arg in args {
+            let arg = arg.trim();
+            match arg.strip_prefix('!').or_else(|| arg.strip_prefix('-')) {
+                Some(name) => explicit.disabled.insert(name.to_string()),
+                None => explicit.enabled.insert(arg.to_string()),
+            };
+        }
+        explicit
+    }
+}
+
+/// Resolves project metadata from POM files without running Maven
+pub struct PomResolver {
+    project_root: PathBuf,
+    settings: SettingsModel,
+    environment: ActivationEnvironment,
+}
+
+impl PomResolver {
+    /// Create a resolver for a project, reading the given or default settings file
+    pub fn new(project_root: &Path, settings_path: Option<&str>) -> Self {
+        let settings = settings_file(settings_path)
+            .and_then(|path| SettingsModel::read(&path))
+            .unwrap_or_default();
+        Self::with_environment(project_root, settings, ActivationEnvironment::detect())
+    }
+
+    fn with_environment(
+        project_root: &Path,
+        settings: SettingsModel,
+        environment: ActivationEnvironment,
+    ) -> Self {
+        PomResolver {
+            project_root: project_root.to_path_buf(),
+            settings,
+            environment,
+        }
+    }
+
+    /// All profile IDs declared in the POMs of the reactor and their local parents
+    ///
+    /// Profiles of parents that only live in a repository are not included.
+    pub fn all_profiles(&self) -> Option<Vec<String>> {
+        let poms = reactor_poms(&self.project_root)?;
+        let profiles: BTreeSet<String> = poms
+            .iter()
+            .flat_map(|pom| pom.profiles.iter().map(|p| p.id.clone()))
+            .collect();
+        Some(profiles.into_iter().collect())
+    }
+
+    /// Profiles activated automatically in the reactor or by the settings file
+    pub fn active_profiles(&self) -> Option<Vec<String>> {
+        let poms = reactor_poms(&self.project_root)?;
+        let explicit = ExplicitProfiles::from_args(&self.settings.active_profiles);
+
+        let mut active = BTreeSet::new();
+        for pom in &poms {
+            active.extend(self.active_profile_ids(&pom.profiles, pom.base_dir(), &explicit)?);
+        }
+        active.extend(self.active_profile_ids(
+            &self.settings.profiles,
+            &self.project_root,
+            &explicit,
+        )?);
+        Some(active.into_iter().collect())
+    }
+
+    /// Detect Spring Boot capabilities of a module with the given `-P` arguments
+    pub fn spring_boot_detection(
+        &self,
+        module: Option<&str>,
+        profiles: &[String],
+    ) -> Option<SpringBootDetection> {
+        let pom_path = match module {
+            Some(module) if module != "." => self.project_root.join(module).join("pom.xml"),
+            _ => self.project_root.join("pom.xml"),
+        };
+        let pom = PomFile::read(&pom_path)?;
+        let (chain, complete) = parent_chain(pom);
+
+        let explicit = ExplicitProfiles::from_args(
+            profiles.iter().chain(self.settings.active_profiles.iter()),
+        );
+
+        // Merge from the top-most parent down to the module itself
+        let mut properties: HashMap<String, String> = HashMap::new();
+        let mut plugins: Vec<Plugin> = Vec::new();
+        let mut managed_plugins: Vec<Plugin> = Vec::new();
+        let mut apply = |model: &ModelBase| {
+            properties.extend(model.properties.iter().cloned());
+            plugins.extend(model.plugins.iter().cloned());
+            managed_plugins.extend(model.managed_plugins.iter().cloned());
+        };
+        for pom in chain.iter().rev() {
+            apply(&pom.model);
+            let active = self.active_profile_ids(&pom.profiles, pom.base_dir(), &explicit)?;
+            for profile in pom.profiles.iter().filter(|p| active.contains(&p.id)) {
+                apply(&profile.model);
+            }
+        }
+        let active =
+            self.active_profile_ids(&self.settings.profiles, &self.project_root, &explicit)?;
+        for profile in self.settings.profiles.iter().filter(|p| active.contains(&p.id)) {
+            apply(&profile.model);
+        }
+        insert_project_properties(&mut properties, &chain);
+
+        let is_relevant = |plugin: &&Plugin| {
+            plugin.artifact_id == "spring-boot-maven-plugin"
+                || plugin.artifact_id == "exec-maven-plugin"
+        };
+        let has_spring_boot_plugin = plugins
+            .iter()
+            .any(|p| p.artifact_id == "spring-boot-maven-plugin");
+        let has_exec_plugin = plugins.iter().any(|p| p.artifact_id == "exec-maven-plugin");
+
+        // A parent from a repository may declare the plugins we are looking for
+        if !complete && !has_spring_boot_plugin && !has_exec_plugin {
+            log::debug!("Parent POM is not available locally, cannot detect plugins natively");
+            return None;
+        }
+
+        let plugin_main_class = plugins.iter().filter(is_relevant).rev().find_map(|plugin| {
+            plugin.main_class.clone().or_else(|| {
+                managed_plugins
+                    .iter()
+                    .rev()
+                    .find(|m| m.artifact_id == plugin.artifact_id)
+                    .and_then(|m| m.main_class.clone())
+            })
+        });
+        let main_class = plugin_main_class
+            .or_else(|| {
+                MAIN_CLASS_PROPERTIES
+                    .iter()
+                    .find_map(|name| properties.get(*name).cloned())
+            })
+            .map(|value| interpolate(&value, &properties))
+            .filter(|value| !value.is_empty() && !value.contains("${"));
+
+        let packaging = interpolate(
+            chain[0].packaging.as_deref().unwrap_or("jar"),
+            &properties,
+        );
+        if packaging.contains("${") {
+            log::debug!("Packaging '{}' cannot be resolved natively", packaging);
+            return None;
+        }
+
+        Some(SpringBootDetection {
+            has_spring_boot_plugin,
+            has_exec_plugin,
+            main_class,
+            packaging: Some(packaging),
+        })
+    }
+
+    /// IDs of the profiles in one POM that are active
+    ///
+    /// Follows Maven: `activeByDefault` profiles only apply when no other
+    /// profile of the same POM is active.
+    fn active_profile_ids(
+        &self,
+        profiles: &[Profile],
+        base_dir: &Path,
+        explicit: &ExplicitProfiles,
+    ) -> Option<Vec<String>> {
+        let mut active = Vec::new();
+        for profile in profiles {
+            if explicit.disabled.contains(&profile.id) {
+                continue;
+            }
+            let activated = if explicit.enabled.contains(&profile.id) {
+                true
+            } else {
+                match profile.activation.as_ref() {
+                    Some(activation) if activation.has_conditions() => {
+                        let Some(matched) = self.environment.matches(activation, base_dir) else {
+                            log::debug!(
+                                "Cannot evaluate activation of profile '{}' natively",
+                                profile.id
+                            );
+                            return None;
+                        };
+                        matched
+                    }
+                    _ => false,
+                }
+            };
+            if activated {
+                active.push(profile.id.clone());
+            }
+        }
+
+        if active.is_empty() {
+            active = profiles
+                .iter()
+                .filter(|p| p.activation.as_ref().is_some_and(|a| a.active_by_default))
+                .filter(|p| !explicit.disabled.contains(&p.id))
+                .map(|p| p.id.clone())
+                .collect();
+        }
+        Some(active)
+    }
+
+    /// Report the profile IDs of each reactor POM as soon as it is parsed
+    ///
+    /// Returns false when the reactor could not be fully resolved, in which
+    /// case the reported profiles may be incomplete.
+    pub fn stream_profiles(&self, on_profiles: &(dyn Fn(Vec<String>) + Sync)) -> bool {
+        scan_reactor(&self.project_root, &|pom: &PomFile| {
+            if !pom.profiles.is_empty() {
+                on_profiles(pom.profiles.iter().map(|p| p.id.clone()).collect());
+            }
+        })
+    }
+}
+
+/// The root POM, its local parents and every module POM below it
+pub(super) fn reactor_poms(project_root: &Path) -> Option<Vec<PomFile>> {
+    let poms = Mutex::new(Vec::new());
+    let complete = scan_reactor(project_root, &|pom: &PomFile| {
+        if let Ok(mut poms) = poms.lock() {
+            poms.push(pom.clone());
+        }
+    });
+    if !complete {
+        return None;
+    }
+    poms.into_inner().ok()
+}
+
+/// Parse the root POM, its local parents and all module POMs
+///
+/// Module POMs are parsed on a bounded pool of worker threads, each of
+/// which queues the modules it discovers. `on_pom` is called from the
+/// workers as soon as a POM is read. Returns false when a module POM is
+/// missing or unreadable.
+fn scan_reactor(project_root: &Path, on_pom: &(dyn Fn(&PomFile) + Sync)) -> bool {
+    let Some(root) = PomFile::read(&project_root.join("pom.xml")) else {
+        return false;
+    };
+    let (chain, _) = parent_chain(root);
+    let mut scan = ReactorScan::default();
+    for pom in &chain {
+        scan.visited.insert(canonical(&pom.path));
+    }
+    for (canonical_path, path) in module_pom_paths(&chain[0]) {
+        if scan.visited.insert(canonical_path) {
+            scan.queue.push_back(path);
+        }
+    }
+    for pom in &chain {
+        on_pom(pom);
+    }
+    if scan.queue.is_empty() {
+        return true;
+    }
+
+    let workers = thread::available_parallelism()
+        .map(|n| n.get())
+        .unwrap_or(2)
+        .clamp(1, MAX_SCAN_WORKERS);
+    let scan = Mutex::new(scan);
+    let wakeup = Condvar::new();
+    thread::scope(|scope| {
+        for _ in 0..workers {
+            scope.spawn(|| scan_worker(&scan, &wakeup, on_pom));
+        }
+    });
+
+    scan.into_inner().map(|scan| !scan.failed).unwrap_or(false)
+}
+
+/// The POM at `pom_path` followed by the local parents the resolver uses
+///
+/// Empty when the POM cannot be parsed.
+pub(super) fn local_parent_chain(pom_path: &Path) -> Vec<PomFile> {
+    PomFile::read(pom_path)
+        .map(|pom| parent_chain(pom).0)
+        .unwrap_or_default()
+}
+
+/// A POM followed by its local parents; the flag is false when a parent is
+/// only available from a repository
+fn parent_chain(pom: PomFile) -> (Vec<PomFile>, bool) {
+    let mut chain = vec![pom];
+    loop {
+        let current = &chain[chain.len() - 1];
+        let Some(parent) = current.parent.as_ref() else {
+            return (chain, true);
+        };
+        if chain.len() >= MAX_PARENT_DEPTH {
+            return (chain, false);
+        }
+        let relative = parent.relative_path.as_deref().unwrap_or("../pom.xml");
+        if relative.is_empty() {
+            return (chain, false);
+        }
+        let mut path = current.base_dir().join(relative);
+        if path.is_dir() {
+            path.push("pom.xml");
+        }
+        // Maven ignores a relativePath that points at a different artifact
+        match PomFile::read(&path) {
+            Some(candidate)
+                if candidate.artifact_id.as_deref() == Some(parent.artifact_id.as_str())
+                    && !chain.iter().any(|p| canonical(&p.path) == canonical(&path)) =>
+            {
+                chain.push(candidate)
+            }
+            _ => return (chain, false),
+        }
+    }
+}
+
+/// Shared state of a parallel reactor scan
+#[derive(Default)]
+struct ReactorScan {
+    queue: VecDeque<PathBuf>,
+    visited: HashSet<PathBuf>,
+    /// POMs taken from the queue but not yet parsed
+    in_flight: usize,
+    failed: bool,
+}
+
+/// Parse queued POMs until the queue is drained and no worker is busy
+fn scan_worker(
+    scan: &Mutex<ReactorScan>,
+    wakeup: &Condvar,
+    on_pom: &(dyn Fn(&PomFile) + Sync),
+) {
+    loop {
+        let path = {
+            let Ok(mut state) = scan.lock() else {
+                return;
+            };
+            loop {
+                if state.failed {
+                    return;
+                }
+                if let Some(path) = state.queue.pop_front() {
+                    state.in_flight += 1;
+                    break path;
+                }
+                if state.in_flight == 0 {
+                    return;
+                }
+                state = match wakeup.wait(state) {
+                    Ok(state) => state,
+                    Err(_) => return,
+                };
+            }
+        };
+
+        let pom = PomFile::read(&path);
+        let modules = pom.as_ref().map(module_pom_paths).unwrap_or_default();
+        if let Some(pom) = pom.as_ref() {
+            on_pom(pom);
+        }
+
+        if let Ok(mut state) = scan.lock() {
+            state.in_flight -= 1;
+            if pom.is_none() {
+                log::debug!("Module POM {:?} is missing or unreadable", path);
+                state.failed = true;
+            }
+            for (canonical_path, module_path) in modules {
+                if state.visited.insert(canonical_path) {
+                    state.queue.push_back(module_path);
+                }
+            }
+        }
+        wakeup.notify_all();
+    }
+}
+
+/// POM paths of the modules a POM declares, including those of its profiles
+pub(super) fn module_pom_paths(pom: &PomFile) -> Vec<(PathBuf, PathBuf)> {
+    pom.model
+        .modules
+        .iter()
+        .chain(pom.profiles.iter().flat_map(|p| p.model.modules.iter()))
+        .map(|module| {
+            let mut path = pom.base_dir().join(module);
+            if path.is_dir() {
+                path.push("pom.xml");
+            }
+            (canonical(&path), path)
+        })
+        .collect()
+}
+
+/// Add the implicit `project.*` properties of the module at the head of the chain
+pub(super) fn insert_project_properties(properties: &mut HashMap<String, String>, chain: &[PomFile]) {
+    let pom = &chain[0];
+    let parent = pom.parent.as_ref();
+    let group_id = pom
+        .group_id
+        .clone()
+        .or_else(|| parent.and_then(|p| p.group_id.clone()));
+    let version = pom
+        .version
+        .clone()
+        .or_else(|| parent.and_then(|p| p.version.clone()));
+    let base_dir = pom.base_dir().to_string_lossy().into_owned();
+
+    let mut implicit = vec![
+        ("basedir", Some(base_dir.clone())),
+        ("project.basedir", Some(base_dir)),
+        ("project.groupId", group_id),
+        ("project.artifactId", pom.artifact_id.clone()),
+        ("project.version", version),
+        ("project.packaging", pom.packaging.clone()),
+    ];
+    if let Some(parent) = parent {
+        implicit.push(("project.parent.artifactId", Some(parent.artifact_id.clone())));
+        implicit.push(("project.parent.version", parent.version.clone()));
+    }
+    for (name, value) in implicit {
+        if let Some(value) = value {
+            properties.insert(name.to_string(), value);
+        }
+    }
+}
+
+pub(super) fn canonical(path: &Path) -> PathBuf {
+    path.canonicalize().unwrap_or_else(|_| path.to_path_buf())
+}
+
+/// The settings file Maven reads: the configured one, else the user settings
+pub fn settings_file(settings_path: Option<&str>) -> Option<PathBuf> {
+    settings_path
+        .map(PathBuf::from)
+        .or_else(|| dirs::home_dir().map(|home| home.join(".m2").join("settings.xml")))
+}
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+    use tempfile::tempdir;
+
+    fn environment() -> ActivationEnvironment {
+        ActivationEnvironment {
+            jdk_version: Some("17.0.2".to_string()),
+            os_name: Some("linux".to_string()),
+            os_arch: Some("amd64".to_string()),
+            os_families: vec!["unix"],
+            properties: HashMap::from([("ci".to_string(), "true".to_string())]),
+        }
+    }
+
+    fn resolver(root: &Path) -> PomResolver {
+        PomResolver::with_environment(root, SettingsModel::default(), environment())
+    }
+
+    fn write(path: &Path, content: &str) {
+        if let Some(parent) = path.parent() {
+            fs::create_dir_all(parent).unwrap();
+        }
+        fs::write(path, content).unwrap();
+    }
+
+    #[test]
+    fn test_interpolate_nested_properties() {
+        let properties = HashMap::from([
+            ("app.package".to_string(), "com.example".to_string()),
+            ("start-class".to_string(), "${app.package}.Application".to_string()),
+        ]);
+        assert_eq!(
+            interpolate("${start-class}", &properties),
+            "com.example.Application"
+        );
+        assert_eq!(interpolate("${unknown}.Main", &properties), "${unknown}.Main");
+        assert_eq!(interpolate("${unterminated", &properties), "${unterminated");
+    }
+
+    #[test]
+    fn test_jdk_activation() {
+        assert!(jdk_matches("17", "17.0.2"));
+        assert!(!jdk_matches("1.8", "17.0.2"));
+        assert!(jdk_matches("!1.8", "17.0.2"));
+        assert!(jdk_matches("[11,)", "17.0.2"));
+        assert!(!jdk_matches("[1.8,11)", "17.0.2"));
+        assert!(jdk_matches("(,1.8]", "1.8.0_292"));
+        assert!(jdk_matches("[1.8,11),[17,21)", "17.0.2"));
+    }
+
+    #[test]
+    fn test_activation_conditions() {
+        let env = environment();
+        let dir = tempdir().unwrap();
+        write(&dir.path().join("marker.txt"), "");
+
+        let mut activation = Activation {
+            property: Some(("ci".to_string(), Some("true".to_string()))),
+            file_exists: Some("${basedir}/marker.txt".to_string()),
+            ..Default::default()
+        };
+        assert_eq!(env.matches(&activation, dir.path()), Some(true));
+
+        activation.os = Some(OsActivation {
+            family: Some("windows".to_string()),
+            ..Default::default()
+        });
+        assert_eq!(env.matches(&activation, dir.path()), Some(false));
+
+        let unknown = Activation {
+            os: Some(OsActivation {
+                version: Some("5.1".to_string()),
+                ..Default::default()
+            }),
+            ..Default::default()
+        };
+        assert_eq!(env.matches(&unknown, dir.path()), None);
+    }
+
+    #[test]
+    fn test_profiles_across_modules() {
+        let dir = tempdir().unwrap();
+        let root = dir.path();
+        write(
+            &root.join("pom.xml"),
+            r#"<project>
+  <artifactId>root</artifactId>
+  <modules><module>app</module></modules>
+  <profiles>
+    <profile><id>default</id><activation><activeByDefault>true</activeByDefault></activation></profile>
+    <profile><id>ci</id><activation><property><name>ci</name></property></activation></profile>
+  </profiles>
+</project>"#,
+        );
+        write(
+            &root.join("app/pom.xml"),
+            r#"<project>
+  <parent><artifactId>root</artifactId></parent>
+  <artifactId>app</artifactId>
+  <profiles>
+    <profile><id>local</id><activation><activeByDefault>true</activeByDefault></activation></profile>
+    <profile><id>windows</id><activation><os><family>windows</family></os></activation></profile>
+  </profiles>
+</project>"#,
+        );
+
+        let resolver = resolver(root);
+        assert_eq!(
+            resolver.all_profiles().unwrap(),
+            vec!["ci", "default", "local", "windows"]
+        );
+        // "ci" is activated in the root, so its activeByDefault profile is not
+        assert_eq!(resolver.active_profiles().unwrap(), vec!["ci", "local"]);
+    }
+
+    #[test]
+    fn test_stream_profiles_of_nested_modules() {
+        let dir = tempdir().unwrap();
+        let root = dir.path();
+        let modules: String = (0..20)
+            .map(|i| format!("<module>m{}</module>", i))
+            .collect();
+        write(
+            &root.join("pom.xml"),
+            &format!("<project><modules>{}</modules></project>", modules),
+        );
+        for i in 0..20 {
+            write(
+                &root.join(format!("m{}/pom.xml", i)),
+                &format!(
+                    "<project><modules><module>inner</module></modules>\
+                     <profiles><profile><id>p{}</id></profile></profiles></project>",
+                    i
+                ),
+            );
+            write(
+                &root.join(format!("m{}/inner/pom.xml", i)),
+                "<project><profiles><profile><id>shared</id></profile></profiles></project>",
+            );
+        }
+
+        let reported = Mutex::new(Vec::new());
+        let complete = resolver(root).stream_profiles(&|profiles| {
+            reported.lock().unwrap().push(profiles);
+        });
+        assert!(complete);
+
+        let reported = reported.into_inner().unwrap();
+        // One report per POM that declares profiles
+        assert_eq!(reported.len(), 40);
+        let unique: BTreeSet<String> = reported.into_iter().flatten().collect();
+        assert_eq!(unique.len(), 21);
+        assert!(unique.contains("shared"));
+    }
+
+    #[test]
+    fn test_missing_module_falls_back() {
+        let dir = tempdir().unwrap();
+        write(
+            &dir.path().join("pom.xml"),
+            "<project><modules><module>missing</module></modules></project>",
+        );
+        assert!(resolver(dir.path()).all_profiles().is_none());
+    }
+
+    #[test]
+    fn test_spring_boot_detection_through_local_parent() {
+        let dir = tempdir().unwrap();
+        let root = dir.path();
+        write(
+            &root.join("pom.xml"),
+            r#"<project>
+  <artifactId>root</artifactId>
+  <properties><app.package>com.example</app.package></properties>
+  <build><pluginManagement><plugins>
+    <plugin>
+      <artifactId>spring-boot-maven-plugin</artifactId>
+      <configuration><mainClass>${app.package}.Application</mainClass></configuration>
+    </plugin>
+  </plugins></pluginManagement></build>
+</project>"#,
+        );
+        write(
+            &root.join("web/pom.xml"),
+            r#"<project>
+  <parent><artifactId>root</artifactId></parent>
+  <artifactId>web</artifactId>
+  <packaging>war</packaging>
+  <build><plugins>
+    <plugin><artifactId>spring-boot-maven-plugin</artifactId></plugin>
+  </plugins></build>
+</project>"#,
+        );
+
+        let detection = resolver(root)
+            .spring_boot_detection(Some("web"), &[])
+            .unwrap();
+        assert!(detection.has_spring_boot_plugin);
+        assert!(!detection.has_exec_plugin);
+        assert_eq!(detection.packaging.as_deref(), Some("war"));
+        assert_eq!(
+            detection.main_class.as_deref(),
+            Some("com.example.Application")
+        );
+    }
+
+    #[test]
+    fn test_spring_boot_detection_with_repository_parent_falls_back() {
+        let dir = tempdir().unwrap();
+        write(
+            &dir.path().join("pom.xml"),
+            r#"<project>
+  <parent>
+    <groupId>org.springframework.boot</groupId>
+    <artifactId>spring-boot-starter-parent</artifactId>
+    <relativePath/>
+  </parent>
+  <artifactId>demo</artifactId>
+</project>"#,
+        );
+        assert!(resolver(dir.path()).spring_boot_detection(None, &[]).is_none());
+    }
+
+    #[test]
+    fn test_spring_boot_detection_with_profile_plugins() {
+        let dir = tempdir().unwrap();
+        write(
+            &dir.path().join("pom.xml"),
+            r#"<project>
+  <artifactId>demo</artifactId>
+  <properties><start-class>com.example.Main</start-class></properties>
+  <profiles>
+    <profile>
+      <id>run</id>
+      <build><plugins><plugin><artifactId>exec-maven-plugin</artifactId></plugin></plugins></build>
+    </profile>
+  </profiles>
+</project>"#,
+        );
+        let resolver = resolver(dir.path());
+
+        let without = resolver.spring_boot_detection(None, &[]).unwrap();
+        assert!(!without.has_exec_plugin);
+
+        let with = resolver
+            .spring_boot_detection(None, &["run".to_string()])
+            .unwrap();
+        assert!(with.has_exec_plugin);
+        assert_eq!(with.main_class.as_deref(), Some("com.example.Main"));
+        assert_eq!(with.packaging.as_deref(), Some("jar"));
+    }
+}
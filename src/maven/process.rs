@@ -1,10 +1,18 @@
 //! Process management for Maven commands
 
+/// Maximum number of updates buffered between a running command and the UI
+///
+/// Reader threads block once the channel is full, so a tab that is not
+/// drained fast enough applies backpressure to Maven instead of growing
+/// without bound. Output is sent in batches, so this bounds batches, not lines.
+pub const COMMAND_CHANNEL_CAPACITY: usize = 256;
+
 /// Updates from async command execution
 #[derive(Debug, Clone)]
 pub enum CommandUpdate {
     Started(u32), // Process ID
     OutputLine(String),
+    OutputBatch(Vec<String>), // Consecutive lines coalesced by the reader threads
     Completed,
     Error(String),
 }
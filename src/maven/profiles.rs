@@ -4,8 +4,71 @@ use std::{
     collections::HashSet,
     fs,
     path::{Path, PathBuf},
+    sync::mpsc,
+    thread,
 };
 
+/// Progress of an asynchronous profile discovery
+#[derive(Debug, Clone, PartialEq, Eq)]
+pub enum ProfileUpdate {
+    /// Profile IDs found in one source; IDs may repeat across sources
+    Discovered(Vec<String>),
+    /// Profiles activated automatically
+    AutoActivated(Vec<String>),
+    /// Profiles could not be listed
+    Error(String),
+    /// Every source has reported
+    Finished,
+}
+
+/// Discover profiles and their activation concurrently, streaming results
+///
+/// Listing and activation run at the same time. POM files are parsed on a
+/// bounded pool of workers and the profiles of each one are sent as soon as
+/// it is read. `Finished` is always sent last.
+pub fn discover_profiles(project_root: &Path, updates: &mpsc::Sender<ProfileUpdate>) {
+    log::debug!("discover_profiles: Streaming Maven profiles from {:?}", project_root);
+    let config = crate::core::config::load_config(project_root);
+    let send = |update: ProfileUpdate| {
+        if updates.send(update).is_ok() {
+            crate::utils::wakeup::wake();
+        }
+    };
+
+    thread::scope(|scope| {
+        scope.spawn(|| {
+            let active = get_active_profiles(project_root).unwrap_or_else(|e| {
+                log::warn!("Failed to get active profiles: {}", e);
+                vec![]
+            });
+            send(ProfileUpdate::AutoActivated(active));
+        });
+
+        let from_settings = settings_profiles(&config);
+        if !from_settings.is_empty() {
+            send(ProfileUpdate::Discovered(from_settings));
+        }
+
+        let resolver =
+            super::pom_model::PomResolver::new(project_root, config.maven_settings.as_deref());
+        let complete = resolver.stream_profiles(&|profiles| {
+            send(ProfileUpdate::Discovered(profiles));
+        });
+        if !complete {
+            log::info!("Falling back to Maven to list profiles");
+            let mut profile_set = HashSet::new();
+            let update = match collect_profiles_from_maven(project_root, &config, &mut profile_set)
+            {
+                Ok(()) => ProfileUpdate::Discovered(profile_set.into_iter().collect()),
+                Err(e) => ProfileUpdate::Error(e.to_string()),
+            };
+            send(update);
+        }
+    });
+
+    send(ProfileUpdate::Finished);
+}
+
 /// Get all available Maven profiles from POM and settings.xml
 pub fn get_profiles(project_root: &Path) -> Result<Vec<String>, std::io::Error> {
     log::debug!(
@@ -15,6 +78,56 @@ pub fn get_profiles(project_root: &Path) -> Result<Vec<String>, std::io::Error>
     // Try to load config and use settings if available
     let config = crate::core::config::load_config(project_root);
 
+    // Use a HashSet to deduplicate profiles as they may appear multiple times
+    // (once per module that inherits or defines them)
+    let mut profile_set = HashSet::new();
+
+    // Read the POM files directly, falling back to Maven if they can't be resolved
+    let resolver =
+        super::pom_model::PomResolver::new(project_root, config.maven_settings.as_deref());
+    if let Some(profiles) = resolver.all_profiles() {
+        log::debug!("Resolved {} profiles from POM files", profiles.len());
+        profile_set.extend(profiles);
+    } else {
+        log::info!("Falling back to Maven to list profiles");
+        collect_profiles_from_maven(project_root, &config, &mut profile_set)?;
+    }
+
+    // Also get profiles from settings.xml (Maven's help:all-profiles doesn't include these)
+    profile_set.extend(settings_profiles(&config));
+
+    // Convert to sorted Vec for consistent ordering
+    let mut profiles: Vec<String> = profile_set.into_iter().collect();
+    profiles.sort();
+
+    log::info!("Discovered {} unique Maven profiles", profiles.len());
+    Ok(profiles)
+}
+
+/// Profile IDs declared in the configured settings file
+fn settings_profiles(config: &crate::core::config::Config) -> Vec<String> {
+    let Some(settings_path) = config.maven_settings.as_ref() else {
+        return Vec::new();
+    };
+    log::debug!("Checking settings.xml for profiles: {}", settings_path);
+    let mut profiles = Vec::new();
+    if let Ok(settings_content) = fs::read_to_string(settings_path)
+        && let Ok(profiles_from_settings) = extract_profiles_from_settings_xml(&settings_content)
+    {
+        for profile_name in profiles_from_settings {
+            log::debug!("Found profile from settings.xml: {}", profile_name);
+            profiles.push(profile_name);
+        }
+    }
+    profiles
+}
+
+/// Collect profile IDs from the output of `help:all-profiles`
+fn collect_profiles_from_maven(
+    project_root: &Path,
+    config: &crate::core::config::Config,
+    profile_set: &mut HashSet<String>,
+) -> Result<(), std::io::Error> {
     // Run without -N flag to include profiles from all modules
     let output = super::command::execute_maven_command(
         project_root,
@@ -25,10 +138,6 @@ pub fn get_profiles(project_root: &Path) -> Result<Vec<String>, std::io::Error>
         &[],
     )?;
 
-    // Use a HashSet to deduplicate profiles as they may appear multiple times
-    // (once per module that inherits or defines them)
-    let mut profile_set = HashSet::new();
-
     // Get profiles from Maven command output (POM files)
     for line in output.iter() {
         if line.contains("Profile Id:") {
@@ -52,26 +161,7 @@ pub fn get_profiles(project_root: &Path) -> Result<Vec<String>, std::io::Error>
         }
     }
 
-    // Also get profiles from settings.xml (Maven's help:all-profiles doesn't include these)
-    if let Some(settings_path) = config.maven_settings.as_ref() {
-        log::debug!("Checking settings.xml for profiles: {}", settings_path);
-        if let Ok(settings_content) = fs::read_to_string(settings_path)
-            && let Ok(profiles_from_settings) =
-                extract_profiles_from_settings_xml(&settings_content)
-        {
-            for profile_name in profiles_from_settings {
-                log::debug!("Found profile from settings.xml: {}", profile_name);
-                profile_set.insert(profile_name);
-            }
-        }
-    }
-
-    // Convert to sorted Vec for consistent ordering
-    let mut profiles: Vec<String> = profile_set.into_iter().collect();
-    profiles.sort();
-
-    log::info!("Discovered {} unique Maven profiles", profiles.len());
-    Ok(profiles)
+    Ok(())
 }
 
 /// Get profiles that are currently auto-activated by Maven
@@ -83,6 +173,19 @@ pub fn get_active_profiles(project_root: &Path) -> Result<Vec<String>, std::io::
     );
 
     let config = crate::core::config::load_config(project_root);
+
+    // Evaluate activation natively, falling back to Maven for conditions it can't decide
+    let resolver =
+        super::pom_model::PomResolver::new(project_root, config.maven_settings.as_deref());
+    if let Some(profiles) = resolver.active_profiles() {
+        log::info!(
+            "Resolved {} auto-activated profiles from POM files",
+            profiles.len()
+        );
+        return Ok(profiles);
+    }
+    log::info!("Falling back to Maven to evaluate active profiles");
+
     let output = super::command::execute_maven_command(
         project_root,
         None,
@@ -0,0 +1,542 @@
+//! Reactor dependency graph
+//!
+//! Which modules `-am` and `-amd` add to a build, and the order the reactor
+//! builds them in, follow from the coordinates, parents and dependencies
+//! declared in every module's POM. The graph answers those questions without
+//! starting Maven: module POMs are parsed in parallel by the POM model
+//! resolver, and every parent, dependency, imported BOM or build plugin that
+//! points at another module of the reactor becomes an edge.
+//!
+//! Dependencies declared inside profiles are not included, since whether a
+//! profile is active depends on the command being run.
+//!
+//! Graphs are cached next to the module cache, together with the hash of
+//! every POM they were built from. A cached graph is reused as long as none of
+//! those POMs changed, which only costs reading the files.
+
+use super::pom_model::{
+    self, PomFile, canonical, content_hash, insert_project_properties, interpolate,
+    module_pom_paths,
+};
+use serde::{Deserialize, Serialize};
+use std::collections::{BTreeSet, HashMap, HashSet, VecDeque};
+use std::fs;
+use std::path::{Path, PathBuf};
+
+/// Group ID Maven assumes for plugins declared without one
+const DEFAULT_PLUGIN_GROUP_ID: &str = "org.apache.maven.plugins";
+
+/// A module of the reactor
+#[derive(Clone, Debug, PartialEq, Eq, Serialize, Deserialize)]
+pub struct ReactorModule {
+    /// Directory of the module relative to the project root, "." for the root
+    pub path: String,
+    pub group_id: String,
+    pub artifact_id: String,
+    /// Index of the parent module, when the parent is part of the reactor
+    pub parent: Option<usize>,
+    /// Indices of the modules this one needs to be built after, parent included
+    pub dependencies: Vec<usize>,
+}
+
+/// Modules of a reactor and the dependencies between them
+#[derive(Clone, Debug, Default, PartialEq, Eq, Serialize, Deserialize)]
+pub struct ReactorGraph {
+    /// Modules in declaration order, the root first
+    modules: Vec<ReactorModule>,
+}
+
+impl ReactorGraph {
+    /// Parse every POM of the reactor rooted at `project_root`
+    ///
+    /// Returns None when a module POM is missing or unreadable.
+    pub fn build(project_root: &Path) -> Option<Self> {
+        let poms = pom_model::reactor_poms(project_root)?;
+        Some(Self::from_poms(project_root, poms))
+    }
+
+    fn from_poms(project_root: &Path, poms: Vec<PomFile>) -> Self {
+        let root = canonical(project_root);
+        let mut by_path: HashMap<PathBuf, PomFile> = poms
+            .into_iter()
+            .map(|pom| (canonical(&pom.path), pom))
+            .filter(|(path, _)| path.parent().is_some_and(|dir| dir.starts_with(&root)))
+            .collect();
+
+        // Declaration order: each POM followed by the modules it lists
+        let mut ordered = Vec::new();
+        let mut pending = vec![canonical(&project_root.join("pom.xml"))];
+        while let Some(path) = pending.pop() {
+            let Some(pom) = by_path.remove(&path) else {
+                continue;
+            };
+            pending.extend(module_pom_paths(&pom).into_iter().rev().map(|(path, _)| path));
+            ordered.push(pom);
+        }
+        let mut unreached: Vec<PomFile> = by_path.into_values().collect();
+        unreached.sort_by(|a, b| a.path.cmp(&b.path));
+        ordered.extend(unreached);
+
+        let index_by_path: HashMap<PathBuf, usize> = ordered
+            .iter()
+            .enumerate()
+            .map(|(index, pom)| (canonical(&pom.path), index))
+            .collect();
+        let parents: Vec<Option<usize>> = ordered
+            .iter()
+            .map(|pom| reactor_parent(pom, &index_by_path, &ordered))
+            .collect();
+
+        let properties: Vec<HashMap<String, String>> = (0..ordered.len())
+            .map(|index| inherited_properties(index, &ordered, &parents))
+            .collect();
+        let coordinates: Vec<(String, String)> = ordered
+            .iter()
+            .enumerate()
+            .map(|(index, pom)| {
+                let group_id = pom
+                    .group_id
+                    .clone()
+                    .or_else(|| pom.parent.as_ref().and_then(|p| p.group_id.clone()))
+                    .unwrap_or_default();
+                let artifact_id = pom.artifact_id.clone().unwrap_or_default();
+                (
+                    interpolate(&group_id, &properties[index]),
+                    interpolate(&artifact_id, &properties[index]),
+                )
+            })
+            .collect();
+        let index_by_coordinates: HashMap<&(String, String), usize> = coordinates
+            .iter()
+            .enumerate()
+            .map(|(index, coordinates)| (coordinates, index))
+            .collect();
+
+        let modules = ordered
+            .iter()
+            .enumerate()
+            .map(|(index, pom)| {
+                let properties = &properties[index];
+                let dependencies = pom.model.dependencies.iter().filter_map(|dependency| {
+                    Some((dependency.group_id.as_deref()?, &dependency.artifact_id))
+                });
+                let plugins = pom.model.plugins.iter().map(|plugin| {
+                    let group_id = plugin.group_id.as_deref().unwrap_or(DEFAULT_PLUGIN_GROUP_ID);
+                    (group_id, &plugin.artifact_id)
+                });
+
+                let mut edges: Vec<usize> = parents[index].into_iter().collect();
+                for (group_id, artifact_id) in dependencies.chain(plugins) {
+                    let key = (
+                        interpolate(group_id, properties),
+                        interpolate(artifact_id, properties),
+                    );
+                    if let Some(&target) = index_by_coordinates.get(&key)
+                        && target != index
+                        && !edges.contains(&target)
+                    {
+                        edges.push(target);
+                    }
+                }
+
+                let (group_id, artifact_id) = coordinates[index].clone();
+                ReactorModule {
+                    path: relative_module_path(&root, &pom.path),
+                    group_id,
+                    artifact_id,
+                    parent: parents[index],
+                    dependencies: edges,
+                }
+            })
+            .collect();
+
+        ReactorGraph { modules }
+    }
+
+    pub fn modules(&self) -> &[ReactorModule] {
+        &self.modules
+    }
+
+    /// Index of the module in a directory relative to the project root
+    pub fn index_of(&self, path: &str) -> Option<usize> {
+        let path = path.trim_end_matches('/');
+        let path = if path.is_empty() { "." } else { path };
+        self.modules.iter().position(|module| module.path == path)
+    }
+
+    /// Index of the module owning a file, given relative to the project root
+    ///
+    /// The module with the deepest directory containing the file owns it.
+    pub fn owner_of(&self, file: &str) -> Option<usize> {
+        self.modules
+            .iter()
+            .enumerate()
+            .filter(|(_, module)| {
+                module.path == "."
+                    || file
+                        .strip_prefix(module.path.as_str())
+                        .is_some_and(|rest| rest.starts_with('/'))
+            })
+            .max_by_key(|(_, module)| if module.path == "." { 0 } else { module.path.len() })
+            .map(|(index, _)| index)
+    }
+
+    /// Modules that directly depend on each module
+    fn dependents(&self) -> Vec<Vec<usize>> {
+        let mut dependents = vec![Vec::new(); self.modules.len()];
+        for (index, module) in self.modules.iter().enumerate() {
+            for &dependency in &module.dependencies {
+                dependents[dependency].push(index);
+            }
+        }
+        dependents
+    }
+
+    /// The selected modules and every module they depend on, in build order (`-am`)
+    pub fn upstream(&self, selected: &[usize]) -> Vec<usize> {
+        self.closure(selected, |index| self.modules[index].dependencies.clone())
+    }
+
+    /// The selected modules and every module depending on them, in build order (`-amd`)
+    pub fn downstream(&self, selected: &[usize]) -> Vec<usize> {
+        let dependents = self.dependents();
+        self.closure(selected, |index| dependents[index].clone())
+    }
+
+    fn closure(&self, selected: &[usize], next: impl Fn(usize) -> Vec<usize>) -> Vec<usize> {
+        let mut reached: HashSet<usize> = HashSet::new();
+        let mut queue: VecDeque<usize> = selected
+            .iter()
+            .copied()
+            .filter(|&index| index < self.modules.len())
+            .collect();
+        while let Some(index) = queue.pop_front() {
+            if reached.insert(index) {
+                queue.extend(next(index));
+            }
+        }
+        self.build_order()
+            .into_iter()
+            .filter(|index| reached.contains(index))
+            .collect()
+    }
+
+    /// All modules in the order the reactor builds them
+    ///
+    /// Modules are built after their dependencies and otherwise in declaration
+    /// order. Modules caught in a dependency cycle, which Maven rejects, come
+    /// last in declaration order.
+    pub fn build_order(&self) -> Vec<usize> {
+        let dependents = self.dependents();
+        let mut waiting_on: Vec<usize> = self
+            .modules
+            .iter()
+            .map(|module| module.dependencies.len())
+            .collect();
+        let mut ready: BTreeSet<usize> = (0..self.modules.len())
+            .filter(|&index| waiting_on[index] == 0)
+            .collect();
+
+        let mut order = Vec::with_capacity(self.modules.len());
+        while let Some(index) = ready.pop_first() {
+            order.push(index);
+            for &dependent in &dependents[index] {
+                waiting_on[dependent] -= 1;
+                if waiting_on[dependent] == 0 {
+                    ready.insert(dependent);
+                }
+            }
+        }
+        if order.len() < self.modules.len() {
+            log::warn!("Reactor dependency cycle between modules, using declaration order");
+            let placed: HashSet<usize> = order.iter().copied().collect();
+            order.extend((0..self.modules.len()).filter(|index| !placed.contains(index)));
+        }
+        order
+    }
+}
+
+/// Parent of a POM within the reactor, found like Maven through `relativePath`
+fn reactor_parent(
+    pom: &PomFile,
+    index_by_path: &HashMap<PathBuf, usize>,
+    poms: &[PomFile],
+) -> Option<usize> {
+    let parent = pom.parent.as_ref()?;
+    let relative = parent.relative_path.as_deref().unwrap_or("../pom.xml");
+    if relative.is_empty() {
+        return None;
+    }
+    let mut path = pom.base_dir().join(relative);
+    if path.is_dir() {
+        path.push("pom.xml");
+    }
+    let index = *index_by_path.get(&canonical(&path))?;
+    // Maven ignores a relativePath that points at a different artifact
+    (poms[index].artifact_id.as_deref() == Some(parent.artifact_id.as_str())).then_some(index)
+}
+
+/// Properties visible to a POM: its own over those of its reactor parents
+fn inherited_properties(
+    index: usize,
+    poms: &[PomFile],
+    parents: &[Option<usize>],
+) -> HashMap<String, String> {
+    let mut chain = vec![index];
+    while let Some(parent) = parents[chain[chain.len() - 1]] {
+        if chain.contains(&parent) {
+            break;
+        }
+        chain.push(parent);
+    }
+
+    let mut properties = HashMap::new();
+    for &ancestor in chain.iter().rev() {
+        properties.extend(poms[ancestor].model.properties.iter().cloned());
+    }
+    insert_project_properties(&mut properties, std::slice::from_ref(&poms[index]));
+    properties
+}
+
+/// Module directory of a POM relative to the project root, with forward slashes
+fn relative_module_path(root: &Path, pom_path: &Path) -> String {
+    let dir = canonical(pom_path);
+    let dir = dir.parent().unwrap_or(Path::new(""));
+    let components: Vec<String> = dir
+        .strip_prefix(root)
+        .unwrap_or(dir)
+        .components()
+        .map(|component| component.as_os_str().to_string_lossy().into_owned())
+        .collect();
+    if components.is_empty() {
+        ".".to_string()
+    } else {
+        components.join("/")
+    }
+}
+
+/// Cached graph with the hashes of the POMs it was built from
+#[derive(Serialize, Deserialize)]
+struct GraphCache {
+    project_root: PathBuf,
+    poms: Vec<(PathBuf, String)>,
+    graph: ReactorGraph,
+}
+
+/// Cache file of a project's graph, next to the module cache
+fn graph_cache_path(project_root: &Path) -> Option<PathBuf> {
+    let root = canonical(project_root);
+    let key = md5::compute(root.to_string_lossy().as_bytes());
+    let home_dir = dirs::home_dir()?;
+    Some(
+        home_dir
+            .join(".config/lazymvn")
+            .join(format!("reactor-{:x}.json", key)),
+    )
+}
+
+/// Load the reactor graph of a project, reusing the cached graph while no POM changed
+pub fn load_reactor_graph(project_root: &Path) -> Option<ReactorGraph> {
+    load_with_cache(project_root, graph_cache_path(project_root).as_deref())
+}
+
+fn load_with_cache(project_root: &Path, cache_path: Option<&Path>) -> Option<ReactorGraph> {
+    if let Some(graph) = cache_path.and_then(|path| load_cached(path, project_root)) {
+        log::debug!("Using cached reactor graph for {:?}", project_root);
+        return Some(graph);
+    }
+
+    let poms = pom_model::reactor_poms(project_root)?;
+    let hashes = poms
+        .iter()
+        .map(|pom| (pom.path.clone(), pom.content_hash.clone()))
+        .collect();
+    let graph = ReactorGraph::from_poms(project_root, poms);
+    log::info!(
+        "Built reactor graph of {} modules for {:?}",
+        graph.modules.len(),
+        project_root
+    );
+
+    if let Some(path) = cache_path {
+        let cache = GraphCache {
+            project_root: project_root.to_path_buf(),
+            poms: hashes,
+            graph,
+        };
+        if let Err(e) = save_cache(path, &cache) {
+            log::warn!("Failed to save reactor graph cache {:?}: {}", path, e);
+        }
+        return Some(cache.graph);
+    }
+    Some(graph)
+}
+
+fn load_cached(path: &Path, project_root: &Path) -> Option<ReactorGraph> {
+    let json = fs::read_to_string(path).ok()?;
+    let cache: GraphCache = serde_json::from_str(&json).ok()?;
+    if cache.project_root != project_root {
+        return None;
+    }
+    let unchanged = cache.poms.iter().all(|(pom, hash)| {
+        fs::read_to_string(pom).is_ok_and(|content| content_hash(&content) == *hash)
+    });
+    unchanged.then_some(cache.graph)
+}
+
+fn save_cache(path: &Path, cache: &GraphCache) -> Result<(), Box<dyn std::error::Error>> {
+    if let Some(dir) = path.parent() {
+        fs::create_dir_all(dir)?;
+    }
+    fs::write(path, serde_json::to_string(cache)?)?;
+    Ok(())
+}
+
+/// Graph of a small reactor for tests: `web -> service -> model` and an independent `tools` module
+#[cfg(test)]
+pub(crate) fn sample_graph() -> ReactorGraph {
+    let dir = tempfile::tempdir().unwrap();
+    let root = dir.path();
+    let write = |path: PathBuf, content: &str| {
+        fs::create_dir_all(path.parent().unwrap()).unwrap();
+        fs::write(path, content).unwrap();
+    };
+    write(
+        root.join("pom.xml"),
+        "<project><groupId>g</groupId><artifactId>root</artifactId><modules>\
+         <module>model</module><module>service</module><module>web</module>\
+         <module>tools</module></modules></project>",
+    );
+    for (module, dependency) in [
+        ("model", None),
+        ("service", Some("model")),
+        ("web", Some("service")),
+        ("tools", None),
+    ] {
+        let dependencies = dependency
+            .map(|d| {
+                format!(
+                    "<dependencies><dependency><groupId>g</groupId>\
+                     <artifactId>{d}</artifactId></dependency></dependencies>"
+                )
+            })
+            .unwrap_or_default();
+        write(
+            root.join(module).join("pom.xml"),
+            &format!(
+                "<project><groupId>g</groupId><artifactId>{module}</artifactId>\
+                 {dependencies}</project>"
+            ),
+        );
+    }
+    ReactorGraph::build(root).unwrap()
+}
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+    use tempfile::tempdir;
+
+    fn write(path: &Path, content: &str) {
+        fs::create_dir_all(path.parent().unwrap()).unwrap();
+        fs::write(path, content).unwrap();
+    }
+
+    fn module_pom(artifact_id: &str, dependencies: &[&str]) -> String {
+        let dependencies: String = dependencies
+            .iter()
+            .map(|artifact_id| {
+                format!(
+                    "<dependency><groupId>${{project.groupId}}</groupId>\
+                     <artifactId>{artifact_id}</artifactId></dependency>"
+                )
+            })
+            .collect();
+        format!(
+            "<project><parent><groupId>com.example</groupId><artifactId>root</artifactId>\
+             </parent><artifactId>{artifact_id}</artifactId>\
+             <dependencies>{dependencies}<dependency><groupId>junit</groupId>\
+             <artifactId>junit</artifactId></dependency></dependencies></project>"
+        )
+    }
+
+    /// Root with `app -> core -> api`, declared out of build order
+    fn sample_project(root: &Path) {
+        write(
+            &root.join("pom.xml"),
+            "<project><groupId>com.example</groupId><artifactId>root</artifactId>\
+             <modules><module>app</module><module>core</module><module>api</module>\
+             </modules></project>",
+        );
+        write(&root.join("app/pom.xml"), &module_pom("app", &["core"]));
+        write(&root.join("core/pom.xml"), &module_pom("core", &["api"]));
+        write(&root.join("api/pom.xml"), &module_pom("api", &[]));
+    }
+
+    fn paths(graph: &ReactorGraph, indices: &[usize]) -> Vec<String> {
+        indices
+            .iter()
+            .map(|&index| graph.modules()[index].path.clone())
+            .collect()
+    }
+
+    #[test]
+    fn test_builds_graph_from_poms() {
+        let dir = tempdir().unwrap();
+        sample_project(dir.path());
+        let graph = ReactorGraph::build(dir.path()).unwrap();
+
+        assert_eq!(paths(&graph, &[0, 1, 2, 3]), vec![".", "app", "core", "api"]);
+        let core = graph.index_of("core/").unwrap();
+        assert_eq!(graph.modules()[core].group_id, "com.example");
+        assert_eq!(graph.modules()[core].parent, Some(0));
+        assert_eq!(
+            graph.modules()[core].dependencies,
+            vec![0, graph.index_of("api").unwrap()]
+        );
+        assert_eq!(
+            paths(&graph, &graph.build_order()),
+            vec![".", "api", "core", "app"]
+        );
+    }
+
+    #[test]
+    fn test_upstream_and_downstream_selection() {
+        let dir = tempdir().unwrap();
+        sample_project(dir.path());
+        let graph = ReactorGraph::build(dir.path()).unwrap();
+
+        let app = graph.index_of("app").unwrap();
+        let api = graph.index_of("api").unwrap();
+        assert_eq!(
+            paths(&graph, &graph.upstream(&[app])),
+            vec![".", "api", "core", "app"]
+        );
+        assert_eq!(
+            paths(&graph, &graph.downstream(&[api])),
+            vec!["api", "core", "app"]
+        );
+    }
+
+    #[test]
+    fn test_cached_graph_is_reused_until_a_pom_changes() {
+        let dir = tempdir().unwrap();
+        let project = dir.path().join("project");
+        sample_project(&project);
+        let cache_path = dir.path().join("reactor.json");
+
+        let graph = load_with_cache(&project, Some(&cache_path)).unwrap();
+        assert!(cache_path.exists());
+        assert_eq!(load_cached(&cache_path, &project), Some(graph));
+
+        write(&project.join("api/pom.xml"), &module_pom("api", &["core"]));
+        assert_eq!(load_cached(&cache_path, &project), None);
+        let rebuilt = load_with_cache(&project, Some(&cache_path)).unwrap();
+        let api = rebuilt.index_of("api").unwrap();
+        assert!(
+            rebuilt.modules()[api]
+                .dependencies
+                .contains(&rebuilt.index_of("core").unwrap())
+        );
+    }
+}
@@ -0,0 +1,215 @@
+//! Frame scheduling
+//!
+//! Drawing the whole UI on every pass through the main loop keeps the CPU busy
+//! even when nothing on screen changes. The scheduler records which panes were
+//! invalidated since the last frame and decides when the next frame is due:
+//! input is drawn immediately, while streamed output is batched under a frame
+//! rate cap that adapts to how long frames take to draw. With nothing dirty no
+//! frame is drawn at all.
+//!
+//! Ratatui always renders a complete frame and only writes the cells that
+//! changed to the terminal, so tracking panes decides when to draw rather than
+//! which widgets to render.
+
+use std::ops::BitOr;
+use std::time::{Duration, Instant};
+
+/// Set of panes that need to be drawn again
+#[derive(Clone, Copy, Debug, Default, PartialEq, Eq)]
+pub struct DirtyPanes(u8);
+
+impl DirtyPanes {
+    pub const NONE: DirtyPanes = DirtyPanes(0);
+    pub const MODULES: DirtyPanes = DirtyPanes(1);
+    pub const PROFILES: DirtyPanes = DirtyPanes(1 << 1);
+    pub const FLAGS: DirtyPanes = DirtyPanes(1 << 2);
+    pub const OUTPUT: DirtyPanes = DirtyPanes(1 << 3);
+    pub const FOOTER: DirtyPanes = DirtyPanes(1 << 4);
+    pub const ALL: DirtyPanes = DirtyPanes(
+        Self::MODULES.0 | Self::PROFILES.0 | Self::FLAGS.0 | Self::OUTPUT.0 | Self::FOOTER.0,
+    );
+
+    pub fn is_empty(self) -> bool {
+        self.0 == 0
+    }
+
+    pub fn contains(self, other: DirtyPanes) -> bool {
+        self.0 & other.0 == other.0
+    }
+}
+
+impl BitOr for DirtyPanes {
+    type Output = DirtyPanes;
+
+    fn bitor(self, rhs: DirtyPanes) -> DirtyPanes {
+        DirtyPanes(self.0 | rhs.0)
+    }
+}
+
+/// Shortest interval between frames drawn for streamed output (~30 fps)
+const MIN_STREAM_FRAME_INTERVAL: Duration = Duration::from_millis(33);
+
+/// Longest interval between frames drawn for streamed output
+const MAX_STREAM_FRAME_INTERVAL: Duration = Duration::from_millis(250);
+
+/// Streaming frames may take at most 1/STREAM_DRAW_BUDGET of the wall time
+const STREAM_DRAW_BUDGET: u32 = 8;
+
+/// Decides when the next frame has to be drawn
+#[derive(Debug)]
+pub struct FrameScheduler {
+    dirty: DirtyPanes,
+    last_frame: Option<Instant>,
+    stream_interval: Duration,
+    /// Elapsed seconds shown by the running command indicator in the last frame
+    shown_elapsed: Option<u64>,
+}
+
+impl Default for FrameScheduler {
+    fn default() -> Self {
+        Self::new()
+    }
+}
+
+impl FrameScheduler {
+    /// Create a scheduler whose first frame is due immediately
+    pub fn new() -> Self {
+        Self {
+            dirty: DirtyPanes::ALL,
+            last_frame: None,
+            stream_interval: MIN_STREAM_FRAME_INTERVAL,
+            shown_elapsed: None,
+        }
+    }
+
+    pub fn mark(&mut self, panes: DirtyPanes) {
+        self.dirty = self.dirty | panes;
+    }
+
+    pub fn dirty(&self) -> DirtyPanes {
+        self.dirty
+    }
+
+    /// Invalidate the output title when the running command indicator ticks
+    pub fn tick_elapsed(&mut self, elapsed_seconds: Option<u64>) {
+        if elapsed_seconds != self.shown_elapsed {
+            self.mark(DirtyPanes::OUTPUT);
+        }
+    }
+
+    /// Time left before the pending frame is due, or None when nothing is dirty
+    pub fn time_until_frame(&self, now: Instant) -> Option<Duration> {
+        if self.dirty.is_empty() {
+            return None;
+        }
+        // Only streamed output waits for the frame rate cap
+        if self.dirty != DirtyPanes::OUTPUT {
+            return Some(Duration::ZERO);
+        }
+        Some(match self.last_frame {
+            Some(last_frame) => {
+                (last_frame + self.stream_interval).saturating_duration_since(now)
+            }
+            None => Duration::ZERO,
+        })
+    }
+
+    pub fn should_draw(&self, now: Instant) -> bool {
+        self.time_until_frame(now) == Some(Duration::ZERO)
+    }
+
+    /// Record a drawn frame and adapt the streaming frame rate to its cost
+    pub fn frame_drawn(
+        &mut self,
+        started: Instant,
+        draw_time: Duration,
+        elapsed_seconds: Option<u64>,
+    ) {
+        self.dirty = DirtyPanes::NONE;
+        self.last_frame = Some(started);
+        self.shown_elapsed = elapsed_seconds;
+        self.stream_interval = (draw_time * STREAM_DRAW_BUDGET)
+            .clamp(MIN_STREAM_FRAME_INTERVAL, MAX_STREAM_FRAME_INTERVAL);
+    }
+
+    /// How long the main loop may sleep before it has to draw or a timer ticks
+    ///
+    /// Returns None when only a wakeup from a producer can create work.
+    pub fn sleep_time(&self, now: Instant, next_tick: Option<Duration>) -> Option<Duration> {
+        match (self.time_until_frame(now), next_tick) {
+            (Some(frame), Some(tick)) => Some(frame.min(tick)),
+            (frame, tick) => frame.or(tick),
+        }
+    }
+}
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+
+    #[test]
+    fn test_first_frame_is_due_immediately() {
+        let scheduler = FrameScheduler::new();
+        assert!(scheduler.should_draw(Instant::now()));
+    }
+
+    #[test]
+    fn test_nothing_dirty_means_no_frame() {
+        let mut scheduler = FrameScheduler::new();
+        let now = Instant::now();
+        scheduler.frame_drawn(now, Duration::from_millis(1), None);
+
+        assert!(!scheduler.should_draw(now + Duration::from_secs(60)));
+        assert_eq!(scheduler.sleep_time(now, None), None);
+        assert_eq!(
+            scheduler.sleep_time(now, Some(Duration::from_secs(1))),
+            Some(Duration::from_secs(1))
+        );
+    }
+
+    #[test]
+    fn test_streamed_output_is_rate_limited() {
+        let mut scheduler = FrameScheduler::new();
+        let now = Instant::now();
+        scheduler.frame_drawn(now, Duration::from_millis(1), None);
+
+        scheduler.mark(DirtyPanes::OUTPUT);
+        assert!(!scheduler.should_draw(now + Duration::from_millis(10)));
+        assert!(scheduler.should_draw(now + MIN_STREAM_FRAME_INTERVAL));
+
+        // Input is drawn right away, even while output is streaming
+        scheduler.mark(DirtyPanes::MODULES);
+        assert!(scheduler.should_draw(now + Duration::from_millis(10)));
+        assert!(scheduler.dirty().contains(DirtyPanes::OUTPUT));
+    }
+
+    #[test]
+    fn test_slow_frames_lower_the_stream_rate() {
+        let mut scheduler = FrameScheduler::new();
+        let now = Instant::now();
+        scheduler.frame_drawn(now, Duration::from_millis(20), None);
+        scheduler.mark(DirtyPanes::OUTPUT);
+
+        assert!(!scheduler.should_draw(now + Duration::from_millis(100)));
+        assert!(scheduler.should_draw(now + Duration::from_millis(160)));
+
+        scheduler.frame_drawn(now, Duration::from_secs(1), None);
+        scheduler.mark(DirtyPanes::OUTPUT);
+        assert_eq!(
+            scheduler.time_until_frame(now),
+            Some(MAX_STREAM_FRAME_INTERVAL)
+        );
+    }
+
+    #[test]
+    fn test_elapsed_tick_invalidates_output() {
+        let mut scheduler = FrameScheduler::new();
+        let now = Instant::now();
+        scheduler.frame_drawn(now, Duration::from_millis(1), Some(3));
+
+        scheduler.tick_elapsed(Some(3));
+        assert!(scheduler.dirty().is_empty());
+        scheduler.tick_elapsed(Some(4));
+        assert_eq!(scheduler.dirty(), DirtyPanes::OUTPUT);
+    }
+}
@@ -0,0 +1,133 @@
+//! Terminal input reader
+//!
+//! Key and mouse events are read on a dedicated thread and handed to the main
+//! loop through a channel, waking it up like any other producer. The thread
+//! can be paused while an external program such as an editor owns the
+//! terminal, so it never steals that program's input.
+
+use crate::utils::wakeup;
+use crossterm::event::{self, Event};
+use std::io;
+use std::sync::{Arc, Condvar, Mutex, mpsc};
+use std::thread;
+use std::time::Duration;
+
+/// How long a read may block before the thread checks for a pause request
+const PAUSE_CHECK_INTERVAL: Duration = Duration::from_millis(250);
+
+#[derive(Clone, Copy, Debug, PartialEq, Eq)]
+enum ReaderState {
+    Running,
+    PauseRequested,
+    Paused,
+    Stopped,
+}
+
+struct Control {
+    state: Mutex<ReaderState>,
+    changed: Condvar,
+}
+
+impl Control {
+    fn set(&self, state: ReaderState) {
+        *self.state.lock().unwrap_or_else(|e| e.into_inner()) = state;
+        self.changed.notify_all();
+    }
+
+    /// Block while paused; returns false once the reader has to stop
+    fn wait_until_running(&self) -> bool {
+        let mut state = self.state.lock().unwrap_or_else(|e| e.into_inner());
+        loop {
+            match *state {
+                ReaderState::Running => return true,
+                ReaderState::Stopped => return false,
+                ReaderState::PauseRequested => {
+                    *state = ReaderState::Paused;
+                    self.changed.notify_all();
+                }
+                ReaderState::Paused => {}
+            }
+            state = self.changed.wait(state).unwrap_or_else(|e| e.into_inner());
+        }
+    }
+}
+
+/// Handle to the thread reading terminal events
+pub struct InputReader {
+    events: mpsc::Receiver<io::Result<Event>>,
+    control: Arc<Control>,
+}
+
+impl InputReader {
+    /// Start reading terminal events on a background thread
+    pub fn spawn() -> Self {
+        let (tx, events) = mpsc::channel();
+        let control = Arc::new(Control {
+            state: Mutex::new(ReaderState::Running),
+            changed: Condvar::new(),
+        });
+
+        let thread_control = Arc::clone(&control);
+        thread::spawn(move || {
+            read_events(&tx, &thread_control);
+            thread_control.set(ReaderState::Stopped);
+        });
+
+        Self { events, control }
+    }
+
+    /// Take the next event read from the terminal, if any
+    pub fn try_next(&self) -> Option<io::Result<Event>> {
+        self.events.try_recv().ok()
+    }
+
+    /// Stop reading from the terminal until [`resume`](Self::resume) is called
+    ///
+    /// Returns once the reader thread no longer reads input.
+    pub fn pause(&self) {
+        let mut state = self.control.state.lock().unwrap_or_else(|e| e.into_inner());
+        if *state == ReaderState::Running {
+            *state = ReaderState::PauseRequested;
+        }
+        while *state == ReaderState::PauseRequested {
+            state = self
+                .control
+                .changed
+                .wait(state)
+                .unwrap_or_else(|e| e.into_inner());
+        }
+    }
+
+    pub fn resume(&self) {
+        let mut state = self.control.state.lock().unwrap_or_else(|e| e.into_inner());
+        if *state == ReaderState::Paused {
+            *state = ReaderState::Running;
+            self.control.changed.notify_all();
+        }
+    }
+}
+
+impl Drop for InputReader {
+    fn drop(&mut self) {
+        self.control.set(ReaderState::Stopped);
+    }
+}
+
+fn read_events(tx: &mpsc::Sender<io::Result<Event>>, control: &Control) {
+    while control.wait_until_running() {
+        let event = match event::poll(PAUSE_CHECK_INTERVAL) {
+            Ok(false) => continue,
+            Ok(true) => event::read(),
+            Err(e) => Err(e),
+        };
+        let failed = event.is_err();
+        if tx.send(event).is_err() {
+            return;
+        }
+        wakeup::wake();
+        if failed {
+            log::error!("Stopped reading terminal input after an error");
+            return;
+        }
+    }
+}
@@ -3,10 +3,14 @@
 //! This module provides the main TUI functionality by coordinating between
 //! rendering, event handling, and state management.
 
+mod frame_scheduler;
+mod input;
 mod mouse;
 mod renderer;
 
 // Re-export public API
+pub use frame_scheduler::{DirtyPanes, FrameScheduler};
+pub use input::InputReader;
 pub use mouse::handle_mouse_event;
 pub use renderer::draw;
 
@@ -38,6 +42,9 @@ mod tests {
             output: None,
             logging: None,
             spring: None,
+            changes: None,
+            parallel: None,
+            jobs: None,
         }
     }
 
@@ -51,7 +58,7 @@ mod tests {
         let mut state = crate::ui::state::TuiState::new(modules, project_root, test_cfg());
         {
             let tab = state.get_active_tab_mut();
-            tab.command_output = vec!["output1".to_string(), "output2".to_string()];
+            tab.command_output.set_lines(vec!["output1".to_string(), "output2".to_string()]);
         }
 
         // Test that drawing succeeds without errors
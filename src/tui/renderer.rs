@@ -7,7 +7,7 @@
 use crate::ui::{
     keybindings::Focus,
     panes::{
-        create_adaptive_layout, render_favorites_popup, render_flags_pane, render_footer,
+        create_adaptive_layout, render_build_status_popup, render_favorites_popup, render_flags_pane, render_footer,
         render_history_popup, render_modules_pane, render_output_pane, render_profiles_pane,
         render_projects_pane, render_projects_popup, render_save_favorite_popup,
         render_starter_manager_popup, render_starter_selector_popup, render_tab_bar,
@@ -24,7 +24,6 @@ pub fn draw<B: Backend>(
     terminal.draw(|f| {
         // Extract data from state that doesn't require mutable access
         let focus = state.focus;
-        let search_active = state.search_mod.is_some();
 
         let (
             tab_bar_area,
@@ -46,6 +45,8 @@ pub fn draw<B: Backend>(
             );
         }
 
+        let module_markers = state.module_markers();
+
         // Get active tab for rendering (in a scoped block to release borrow)
         let tab = state.get_active_tab_mut();
 
@@ -69,6 +70,7 @@ pub fn draw<B: Backend>(
             f,
             modules_area,
             &tab.modules,
+            &module_markers,
             &mut tab.modules_list_state,
             focus == Focus::Modules,
         );
@@ -115,23 +117,15 @@ pub fn draw<B: Backend>(
         state.set_output_view_dimensions(inner_area.height, inner_area.width);
 
         // Render output pane
-        let selected_module = state.selected_module();
+        let selected_module = state.selected_module().map(str::to_string);
         let current_context = state.current_output_context();
         let elapsed = state.command_elapsed_seconds();
-
-        // Get tab again for rendering output (immutable borrow is OK with closure accessing state)
-        let tab = state.get_active_tab();
-        let command_output = &tab.command_output;
-        let output_offset = tab.output_offset;
         render_output_pane(
             f,
             output_area,
-            command_output,
-            output_offset,
+            state.output_pane_view(),
             focus == Focus::Output,
-            |line_index| state.search_line_style(line_index),
-            search_active,
-            selected_module,
+            selected_module.as_deref(),
             current_context,
             is_running,
             elapsed,
@@ -146,7 +140,12 @@ pub fn draw<B: Backend>(
             state.selected_module(),
             &state.active_profile_names(),
             &state.enabled_flag_names(),
-            state.search_status_line(),
+            state
+                .export_status_line()
+                .or_else(|| state.parallel_status_line())
+                .or_else(|| state.job_queue_status_line())
+                .or_else(|| state.command_queue_status_line())
+                .or_else(|| state.search_status_line()),
         );
 
         // Render projects popup on top if shown
@@ -180,6 +179,13 @@ pub fn draw<B: Backend>(
             );
         }
 
+        // Render parallel build status popup if shown
+        if state.show_build_status_popup
+            && let Some((run, list_state)) = state.build_status_view()
+        {
+            render_build_status_popup(f, run, list_state);
+        }
+
         // Render favorites popup if shown
         if state.show_favorites_popup {
             render_favorites_popup(f, state.favorites.list(), &mut state.favorites_list_state);
@@ -187,7 +193,11 @@ pub fn draw<B: Backend>(
 
         // Render save favorite popup if shown
         if state.show_save_favorite_popup {
-            render_save_favorite_popup(f, &state.favorite_name_input);
+            render_save_favorite_popup(
+                f,
+                &state.favorite_name_input,
+                state.pending_pipeline.as_ref().map(Vec::len),
+            );
         }
     })?;
     Ok(())
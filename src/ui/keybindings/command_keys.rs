@@ -14,6 +14,11 @@ pub fn handle_maven_command(key: KeyEvent, state: &mut TuiState) -> bool {
             state.run_selected_module_command(&["clean", "install"]);
             true
         }
+        KeyCode::Char('B') => {
+            log::info!("Execute: build changed modules");
+            state.run_changed_modules_build();
+            true
+        }
         KeyCode::Char('C') => {
             log::info!("Execute: clean");
             state.run_selected_module_command(&["clean"]);
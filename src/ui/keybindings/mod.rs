@@ -44,6 +44,11 @@ pub fn handle_key_event(key: KeyEvent, state: &mut crate::ui::state::TuiState) {
         return;
     }
 
+    // Handle parallel build status popup separately
+    if state.show_build_status_popup && popup_keys::handle_build_status_popup(key, state) {
+        return;
+    }
+
     // Handle projects popup separately
     if state.show_projects_popup && popup_keys::handle_projects_popup(key, state) {
         return;
@@ -125,6 +130,7 @@ pub fn handle_key_event(key: KeyEvent, state: &mut crate::ui::state::TuiState) {
         KeyCode::End => output_keys::handle_scroll_to_end(state),
         KeyCode::Char('y') => output_keys::handle_yank_output(state),
         KeyCode::Char('Y') => output_keys::handle_yank_debug_info(state),
+        KeyCode::Char('O') => output_keys::handle_save_output(state),
         _ => {}
     }
 }
@@ -549,11 +555,11 @@ mod tests {
         );
 
         // Add some output
-        state.get_active_tab_mut().command_output = vec![
+        state.get_active_tab_mut().command_output.set_lines(vec![
             "Line 1".to_string(),
             "Line 2".to_string(),
             "Line 3".to_string(),
-        ];
+        ]);
 
         // Press 'y' to yank output
         let y_event = KeyEvent {
@@ -565,6 +571,13 @@ mod tests {
 
         handle_key_event(y_event, &mut state);
 
+        // The copy runs in the background; wait for its result
+        let deadline = std::time::Instant::now() + std::time::Duration::from_secs(10);
+        while state.is_exporting() && std::time::Instant::now() < deadline {
+            state.poll_export();
+            std::thread::sleep(std::time::Duration::from_millis(5));
+        }
+
         // Should have added a message about copying
         // Note: actual clipboard test may fail in CI/headless environments
         // so we just check that the function was called and output updated
@@ -166,7 +166,7 @@ pub fn handle_search_operations(key: KeyEvent, state: &mut TuiState) -> bool {
     }
 }
 
-/// Handle special actions (Esc, Enter, Space)
+/// Handle special actions (Esc, Enter, Space, P)
 pub fn handle_special_actions(key: KeyEvent, state: &mut TuiState) -> bool {
     match key.code {
         KeyCode::Esc => {
@@ -174,6 +174,10 @@ pub fn handle_special_actions(key: KeyEvent, state: &mut TuiState) -> bool {
             state.kill_running_process();
             true
         }
+        KeyCode::Char(' ') if state.focus == Focus::Modules => {
+            state.toggle_module_mark();
+            true
+        }
         KeyCode::Enter | KeyCode::Char(' ') => {
             if state.focus == Focus::Profiles {
                 state.toggle_profile();
@@ -185,6 +189,11 @@ pub fn handle_special_actions(key: KeyEvent, state: &mut TuiState) -> bool {
                 false
             }
         }
+        KeyCode::Char('P') => {
+            log::info!("Show parallel build status");
+            state.show_build_status();
+            true
+        }
         _ => false,
     }
 }
@@ -64,6 +64,12 @@ pub fn handle_yank_output(state: &mut TuiState) {
     state.yank_output();
 }
 
+/// Handle saving output to a file
+pub fn handle_save_output(state: &mut TuiState) {
+    log::info!("Save output to file");
+    state.save_output_to_file();
+}
+
 /// Handle yank (copy) debug report to clipboard
 pub fn handle_yank_debug_info(state: &mut TuiState) {
     log::info!("Yank (copy) debug report to clipboard");
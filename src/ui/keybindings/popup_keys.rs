@@ -163,6 +163,34 @@ pub fn handle_history_popup(key: KeyEvent, state: &mut TuiState) -> bool {
     true
 }
 
+/// Handle keyboard events for parallel build status popup
+pub fn handle_build_status_popup(key: KeyEvent, state: &mut TuiState) -> bool {
+    // The popup belongs to the tab that was active when it opened
+    if state.get_active_tab().parallel_run.is_none() {
+        state.hide_build_status();
+        return false;
+    }
+
+    match key.code {
+        KeyCode::Down => state.next_build_status_item(),
+        KeyCode::Up => state.previous_build_status_item(),
+        KeyCode::Enter => {
+            log::info!("Show output of module from build status");
+            state.show_build_status_module_output();
+        }
+        KeyCode::Char('x') => {
+            log::info!("Cancel parallel run from build status");
+            state.kill_running_process();
+        }
+        KeyCode::Esc | KeyCode::Char('q') | KeyCode::Char('P') => {
+            log::info!("Close build status popup");
+            state.hide_build_status();
+        }
+        _ => {}
+    }
+    true
+}
+
 /// Handle keyboard events for projects popup
 pub fn handle_projects_popup(key: KeyEvent, state: &mut TuiState) -> bool {
     match key.code {
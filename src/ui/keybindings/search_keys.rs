@@ -34,6 +34,11 @@ pub fn handle_search_input(key: KeyEvent, state: &mut TuiState) -> bool {
             state.live_search();
             state.search_mod = Some(SearchMode::Input);
         }
+        KeyCode::Tab => {
+            log::debug!("Search scope toggled");
+            state.toggle_search_scope();
+            state.search_mod = Some(SearchMode::Input);
+        }
         KeyCode::Enter => {
             log::debug!("Search submit");
             state.submit_search();
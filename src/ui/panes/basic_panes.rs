@@ -3,13 +3,15 @@
 //! This module contains rendering functions for the main application panes:
 //! projects, modules, profiles, flags, and output display.
 
+use super::output_viewport::OutputViewport;
+use crate::ui::state::OutputPaneView;
 use crate::ui::theme::Theme;
 use ratatui::{
     Frame,
     layout::Rect,
     style::Style,
     text::{Line, Span},
-    widgets::{Block, Borders, List, ListItem, ListState, Paragraph, Wrap},
+    widgets::{Block, Borders, List, ListItem, ListState, Paragraph},
 };
 
 /// Render the projects pane (shows project root name and Git branch if available)
@@ -52,10 +54,14 @@ pub fn render_projects_pane(
 }
 
 /// Render the modules pane
+///
+/// `markers` holds the parallel build marker of each module, or is empty when
+/// no module is marked.
 pub fn render_modules_pane(
     f: &mut Frame,
     area: Rect,
     modules: &[String],
+    markers: &[&'static str],
     list_state: &mut ListState,
     is_focused: bool,
 ) {
@@ -71,13 +77,29 @@ pub fn render_modules_pane(
 
     let items: Vec<ListItem> = modules
         .iter()
-        .map(|m| {
+        .enumerate()
+        .map(|(i, m)| {
             let display_name = if m == "." {
                 "(root project)"
             } else {
                 m.as_str()
             };
-            ListItem::new(Line::from(display_name))
+            match markers.get(i) {
+                Some(&marker) => {
+                    let style = match marker {
+                        "✓" => Theme::INFO_STYLE,
+                        "✗" => Theme::ERROR_STYLE,
+                        "⟳" => Theme::FOCUS_STYLE,
+                        "◌" | "⊘" => Theme::DIM_STYLE,
+                        _ => Theme::ACTIVE_PROFILE_STYLE,
+                    };
+                    ListItem::new(Line::from(vec![
+                        Span::styled(format!("{} ", marker), style),
+                        Span::raw(display_name),
+                    ]))
+                }
+                None => ListItem::new(Line::from(display_name)),
+            }
         })
         .collect();
 
@@ -126,8 +148,8 @@ pub fn render_profiles_pane(
             Theme::DEFAULT_STYLE
         });
 
-    // Show loading/error message if profiles are not loaded yet
-    if matches!(loading_status, ProfileLoadingStatus::Loading) {
+    // Show loading/error message until the first profiles have been discovered
+    if matches!(loading_status, ProfileLoadingStatus::Loading) && profiles.is_empty() {
         let loading_text = Paragraph::new(format!("{} Discovering Maven profiles...", spinner))
             .block(block)
             .alignment(ratatui::layout::Alignment::Center)
@@ -233,11 +255,8 @@ pub fn render_flags_pane(
 pub fn render_output_pane(
     f: &mut Frame,
     area: Rect,
-    command_output: &[String],
-    output_offset: usize,
+    view: OutputPaneView<'_>,
     is_focused: bool,
-    search_line_style_fn: impl Fn(usize) -> Option<Vec<(Style, std::ops::Range<usize>)>>,
-    is_search_active: bool,
     module_name: Option<&str>,
     output_context: Option<(String, Vec<String>, Vec<String>)>,
     is_command_running: bool,
@@ -283,64 +302,15 @@ pub fn render_output_pane(
             Theme::DEFAULT_STYLE
         });
 
-    let output_lines = if command_output.is_empty() {
-        vec![Line::from("Run a command to see Maven output.")]
-    } else {
-        // Check if we're displaying XML (profile XML starts with "Profile:")
-        let is_xml_mode = command_output
-            .first()
-            .map(|s| s.starts_with("Profile:"))
-            .unwrap_or(false);
-
-        command_output
-            .iter()
-            .enumerate()
-            .map(|(line_index, line)| {
-                if is_search_active {
-                    // In search mode: use search highlighting over cleaned text
-                    let cleaned = crate::utils::clean_log_line(line).unwrap_or_default();
-                    if let Some(highlights) = search_line_style_fn(line_index) {
-                        let mut spans = Vec::new();
-                        let mut last_end = 0;
-                        for (style, range) in highlights {
-                            if range.start > last_end {
-                                spans.push(Span::raw(cleaned[last_end..range.start].to_string()));
-                            }
-                            if range.end <= cleaned.len() {
-                                spans.push(Span::styled(cleaned[range.clone()].to_string(), style));
-                                last_end = range.end;
-                            }
-                        }
-                        if last_end < cleaned.len() {
-                            spans.push(Span::raw(cleaned[last_end..].to_string()));
-                        }
-                        Line::from(spans)
-                    } else {
-                        Line::from(cleaned)
-                    }
-                } else if is_xml_mode && line_index >= 3 {
-                    // XML mode: colorize XML syntax (skip first 3 lines: header)
-                    // Don't use clean_log_line as it may trim - use raw line
-                    crate::utils::colorize_xml_line(line)
-                } else {
-                    // Normal mode: use keyword-based coloring
-                    let cleaned = crate::utils::clean_log_line(line).unwrap_or_default();
-                    crate::utils::colorize_log_line(&cleaned)
-                }
-            })
-            .collect()
-    };
-
-    // Check if we're in XML mode to disable trim
-    let is_xml_mode = command_output
-        .first()
-        .map(|s| s.starts_with("Profile:"))
-        .unwrap_or(false);
-
-    let output_paragraph = Paragraph::new(output_lines)
-        .block(output_block)
-        .wrap(Wrap { trim: !is_xml_mode }) // Don't trim in XML mode to preserve indentation
-        .scroll((output_offset.min(u16::MAX as usize) as u16, 0));
+    if view.lines.is_empty() {
+        let placeholder =
+            Paragraph::new("Run a command to see Maven output.").block(output_block);
+        f.render_widget(placeholder, area);
+        return;
+    }
 
-    f.render_widget(output_paragraph, area);
+    // Only the rows inside the block are styled and drawn
+    let inner_area = output_block.inner(area);
+    f.render_widget(output_block, area);
+    f.render_widget(OutputViewport::new(view), inner_area);
 }
@@ -1,5 +1,6 @@
 mod basic_panes;
 mod layout;
+mod output_viewport;
 mod popups;
 mod tab_footer;
 
@@ -0,0 +1,193 @@
+//! Virtualized output viewport
+//!
+//! Only the lines covering the visible rows are styled and wrapped. The first
+//! visible line is located through the row prefix sums kept by
+//! [`OutputMetrics`](crate::ui::state::OutputMetrics), so a frame costs the
+//! same whatever the size of the output buffer, and scroll offsets are not
+//! limited to `u16` rows. Styled segments are byte ranges of the buffered
+//! text and are drawn straight into the frame buffer without building
+//! intermediate spans.
+
+use crate::ui::state::OutputPaneView;
+use crate::utils::StyledSegment;
+use ratatui::{buffer::Buffer, layout::Rect, widgets::Widget};
+use unicode_width::UnicodeWidthChar;
+
+/// Widget drawing the rows of the output buffer starting at a wrapped row offset
+pub struct OutputViewport<'a> {
+    view: OutputPaneView<'a>,
+}
+
+impl<'a> OutputViewport<'a> {
+    pub fn new(view: OutputPaneView<'a>) -> Self {
+        Self { view }
+    }
+}
+
+impl Widget for OutputViewport<'_> {
+    fn render(self, area: Rect, buf: &mut Buffer) {
+        if area.is_empty() {
+            return;
+        }
+        let OutputPaneView {
+            lines,
+            metrics,
+            offset,
+            styles,
+            search,
+        } = self.view;
+
+        // Without metrics (e.g. before the first layout) start from the top
+        let history_start = lines.history_first_seq();
+        let (first_seq, mut skip_rows) = metrics
+            .and_then(|metrics| metrics.line_at_row(offset))
+            .unwrap_or((history_start, 0));
+
+        let mut y = area.y;
+        for (seq, text) in lines.history_between(first_seq, lines.end_seq()) {
+            if y >= area.bottom() {
+                break;
+            }
+            let text = text.as_ref();
+            let segments = match search {
+                Some(search) => styles.search_segments(seq, text, search),
+                None => styles.segments(seq, text, seq - history_start),
+            };
+            let row_area = Rect {
+                y,
+                height: area.bottom() - y,
+                ..area
+            };
+            y += draw_wrapped(buf, row_area, text, segments, skip_rows);
+            skip_rows = 0;
+        }
+    }
+}
+
+/// Draw a line wrapped at character boundaries, skipping its first `skip_rows` rows
+///
+/// Wraps without trimming, which keeps the row count in line with
+/// `OutputMetrics`. Returns the number of rows drawn.
+fn draw_wrapped(
+    buf: &mut Buffer,
+    area: Rect,
+    text: &str,
+    segments: &[StyledSegment],
+    skip_rows: usize,
+) -> u16 {
+    let width = area.width as usize;
+    let visible_rows = area.height as usize;
+    let mut row = 0;
+    let mut column = 0;
+
+    for (style, range) in segments {
+        let mut run_start = range.start;
+        let mut run_column = column;
+        for (offset, ch) in text[range.clone()].char_indices() {
+            let char_width = ch.width().unwrap_or(0);
+            if column > 0 && column + char_width > width {
+                let index = range.start + offset;
+                if let Some(visible_row) = row.checked_sub(skip_rows) {
+                    let run = &text[run_start..index];
+                    draw_run(buf, area, visible_row, run_column, run, *style);
+                }
+                row += 1;
+                if row >= skip_rows + visible_rows {
+                    return area.height;
+                }
+                column = 0;
+                run_start = index;
+                run_column = 0;
+            }
+            column += char_width;
+        }
+        if let Some(visible_row) = row.checked_sub(skip_rows) {
+            draw_run(buf, area, visible_row, run_column, &text[run_start..range.end], *style);
+        }
+    }
+
+    (row + 1).saturating_sub(skip_rows).min(visible_rows) as u16
+}
+
+fn draw_run(
+    buf: &mut Buffer,
+    area: Rect,
+    row: usize,
+    column: usize,
+    run: &str,
+    style: ratatui::style::Style,
+) {
+    if run.is_empty() || row >= area.height as usize || column >= area.width as usize {
+        return;
+    }
+    buf.set_stringn(
+        area.x + column as u16,
+        area.y + row as u16,
+        run,
+        area.width as usize - column,
+        style,
+    );
+}
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+    use crate::ui::state::{OutputBuffer, OutputMetrics, StyledLineCache};
+    use ratatui::style::Color;
+
+    fn row_text(buf: &Buffer, y: u16) -> String {
+        (0..buf.area.width)
+            .map(|x| buf[(x, y)].symbol())
+            .collect::<String>()
+            .trim_end()
+            .to_string()
+    }
+
+    fn render(lines: &OutputBuffer, width: u16, height: u16, offset: usize) -> Buffer {
+        let metrics = OutputMetrics::new(width as usize, lines);
+        let mut styles = StyledLineCache::default();
+        let area = Rect::new(0, 0, width, height);
+        let mut buf = Buffer::empty(area);
+        let view = OutputPaneView {
+            lines,
+            metrics: Some(&metrics),
+            offset,
+            styles: &mut styles,
+            search: None,
+        };
+        OutputViewport::new(view).render(area, &mut buf);
+        buf
+    }
+
+    #[test]
+    fn test_viewport_draws_rows_past_u16_offsets() {
+        let lines: OutputBuffer = (0..100_000).map(|i| format!("line {}", i)).collect();
+        let buf = render(&lines, 20, 5, 90_000);
+
+        assert_eq!(row_text(&buf, 0), "line 90000");
+        assert_eq!(row_text(&buf, 4), "line 90004");
+    }
+
+    #[test]
+    fn test_viewport_starts_inside_wrapped_line() {
+        let lines: OutputBuffer = vec!["a".repeat(25), "tail".to_string()].into();
+        let buf = render(&lines, 10, 3, 2);
+
+        assert_eq!(row_text(&buf, 0), "aaaaa");
+        assert_eq!(row_text(&buf, 1), "tail");
+        assert_eq!(row_text(&buf, 2), "");
+    }
+
+    #[test]
+    fn test_viewport_wraps_styled_segments() {
+        let lines: OutputBuffer = vec!["ab [ERROR] cd".to_string()].into();
+        let buf = render(&lines, 5, 3, 0);
+
+        assert_eq!(row_text(&buf, 0), "ab [E");
+        assert_eq!(row_text(&buf, 1), "RROR]");
+        assert_eq!(row_text(&buf, 2), " cd");
+        assert_eq!(buf[(3, 0)].fg, Color::Red);
+        assert_eq!(buf[(0, 1)].fg, Color::Red);
+        assert_eq!(buf[(1, 2)].fg, Color::Reset);
+    }
+}
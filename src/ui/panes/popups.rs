@@ -509,7 +509,32 @@ pub fn render_favorites_popup(
     let preview_text = if favorites.is_empty() {
         vec![Line::from("No favorites to preview")]
     } else if let Some(selected) = list_state.selected() {
-        if let Some(fav) = favorites.get(selected) {
+        if let Some(fav) = favorites.get(selected)
+            && fav.is_pipeline()
+        {
+            let mut lines = vec![
+                Line::from(vec![
+                    Span::styled("Name: ", Style::default().fg(ratatui::style::Color::Yellow)),
+                    Span::raw(&fav.name),
+                ]),
+                Line::from(Span::styled(
+                    "Pipeline: ",
+                    Style::default().fg(ratatui::style::Color::Yellow),
+                )),
+            ];
+            // Each step starts once the previous one succeeded
+            for (index, step) in fav.steps.iter().enumerate() {
+                let mut text = format!("  {}. {}", index + 1, step.format_summary());
+                if !step.profiles.is_empty() {
+                    text.push_str(&format!(" -P {}", step.profiles.join(",")));
+                }
+                if !step.flags.is_empty() {
+                    text.push_str(&format!(" ({})", step.flags.join(", ")));
+                }
+                lines.push(Line::from(text));
+            }
+            lines
+        } else if let Some(fav) = favorites.get(selected) {
             let mut lines = vec![
                 Line::from(vec![
                     Span::styled("Name: ", Style::default().fg(ratatui::style::Color::Yellow)),
@@ -583,7 +608,9 @@ pub fn render_favorites_popup(
 }
 
 /// Render save favorite popup (name input)
-pub fn render_save_favorite_popup(f: &mut Frame, name_input: &str) {
+///
+/// `pipeline_steps` is the number of commands saved as a pipeline, if any.
+pub fn render_save_favorite_popup(f: &mut Frame, name_input: &str, pipeline_steps: Option<usize>) {
     // Calculate popup size (smaller, centered)
     let area = f.area();
     let popup_width = 60.min(area.width - 4);
@@ -624,7 +651,10 @@ pub fn render_save_favorite_popup(f: &mut Frame, name_input: &str) {
         .split(inner);
 
     // Prompt
-    let prompt = Paragraph::new("Enter a name for this favorite:");
+    let prompt = match pipeline_steps {
+        Some(count) => Paragraph::new(format!("Enter a name for this pipeline of {} commands:", count)),
+        None => Paragraph::new("Enter a name for this favorite:"),
+    };
     f.render_widget(prompt, chunks[0]);
 
     // Input field
@@ -644,3 +674,153 @@ pub fn render_save_favorite_popup(f: &mut Frame, name_input: &str) {
     .alignment(ratatui::layout::Alignment::Center);
     f.render_widget(help, chunks[4]);
 }
+
+/// Render the status of a parallel run, one row per module
+pub fn render_build_status_popup(
+    f: &mut Frame,
+    run: &crate::ui::state::ParallelRun,
+    list_state: &mut ListState,
+) {
+    use crate::features::parallel_build::JobState;
+
+    // Calculate popup size (centered, 70% width, 70% height)
+    let area = f.area();
+    let popup_width = (area.width * 70) / 100;
+    let popup_height = (area.height * 70) / 100;
+    let popup_x = (area.width - popup_width) / 2;
+    let popup_y = (area.height - popup_height) / 2;
+
+    let popup_area = Rect {
+        x: popup_x,
+        y: popup_y,
+        width: popup_width,
+        height: popup_height,
+    };
+
+    f.render_widget(ratatui::widgets::Clear, popup_area);
+
+    let popup_chunks = Layout::default()
+        .direction(Direction::Vertical)
+        .constraints([
+            Constraint::Length(3), // Summary
+            Constraint::Min(3),    // Modules
+            Constraint::Length(4), // Details
+            Constraint::Length(2), // Help
+        ])
+        .split(popup_area);
+
+    let schedule = run.schedule();
+    let summary = schedule.summary();
+    let mut summary_text = format!(
+        "{}: {}/{} done, {} running, {} queued, {} failed, {} skipped | {} at a time | {}",
+        run.command(),
+        summary.done(),
+        summary.total(),
+        summary.running,
+        summary.queued,
+        summary.failed,
+        summary.skipped,
+        schedule.max_concurrent(),
+        format_elapsed(run.elapsed())
+    );
+    if run.is_finished() {
+        summary_text.push_str(" | finished");
+    }
+    let summary_block = Block::default()
+        .title("Parallel Build (P)")
+        .borders(Borders::ALL)
+        .border_type(ratatui::widgets::BorderType::Rounded)
+        .border_style(Theme::FOCUS_STYLE);
+    f.render_widget(
+        Paragraph::new(summary_text).block(summary_block),
+        popup_chunks[0],
+    );
+
+    let width = schedule
+        .jobs()
+        .iter()
+        .map(|job| job.module.len())
+        .max()
+        .unwrap_or(0);
+    let items: Vec<ListItem> = schedule
+        .jobs()
+        .iter()
+        .map(|job| {
+            let (label, style) = match &job.state {
+                JobState::Pending => ("waiting", Theme::DIM_STYLE),
+                JobState::Queued => ("queued", Theme::DIM_STYLE),
+                JobState::Running => ("running", Theme::FOCUS_STYLE),
+                JobState::Succeeded => ("succeeded", Theme::INFO_STYLE),
+                JobState::Failed(_) => ("failed", Theme::ERROR_STYLE),
+                JobState::Skipped(_) => ("skipped", Theme::DIM_STYLE),
+            };
+            let elapsed = job.elapsed().map(format_elapsed).unwrap_or_default();
+            ListItem::new(Line::from(vec![
+                Span::styled(format!("{} ", job.state.symbol()), style),
+                Span::raw(format!("{:<width$}  ", job.module)),
+                Span::styled(format!("{:<10}", label), style),
+                Span::styled(elapsed, Theme::DIM_STYLE),
+            ]))
+        })
+        .collect();
+
+    let list = List::new(items)
+        .block(
+            Block::default()
+                .title("Modules")
+                .borders(Borders::ALL)
+                .border_type(ratatui::widgets::BorderType::Rounded),
+        )
+        .style(Theme::DEFAULT_STYLE)
+        .highlight_style(Theme::SELECTED_STYLE)
+        .highlight_symbol(">> ");
+    f.render_stateful_widget(list, popup_chunks[1], list_state);
+
+    // Why the selected module failed or was skipped
+    let details = list_state
+        .selected()
+        .and_then(|index| schedule.jobs().get(index))
+        .map(|job| match &job.state {
+            JobState::Failed(message) => Line::styled(message.clone(), Theme::ERROR_STYLE),
+            JobState::Skipped(reason) => Line::styled(reason.clone(), Theme::DIM_STYLE),
+            _ => Line::from(""),
+        })
+        .unwrap_or_default();
+    let details_block = Block::default()
+        .title("Details")
+        .borders(Borders::ALL)
+        .border_type(ratatui::widgets::BorderType::Rounded);
+    f.render_widget(
+        Paragraph::new(details)
+            .block(details_block)
+            .wrap(ratatui::widgets::Wrap { trim: true }),
+        popup_chunks[2],
+    );
+
+    let help_text = Line::from(vec![
+        Span::styled("Enter", Style::default().fg(ratatui::style::Color::Green)),
+        Span::raw(" Show output | "),
+        Span::styled("↑↓", Style::default().fg(ratatui::style::Color::Cyan)),
+        Span::raw(" Navigate | "),
+        Span::styled("x", Style::default().fg(ratatui::style::Color::Red)),
+        Span::raw(" Cancel run | "),
+        Span::styled("Esc", Style::default().fg(ratatui::style::Color::Red)),
+        Span::raw(" Close"),
+    ]);
+    f.render_widget(
+        Paragraph::new(help_text)
+            .alignment(ratatui::layout::Alignment::Center)
+            .style(Theme::DEFAULT_STYLE),
+        popup_chunks[3],
+    );
+}
+
+/// Format a duration as `42s` or `3m 05s`
+fn format_elapsed(elapsed: std::time::Duration) -> String {
+    let seconds = elapsed.as_secs();
+    if seconds < 60 {
+        format!("{}s", seconds)
+    } else {
+        format!("{}m {:02}s", seconds / 60, seconds % 60)
+    }
+}
@@ -1,32 +1,62 @@
+use crate::ui::state::{GlobalSearch, OutputBuffer};
 use crate::ui::theme::Theme;
+use crate::utils::StyledSegment;
 use ratatui::{
     style::Style,
     text::{Line, Span},
 };
 use regex::Regex;
+use std::collections::VecDeque;
 
 /// Represents a search match within the output
 #[derive(Clone, Debug)]
 pub struct SearchMatch {
+    /// Sequence number of the matching line in the output buffer
     pub line_index: usize,
     pub start: usize,
     pub end: usize,
 }
 
+/// Maximum number of matches kept at once; further matches are found lazily
+pub const MAX_SEARCH_MATCHES: usize = 10_000;
+
 /// State for managing search functionality
+///
+/// The compiled regex is kept so the match list can follow streaming output:
+/// lines appended to the buffer are scanned as they arrive and matches on
+/// evicted lines are dropped. The list is capped at `max_matches`; once the
+/// cap is reached the rest of the buffer is only scanned when navigating past
+/// the last known match.
 #[derive(Clone, Debug)]
 pub struct SearchState {
     pub query: String,
-    pub matches: Vec<SearchMatch>,
+    pub matches: VecDeque<SearchMatch>,
     pub current: usize,
+    regex: Regex,
+    max_matches: usize,
+    /// Sequence number of the next line to scan
+    scanned_until: usize,
+    /// Whether unscanned lines remain because the match cap was reached
+    has_more: bool,
+    /// Whether older matches were dropped to stay under the cap
+    dropped_front: bool,
 }
 
 impl SearchState {
-    pub fn new(query: String, matches: Vec<SearchMatch>) -> Self {
+    pub fn new(query: String, regex: Regex) -> Self {
+        Self::with_max_matches(query, regex, MAX_SEARCH_MATCHES)
+    }
+
+    pub fn with_max_matches(query: String, regex: Regex, max_matches: usize) -> Self {
         Self {
             query,
-            matches,
+            matches: VecDeque::new(),
             current: 0,
+            regex,
+            max_matches: max_matches.max(1),
+            scanned_until: 0,
+            has_more: false,
+            dropped_front: false,
         }
     }
 
@@ -34,6 +64,11 @@ impl SearchState {
         !self.matches.is_empty()
     }
 
+    /// Whether more matches may exist beyond the capped match list
+    pub fn has_more(&self) -> bool {
+        self.has_more
+    }
+
     pub fn current_match(&self) -> Option<&SearchMatch> {
         self.matches.get(self.current)
     }
@@ -42,12 +77,68 @@ impl SearchState {
         self.matches.len()
     }
 
-    pub fn next_match(&mut self) {
-        if !self.matches.is_empty() {
-            self.current = (self.current + 1) % self.matches.len();
+    /// Discard all matches and scan the buffer again from its first line
+    pub fn reset(&mut self, lines: &OutputBuffer) {
+        self.matches.clear();
+        self.current = 0;
+        self.dropped_front = false;
+        self.scanned_until = lines.history_first_seq();
+        self.scan(lines, self.max_matches);
+    }
+
+    /// Follow the buffer: drop matches on evicted lines and scan new lines
+    pub fn sync(&mut self, lines: &OutputBuffer) {
+        // Sequence numbers only move forward; anything else is a different buffer
+        if lines.end_seq() < self.scanned_until {
+            self.reset(lines);
+            return;
+        }
+
+        let evicted = self
+            .matches
+            .partition_point(|m| m.line_index < lines.history_first_seq());
+        if evicted > 0 {
+            self.matches.drain(..evicted);
+            self.current = self.current.saturating_sub(evicted);
+        }
+        self.scanned_until = self.scanned_until.max(lines.history_first_seq());
+
+        if self.matches.len() < self.max_matches {
+            self.scan(lines, self.max_matches);
+        } else {
+            self.has_more = self.scanned_until < lines.end_seq();
         }
     }
 
+    pub fn next_match(&mut self, lines: &OutputBuffer) {
+        if self.current + 1 < self.matches.len() {
+            self.current += 1;
+            return;
+        }
+
+        // Past the cap: look for the next match in the unscanned part of the buffer
+        if self.has_more {
+            let known = self.matches.len();
+            self.scan(lines, known + 1);
+            if self.matches.len() > known {
+                self.current = known;
+                let excess = self.matches.len().saturating_sub(self.max_matches);
+                if excess > 0 {
+                    self.matches.drain(..excess);
+                    self.current -= excess;
+                    self.dropped_front = true;
+                }
+                return;
+            }
+        }
+
+        // Wrap around, rescanning from the start if early matches were dropped
+        if self.dropped_front {
+            self.reset(lines);
+        }
+        self.current = 0;
+    }
+
     pub fn previous_match(&mut self) {
         if !self.matches.is_empty() {
             self.current = if self.current == 0 {
@@ -63,14 +154,35 @@ impl SearchState {
             self.current = index;
         }
     }
+
+    /// Scan unscanned lines until the match list holds at least `limit` matches
+    fn scan(&mut self, lines: &OutputBuffer, limit: usize) {
+        for (seq, line) in lines.history_between(self.scanned_until, lines.end_seq()) {
+            if self.matches.len() >= limit {
+                break;
+            }
+            for mat in self.regex.find_iter(&line) {
+                self.matches.push_back(SearchMatch {
+                    line_index: seq,
+                    start: mat.start(),
+                    end: mat.end(),
+                });
+            }
+            self.scanned_until = seq + 1;
+        }
+        self.scanned_until = self.scanned_until.max(lines.history_first_seq());
+        self.has_more = self.scanned_until < lines.end_seq();
+    }
 }
 
 /// Collect search matches from command output using a regex
-pub fn collect_search_matches(command_output: &[String], regex: &Regex) -> Vec<SearchMatch> {
+///
+/// Output lines are stored already cleaned of escape codes, so matching runs
+/// directly on the buffered text.
+pub fn collect_search_matches(command_output: &OutputBuffer, regex: &Regex) -> Vec<SearchMatch> {
     let mut matches = Vec::new();
-    for (line_index, line) in command_output.iter().enumerate() {
-        let cleaned = crate::utils::clean_log_line(line).unwrap_or_default();
-        for mat in regex.find_iter(&cleaned) {
+    for (line_index, line) in command_output.history_between(0, usize::MAX) {
+        for mat in regex.find_iter(&line) {
             matches.push(SearchMatch {
                 line_index,
                 start: mat.start(),
@@ -81,30 +193,105 @@ pub fn collect_search_matches(command_output: &[String], regex: &Regex) -> Vec<S
     matches
 }
 
-/// Generate styled spans for a line with search highlights
-pub fn search_line_style(
+/// Compute the segments of a line with its search matches highlighted
+///
+/// Fills `segments` with byte ranges covering the whole line, so drawing a
+/// highlighted line allocates nothing once `segments` has grown to fit.
+pub fn search_line_segments(
     line_index: usize,
+    line: &str,
     search_state: &SearchState,
-) -> Option<Vec<(Style, std::ops::Range<usize>)>> {
-    let mut highlights = Vec::new();
+    segments: &mut Vec<StyledSegment>,
+) {
+    let mut last_end = 0;
 
-    for (match_idx, search_match) in search_state.matches.iter().enumerate() {
-        if search_match.line_index == line_index {
-            let style = if match_idx == search_state.current {
-                Theme::CURRENT_SEARCH_MATCH_STYLE
-            } else {
-                Theme::SEARCH_MATCH_STYLE
-            };
-            highlights.push((style, search_match.start..search_match.end));
+    // Matches are ordered by line and position, so only the run for this line is visited
+    let first = search_state
+        .matches
+        .partition_point(|m| m.line_index < line_index);
+    for (match_idx, search_match) in search_state.matches.range(first..).enumerate() {
+        if search_match.line_index != line_index {
+            break;
+        }
+        if search_match.start < last_end || search_match.end > line.len() {
+            continue;
         }
+        let style = if first + match_idx == search_state.current {
+            Theme::CURRENT_SEARCH_MATCH_STYLE
+        } else {
+            Theme::SEARCH_MATCH_STYLE
+        };
+        if search_match.start > last_end {
+            segments.push((Style::default(), last_end..search_match.start));
+        }
+        segments.push((style, search_match.start..search_match.end));
+        last_end = search_match.end;
     }
 
-    if highlights.is_empty() {
-        None
+    if last_end < line.len() || segments.is_empty() {
+        segments.push((Style::default(), last_end..line.len()));
+    }
+}
+
+/// Generate the footer line while typing a search across all tabs
+pub fn global_search_input_line(buffer: &str) -> Line<'static> {
+    Line::from(vec![
+        Span::styled("/", Theme::INFO_STYLE),
+        Span::raw(format!("{buffer}_ ")),
+        Span::styled("[all tabs]", Theme::INFO_STYLE),
+        Span::raw(" (Enter to search, Tab for this tab only, Esc to cancel)"),
+    ])
+}
+
+/// Generate the footer line for a search across all tabs
+pub fn global_search_status_line(search: &GlobalSearch) -> Line<'static> {
+    let mut total = search.hits.len().to_string();
+    if search.is_truncated() {
+        total.push('+');
+    }
+    let progress = if search.is_running() {
+        " searching…"
+    } else {
+        ""
+    };
+
+    let location = search
+        .current
+        .and_then(|index| search.hits.get(index))
+        .map(|hit| match hit.module.as_deref() {
+            Some(module) => format!(" [{} • {}]", hit.tab_title, module),
+            None => format!(" [{}]", hit.tab_title),
+        })
+        .unwrap_or_default();
+
+    if search.hits.is_empty() {
+        let status = if search.is_running() {
+            " Searching all tabs…"
+        } else {
+            " No matches in any tab"
+        };
+        return Line::from(vec![
+            Span::styled("Search", Theme::INFO_STYLE),
+            Span::raw(format!("{status}   /{}", search.query)),
+        ]);
+    }
+
+    let current = search.current.map_or(0, |index| index + 1);
+    Line::from(vec![
+        Span::styled("Search all tabs", Theme::INFO_STYLE),
+        Span::raw(format!(
+            " Match {current}/{total}{location}   /{} (n/N){progress}",
+            search.query
+        )),
+    ])
+}
+
+/// Total match count for the status line, marked when more may follow
+fn match_total_label(search: &SearchState) -> String {
+    if search.has_more() {
+        format!("{}+", search.total_matches())
     } else {
-        // Sort highlights by start position
-        highlights.sort_by_key(|(_, range)| range.start);
-        Some(highlights)
+        search.total_matches().to_string()
     }
 }
 
@@ -127,7 +314,7 @@ pub fn search_status_line(
         if let Some(search) = search_state {
             if search.has_matches() {
                 let current = search.current + 1;
-                let total = search.total_matches();
+                let total = match_total_label(search);
                 return Some(Line::from(vec![
                     Span::styled("/", Theme::INFO_STYLE),
                     Span::raw(format!(
@@ -163,7 +350,7 @@ pub fn search_status_line(
     if let Some(search) = search_state {
         if search.has_matches() {
             let current = search.current + 1;
-            let total = search.total_matches();
+            let total = match_total_label(search);
             return Some(Line::from(vec![
                 Span::styled("Search", Theme::INFO_STYLE),
                 Span::raw(format!(
@@ -181,3 +368,88 @@ pub fn search_status_line(
 
     None
 }
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+
+    fn search_for(pattern: &str, max_matches: usize) -> SearchState {
+        let regex = Regex::new(pattern).unwrap();
+        SearchState::with_max_matches(pattern.to_string(), regex, max_matches)
+    }
+
+    #[test]
+    fn test_sync_matches_appended_lines() {
+        let mut lines: OutputBuffer = vec!["ERROR one".to_string(), "ok".to_string()].into();
+        let mut search = search_for("ERROR", MAX_SEARCH_MATCHES);
+        search.reset(&lines);
+        assert_eq!(search.total_matches(), 1);
+
+        lines.push("ERROR two");
+        search.sync(&lines);
+        assert_eq!(search.total_matches(), 2);
+        assert_eq!(search.matches[1].line_index, 2);
+    }
+
+    #[test]
+    fn test_sync_drops_matches_on_evicted_lines() {
+        let mut lines: OutputBuffer = (0..10).map(|i| format!("ERROR {}", i)).collect();
+        let mut search = search_for("ERROR", MAX_SEARCH_MATCHES);
+        search.reset(&lines);
+        search.jump_to_match(5);
+
+        lines.trim_to(4);
+        search.sync(&lines);
+        assert_eq!(search.total_matches(), 4);
+        assert_eq!(search.matches[0].line_index, 6);
+        assert_eq!(search.current, 0);
+    }
+
+    #[test]
+    fn test_capped_matches_are_found_lazily() {
+        let lines: OutputBuffer = (0..10).map(|i| format!("hit {}", i)).collect();
+        let mut search = search_for("hit", 3);
+        search.reset(&lines);
+        assert_eq!(search.total_matches(), 3);
+        assert!(search.has_more());
+
+        for _ in 0..3 {
+            search.next_match(&lines);
+        }
+        let current = search.current_match().unwrap();
+        assert_eq!(current.line_index, 3);
+        assert_eq!(search.total_matches(), 3);
+
+        // Walk to the end, then wrap around to the first line again
+        for _ in 0..6 {
+            search.next_match(&lines);
+        }
+        assert_eq!(search.current_match().unwrap().line_index, 9);
+        assert!(!search.has_more());
+        search.next_match(&lines);
+        assert_eq!(search.current_match().unwrap().line_index, 0);
+    }
+
+    #[test]
+    fn test_search_line_segments_highlight_current_match() {
+        let lines: OutputBuffer = vec!["a b a".to_string(), "b".to_string()].into();
+        let mut search = search_for("a", MAX_SEARCH_MATCHES);
+        search.reset(&lines);
+        search.jump_to_match(1);
+
+        let mut segments = Vec::new();
+        search_line_segments(0, "a b a", &search, &mut segments);
+        assert_eq!(
+            segments,
+            vec![
+                (Theme::SEARCH_MATCH_STYLE, 0..1),
+                (Style::default(), 1..4),
+                (Theme::CURRENT_SEARCH_MATCH_STYLE, 4..5),
+            ]
+        );
+
+        segments.clear();
+        search_line_segments(1, "b", &search, &mut segments);
+        assert_eq!(segments, vec![(Style::default(), 0..1)]);
+    }
+}
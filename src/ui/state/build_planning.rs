@@ -0,0 +1,141 @@
+//! Build planning off the UI thread
+//!
+//! Working out what some builds cover takes a while: listing local changes
+//! runs git, and ordering modules reads the POM of every module in the
+//! reactor. That planning runs on a worker thread while its tab counts as
+//! busy, and the build starts once the plan arrives, the worker waking the
+//! main loop like profile discovery does.
+
+use super::TuiState;
+use crate::maven::ReactorGraph;
+use std::sync::mpsc;
+
+/// Build worked out by a worker thread
+pub(super) enum PlannedBuild {
+    /// Goals to run on a `-pl` target, with the lines shown above the command
+    Maven {
+        target: String,
+        goals: Vec<String>,
+        header: Vec<String>,
+    },
+    /// Goal to run on several modules at once, ordered by the reactor graph when it could be read
+    Parallel {
+        args: Vec<String>,
+        modules: Vec<String>,
+        graph: Option<ReactorGraph>,
+    },
+    /// Nothing to build, with the lines explaining why
+    Nothing(Vec<String>),
+}
+
+impl TuiState {
+    /// Plan a build of the active tab on a worker thread
+    ///
+    /// The tab stays busy until [`poll_build_planning`](Self::poll_build_planning)
+    /// receives the plan and starts the build.
+    pub(super) fn plan_build<F>(&mut self, plan: F)
+    where
+        F: FnOnce() -> PlannedBuild + Send + 'static,
+    {
+        let (sender, receiver) = mpsc::channel();
+        self.get_active_tab_mut().build_planning = Some(receiver);
+        std::thread::spawn(move || {
+            // The tab may have been closed in the meantime
+            if sender.send(plan()).is_ok() {
+                crate::utils::wakeup::wake();
+            }
+        });
+    }
+
+    /// Start the builds whose plan arrived since the last poll
+    pub(super) fn poll_build_planning(&mut self) {
+        for tab_index in 0..self.tabs.len() {
+            let Some(receiver) = self.tabs[tab_index].build_planning.as_ref() else {
+                continue;
+            };
+            let plan = match receiver.try_recv() {
+                Ok(plan) => plan,
+                Err(mpsc::TryRecvError::Empty) => continue,
+                Err(mpsc::TryRecvError::Disconnected) => {
+                    log::error!("Build planning of tab {} stopped", self.tabs[tab_index].id);
+                    PlannedBuild::Nothing(vec!["✗ Could not plan the build".to_string()])
+                }
+            };
+            self.tabs[tab_index].build_planning = None;
+
+            if !self.start_planned_build(tab_index, plan) {
+                // Commands queued behind the build do not run without it
+                self.drop_command_queue(tab_index, "the build did not start");
+            }
+        }
+    }
+
+    /// Start a planned build, returning whether anything started
+    fn start_planned_build(&mut self, tab_index: usize, plan: PlannedBuild) -> bool {
+        match plan {
+            PlannedBuild::Maven {
+                target,
+                goals,
+                header,
+            } => {
+                let goals: Vec<&str> = goals.iter().map(String::as_str).collect();
+                self.start_maven_command(tab_index, &target, &goals, false, header)
+                    .is_some()
+            }
+            PlannedBuild::Parallel {
+                args,
+                modules,
+                graph,
+            } => {
+                self.start_parallel_run(tab_index, args, modules, graph.as_ref());
+                true
+            }
+            PlannedBuild::Nothing(lines) => {
+                let tab = &mut self.tabs[tab_index];
+                tab.command_output.set_lines(lines);
+                tab.output_offset = 0;
+                tab.output_metrics = None;
+                if tab_index == self.active_tab_index {
+                    self.clamp_output_offset();
+                }
+                false
+            }
+        }
+    }
+}
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+    use crate::core::config::Config;
+    use std::path::PathBuf;
+    use std::sync::mpsc;
+    use std::thread;
+    use std::time::{Duration, Instant};
+
+    #[test]
+    fn test_tab_is_busy_until_the_plan_arrives() {
+        let mut state = TuiState::new(
+            vec!["module1".to_string()],
+            PathBuf::from("/test"),
+            Config::default(),
+        );
+        let (release, released) = mpsc::channel::<()>();
+        state.plan_build(move || {
+            released.recv().ok();
+            PlannedBuild::Nothing(vec!["No changes to build".to_string()])
+        });
+        state.poll_build_planning();
+        assert!(state.get_active_tab().is_busy());
+
+        release.send(()).unwrap();
+        let deadline = Instant::now() + Duration::from_secs(5);
+        while state.get_active_tab().is_busy() {
+            assert!(Instant::now() < deadline, "build planning did not finish");
+            state.poll_build_planning();
+            thread::sleep(Duration::from_millis(5));
+        }
+        let tab = state.get_active_tab();
+        assert_eq!(tab.command_output.to_vec(), vec!["No changes to build".to_string()]);
+    }
+}
@@ -0,0 +1,257 @@
+//! Per-tab command queue and pipelines
+//!
+//! A single-module command started while its tab is busy is queued instead of
+//! dropped; runs spanning several modules are refused with a note. Each
+//! queued step starts as soon as the previous command exits successfully; a
+//! failure or a kill drops the rest of the queue. Pipelines are favorites with
+//! several steps, run through the same queue. Queues are saved per project in
+//! the step format of favorites, so they survive a restart.
+
+use super::{ProfileState, ProjectTab, TuiState};
+use crate::features::favorites::{Favorite, PipelineStep};
+
+impl ProjectTab {
+    /// Key of this tab's project in the saved queues
+    fn queue_key(&self) -> String {
+        self.project_root.to_string_lossy().to_string()
+    }
+
+    /// Select the module of a step and apply its profiles and flags
+    ///
+    /// Returns false when the module is not part of the project.
+    fn prepare_step(&mut self, step: &PipelineStep) -> bool {
+        let Some(index) = self.modules.iter().position(|m| *m == step.module) else {
+            return false;
+        };
+        if self.modules_list_state.selected() != Some(index) {
+            self.store_current_module_output();
+            self.modules_list_state.select(Some(index));
+            self.show_module_output(Some(&step.module));
+        }
+        self.apply_options(&step.profiles, &step.flags);
+        true
+    }
+
+    /// Activate exactly the given profiles and flags, by name
+    pub(super) fn apply_options(&mut self, profiles: &[String], flags: &[String]) {
+        for profile in &mut self.profiles {
+            if profiles.contains(&profile.name) {
+                if !profile.is_active() {
+                    profile.state = ProfileState::ExplicitlyEnabled;
+                }
+            } else if profile.auto_activated {
+                profile.state = ProfileState::ExplicitlyDisabled;
+            } else {
+                profile.state = ProfileState::Default;
+            }
+        }
+
+        for flag in &mut self.flags {
+            flag.enabled = flags.contains(&flag.name);
+        }
+    }
+}
+
+impl TuiState {
+    fn save_command_queue(&mut self, tab_index: usize) {
+        let tab = &self.tabs[tab_index];
+        let key = tab.queue_key();
+        let steps = tab.command_queue.iter().cloned().collect();
+        self.command_queues.set(&key, steps);
+    }
+
+    /// Load the queue left by the last session in a tab's project
+    pub(super) fn restore_command_queue(&mut self, tab_index: usize) {
+        let tab = &mut self.tabs[tab_index];
+        let steps = self.command_queues.get(&tab.queue_key());
+        if steps.is_empty() {
+            return;
+        }
+        tab.command_queue = steps.iter().cloned().collect();
+        log::info!("Restored {} queued commands", steps.len());
+        tab.command_output.push(String::new());
+        tab.command_output.push(format!(
+            "⏭ {} commands queued in the last session run after the next command succeeds (Esc drops them)",
+            steps.len()
+        ));
+    }
+
+    /// Queue a step of the active tab behind its running command
+    fn queue_step(&mut self, step: PipelineStep) {
+        let tab = self.get_active_tab_mut();
+        let line = format!(
+            "⏭ Queued #{}: {} — starts once the running command succeeds",
+            tab.command_queue.len() + 1,
+            step.format_summary()
+        );
+        log::info!("Queued command in tab {}: {}", tab.id, step.format_summary());
+        tab.command_queue.push_back(step);
+        tab.command_output.push(line);
+        self.save_command_queue(self.active_tab_index);
+    }
+
+    /// Run the steps of a pipeline in the active tab
+    ///
+    /// The steps wait behind a running command, and start right away
+    /// otherwise.
+    pub fn run_pipeline(&mut self, favorite: &Favorite) {
+        let tab_index = self.active_tab_index;
+        let tab = &mut self.tabs[tab_index];
+        if tab.is_busy() {
+            tab.command_queue.extend(favorite.steps().iter().cloned());
+            tab.command_output.push(format!(
+                "⏭ Queued pipeline {} — starts once the running command succeeds",
+                favorite.name
+            ));
+            self.save_command_queue(tab_index);
+            return;
+        }
+        // Steps of the pipeline come before commands restored from disk
+        for step in favorite.steps().iter().rev() {
+            tab.command_queue.push_front(step.clone());
+        }
+        self.start_next_step(tab_index);
+    }
+
+    /// Start the first queued step of a tab
+    fn start_next_step(&mut self, tab_index: usize) {
+        let tab = &mut self.tabs[tab_index];
+        let Some(step) = tab.command_queue.pop_front() else {
+            return;
+        };
+        if !tab.prepare_step(&step) {
+            log::warn!("Module '{}' of a queued command not found", step.module);
+            tab.command_output.push(String::new());
+            tab.command_output
+                .push(format!("✗ Module {} not found in current project", step.module));
+            self.drop_command_queue(tab_index, "the project has no such module");
+            return;
+        }
+        log::info!("Starting queued command: {}", step.format_summary());
+        let header = vec![format!(
+            "⏭ Queued command, {} more after it",
+            tab.command_queue.len()
+        )];
+
+        let started = self.run_step(tab_index, step, header);
+        if tab_index == self.active_tab_index {
+            self.clamp_output_offset();
+            self.refresh_search_matches();
+        }
+        if started {
+            self.save_command_queue(tab_index);
+        } else {
+            self.drop_command_queue(tab_index, "the command could not start");
+        }
+    }
+
+    /// Drop the queued commands of a tab, explaining why in its output
+    pub(super) fn drop_command_queue(&mut self, tab_index: usize, reason: &str) {
+        let tab = &mut self.tabs[tab_index];
+        let count = tab.command_queue.len();
+        if count == 0 {
+            return;
+        }
+        tab.command_queue.clear();
+        log::info!("Dropped {} queued commands of tab {}: {}", count, tab.id, reason);
+        tab.command_output.push(String::new());
+        tab.command_output
+            .push(format!("✗ {} queued command(s) dropped: {}", count, reason));
+        tab.store_current_module_output();
+        self.save_command_queue(tab_index);
+    }
+
+    /// Start the next queued command of a tab whose command just finished
+    pub(super) fn advance_command_queue(&mut self, tab_index: usize, success: bool) {
+        let tab = &self.tabs[tab_index];
+        if tab.command_queue.is_empty() || tab.is_busy() {
+            return;
+        }
+        if success {
+            self.start_next_step(tab_index);
+        } else {
+            self.drop_command_queue(tab_index, "the previous command failed");
+        }
+    }
+
+    /// Footer line naming the next queued command of the active tab
+    pub fn command_queue_status_line(&self) -> Option<String> {
+        let queue = &self.get_active_tab().command_queue;
+        let next = queue.front()?;
+        let mut line = format!("⏭ Next: {}", next.format_summary());
+        if queue.len() > 1 {
+            line.push_str(&format!(" (+{} more)", queue.len() - 1));
+        }
+        Some(line)
+    }
+
+    /// Running command of the active tab followed by its queue, as pipeline steps
+    ///
+    /// None while nothing is queued.
+    pub(super) fn queued_pipeline(&self) -> Option<Vec<PipelineStep>> {
+        let tab = self.get_active_tab();
+        if tab.command_queue.is_empty() {
+            return None;
+        }
+        let running = tab
+            .running_step
+            .clone()
+            .filter(|_| tab.is_command_running || tab.queued_command.is_some());
+        Some(
+            running
+                .into_iter()
+                .chain(tab.command_queue.iter().cloned())
+                .collect(),
+        )
+    }
+}
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+    use crate::core::config::Config;
+    use crate::features::favorites::SavedQueues;
+    use crate::maven::CommandUpdate;
+    use std::path::PathBuf;
+    use std::sync::mpsc;
+
+    #[test]
+    fn test_command_is_queued_and_dropped_on_failure() {
+        let config = Config {
+            notifications_enabled: Some(false),
+            ..Config::default()
+        };
+        let mut state = TuiState::new(vec!["module1".to_string()], PathBuf::from("/test"), config);
+        // Keep the test from writing the user's saved queues
+        state.command_queues = SavedQueues::default();
+        state.get_active_tab_mut().command_queue.clear();
+
+        let (sender, receiver) = mpsc::channel();
+        {
+            let tab = state.get_active_tab_mut();
+            tab.modules_list_state.select(Some(0));
+            tab.is_command_running = true;
+            tab.command_receiver = Some(receiver);
+        }
+
+        state.run_selected_module_command(&["test"]);
+        assert_eq!(state.get_active_tab().command_queue.len(), 1);
+        assert_eq!(
+            state.command_queue_status_line().as_deref(),
+            Some("⏭ Next: [module1] test")
+        );
+
+        sender
+            .send(CommandUpdate::Error("build failed".to_string()))
+            .unwrap();
+        state.poll_command_updates();
+        let tab = state.get_active_tab();
+        assert!(tab.command_queue.is_empty());
+        assert!(!tab.is_busy());
+        assert!(
+            tab.command_output
+                .iter()
+                .any(|line| line.contains("queued command(s) dropped"))
+        );
+    }
+}
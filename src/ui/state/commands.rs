@@ -3,11 +3,51 @@
 //! This module handles executing Maven commands, collecting output,
 //! and managing command state.
 
-use super::{ModuleOutput, TuiState};
+use super::build_planning::PlannedBuild;
+use super::jobs::QueuedCommand;
+use super::{ModuleOutput, ProjectTab, TuiState};
+use crate::core::config::ChangesConfig;
+use crate::features::favorites::PipelineStep;
+use crate::features::parallel_build::ScheduleSummary;
 use crate::maven;
-use std::sync::mpsc;
+use std::path::Path;
 use std::time::Instant;
 
+/// Profiles and flags of a tab passed to Maven, with their names for display
+pub(super) struct CommandOptions {
+    /// Profiles that are not in Default state, as `-P` values
+    pub profile_args: Vec<String>,
+    pub flags: Vec<String>,
+    pub profile_names: Vec<String>,
+    pub flag_names: Vec<String>,
+}
+
+impl CommandOptions {
+    pub(super) fn of(tab: &ProjectTab) -> Self {
+        let enabled_flags = tab.flags.iter().filter(|f| f.enabled);
+        let options = Self {
+            profile_args: tab
+                .profiles
+                .iter()
+                .filter_map(|p| p.to_maven_arg())
+                .collect(),
+            flags: enabled_flags.clone().map(|f| f.flag.clone()).collect(),
+            profile_names: tab
+                .profiles
+                .iter()
+                .filter(|p| p.is_active())
+                .map(|p| p.name.clone())
+                .collect(),
+            flag_names: enabled_flags.map(|f| f.name.clone()).collect(),
+        };
+
+        log::debug!("Enabled flags: {:?}", options.flag_names);
+        log::debug!("Profile args for Maven: {:?}", options.profile_args);
+        log::debug!("Active profiles (display): {:?}", options.profile_names);
+        options
+    }
+}
+
 impl TuiState {
     /// Get list of enabled flag names
     pub fn enabled_flag_names(&self) -> Vec<String> {
@@ -57,27 +97,7 @@ impl TuiState {
 
     /// Store the current command output for the selected module
     pub(super) fn store_current_module_output(&mut self) {
-        let module = self.selected_module().map(|m| m.to_string());
-        if let Some(module) = module {
-            let tab = self.get_active_tab_mut();
-            // Get the current execution context from the most recent command
-            let module_output = if let Some(existing) = tab.module_outputs.get(&module) {
-                ModuleOutput {
-                    lines: tab.command_output.clone(),
-                    scroll_offset: tab.output_offset,
-                    command: existing.command.clone(),
-                    profiles: existing.profiles.clone(),
-                    flags: existing.flags.clone(),
-                }
-            } else {
-                ModuleOutput {
-                    lines: tab.command_output.clone(),
-                    scroll_offset: tab.output_offset,
-                    ..Default::default()
-                }
-            };
-            tab.module_outputs.insert(module.to_string(), module_output);
-        }
+        self.get_active_tab_mut().store_current_module_output();
     }
 
     /// Run Maven command for the selected module
@@ -93,244 +113,295 @@ impl TuiState {
             use_file_flag
         );
 
-        let tab = self.get_active_tab_mut();
+        let busy = self.get_active_tab().is_busy();
 
-        // Don't start a new command if one is already running
-        if tab.is_command_running {
-            log::warn!("Command already running, ignoring new command request");
+        // Marked modules run the goal as separate processes
+        if !use_file_flag && !self.get_active_tab().marked_modules.is_empty() {
+            if busy {
+                self.report_not_queued("Run of the marked modules");
+                return;
+            }
+            self.run_marked_modules(args);
             return;
         }
 
-        let module = self.selected_module().map(|m| m.to_string());
-        let tab = self.get_active_tab_mut();
+        let Some(module) = self.selected_module().map(|m| m.to_string()) else {
+            log::warn!("No module selected for command execution");
+            if !busy {
+                self.show_command_error(vec!["No module selected".to_string()]);
+            }
+            return;
+        };
+        let options = CommandOptions::of(self.get_active_tab());
+        let step = PipelineStep::new(
+            module,
+            args,
+            options.profile_names,
+            options.flag_names,
+            use_file_flag,
+        );
 
-        if let Some(module) = module {
-            log::info!("Running async command for module: {}", module);
+        // Wait for the running command rather than dropping this one
+        if busy {
+            self.queue_step(step);
+            return;
+        }
+        log::info!("Running async command for module: {}", step.module);
+        self.run_step(self.active_tab_index, step, Vec::new());
+    }
 
-            // Collect enabled flags
-            let enabled_flags: Vec<String> = tab
-                .flags
-                .iter()
-                .filter(|f| f.enabled)
-                .map(|f| f.flag.clone())
-                .collect();
+    /// Tell the user a command was dropped because its tab is busy
+    ///
+    /// The queue only holds single-module steps, the format saved between
+    /// sessions, so runs spanning several modules cannot wait in it.
+    fn report_not_queued(&mut self, command: &str) {
+        log::warn!("Command already running, not queueing: {}", command);
+        let tab = self.get_active_tab_mut();
+        tab.command_output.push(String::new());
+        tab.command_output.push(format!(
+            "⚠ {} not started: only single-module commands wait for the running one",
+            command
+        ));
+    }
 
-            let enabled_flag_names: Vec<String> = tab
-                .flags
-                .iter()
-                .filter(|f| f.enabled)
-                .map(|f| f.name.clone())
-                .collect();
+    /// Run a command in a tab, after the lines of `header`
+    ///
+    /// The command is recorded for watch mode, in its module's output and in
+    /// the history. Returns whether it is running or waiting for a job slot.
+    pub(super) fn run_step(
+        &mut self,
+        tab_index: usize,
+        step: PipelineStep,
+        header: Vec<String>,
+    ) -> bool {
+        let owned_args = step.args();
+        let args: Vec<&str> = owned_args.iter().map(String::as_str).collect();
+        let Some((active_profile_names, enabled_flag_names)) =
+            self.start_maven_command(tab_index, &step.module, &args, step.use_file_flag, header)
+        else {
+            return false;
+        };
+        let tab = &mut self.tabs[tab_index];
+
+        // Save last command for watch mode
+        tab.last_command = Some(owned_args.clone());
+
+        // Store metadata about this command execution
+        let module_output = ModuleOutput {
+            lines: tab.command_output.clone(),
+            scroll_offset: tab.output_offset,
+            command: Some(step.goal.clone()),
+            profiles: active_profile_names.clone(),
+            flags: enabled_flag_names.clone(),
+            metrics: None,
+        };
+        tab.module_outputs.insert(step.module.clone(), module_output);
+
+        // Add to command history
+        let history_entry = crate::features::history::HistoryEntry::new(
+            step.module.clone(),
+            step.goal.clone(),
+            active_profile_names,
+            enabled_flag_names,
+        );
+        tab.running_step = Some(step);
+        self.command_history.add(history_entry);
+        log::debug!("Command added to history");
+        true
+    }
 
-            // Collect profiles that need to be passed to Maven
-            // Only profiles that are not in Default state
-            let profile_args: Vec<String> = tab
-                .profiles
-                .iter()
-                .filter_map(|p| p.to_maven_arg())
-                .collect();
+    /// Build the modules owning changed files and every module depending on them
+    ///
+    /// Changes are read from git: uncommitted and untracked files, plus the
+    /// commits since the configured base ref. The affected modules are built
+    /// with a single `-pl` invocation running the configured goals. Changes
+    /// are listed and the reactor graph read on a worker thread.
+    pub fn run_changed_modules_build(&mut self) {
+        if self.get_active_tab().is_busy() {
+            self.report_not_queued("Build of the changed modules");
+            return;
+        }
 
-            // Get list of active profile names for display
-            let active_profile_names: Vec<String> = tab
-                .profiles
-                .iter()
-                .filter(|p| p.is_active())
-                .map(|p| p.name.clone())
-                .collect();
-
-            log::debug!("Enabled flags: {:?}", enabled_flag_names);
-            log::debug!("Profile args for Maven: {:?}", profile_args);
-            log::debug!("Active profiles (display): {:?}", active_profile_names);
-
-            // Clear previous output and prepare for new command
-            tab.command_output = vec![format!("Running: {} ...", args.join(" "))];
-            tab.output_offset = 0;
-
-            match maven::execute_maven_command_async_with_options(
-                &tab.project_root,
-                Some(&module),
-                args,
-                &profile_args,
-                tab.config.maven_settings.as_deref(),
-                &enabled_flags,
-                use_file_flag,
-                tab.config.logging.as_ref(),
-            ) {
-                Ok(receiver) => {
-                    log::info!("Async command started successfully");
-                    tab.command_receiver = Some(receiver);
-                    tab.is_command_running = true;
-                    tab.command_start_time = Some(Instant::now());
-
-                    // Save last command for watch mode
-                    tab.last_command = Some(args.iter().map(|s| s.to_string()).collect());
-
-                    // Store metadata about this command execution
-                    let module_output = ModuleOutput {
-                        lines: tab.command_output.clone(),
-                        scroll_offset: tab.output_offset,
-                        command: Some(args.join(" ")),
-                        profiles: active_profile_names.clone(),
-                        flags: enabled_flag_names.clone(),
-                    };
-                    tab.module_outputs.insert(module.clone(), module_output);
-
-                    // Add to command history
-                    let history_entry = crate::features::history::HistoryEntry::new(
-                        module,
-                        args.join(" "),
-                        active_profile_names,
-                        enabled_flag_names,
-                    );
-                    self.command_history.add(history_entry);
-                    log::debug!("Command added to history");
-                    return;
-                }
-                Err(e) => {
-                    log::error!("Failed to start async command: {}", e);
-                    tab.command_output = vec![format!("Error starting command: {e}")];
-                    tab.output_offset = 0;
-                }
+        let tab = self.get_active_tab_mut();
+        let project_root = tab.project_root.clone();
+        let changes = tab.config.changes.clone().unwrap_or_default();
+        tab.command_output.set_lines(vec!["⏳ Looking for changed modules...".to_string()]);
+        tab.output_offset = 0;
+        self.clamp_output_offset();
+        self.plan_build(move || plan_changed_modules_build(&project_root, changes));
+    }
+
+    /// Start Maven in a tab for a `-pl` target with the tab's profiles and flags
+    ///
+    /// The output is replaced by `header` followed by the command line. The
+    /// command waits in the job queue while the machine has no room for it.
+    /// Returns the names of the active profiles and enabled flags once the
+    /// command is running or waiting.
+    pub(super) fn start_maven_command(
+        &mut self,
+        tab_index: usize,
+        target: &str,
+        args: &[&str],
+        use_file_flag: bool,
+        header: Vec<String>,
+    ) -> Option<(Vec<String>, Vec<String>)> {
+        let tab = &mut self.tabs[tab_index];
+        let options = CommandOptions::of(tab);
+        let names = (options.profile_names.clone(), options.flag_names.clone());
+
+        // Clear previous output and prepare for new command
+        let mut lines = header;
+        lines.push(format!("Running: {} ...", args.join(" ")));
+        tab.command_output.set_lines(lines);
+        tab.output_offset = 0;
+
+        let command = QueuedCommand {
+            target: target.to_string(),
+            args: args.iter().map(|arg| arg.to_string()).collect(),
+            use_file_flag,
+            options,
+            queued_at: Instant::now(),
+        };
+        if !self.queue_command(tab_index, command) {
+            if tab_index == self.active_tab_index {
+                self.clamp_output_offset();
             }
-        } else {
-            log::warn!("No module selected for command execution");
-            tab.command_output = vec!["No module selected".to_string()];
-            tab.output_offset = 0;
+            return None;
         }
+        Some(names)
+    }
+
+    /// Replace the output with a message explaining why no command runs
+    fn show_command_error(&mut self, lines: Vec<String>) {
+        let tab = self.get_active_tab_mut();
+        tab.command_output.set_lines(lines);
+        tab.output_offset = 0;
         tab.output_metrics = None;
         self.clamp_output_offset();
     }
 
     /// Check for and process any pending command updates
     /// Should be called regularly from the main event loop
-    pub fn poll_command_updates(&mut self) {
-        let tab = self.get_active_tab_mut();
-
-        // Get output configuration from config or use defaults
-        let output_config = tab.config.output.as_ref().cloned().unwrap_or_default();
-        let max_output_lines = output_config.max_lines;
-        let max_updates_per_poll = output_config.max_updates_per_poll;
-
-        // Collect all pending updates first to avoid borrowing issues
-        let mut updates = Vec::new();
-        let mut should_clear_receiver = false;
-
-        if let Some(receiver) = tab.command_receiver.as_ref() {
-            let mut count = 0;
-            loop {
-                if count >= max_updates_per_poll {
-                    // Limit updates per poll to prevent UI freeze
-                    break;
-                }
-                match receiver.try_recv() {
-                    Ok(update) => {
-                        updates.push(update);
-                        count += 1;
-                    }
-                    Err(mpsc::TryRecvError::Empty) => break,
-                    Err(mpsc::TryRecvError::Disconnected) => {
-                        log::warn!("Command channel disconnected unexpectedly");
-                        should_clear_receiver = true;
-                        break;
-                    }
+    ///
+    /// Every tab is drained, not only the active one, so background builds
+    /// keep trimming their output and never back up their channel, and
+    /// waiting jobs are admitted once there is room. Returns whether the
+    /// active tab's output, any tab's running state or the queue changed.
+    pub fn poll_command_updates(&mut self) -> bool {
+        let output_end = self.get_active_tab().command_output.end_seq();
+        let running_tabs = self.running_tab_count();
+        let progress = self.parallel_progress();
+        let queued_jobs = self.queued_job_count();
+        self.poll_build_planning();
+
+        // Tabs whose command or parallel run finished, and whether it succeeded
+        let mut finished = Vec::new();
+        let mut notifications: Vec<_> = self
+            .tabs
+            .iter_mut()
+            .enumerate()
+            .filter_map(|(index, tab)| {
+                tab.poll_parallel_run();
+                let notification = tab.poll_command_updates();
+                if let Some((_, _, success)) = &notification {
+                    finished.push((index, *success));
                 }
+                notification
+            })
+            .collect();
+        // Finished jobs make room for waiting ones
+        self.admit_jobs();
+        for (index, tab) in self.tabs.iter_mut().enumerate() {
+            if let Some(notification) = tab.take_parallel_run_notification() {
+                finished.push((index, notification.2));
+                notifications.push(notification);
             }
         }
+        // Queued commands start once the previous one succeeded
+        for (index, success) in finished {
+            self.advance_command_queue(index, success);
+        }
+        self.sync_search_matches();
 
-        // Check if we're currently at the bottom (for auto-scroll)
-        let output_offset = tab.output_offset;
-        let was_at_bottom = output_offset >= self.max_scroll_offset();
+        let changed = self.get_active_tab().command_output.end_seq() != output_end
+            || self.running_tab_count() != running_tabs
+            || self.parallel_progress() != progress
+            || self.queued_job_count() != queued_jobs;
 
-        // Re-get tab for processing updates
-        let tab = self.get_active_tab_mut();
-        let mut had_output_lines = false;
-        let mut need_notification = None; // (title, body, success)
-
-        // Now process all updates
-        for update in updates {
-            match update {
-                maven::CommandUpdate::Started(pid) => {
-                    log::info!("Command started with PID: {}", pid);
-                    tab.running_process_pid = Some(pid);
-                }
-                maven::CommandUpdate::OutputLine(line) => {
-                    tab.command_output.push(line);
-                    had_output_lines = true;
-
-                    // Trim buffer if it exceeds max size
-                    if tab.command_output.len() > max_output_lines {
-                        let excess = tab.command_output.len() - max_output_lines;
-                        tab.command_output.drain(0..excess);
-                        log::debug!(
-                            "Trimmed {} lines from output buffer (max: {})",
-                            excess,
-                            max_output_lines
-                        );
-                    }
-                }
-                maven::CommandUpdate::Completed => {
-                    log::info!("Command completed successfully");
-                    tab.command_output.push(String::new());
-                    tab.command_output
-                        .push("✓ Command completed successfully".to_string());
-                    tab.is_command_running = false;
-                    tab.command_receiver = None;
-                    tab.running_process_pid = None;
-                    tab.output_metrics = None;
-
-                    need_notification = Some((
-                        "LazyMVN - Build Complete".to_string(),
-                        "Maven command completed successfully ✓".to_string(),
-                        true,
-                    ));
-                }
-                maven::CommandUpdate::Error(msg) => {
-                    log::error!("Command failed: {}", msg);
-                    tab.command_output.push(String::new());
-                    tab.command_output.push(format!("✗ {}", msg));
-                    tab.is_command_running = false;
-                    tab.command_receiver = None;
-                    tab.running_process_pid = None;
-                    tab.output_metrics = None;
-
-                    need_notification = Some((
-                        "LazyMVN - Build Failed".to_string(),
-                        format!("Maven command failed: {}", msg),
-                        false,
-                    ));
-                }
-            }
+        // Send notifications if needed
+        for (title, body, success) in notifications {
+            self.send_notification(&title, &body, success);
         }
+        changed
+    }
 
-        // Get is_command_running before dropping tab
-        let is_command_running = tab.is_command_running;
+    fn running_tab_count(&self) -> usize {
+        self.tabs.iter().filter(|tab| tab.is_busy()).count()
+    }
 
-        if should_clear_receiver {
-            tab.is_command_running = false;
-            tab.command_receiver = None;
-        }
+    /// Progress of the active tab's parallel run, to notice modules finishing
+    fn parallel_progress(&self) -> Option<ScheduleSummary> {
+        let run = self.get_active_tab().parallel_run.as_ref()?;
+        Some(run.schedule().summary())
+    }
+}
 
-        // Store module output if we had a command completion
-        if need_notification.is_some() {
-            self.store_current_module_output();
+/// Work out the build of the modules owning changed files and every module depending on them
+fn plan_changed_modules_build(project_root: &Path, changes: ChangesConfig) -> PlannedBuild {
+    let base = changes.base_ref.as_deref();
+    let files = match crate::utils::git::changed_files(project_root, base) {
+        Ok(files) => files,
+        Err(e) => {
+            log::error!("Failed to list changed files: {}", e);
+            return PlannedBuild::Nothing(vec![format!("✗ Could not list changed files: {}", e)]);
         }
+    };
+    let since = base.map(|base| format!(" since {}", base)).unwrap_or_default();
+    if files.is_empty() {
+        return PlannedBuild::Nothing(vec![format!("No changes to build{}", since)]);
+    }
 
-        // Only update scroll and metrics once at the end if we had output lines
-        if had_output_lines {
-            // Auto-scroll to bottom while command is running (always follow logs)
-            // Only respect user's scroll position when command is not running
-            if was_at_bottom || is_command_running {
-                self.scroll_output_to_end();
-            }
-            self.store_current_module_output();
-            let tab = self.get_active_tab_mut();
-            tab.output_metrics = None;
-        }
+    let Some(graph) = maven::load_reactor_graph(project_root) else {
+        return PlannedBuild::Nothing(vec![
+            "✗ Could not read the POMs of every module in the reactor".to_string(),
+        ]);
+    };
+    let plan = crate::features::changed_modules::plan_changed_build(&graph, &files);
+    log::info!(
+        "{} changed files{} affect {} of {} modules: {:?}",
+        files.len(),
+        since,
+        plan.modules.len(),
+        plan.total,
+        plan.modules
+    );
+    if plan.is_empty() {
+        return PlannedBuild::Nothing(vec![format!(
+            "No module is affected by the {} changed files{}",
+            files.len(),
+            since
+        )]);
+    }
 
-        // Send notification if needed
-        if let Some((title, body, success)) = need_notification {
-            self.send_notification(&title, &body, success);
-        }
+    let header = vec![
+        format!("Changed modules{}: {}", since, plan.changed.join(", ")),
+        format!(
+            "Building {} of {} modules: {}",
+            plan.modules.len(),
+            plan.total,
+            plan.modules.join(", ")
+        ),
+    ];
+    // The whole reactor builds faster without a long -pl list
+    let target = if plan.is_full_build() {
+        ".".to_string()
+    } else {
+        plan.project_list()
+    };
+    PlannedBuild::Maven {
+        target,
+        goals: changes.goals,
+        header,
     }
 }
 
@@ -407,7 +478,7 @@ mod tests {
         assert!(tab.module_outputs.contains_key(module));
         let output = tab.module_outputs.get(module).unwrap();
         assert!(!output.lines.is_empty());
-        assert!(output.lines.contains(&"Test output line".to_string()));
+        assert!(output.lines.iter().any(|line| line == "Test output line"));
     }
 
     #[test]
@@ -417,7 +488,7 @@ mod tests {
         // Set up initial output with command
         let module = state.selected_module().unwrap().to_string();
         let initial_output = ModuleOutput {
-            lines: vec!["Old output".to_string()],
+            lines: vec!["Old output".to_string()].into(),
             command: Some("mvn test".to_string()),
             profiles: vec!["dev".to_string()],
             flags: vec!["-X".to_string()],
@@ -429,7 +500,7 @@ mod tests {
             tab.module_outputs.insert(module.clone(), initial_output);
 
             // Add new output and store
-            tab.command_output = vec!["New output".to_string()];
+            tab.command_output.set_lines(vec!["New output".to_string()]);
         }
 
         state.store_current_module_output();
@@ -440,6 +511,109 @@ mod tests {
         assert_eq!(output.command, Some("mvn test".to_string()));
         assert_eq!(output.profiles, vec!["dev".to_string()]);
         assert_eq!(output.flags, vec!["-X".to_string()]);
-        assert_eq!(output.lines, vec!["New output".to_string()]);
+        assert_eq!(output.lines.to_vec(), vec!["New output".to_string()]);
+    }
+
+    #[test]
+    fn test_poll_command_updates_drains_background_tabs() {
+        let mut state = create_test_state();
+        let (tx, rx) = std::sync::mpsc::sync_channel(16);
+        {
+            let tab = state.get_active_tab_mut();
+            tab.command_receiver = Some(rx);
+            tab.is_command_running = true;
+        }
+
+        // Open a second tab and make it active
+        state.tabs.push(crate::ui::state::ProjectTab::new(
+            1,
+            PathBuf::from("/other"),
+            vec!["module1".to_string()],
+            Config::default(),
+        ));
+        state.active_tab_index = 1;
+
+        tx.send(maven::CommandUpdate::OutputLine("background line".to_string()))
+            .unwrap();
+        state.poll_command_updates();
+
+        let background = &state.get_tabs()[0];
+        assert_eq!(background.command_output.last(), Some("background line"));
+    }
+
+    #[test]
+    fn test_poll_command_updates_trims_per_tab() {
+        let mut state = create_test_state();
+        let (tx, rx) = std::sync::mpsc::sync_channel(64);
+        {
+            let tab = state.get_active_tab_mut();
+            tab.config = toml::from_str("[output]\nmax_lines = 5").unwrap();
+            tab.command_receiver = Some(rx);
+            tab.is_command_running = true;
+        }
+
+        for i in 0..20 {
+            tx.send(maven::CommandUpdate::OutputLine(format!("line {}", i)))
+                .unwrap();
+        }
+        state.poll_command_updates();
+
+        let tab = state.get_active_tab();
+        assert_eq!(tab.command_output.len(), 5);
+        assert_eq!(tab.command_output.first(), Some("line 15"));
+        // Older lines moved to the scrollback file
+        let history = &tab.command_output;
+        assert!(history.spilled_len() >= 15);
+        assert_eq!(history.history_line(history.first_seq() - 1).as_deref(), Some("line 14"));
+    }
+
+    #[test]
+    fn test_poll_command_updates_counts_batches() {
+        let mut state = create_test_state();
+        let (tx, rx) = std::sync::mpsc::sync_channel(16);
+        {
+            let tab = state.get_active_tab_mut();
+            tab.config = toml::from_str("[output]\nmax_updates_per_poll = 1").unwrap();
+            tab.command_output.clear();
+            tab.command_receiver = Some(rx);
+            tab.is_command_running = true;
+        }
+
+        let batch = |prefix: &str| -> Vec<String> {
+            (0..3).map(|i| format!("{} {}", prefix, i)).collect()
+        };
+        tx.send(maven::CommandUpdate::OutputBatch(batch("first")))
+            .unwrap();
+        tx.send(maven::CommandUpdate::OutputBatch(batch("second")))
+            .unwrap();
+
+        state.poll_command_updates();
+        assert_eq!(state.get_active_tab().command_output.len(), 3);
+
+        state.poll_command_updates();
+        let tab = state.get_active_tab();
+        assert_eq!(tab.command_output.len(), 6);
+        assert_eq!(tab.command_output.last(), Some("second 2"));
+    }
+
+    #[test]
+    fn test_busy_run_of_marked_modules_is_reported() {
+        let mut state = create_test_state();
+        {
+            let tab = state.get_active_tab_mut();
+            tab.marked_modules.insert("module1".to_string());
+            tab.marked_modules.insert("module2".to_string());
+            tab.command_queue.clear();
+            tab.is_command_running = true;
+        }
+
+        state.run_selected_module_command(&["test"]);
+        let tab = state.get_active_tab();
+        assert!(tab.command_queue.is_empty());
+        assert!(
+            tab.command_output
+                .last()
+                .is_some_and(|line| line.contains("Run of the marked modules not started"))
+        );
     }
 }
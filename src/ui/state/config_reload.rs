@@ -64,6 +64,21 @@ impl TuiState {
             changes.push("  • Logging configuration changed".to_string());
         }
 
+        // Check changed modules build configuration
+        if tab.config.changes != new_config.changes {
+            changes.push("  • Changed modules build configuration changed".to_string());
+        }
+
+        // Check parallel build configuration
+        if tab.config.parallel != new_config.parallel {
+            changes.push("  • Parallel build configuration changed".to_string());
+        }
+
+        // Check job queue configuration
+        if tab.config.jobs != new_config.jobs {
+            changes.push("  • Job queue configuration changed".to_string());
+        }
+
         changes
     }
 
@@ -0,0 +1,432 @@
+//! Output exports
+//!
+//! Copying output to the clipboard or saving it to a file can mean writing
+//! hundreds of thousands of lines, most of them spilled to disk. An export
+//! snapshots the buffers involved and streams them line by line from a
+//! background thread, so the event loop keeps drawing while the footer shows
+//! how far the export got. The text is only joined into a single string when
+//! no clipboard tool works and the clipboard library has to be used instead.
+
+use super::{OutputBuffer, TuiState};
+use crate::ui::theme::Theme;
+use crate::utils::clipboard;
+use ratatui::text::{Line, Span};
+use std::borrow::Cow;
+use std::fs::File;
+use std::io::{self, BufWriter, Write};
+use std::path::PathBuf;
+use std::sync::{
+    Arc,
+    atomic::{AtomicUsize, Ordering},
+    mpsc,
+};
+use std::thread;
+
+/// Lines written between two progress wakeups of the event loop
+const PROGRESS_STEP: usize = 16 * 1024;
+
+/// Where an export writes to
+#[derive(Clone, Debug)]
+enum ExportTarget {
+    Clipboard,
+    File(PathBuf),
+}
+
+/// One buffer to export, preceded by header lines
+struct ExportSection {
+    header: Vec<String>,
+    lines: OutputBuffer,
+}
+
+impl ExportSection {
+    fn untitled(lines: OutputBuffer) -> Self {
+        Self {
+            header: Vec::new(),
+            lines,
+        }
+    }
+
+    fn len(&self) -> usize {
+        self.header.len() + self.lines.end_seq() - self.lines.history_first_seq()
+    }
+}
+
+/// Write the sections back to back, one line at a time
+///
+/// Lines are separated by newlines without a trailing one, like a joined string.
+fn write_sections(
+    sections: &[ExportSection],
+    out: &mut dyn Write,
+    written: &AtomicUsize,
+) -> io::Result<()> {
+    let mut count = 0;
+    written.store(0, Ordering::Relaxed);
+    for section in sections {
+        let header = section.header.iter().map(|line| Cow::Borrowed(line.as_str()));
+        let lines = section
+            .lines
+            .history_between(section.lines.history_first_seq(), section.lines.end_seq())
+            .map(|(_, line)| line);
+        for line in header.chain(lines) {
+            if count > 0 {
+                out.write_all(b"\n")?;
+            }
+            out.write_all(line.as_bytes())?;
+            count += 1;
+            written.store(count, Ordering::Relaxed);
+            if count % PROGRESS_STEP == 0 {
+                crate::utils::wakeup::wake();
+            }
+        }
+    }
+    Ok(())
+}
+
+/// How an export ended
+enum ExportOutcome {
+    Copied { tool: &'static str },
+    Saved(PathBuf),
+    /// No clipboard tool works, the text has to go through the clipboard library
+    NeedsClipboardLibrary(String),
+    Failed(String),
+}
+
+fn run_export(
+    sections: &[ExportSection],
+    target: &ExportTarget,
+    written: &AtomicUsize,
+) -> ExportOutcome {
+    match target {
+        ExportTarget::Clipboard => {
+            let tool = clipboard::copy_with(|out| write_sections(sections, out, written));
+            if let Some(tool) = tool {
+                return ExportOutcome::Copied { tool: tool.name };
+            }
+            let mut text = Vec::new();
+            match write_sections(sections, &mut text, written) {
+                Ok(()) => ExportOutcome::NeedsClipboardLibrary(
+                    String::from_utf8(text)
+                        .unwrap_or_else(|e| String::from_utf8_lossy(e.as_bytes()).into_owned()),
+                ),
+                Err(e) => ExportOutcome::Failed(format!("Failed to copy: {}", e)),
+            }
+        }
+        ExportTarget::File(path) => {
+            let result = File::create(path).and_then(|file| {
+                let mut out = BufWriter::new(file);
+                write_sections(sections, &mut out, written)?;
+                out.flush()
+            });
+            match result {
+                Ok(()) => ExportOutcome::Saved(path.clone()),
+                Err(e) => ExportOutcome::Failed(format!(
+                    "Failed to save output to {}: {}",
+                    path.display(),
+                    e
+                )),
+            }
+        }
+    }
+}
+
+/// Export running on a background thread
+pub(super) struct ExportJob {
+    /// What is exported, e.g. "output"
+    content: String,
+    target: ExportTarget,
+    total: usize,
+    written: Arc<AtomicUsize>,
+    /// Lines written as of the last poll
+    shown: usize,
+    receiver: mpsc::Receiver<ExportOutcome>,
+}
+
+impl ExportJob {
+    fn spawn(content: &str, sections: Vec<ExportSection>, target: ExportTarget) -> Self {
+        let total = sections.iter().map(ExportSection::len).sum();
+        let written = Arc::new(AtomicUsize::new(0));
+        let (tx, receiver) = mpsc::channel();
+
+        let thread_written = Arc::clone(&written);
+        let thread_target = target.clone();
+        thread::spawn(move || {
+            let outcome = run_export(&sections, &thread_target, &thread_written);
+            // Release the snapshot before the event loop hears about the result
+            drop(sections);
+            if tx.send(outcome).is_ok() {
+                crate::utils::wakeup::wake();
+            }
+        });
+
+        Self {
+            content: content.to_string(),
+            target,
+            total,
+            written,
+            shown: 0,
+            receiver,
+        }
+    }
+}
+
+/// Directory where saved outputs are written
+fn get_export_dir() -> io::Result<PathBuf> {
+    let dirs = directories::ProjectDirs::from("com", "lazymvn", "lazymvn").ok_or_else(|| {
+        io::Error::new(
+            io::ErrorKind::NotFound,
+            "Could not determine home directory",
+        )
+    })?;
+
+    let export_dir = dirs.data_local_dir().join("exports");
+    std::fs::create_dir_all(&export_dir)?;
+    Ok(export_dir)
+}
+
+impl TuiState {
+    /// Copy the active output, including lines spilled to disk, to the clipboard
+    pub fn yank_output(&mut self) {
+        let tab = self.get_active_tab();
+        if tab.command_output.is_empty() {
+            log::info!("No output to copy");
+            self.push_export_message("⚠ No output to copy".to_string());
+            return;
+        }
+        let sections = vec![ExportSection::untitled(tab.command_output.clone())];
+        self.start_export("output", sections, ExportTarget::Clipboard);
+    }
+
+    /// Save the active output and the stored output of every other module to a file
+    pub fn save_output_to_file(&mut self) {
+        let tab = self.get_active_tab();
+        let selected = tab.get_selected_module().cloned();
+
+        let mut sections = Vec::new();
+        if !tab.command_output.is_empty() {
+            sections.push(ExportSection {
+                header: selected
+                    .iter()
+                    .map(|module| format!("=== Module: {} ===", module))
+                    .collect(),
+                lines: tab.command_output.clone(),
+            });
+        }
+        // The selected module's stored output duplicates the live output
+        let mut stored: Vec<_> = tab
+            .module_outputs
+            .iter()
+            .filter(|(module, output)| {
+                selected.as_ref() != Some(*module) && !output.lines.is_empty()
+            })
+            .collect();
+        stored.sort_by_key(|(module, _)| {
+            tab.modules
+                .iter()
+                .position(|m| m == *module)
+                .unwrap_or(usize::MAX)
+        });
+        for (module, output) in stored {
+            let mut header = vec![String::new(), format!("=== Module: {} ===", module)];
+            if let Some(command) = &output.command {
+                header.push(format!("Command: {}", command));
+            }
+            sections.push(ExportSection {
+                header,
+                lines: output.lines.clone(),
+            });
+        }
+
+        if sections.is_empty() {
+            log::info!("No output to save");
+            self.push_export_message("⚠ No output to save".to_string());
+            return;
+        }
+
+        let project = tab
+            .project_root
+            .file_name()
+            .and_then(|n| n.to_str())
+            .unwrap_or("output");
+        let file_name = format!(
+            "{}-{}.log",
+            project,
+            chrono::Local::now().format("%Y%m%d-%H%M%S")
+        );
+        match get_export_dir() {
+            Ok(dir) => {
+                self.start_export("output", sections, ExportTarget::File(dir.join(file_name)))
+            }
+            Err(e) => {
+                log::error!("Failed to create export directory: {}", e);
+                self.push_export_message(format!("✗ Failed to save output: {}", e));
+            }
+        }
+    }
+
+    /// Copy lines to the clipboard in the background
+    pub(super) fn copy_lines_to_clipboard(&mut self, lines: Vec<String>, content_type: &str) {
+        let sections = vec![ExportSection::untitled(OutputBuffer::from(lines))];
+        self.start_export(content_type, sections, ExportTarget::Clipboard);
+    }
+
+    fn start_export(&mut self, content: &str, sections: Vec<ExportSection>, target: ExportTarget) {
+        if self.export.is_some() {
+            self.push_export_message("⚠ An export is already running".to_string());
+            return;
+        }
+        log::info!("Exporting {} to {:?}", content, target);
+        self.export = Some(ExportJob::spawn(content, sections, target));
+    }
+
+    /// Whether an export is running
+    pub fn is_exporting(&self) -> bool {
+        self.export.is_some()
+    }
+
+    /// Track the progress of the running export and report its result
+    /// Should be called regularly from the main event loop
+    ///
+    /// Returns whether the progress shown in the footer changed.
+    pub fn poll_export(&mut self) -> bool {
+        let Some(job) = self.export.as_mut() else {
+            return false;
+        };
+
+        let outcome = match job.receiver.try_recv() {
+            Ok(outcome) => outcome,
+            Err(mpsc::TryRecvError::Empty) => {
+                let written = job.written.load(Ordering::Relaxed);
+                let changed = written != job.shown;
+                job.shown = written;
+                return changed;
+            }
+            Err(mpsc::TryRecvError::Disconnected) => {
+                ExportOutcome::Failed("Export stopped unexpectedly".to_string())
+            }
+        };
+
+        let Some(job) = self.export.take() else {
+            return false;
+        };
+        match outcome {
+            ExportOutcome::Copied { tool } => {
+                self.show_clipboard_success(job.total, &job.content, tool);
+            }
+            ExportOutcome::NeedsClipboardLibrary(text) => {
+                self.copy_via_arboard(&text, job.total, &job.content);
+            }
+            ExportOutcome::Saved(path) => {
+                log::info!("Saved {} lines of {} to {:?}", job.total, job.content, path);
+                self.push_export_message(format!(
+                    "✓ Saved {} ({} lines) to {}",
+                    job.content,
+                    job.total,
+                    path.display()
+                ));
+            }
+            ExportOutcome::Failed(error) => {
+                log::error!("Export of {} failed: {}", job.content, error);
+                self.show_clipboard_error(&error);
+            }
+        }
+        true
+    }
+
+    /// Footer line showing the progress of the running export
+    pub fn export_status_line(&self) -> Option<Line<'static>> {
+        let job = self.export.as_ref()?;
+        let action = match &job.target {
+            ExportTarget::Clipboard => format!(" Copying {} to clipboard…", job.content),
+            ExportTarget::File(path) => format!(
+                " Saving {} to {}…",
+                job.content,
+                path.file_name()
+                    .map(|name| name.to_string_lossy())
+                    .unwrap_or_default()
+            ),
+        };
+        let percent = (job.shown * 100).checked_div(job.total).unwrap_or(100);
+        Some(Line::from(vec![
+            Span::styled("Export", Theme::INFO_STYLE),
+            Span::raw(format!(
+                "{action} {}/{} lines ({percent}%)",
+                job.shown, job.total
+            )),
+        ]))
+    }
+
+    fn push_export_message(&mut self, message: String) {
+        let tab = self.get_active_tab_mut();
+        tab.command_output.push(String::new());
+        tab.command_output.push(message);
+    }
+}
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+    use crate::core::config::Config;
+    use std::time::{Duration, Instant};
+
+    fn wait_for_export(state: &mut TuiState) {
+        let deadline = Instant::now() + Duration::from_secs(10);
+        while state.is_exporting() {
+            assert!(Instant::now() < deadline, "export did not finish");
+            state.poll_export();
+            thread::sleep(Duration::from_millis(5));
+        }
+    }
+
+    #[test]
+    fn test_write_sections_streams_spilled_lines() {
+        let mut output = OutputBuffer::new();
+        for i in 0..5 {
+            output.push(format!("line {}", i));
+        }
+        output.spill_to(2, usize::MAX);
+        let sections = vec![
+            ExportSection::untitled(output),
+            ExportSection {
+                header: vec![String::new(), "=== Module: api ===".to_string()],
+                lines: OutputBuffer::from(vec!["stored".to_string()]),
+            },
+        ];
+
+        let written = AtomicUsize::new(0);
+        let mut out = Vec::new();
+        write_sections(&sections, &mut out, &written).unwrap();
+        assert_eq!(
+            String::from_utf8(out).unwrap(),
+            "line 0\nline 1\nline 2\nline 3\nline 4\n\n=== Module: api ===\nstored"
+        );
+        assert_eq!(written.load(Ordering::Relaxed), 8);
+        assert_eq!(sections.iter().map(ExportSection::len).sum::<usize>(), 8);
+    }
+
+    #[test]
+    fn test_export_to_file_reports_completion() {
+        let dir = tempfile::tempdir().unwrap();
+        let mut state = TuiState::new(
+            vec!["module1".to_string()],
+            dir.path().to_path_buf(),
+            Config::default(),
+        );
+        state
+            .get_active_tab_mut()
+            .command_output
+            .set_lines(vec!["Line 1".to_string(), "Line 2".to_string()]);
+        let sections = vec![ExportSection::untitled(
+            state.get_active_tab().command_output.clone(),
+        )];
+        let path = dir.path().join("saved.log");
+
+        state.start_export("output", sections, ExportTarget::File(path.clone()));
+        assert!(state.export_status_line().is_some());
+        wait_for_export(&mut state);
+
+        assert_eq!(std::fs::read_to_string(&path).unwrap(), "Line 1\nLine 2");
+        assert!(state.export_status_line().is_none());
+        let last = state.get_active_tab().command_output.last().unwrap();
+        assert!(last.starts_with("✓ Saved output (2 lines)"));
+    }
+}
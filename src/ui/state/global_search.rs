@@ -0,0 +1,451 @@
+//! Search across all open tabs
+//!
+//! A global search fans the query out over the output of every tab and the
+//! stored output of every module on a small pool of worker threads. The
+//! buffers are handed over as snapshots sharing their chunks, so starting a
+//! search copies no text. Hits are streamed back and merged as each worker
+//! finishes a buffer, so the event loop never waits on the search; the view
+//! only moves when the user steps through the hits.
+
+use super::{OutputBuffer, TuiState};
+use crate::ui::search::{MAX_SEARCH_MATCHES, SearchMatch, SearchState, collect_search_matches};
+use regex::Regex;
+use std::sync::{
+    Arc, Mutex,
+    atomic::{AtomicBool, Ordering},
+    mpsc,
+};
+use std::thread;
+
+/// A match found by a global search, tagged with where it was found
+#[derive(Clone, Debug)]
+pub struct GlobalSearchHit {
+    pub tab_id: usize,
+    pub tab_title: String,
+    pub module: Option<String>,
+    /// Whether the hit comes from the tab's live output rather than a stored module output
+    live: bool,
+    /// Sequence number of the first line of the searched snapshot
+    first_seq: usize,
+    /// Sequence number of the matching line within the searched snapshot
+    line_index: usize,
+    start: usize,
+    end: usize,
+}
+
+/// One buffer to search, a snapshot sharing the chunks of a tab's output
+struct GlobalSearchJob {
+    tab_id: usize,
+    tab_title: String,
+    module: Option<String>,
+    live: bool,
+    lines: OutputBuffer,
+}
+
+impl GlobalSearchJob {
+    fn run(&self, regex: &Regex) -> Vec<GlobalSearchHit> {
+        collect_search_matches(&self.lines, regex)
+            .into_iter()
+            .take(MAX_SEARCH_MATCHES)
+            .map(|m| GlobalSearchHit {
+                tab_id: self.tab_id,
+                tab_title: self.tab_title.clone(),
+                module: self.module.clone(),
+                live: self.live,
+                first_seq: self.lines.history_first_seq(),
+                line_index: m.line_index,
+                start: m.start,
+                end: m.end,
+            })
+            .collect()
+    }
+}
+
+/// State of a search running across all tabs
+pub struct GlobalSearch {
+    pub query: String,
+    pub hits: Vec<GlobalSearchHit>,
+    /// Index of the hit last jumped to, if any
+    pub current: Option<usize>,
+    /// Compiled query, reused to highlight the hits in the output pane
+    regex: Regex,
+    /// Tab and module whose output the local search state highlights
+    highlighted: Option<(usize, Option<String>)>,
+    pending_jobs: usize,
+    truncated: bool,
+    receiver: Option<mpsc::Receiver<Vec<GlobalSearchHit>>>,
+    cancel: Arc<AtomicBool>,
+}
+
+impl GlobalSearch {
+    /// Whether workers are still searching
+    pub fn is_running(&self) -> bool {
+        self.pending_jobs > 0
+    }
+
+    /// Whether hits were dropped to stay under the match cap
+    pub fn is_truncated(&self) -> bool {
+        self.truncated
+    }
+}
+
+impl Drop for GlobalSearch {
+    fn drop(&mut self) {
+        // Stop workers that have not picked up their next buffer yet
+        self.cancel.store(true, Ordering::Relaxed);
+    }
+}
+
+/// Run the jobs on a bounded pool of worker threads, streaming hits per job
+fn spawn_workers(
+    regex: Regex,
+    jobs: Vec<GlobalSearchJob>,
+    cancel: Arc<AtomicBool>,
+) -> mpsc::Receiver<Vec<GlobalSearchHit>> {
+    let worker_count = thread::available_parallelism()
+        .map(|n| n.get())
+        .unwrap_or(2)
+        .min(jobs.len())
+        .max(1);
+    let queue = Arc::new(Mutex::new(jobs));
+    let (tx, rx) = mpsc::channel();
+
+    for _ in 0..worker_count {
+        let queue = Arc::clone(&queue);
+        let cancel = Arc::clone(&cancel);
+        let regex = regex.clone();
+        let tx = tx.clone();
+        thread::spawn(move || {
+            while !cancel.load(Ordering::Relaxed) {
+                let job = match queue.lock() {
+                    Ok(mut queue) => queue.pop(),
+                    Err(_) => None,
+                };
+                let Some(job) = job else {
+                    break;
+                };
+                if tx.send(job.run(&regex)).is_err() {
+                    break;
+                }
+                crate::utils::wakeup::wake();
+            }
+        });
+    }
+
+    rx
+}
+
+impl TuiState {
+    /// Toggle whether the search being typed runs across all tabs
+    pub fn toggle_search_scope(&mut self) {
+        self.search_all_tabs = !self.search_all_tabs;
+        log::debug!("Search across all tabs: {}", self.search_all_tabs);
+        if self.search_all_tabs {
+            // Live matches only make sense for the active tab
+            self.search_state = None;
+        } else {
+            self.live_search();
+        }
+    }
+
+    /// Whether the search being typed runs across all tabs
+    pub fn is_search_all_tabs(&self) -> bool {
+        self.search_all_tabs
+    }
+
+    /// Start searching every tab and stored module output in the background
+    pub fn start_global_search(&mut self, query: String) -> Result<(), regex::Error> {
+        let regex = Regex::new(&query)?;
+
+        let mut jobs = Vec::new();
+        for tab in &self.tabs {
+            let selected = tab.get_selected_module().cloned();
+            let title = tab.get_title();
+            jobs.push(GlobalSearchJob {
+                tab_id: tab.id,
+                tab_title: title.clone(),
+                module: selected.clone(),
+                live: true,
+                lines: tab.command_output.clone(),
+            });
+            // The selected module's stored output duplicates the live output
+            for (module, output) in &tab.module_outputs {
+                if selected.as_ref() != Some(module) {
+                    jobs.push(GlobalSearchJob {
+                        tab_id: tab.id,
+                        tab_title: title.clone(),
+                        module: Some(module.clone()),
+                        live: false,
+                        lines: output.lines.clone(),
+                    });
+                }
+            }
+        }
+        // Workers pop from the back; search the active tab first
+        jobs.reverse();
+        let active_id = self.get_active_tab().id;
+        jobs.sort_by_key(|job| job.tab_id == active_id);
+
+        log::info!(
+            "Starting global search for '{}' over {} buffers",
+            query,
+            jobs.len()
+        );
+
+        let cancel = Arc::new(AtomicBool::new(false));
+        let pending_jobs = jobs.len();
+        let receiver = spawn_workers(regex.clone(), jobs, Arc::clone(&cancel));
+        self.search_state = None;
+        self.global_search = Some(GlobalSearch {
+            query,
+            hits: Vec::new(),
+            current: None,
+            regex,
+            highlighted: None,
+            pending_jobs,
+            truncated: false,
+            receiver: Some(receiver),
+            cancel,
+        });
+        Ok(())
+    }
+
+    /// Stop and discard the global search
+    pub fn clear_global_search(&mut self) {
+        self.global_search = None;
+    }
+
+    /// Merge hits streamed by the global search workers
+    /// Should be called regularly from the main event loop
+    ///
+    /// Returns whether hits arrived or the search finished.
+    pub fn poll_global_search(&mut self) -> bool {
+        let Some(search) = self.global_search.as_mut() else {
+            return false;
+        };
+        let Some(receiver) = search.receiver.as_ref() else {
+            return false;
+        };
+
+        let mut changed = false;
+        loop {
+            match receiver.try_recv() {
+                Ok(hits) => {
+                    changed = true;
+                    search.pending_jobs = search.pending_jobs.saturating_sub(1);
+                    let room = MAX_SEARCH_MATCHES.saturating_sub(search.hits.len());
+                    if hits.len() > room {
+                        search.truncated = true;
+                    }
+                    search.hits.extend(hits.into_iter().take(room));
+                }
+                Err(mpsc::TryRecvError::Empty) => break,
+                Err(mpsc::TryRecvError::Disconnected) => {
+                    changed = true;
+                    search.pending_jobs = 0;
+                    break;
+                }
+            }
+        }
+
+        if search.pending_jobs == 0 {
+            search.receiver = None;
+            log::info!(
+                "Global search for '{}' finished with {} hits",
+                search.query,
+                search.hits.len()
+            );
+        }
+        changed
+    }
+
+    /// Jump to the next global search hit
+    pub fn next_global_hit(&mut self) {
+        if let Some(search) = self.global_search.as_ref()
+            && !search.hits.is_empty()
+        {
+            let next = search.current.map_or(0, |i| (i + 1) % search.hits.len());
+            self.jump_to_global_hit(next);
+        }
+    }
+
+    /// Jump to the previous global search hit
+    pub fn previous_global_hit(&mut self) {
+        if let Some(search) = self.global_search.as_ref()
+            && !search.hits.is_empty()
+        {
+            let len = search.hits.len();
+            let previous = search.current.map_or(len - 1, |i| (i + len - 1) % len);
+            self.jump_to_global_hit(previous);
+        }
+    }
+
+    /// Activate the tab and module holding a hit and center the view on it
+    fn jump_to_global_hit(&mut self, index: usize) {
+        let Some(search) = self.global_search.as_mut() else {
+            return;
+        };
+        let Some(hit) = search.hits.get(index).cloned() else {
+            return;
+        };
+        search.current = Some(index);
+
+        let Some(tab_index) = self.tabs.iter().position(|tab| tab.id == hit.tab_id) else {
+            log::warn!("Tab {} of global search hit is closed", hit.tab_id);
+            return;
+        };
+        if tab_index != self.active_tab_index {
+            self.set_active_tab(tab_index);
+        }
+
+        // Select the module the hit belongs to, loading its stored output
+        let mut reloaded = false;
+        if let Some(module) = hit.module.as_deref()
+            && self.selected_module() != Some(module)
+        {
+            let module_index = self
+                .get_active_tab()
+                .modules
+                .iter()
+                .position(|m| m == module);
+            if let Some(module_index) = module_index {
+                // Highlighting starts over on the loaded output below
+                self.search_state = None;
+                self.save_module_preferences();
+                self.get_active_tab_mut()
+                    .modules_list_state
+                    .select(Some(module_index));
+                self.sync_selected_module_output();
+                self.load_module_preferences();
+                reloaded = true;
+            }
+        }
+
+        // Map the snapshot position onto the output as it is now
+        let output = &self.get_active_tab().command_output;
+        let line_index = if hit.live && !reloaded {
+            hit.line_index
+        } else {
+            output.history_first_seq() + (hit.line_index - hit.first_seq)
+        };
+
+        // Highlight the query in this output, scanning it only when it changed
+        let location = (hit.tab_id, self.selected_module().map(str::to_string));
+        let tab = &self.tabs[self.active_tab_index];
+        if let Some(search) = self.global_search.as_mut() {
+            let same_output = !reloaded && search.highlighted.as_ref() == Some(&location);
+            if let Some(local) = self.search_state.as_mut().filter(|_| same_output) {
+                local.sync(&tab.command_output);
+            } else {
+                let mut local = SearchState::new(search.query.clone(), search.regex.clone());
+                local.reset(&tab.command_output);
+                self.search_state = Some(local);
+                search.highlighted = Some(location);
+            }
+        }
+        if let Some(local) = self.search_state.as_mut()
+            && let Some(position) = local
+                .matches
+                .iter()
+                .position(|m| m.line_index == line_index && m.start == hit.start)
+        {
+            local.jump_to_match(position);
+        }
+        self.center_on_match(SearchMatch {
+            line_index,
+            start: hit.start,
+            end: hit.end,
+        });
+    }
+}
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+    use crate::core::config::Config;
+    use crate::ui::state::ProjectTab;
+    use std::path::PathBuf;
+    use std::time::{Duration, Instant};
+
+    fn create_test_state() -> TuiState {
+        TuiState::new(
+            vec!["module1".to_string(), "module2".to_string()],
+            PathBuf::from("/test"),
+            Config::default(),
+        )
+    }
+
+    fn wait_for_global_search(state: &mut TuiState) {
+        let deadline = Instant::now() + Duration::from_secs(5);
+        while state.global_search.as_ref().is_some_and(|s| s.is_running()) {
+            assert!(Instant::now() < deadline, "global search did not finish");
+            state.poll_global_search();
+            thread::sleep(Duration::from_millis(5));
+        }
+    }
+
+    #[test]
+    fn test_global_search_finds_hits_in_all_tabs() {
+        let mut state = create_test_state();
+        state
+            .get_active_tab_mut()
+            .command_output
+            .set_lines(vec!["NullPointerException in tab one"]);
+
+        let mut other = ProjectTab::new(
+            7,
+            PathBuf::from("/other"),
+            vec!["service".to_string()],
+            Config::default(),
+        );
+        other
+            .command_output
+            .set_lines(vec!["ok", "NullPointerException in tab two"]);
+        state.tabs.push(other);
+
+        state
+            .start_global_search("NullPointerException".to_string())
+            .unwrap();
+        wait_for_global_search(&mut state);
+
+        let search = state.global_search.as_ref().unwrap();
+        assert_eq!(search.hits.len(), 2);
+        assert!(search.hits.iter().any(|hit| hit.tab_id == 7));
+        assert!(search.hits.iter().all(|hit| hit.module.is_some()));
+    }
+
+    #[test]
+    fn test_global_search_jumps_to_stored_module_output() {
+        let mut state = create_test_state();
+        {
+            let tab = state.get_active_tab_mut();
+            tab.command_output.set_lines(vec!["nothing here"]);
+            tab.module_outputs.insert(
+                "module2".to_string(),
+                crate::ui::state::ModuleOutput {
+                    lines: vec!["first".to_string(), "BUILD FAILURE".to_string()].into(),
+                    ..Default::default()
+                },
+            );
+        }
+
+        state.start_global_search("FAILURE".to_string()).unwrap();
+        wait_for_global_search(&mut state);
+        // Results do not move the view until the user asks
+        assert_eq!(state.selected_module(), Some("module1"));
+
+        state.next_search_match();
+        assert_eq!(state.selected_module(), Some("module2"));
+        let tab = state.get_active_tab();
+        assert_eq!(tab.command_output.last(), Some("BUILD FAILURE"));
+        let current = state.search_state.as_ref().unwrap().current_match().unwrap();
+        assert_eq!(current.line_index, tab.command_output.first_seq() + 1);
+    }
+
+    #[test]
+    fn test_global_search_invalid_regex() {
+        let mut state = create_test_state();
+        assert!(state.start_global_search("[broken".to_string()).is_err());
+        assert!(state.global_search.is_none());
+    }
+}
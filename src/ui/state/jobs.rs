@@ -0,0 +1,334 @@
+//! Admission of the tabs' processes through the job queue
+//!
+//! Commands and the modules of parallel runs wait in the [`JobQueue`] shared
+//! by every tab until the machine has room for them. Jobs are admitted as
+//! updates are polled, so a finished build or a dropping load average lets
+//! the next job start on a following iteration of the main loop.
+//!
+//! Goals launching an application, such as `spring-boot:run`, hold their slot
+//! while Maven builds and give it back once the application starts, so an
+//! idle server left running in a tab does not hold up builds.
+//!
+//! [`JobQueue`]: crate::features::job_queue::JobQueue
+
+use super::commands::CommandOptions;
+use super::{ParallelRun, ProjectTab, TuiState};
+use crate::features::job_queue::{JobId, JobLimits, JobPriority};
+use crate::maven;
+use crate::utils::system_load::{self, SystemLoad};
+use std::time::{Duration, Instant};
+
+/// How long a load sample is reused, and how often waiting jobs are rechecked
+pub(super) const LOAD_SAMPLE_INTERVAL: Duration = Duration::from_secs(1);
+
+/// Goals that keep running the application once the build is over
+const LAUNCH_GOALS: [&str; 2] = ["spring-boot:run", "exec:java"];
+
+/// Whether a line of Maven output shows a launch goal starting the application
+///
+/// Maven announces each goal as `--- spring-boot:3.2.0:run (default-cli) @ app ---`,
+/// or with the plugin's artifact ID, `spring-boot-maven-plugin`, before Maven 3.9.
+fn starts_launch(goal: &str, line: &str) -> bool {
+    let Some((prefix, name)) = goal.split_once(':') else {
+        return false;
+    };
+    line.split_once("--- ").is_some_and(|(_, execution)| {
+        execution.starts_with(prefix) && execution.contains(&format!(":{} (", name))
+    })
+}
+
+/// A command waiting in the job queue for its turn to start
+pub(super) struct QueuedCommand {
+    pub target: String,
+    pub args: Vec<String>,
+    pub use_file_flag: bool,
+    pub options: CommandOptions,
+    pub queued_at: Instant,
+}
+
+impl ProjectTab {
+    /// Start the command admitted by the job queue
+    ///
+    /// Returns whether the process started; the output explains why not
+    /// otherwise.
+    pub(super) fn start_queued_command(&mut self) -> bool {
+        let Some(queued) = self.queued_command.take() else {
+            return false;
+        };
+        let args: Vec<&str> = queued.args.iter().map(String::as_str).collect();
+        match maven::execute_maven_command_async_with_options(
+            &self.project_root,
+            Some(&queued.target),
+            &args,
+            &queued.options.profile_args,
+            self.config.maven_settings.as_deref(),
+            &queued.options.flags,
+            queued.use_file_flag,
+            self.config.logging.as_ref(),
+        ) {
+            Ok(receiver) => {
+                log::info!("Async command started successfully");
+                self.command_receiver = Some(receiver);
+                self.is_command_running = true;
+                self.command_start_time = Some(Instant::now());
+                self.launch_goal = LAUNCH_GOALS
+                    .into_iter()
+                    .find(|goal| queued.args.iter().any(|arg| arg == goal));
+                self.holds_job_slot = true;
+                let waited = queued.queued_at.elapsed();
+                if waited >= LOAD_SAMPLE_INTERVAL {
+                    self.command_output
+                        .push(format!("▶ Started after waiting {}s", waited.as_secs()));
+                }
+                true
+            }
+            Err(e) => {
+                log::error!("Failed to start async command: {}", e);
+                self.command_output
+                    .set_lines(vec![format!("Error starting command: {e}")]);
+                self.output_offset = 0;
+                self.output_metrics = None;
+                false
+            }
+        }
+    }
+}
+
+impl ProjectTab {
+    /// Give back the job slot of a launch once Maven starts the application
+    pub(super) fn check_launch_started(&mut self, lines: &[String]) {
+        let Some(goal) = self.launch_goal else {
+            return;
+        };
+        if lines.iter().any(|line| starts_launch(goal, line)) {
+            log::info!(
+                "{} started the application in tab {}, freeing its job slot",
+                goal,
+                self.id
+            );
+            self.launch_goal = None;
+            self.holds_job_slot = false;
+        }
+    }
+}
+
+impl TuiState {
+    /// Limits of the job queue, from the active tab's configuration
+    fn job_limits(&self) -> JobLimits {
+        let config = self
+            .get_active_tab()
+            .config
+            .jobs
+            .clone()
+            .unwrap_or_default();
+        JobLimits::from_config(&config, system_load::cpu_count())
+    }
+
+    /// Load of the machine, sampled at most once per interval
+    fn system_load(&mut self) -> SystemLoad {
+        match &self.system_load {
+            Some(load) if load.sampled_at.elapsed() < LOAD_SAMPLE_INTERVAL => load.clone(),
+            _ => {
+                let load = SystemLoad::sample();
+                log::debug!("Sampled system load: {:?}", load);
+                self.system_load = Some(load.clone());
+                load
+            }
+        }
+    }
+
+    /// Number of processes of every tab taking a job slot
+    fn running_job_count(&self) -> usize {
+        self.tabs
+            .iter()
+            .map(|tab| {
+                usize::from(tab.is_command_running && tab.holds_job_slot)
+                    + tab
+                        .parallel_run
+                        .as_ref()
+                        .map_or(0, ParallelRun::running_count)
+            })
+            .sum()
+    }
+
+    /// Queue a command of a tab, starting it right away if there is room
+    ///
+    /// Returns whether the command is running or waiting for its turn.
+    pub(super) fn queue_command(&mut self, tab_index: usize, command: QueuedCommand) -> bool {
+        let tab = &mut self.tabs[tab_index];
+        let id = JobId::command(tab.id);
+        tab.queued_command = Some(command);
+        self.jobs.enqueue(id.clone(), JobPriority::Command);
+        self.admit_jobs();
+
+        if !self.jobs.contains(&id) {
+            return self.tabs[tab_index].is_command_running;
+        }
+        let position = self.jobs.position(&id, id.tab_id).unwrap_or(0) + 1;
+        let reason = self.jobs.blocked_by().unwrap_or("other jobs come first");
+        log::info!("Command of tab {} waits in the job queue: {}", id.tab_id, reason);
+        let line = format!(
+            "⏳ Waiting for a job slot, #{} in the queue: {} (Esc to cancel)",
+            position, reason
+        );
+        self.tabs[tab_index].command_output.push(line);
+        true
+    }
+
+    /// Start waiting jobs while the limits leave room for them
+    ///
+    /// Modules of parallel runs whose turn came are queued first, so they
+    /// compete with the commands of every tab.
+    pub(super) fn admit_jobs(&mut self) {
+        for tab in &mut self.tabs {
+            tab.queue_ready_modules(&mut self.jobs);
+        }
+        if self.jobs.is_empty() {
+            return;
+        }
+
+        let limits = self.job_limits();
+        let preferred_tab = self.get_active_tab().id;
+        loop {
+            let load = self.system_load();
+            let running = self.running_job_count();
+            let Some(job) = self
+                .jobs
+                .admit_next(&limits, running, &load, preferred_tab)
+            else {
+                break;
+            };
+            let Some(tab_index) = self.tabs.iter().position(|tab| tab.id == job.tab_id) else {
+                continue;
+            };
+            let tab = &mut self.tabs[tab_index];
+            let started = match &job.module {
+                Some(module) => tab.start_parallel_module(module),
+                None => tab.start_queued_command(),
+            };
+            if started {
+                self.jobs.record_start();
+            }
+            // A module that failed to start frees its slot in the run
+            tab.queue_ready_modules(&mut self.jobs);
+            if !started && job.module.is_none() {
+                // Commands queued behind this one do not run without it
+                self.drop_command_queue(tab_index, "the command could not start");
+            }
+        }
+    }
+
+    /// Cancel the active tab's command while it waits in the job queue
+    ///
+    /// Returns whether a command was waiting.
+    pub(super) fn cancel_queued_command(&mut self) -> bool {
+        let tab = self.get_active_tab_mut();
+        if tab.queued_command.take().is_none() {
+            return false;
+        }
+        tab.command_output.push(String::new());
+        tab.command_output
+            .push("⚠ Queued command cancelled by user".to_string());
+        let id = JobId::command(tab.id);
+        self.jobs.remove(&id);
+        self.store_current_module_output();
+        true
+    }
+
+    /// Number of jobs waiting in the queue
+    pub(super) fn queued_job_count(&self) -> usize {
+        self.jobs.len()
+    }
+
+    /// Footer line explaining why jobs wait, while some do
+    pub fn job_queue_status_line(&self) -> Option<String> {
+        let count = self.jobs.len();
+        if count == 0 {
+            return None;
+        }
+        let mut line = format!("⏳ {} {} queued", count, if count == 1 { "job" } else { "jobs" });
+        if let Some(reason) = self.jobs.blocked_by() {
+            line.push_str(&format!(": {}", reason));
+        }
+        Some(line)
+    }
+}
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+    use crate::core::config::Config;
+    use std::path::PathBuf;
+
+    #[test]
+    fn test_command_waits_while_job_slots_are_busy() {
+        let mut state = TuiState::new(
+            vec!["module1".to_string()],
+            PathBuf::from("/test"),
+            Config::default(),
+        );
+        // A build keeps the only slot busy in the first tab
+        state.get_active_tab_mut().is_command_running = true;
+
+        let mut tab = ProjectTab::new(
+            1,
+            PathBuf::from("/other"),
+            vec!["module1".to_string()],
+            Config::default(),
+        );
+        tab.config = toml::from_str("[jobs]\nmax_jobs = 1").unwrap();
+        state.tabs.push(tab);
+        state.active_tab_index = 1;
+
+        let command = QueuedCommand {
+            target: "module1".to_string(),
+            args: vec!["test".to_string()],
+            use_file_flag: false,
+            options: CommandOptions::of(state.get_active_tab()),
+            queued_at: Instant::now(),
+        };
+        assert!(state.queue_command(1, command));
+        let tab = state.get_active_tab();
+        assert!(tab.is_busy());
+        assert!(!tab.is_command_running);
+        assert!(tab.command_output.last().unwrap().starts_with("⏳ Waiting"));
+        assert_eq!(
+            state.job_queue_status_line().as_deref(),
+            Some("⏳ 1 job queued: 1/1 job slots busy")
+        );
+
+        state.kill_running_process();
+        assert!(!state.get_active_tab().is_busy());
+        assert_eq!(state.job_queue_status_line(), None);
+    }
+
+    #[test]
+    fn test_launch_frees_its_slot_once_the_application_starts() {
+        let mut state = TuiState::new(
+            vec!["module1".to_string()],
+            PathBuf::from("/test"),
+            Config::default(),
+        );
+        let tab = state.get_active_tab_mut();
+        tab.is_command_running = true;
+        tab.launch_goal = Some("spring-boot:run");
+        tab.check_launch_started(&[
+            "[INFO] --- compiler:3.11.0:compile (default-compile) @ app ---".to_string(),
+        ]);
+        assert_eq!(state.running_job_count(), 1);
+
+        let tab = state.get_active_tab_mut();
+        tab.check_launch_started(&[
+            "[INFO] --- spring-boot-maven-plugin:3.2.0:run (default-cli) @ app ---".to_string(),
+        ]);
+        assert_eq!(state.running_job_count(), 0);
+        assert!(state.get_active_tab().is_busy());
+    }
+
+    #[test]
+    fn test_starts_launch() {
+        assert!(starts_launch("exec:java", "[INFO] --- exec:3.1.0:java (default-cli) @ app ---"));
+        assert!(!starts_launch("exec:java", "[INFO] --- exec:3.1.0:exec (default-cli) @ app ---"));
+        assert!(!starts_launch("spring-boot:run", "Running spring-boot:run ..."));
+    }
+}
@@ -4,18 +4,32 @@
 //! profiles, flags, command execution, and output display.
 
 // Sub-modules
+mod build_planning;
+mod command_queue;
 mod commands;
 mod config_reload;
+mod export;
 mod flags;
+mod global_search;
+mod jobs;
 mod launcher_config;
 mod navigation;
 mod output;
+mod output_buffer;
+mod parallel_run;
 mod profiles;
 mod project_tab;
+mod scrollback;
 mod search;
+mod styled_line_cache;
 mod tabs;
 
+pub use global_search::{GlobalSearch, GlobalSearchHit};
+pub use output::OutputPaneView;
+pub use output_buffer::OutputBuffer;
+pub use parallel_run::ParallelRun;
 pub use project_tab::ProjectTab;
+pub use styled_line_cache::{OutputStyle, StyledLineCache};
 
 // Re-export types
 
@@ -25,6 +39,7 @@ use crate::ui::keybindings::{CurrentView, Focus, SearchMode};
 use crate::ui::search::{SearchMatch, SearchState};
 use ratatui::widgets::ListState;
 use std::{
+    collections::{HashSet, VecDeque},
     path::PathBuf,
     sync::mpsc,
     time::{Duration, Instant},
@@ -34,64 +49,140 @@ use unicode_width::{UnicodeWidthChar, UnicodeWidthStr};
 /// Output data for a specific module
 #[derive(Clone, Debug, Default)]
 pub struct ModuleOutput {
-    pub lines: Vec<String>,
+    /// Snapshot of the output, sharing its storage with the live buffer
+    pub lines: OutputBuffer,
     pub scroll_offset: usize,
     pub command: Option<String>,
     pub profiles: Vec<String>,
     pub flags: Vec<String>,
+    /// Display metrics measured on the snapshot, kept while another output is shown
+    pub metrics: Option<OutputMetrics>,
 }
 
 /// Metrics for calculating output display and scrolling
+///
+/// Metrics are maintained incrementally: lines appended to the output buffer
+/// are measured once when they arrive and evicted lines simply drop their
+/// prefix sums. Row positions are tracked on an absolute scale so evicting
+/// from the front never shifts the remaining entries.
 #[derive(Clone, Debug, Default)]
 pub struct OutputMetrics {
     width: usize,
-    line_display: Vec<String>,
-    line_start_rows: Vec<usize>,
-    total_rows: usize,
+    /// Sequence number of the first tracked line
+    first_seq: usize,
+    /// Display width of each cleaned line, independent of the wrap width
+    line_widths: VecDeque<usize>,
+    /// Absolute start row of each tracked line
+    line_start_rows: VecDeque<usize>,
+    /// Absolute row where the first tracked line starts
+    base_row: usize,
+    /// Absolute row just past the last tracked line
+    end_row: usize,
 }
 
 impl OutputMetrics {
-    pub fn new(width: usize, lines: &[String]) -> Self {
-        if width == 0 {
-            return Self::default();
-        }
-        let mut line_display = Vec::with_capacity(lines.len());
-        let mut line_start_rows = Vec::with_capacity(lines.len());
-        let mut cumulative = 0usize;
-
-        for line in lines {
-            line_start_rows.push(cumulative);
-            let display = crate::utils::clean_log_line(line).unwrap_or_default();
-            let rows = visual_rows(&display, width);
-            cumulative += rows;
-            line_display.push(display);
+    pub fn new(width: usize, lines: &OutputBuffer) -> Self {
+        let mut metrics = Self {
+            width,
+            first_seq: lines.history_first_seq(),
+            ..Self::default()
+        };
+        metrics.sync(lines);
+        metrics
+    }
+
+    pub fn total_rows(&self) -> usize {
+        self.end_row - self.base_row
+    }
+
+    /// Sequence number following the last tracked line
+    fn end_seq(&self) -> usize {
+        self.first_seq + self.line_widths.len()
+    }
+
+    /// Catch up with lines appended to or evicted from the buffer
+    pub fn sync(&mut self, lines: &OutputBuffer) {
+        // Sequence numbers only move forward; anything else is a different buffer
+        if lines.history_first_seq() < self.first_seq || lines.end_seq() < self.end_seq() {
+            *self = Self::new(self.width, lines);
+            return;
         }
 
-        Self {
-            width,
-            line_display,
-            line_start_rows,
-            total_rows: cumulative,
+        self.evict_before(lines.history_first_seq());
+        for (_, line) in lines.history_between(self.end_seq(), lines.end_seq()) {
+            self.push_line(&line);
         }
     }
 
-    pub fn total_rows(&self) -> usize {
-        self.total_rows
+    /// Follow lines renumbered from `old_first_seq` to `new_first_seq`
+    ///
+    /// Used when the buffer is restored from a snapshot.
+    pub fn renumber(&mut self, old_first_seq: usize, new_first_seq: usize) {
+        self.evict_before(old_first_seq);
+        self.first_seq = self.first_seq - old_first_seq + new_first_seq;
     }
 
-    pub fn row_for_match(&self, m: &SearchMatch) -> Option<usize> {
+    /// Change the wrap width, re-wrapping from the cached line widths
+    pub fn set_width(&mut self, width: usize) {
+        if width == self.width {
+            return;
+        }
+        self.width = width;
+        self.base_row = 0;
+        self.end_row = 0;
+        for (start_row, &line_width) in self.line_start_rows.iter_mut().zip(&self.line_widths) {
+            *start_row = self.end_row;
+            self.end_row += rows_for_width(line_width, width);
+        }
+    }
+
+    pub fn row_for_match(&self, m: &SearchMatch, lines: &OutputBuffer) -> Option<usize> {
         if self.width == 0 {
             return Some(0);
         }
-        let line_index = m.line_index;
-        let start_rows = self.line_start_rows.get(line_index)?;
-        let display = self.line_display.get(line_index)?;
-        let col = column_for_byte_index(display, m.start);
+        let line_index = m.line_index.checked_sub(self.first_seq)?;
+        let start_row = self.line_start_rows.get(line_index)? - self.base_row;
+        let col = column_for_byte_index(&lines.history_line(m.line_index)?, m.start);
         let row_in_line = col / self.width;
-        Some(start_rows + row_in_line)
+        Some(start_row + row_in_line)
+    }
+
+    /// Find the line shown at a wrapped row, with the row's offset inside that line
+    pub fn line_at_row(&self, row: usize) -> Option<(usize, usize)> {
+        let absolute_row = self.base_row.checked_add(row)?;
+        if absolute_row >= self.end_row {
+            return None;
+        }
+        let line_index = self
+            .line_start_rows
+            .partition_point(|&start_row| start_row <= absolute_row)
+            .checked_sub(1)?;
+        Some((
+            self.first_seq + line_index,
+            absolute_row - self.line_start_rows[line_index],
+        ))
+    }
+
+    fn push_line(&mut self, line: &str) {
+        // Lines are stored already cleaned, so they can be measured as-is
+        let line_width = UnicodeWidthStr::width(line);
+        self.line_widths.push_back(line_width);
+        self.line_start_rows.push_back(self.end_row);
+        self.end_row += rows_for_width(line_width, self.width);
+    }
+
+    fn evict_before(&mut self, seq: usize) {
+        let count = seq.saturating_sub(self.first_seq).min(self.line_widths.len());
+        self.line_widths.drain(..count);
+        self.line_start_rows.drain(..count);
+        self.base_row = self.line_start_rows.front().copied().unwrap_or(self.end_row);
+        self.first_seq = seq.max(self.first_seq);
     }
 }
 
+/// Interval between frames of the profile loading spinner
+const PROFILE_SPINNER_INTERVAL: Duration = Duration::from_millis(80);
+
 /// Main state structure for the TUI
 pub struct TuiState {
     // Tabs management
@@ -112,15 +203,25 @@ pub struct TuiState {
     pending_center: Option<SearchMatch>,
     pub search_mod: Option<SearchMode>,
 
+    // Search across all tabs
+    global_search: Option<GlobalSearch>,
+    /// Clipboard copy or file save running in the background
+    export: Option<export::ExportJob>,
+    search_all_tabs: bool,
+
     // Debouncing for navigation keys
     last_nav_key_time: Option<Instant>,
     nav_debounce_duration: Duration,
 
     // Async profile loading (for active tab)
-    profiles_receiver: Option<mpsc::Receiver<Result<Vec<String>, String>>>,
+    profiles_receiver: Option<mpsc::Receiver<maven::ProfileUpdate>>,
+    /// Auto-activated profiles reported so far, applied to profiles discovered later
+    auto_activated_profiles: HashSet<String>,
     pub profile_loading_status: ProfileLoadingStatus,
     profile_loading_start_time: Option<Instant>,
     profile_spinner_frame: usize,
+    /// When the spinner last advanced, so it turns at a steady pace
+    profile_spinner_tick: Option<Instant>,
 
     // Recent projects (global)
     pub recent_projects: Vec<PathBuf>,
@@ -142,6 +243,17 @@ pub struct TuiState {
     pub show_history_popup: bool,
     pub history_list_state: ListState,
 
+    // Parallel run status (for active tab)
+    pub show_build_status_popup: bool,
+    pub build_status_list_state: ListState,
+
+    // Job queue shared by every tab (global)
+    jobs: crate::features::job_queue::JobQueue,
+    system_load: Option<crate::utils::system_load::SystemLoad>,
+
+    // Command queues of every project, kept across sessions (global)
+    command_queues: crate::features::favorites::SavedQueues,
+
     // Favorites (global)
     pub favorites: crate::features::favorites::Favorites,
     pub show_favorites_popup: bool,
@@ -149,6 +261,8 @@ pub struct TuiState {
     pub show_save_favorite_popup: bool,
     pub favorite_name_input: String,
     pub pending_favorite: Option<crate::features::history::HistoryEntry>,
+    /// Commands to save as a pipeline instead of the pending favorite
+    pub pending_pipeline: Option<Vec<crate::features::favorites::PipelineStep>>,
 
     // Editor command to execute (global)
     pub editor_command: Option<(String, String)>,
@@ -255,6 +369,7 @@ impl TuiState {
         state.tabs.push(tab);
         state.next_tab_id = 2;
         state.active_tab_index = 0;
+        state.restore_command_queue(0);
 
         // Load preferences for the initially selected module
         state.load_module_preferences();
@@ -280,13 +395,19 @@ impl TuiState {
             pending_center: None,
             search_mod: None,
 
+            global_search: None,
+            export: None,
+            search_all_tabs: false,
+
             last_nav_key_time: None,
             nav_debounce_duration: Duration::from_millis(50),
 
             profiles_receiver: None,
+            auto_activated_profiles: HashSet::new(),
             profile_loading_status: ProfileLoadingStatus::Loaded,
             profile_loading_start_time: None,
             profile_spinner_frame: 0,
+            profile_spinner_tick: None,
 
             recent_projects: crate::core::config::RecentProjects::load().get_projects(),
             projects_list_state: ListState::default(),
@@ -304,12 +425,21 @@ impl TuiState {
             show_history_popup: false,
             history_list_state: ListState::default(),
 
+            show_build_status_popup: false,
+            build_status_list_state: ListState::default(),
+
+            jobs: crate::features::job_queue::JobQueue::default(),
+            system_load: None,
+
+            command_queues: crate::features::favorites::SavedQueues::load(),
+
             favorites: crate::features::favorites::Favorites::load(),
             show_favorites_popup: false,
             favorites_list_state: ListState::default(),
             show_save_favorite_popup: false,
             favorite_name_input: String::new(),
             pending_favorite: None,
+            pending_pipeline: None,
 
             editor_command: None,
         }
@@ -320,7 +450,25 @@ impl TuiState {
     // Module output management
 
     /// Kill the currently running Maven process
+    ///
+    /// Commands queued behind it are dropped too.
     pub fn kill_running_process(&mut self) {
+        self.kill_active_process();
+        self.drop_command_queue(self.active_tab_index, "cancelled by user");
+    }
+
+    fn kill_active_process(&mut self) {
+        let tab_id = self.get_active_tab().id;
+        if self.get_active_tab_mut().cancel_parallel_run() {
+            self.jobs.remove_tab(tab_id);
+            log::info!("Parallel run cancelled by user");
+            return;
+        }
+        if self.cancel_queued_command() {
+            log::info!("Queued command cancelled by user");
+            return;
+        }
+
         let tab = self.get_active_tab_mut();
         if let Some(pid) = tab.running_process_pid {
             log::info!("Attempting to kill process with PID: {}", pid);
@@ -332,7 +480,6 @@ impl TuiState {
                     tab.is_command_running = false;
                     tab.command_receiver = None;
                     tab.running_process_pid = None;
-                    tab.output_metrics = None;
                     self.store_current_module_output();
                 }
                 Err(e) => {
@@ -348,10 +495,12 @@ impl TuiState {
     }
 
     /// Check file watcher and re-run command if files changed
-    pub fn check_file_watcher(&mut self) {
+    ///
+    /// Returns whether the command was re-run.
+    pub fn check_file_watcher(&mut self) -> bool {
         let tab = self.get_active_tab_mut();
-        if !tab.watch_enabled || tab.is_command_running {
-            return;
+        if !tab.watch_enabled || tab.is_busy() {
+            return false;
         }
 
         if let Some(watcher) = &mut tab.file_watcher
@@ -381,9 +530,11 @@ impl TuiState {
                     log::info!("Re-running command due to file changes");
                     let args: Vec<&str> = last_cmd.iter().map(|s| s.as_str()).collect();
                     self.run_selected_module_command(&args);
+                    return true;
                 }
             }
         }
+        false
     }
 
     /// Yank (copy) comprehensive debug information to clipboard
@@ -401,12 +552,9 @@ impl TuiState {
         debug_info.extend(Self::collect_logs());
         Self::add_debug_footer(&mut debug_info);
 
-        let debug_text = debug_info.join("\n");
-        let lines = debug_info.len();
+        log::info!("Collected {} lines of debug information", debug_info.len());
 
-        log::info!("Collected {} lines of debug information", lines);
-
-        self.copy_to_clipboard(&debug_text, lines, "debug report");
+        self.copy_lines_to_clipboard(debug_info, "debug report");
     }
 
     /// Add debug report header
@@ -527,7 +675,11 @@ impl TuiState {
             .map(|s| s.as_str())
             .unwrap_or("<none>");
         info.push(format!("Module: {}", selected_module));
-        info.push(format!("Output Lines: {}", tab.command_output.len()));
+        info.push(format!(
+            "Output Lines: {} ({} spilled to disk)",
+            tab.command_output.len(),
+            tab.command_output.spilled_len()
+        ));
 
         if tab.command_output.is_empty() {
             info.push("(No output)".to_string());
@@ -545,8 +697,8 @@ impl TuiState {
                     tab.command_output.len()
                 ));
             }
-            for line in &tab.command_output[start_idx..] {
-                info.push(line.clone());
+            for line in tab.command_output.iter().skip(start_idx) {
+                info.push(line.to_string());
             }
         }
         info.push(String::new());
@@ -555,10 +707,18 @@ impl TuiState {
     }
 
     /// Collect LazyMVN logs
+    ///
+    /// The current session is read from where it started, found through the
+    /// session index, keeping its last lines so the report stays bounded
+    /// however long the session ran. Without a session, the tails of the log
+    /// files are used.
     fn collect_logs() -> Vec<String> {
         let mut info = Vec::new();
         info.push("=== LazyMVN Logs ===".to_string());
-        let logs = crate::utils::logger::get_all_logs();
+        let logs = crate::utils::logger::get_current_session_logs().unwrap_or_else(|e| {
+            log::debug!("Falling back to the log tails: {}", e);
+            crate::utils::logger::get_all_logs()
+        });
         info.push(logs);
         info.push(String::new());
         info
@@ -571,82 +731,6 @@ impl TuiState {
         debug_info.push("=".repeat(80));
     }
 
-    /// Copy text to clipboard using platform-specific tools
-    fn copy_to_clipboard(&mut self, text: &str, lines: usize, content_type: &str) {
-        // Try platform-specific clipboard tools first
-        if self.try_platform_clipboard(text, lines, content_type) {
-            return;
-        }
-
-        // Fallback to arboard if all system tools failed
-        self.copy_via_arboard(text, lines, content_type);
-    }
-
-    /// Try platform-specific clipboard tools (wl-copy, xclip, xsel, PowerShell, pbcopy)
-    fn try_platform_clipboard(&mut self, text: &str, lines: usize, content_type: &str) -> bool {
-        #[cfg(target_os = "linux")]
-        {
-            if Self::try_clipboard_tool("wl-copy", &[], text).is_ok() {
-                self.show_clipboard_success(lines, content_type, "wl-copy");
-                return true;
-            }
-            if Self::try_clipboard_tool("xclip", &["-selection", "clipboard"], text).is_ok() {
-                self.show_clipboard_success(lines, content_type, "xclip");
-                return true;
-            }
-            if Self::try_clipboard_tool("xsel", &["--clipboard"], text).is_ok() {
-                self.show_clipboard_success(lines, content_type, "xsel");
-                return true;
-            }
-        }
-
-        #[cfg(target_os = "windows")]
-        {
-            if Self::try_clipboard_tool("powershell", &["-Command", "$input | Set-Clipboard"], text)
-                .is_ok()
-            {
-                self.show_clipboard_success(lines, content_type, "PowerShell");
-                return true;
-            }
-            if Self::try_clipboard_tool("clip", &[], text).is_ok() {
-                self.show_clipboard_success(lines, content_type, "clip.exe");
-                return true;
-            }
-        }
-
-        #[cfg(target_os = "macos")]
-        {
-            if Self::try_clipboard_tool("pbcopy", &[], text).is_ok() {
-                self.show_clipboard_success(lines, content_type, "pbcopy");
-                return true;
-            }
-        }
-
-        false
-    }
-
-    /// Try to copy text using a specific clipboard tool
-    fn try_clipboard_tool(tool: &str, args: &[&str], text: &str) -> Result<(), std::io::Error> {
-        use std::io::Write;
-        use std::process::{Command, Stdio};
-
-        let mut child = Command::new(tool)
-            .args(args)
-            .stdin(Stdio::piped())
-            .spawn()?;
-
-        if let Some(mut stdin) = child.stdin.take() {
-            stdin.write_all(text.as_bytes())?;
-            drop(stdin);
-            let status = child.wait()?;
-            if status.success() {
-                return Ok(());
-            }
-        }
-
-        Err(std::io::Error::other(format!("{} failed", tool)))
-    }
-
     /// Copy via arboard library (fallback)
     fn copy_via_arboard(&mut self, text: &str, lines: usize, content_type: &str) {
         let clipboard_result = if let Some(ref mut clipboard) = self.clipboard {
@@ -698,10 +782,44 @@ impl TuiState {
     /// Get elapsed time of current command in seconds
     pub fn command_elapsed_seconds(&self) -> Option<u64> {
         let tab = self.get_active_tab();
+        if !tab.is_command_running {
+            return None;
+        }
         tab.command_start_time
             .map(|start| start.elapsed().as_secs())
     }
 
+    /// Time until a timer-driven change on screen is due, if any
+    ///
+    /// Covers the running command's elapsed seconds, the elapsed times of the
+    /// build status popup and the profile loading spinner; everything else
+    /// wakes the main loop itself.
+    pub fn next_tick_in(&self) -> Option<Duration> {
+        let spinner = matches!(self.profile_loading_status, ProfileLoadingStatus::Loading).then(|| {
+            self.profile_spinner_tick.map_or(Duration::ZERO, |tick| {
+                PROFILE_SPINNER_INTERVAL.saturating_sub(tick.elapsed())
+            })
+        });
+
+        let tab = self.get_active_tab();
+        let elapsed_tick = tab
+            .command_start_time
+            .filter(|_| tab.is_command_running)
+            .map(|start| {
+                let into_second = start.elapsed().subsec_nanos();
+                Duration::from_nanos(u64::from(1_000_000_000 - into_second))
+            });
+        let build_status_tick = (self.show_build_status_popup && tab.is_busy())
+            .then_some(Duration::from_secs(1));
+        // Waiting jobs start once the load drops, which nothing else signals
+        let job_queue_tick = (!self.jobs.is_empty()).then_some(jobs::LOAD_SAMPLE_INTERVAL);
+
+        [spinner, elapsed_tick, build_status_tick, job_queue_tick]
+            .into_iter()
+            .flatten()
+            .min()
+    }
+
     /// Send desktop notification
     fn send_notification(&self, title: &str, body: &str, success: bool) {
         // Check if notifications are enabled (default: true)
@@ -743,15 +861,6 @@ impl TuiState {
 
     // Scrolling methods
 
-    fn total_display_rows(&self) -> usize {
-        let tab = self.get_active_tab();
-        if let Some(metrics) = tab.output_metrics.as_ref() {
-            metrics.total_rows()
-        } else {
-            tab.command_output.len()
-        }
-    }
-
     // Search functionality
 
     // Recent projects methods
@@ -780,7 +889,7 @@ impl TuiState {
                 Err(e) => {
                     log::error!("Failed to create tab: {}", e);
                     if let Some(tab) = self.tabs.get_mut(self.active_tab_index) {
-                        tab.command_output = vec![format!("❌ {}", e)];
+                        tab.command_output.set_lines(vec![format!("❌ {}", e)]);
                     }
                 }
             }
@@ -834,11 +943,11 @@ impl TuiState {
                 Err(e) => {
                     log::error!("Failed to generate config file: {}", e);
                     let tab = self.get_active_tab_mut();
-                    tab.command_output = vec![
+                    tab.command_output.set_lines(vec![
                         format!("❌ Failed to generate config file: {}", e),
                         String::new(),
                         "Please run 'lazymvn --setup' to create configuration".to_string(),
-                    ];
+                    ]);
                     return;
                 }
             }
@@ -858,12 +967,12 @@ impl TuiState {
 
         log::info!("Opening config with editor: {}", editor);
         let tab = self.get_active_tab_mut();
-        tab.command_output = vec![
+        tab.command_output.set_lines(vec![
             format!("📝 Opening configuration with {}...", editor),
             format!("   File: {}", config_path.display()),
             String::new(),
             "The TUI will resume after you close the editor.".to_string(),
-        ];
+        ]);
 
         // We need to exit raw mode before opening the editor
         self.editor_command = Some((editor, config_path.to_string_lossy().to_string()));
@@ -874,27 +983,8 @@ impl TuiState {
     pub fn cleanup(&mut self) {
         log::info!("Cleaning up application resources");
 
-        let tab = self.get_active_tab_mut();
-
-        // Kill any running Maven process
-        if let Some(pid) = tab.running_process_pid {
-            log::info!("Killing running Maven process with PID: {}", pid);
-            match crate::maven::kill_process(pid) {
-                Ok(()) => {
-                    log::info!("Successfully killed Maven process {}", pid);
-                }
-                Err(e) => {
-                    log::error!("Failed to kill Maven process {}: {}", pid, e);
-                }
-            }
-            tab.running_process_pid = None;
-            tab.is_command_running = false;
-        }
-
-        // Save module preferences
-        if let Err(e) = tab.module_preferences.save(&tab.project_root) {
-            log::error!("Failed to save module preferences: {}", e);
-        }
+        // Every tab, with the processes of its parallel run
+        self.cleanup_all_tabs();
 
         log::info!("Cleanup completed");
     }
@@ -911,10 +1001,10 @@ impl TuiState {
             log::debug!("Selected module at index {}", module_idx);
         } else {
             log::warn!("Module '{}' not found in current project", entry.module);
-            tab.command_output = vec![format!(
+            tab.command_output.set_lines(vec![format!(
                 "Error: Module '{}' not found in current project",
                 entry.module
-            )];
+            )]);
             return;
         }
 
@@ -982,6 +1072,8 @@ impl TuiState {
             );
 
             self.pending_favorite = Some(entry);
+            // Queued commands are saved with the running one as a pipeline
+            self.pending_pipeline = self.queued_pipeline();
             self.favorite_name_input.clear();
             self.show_save_favorite_popup = true;
             log::info!("Opened save favorite dialog");
@@ -990,6 +1082,18 @@ impl TuiState {
 
     /// Save the pending favorite with the entered name
     pub fn save_pending_favorite(&mut self, goal: String) {
+        if let Some(steps) = self.pending_pipeline.take() {
+            self.pending_favorite = None;
+            if let Some(pipeline) =
+                crate::features::favorites::Favorite::pipeline(self.favorite_name_input.clone(), steps)
+            {
+                self.favorites.add(pipeline);
+            }
+            self.show_save_favorite_popup = false;
+            self.favorite_name_input.clear();
+            log::info!("Pipeline saved successfully");
+            return;
+        }
         if let Some(mut entry) = self.pending_favorite.take() {
             entry.goal = goal;
 
@@ -1013,6 +1117,7 @@ impl TuiState {
         self.show_save_favorite_popup = false;
         self.favorite_name_input.clear();
         self.pending_favorite = None;
+        self.pending_pipeline = None;
         log::info!("Canceled save favorite");
     }
 
@@ -1020,6 +1125,12 @@ impl TuiState {
     pub fn apply_favorite(&mut self, favorite: &crate::features::favorites::Favorite) {
         log::info!("Applying favorite: {}", favorite.name);
 
+        if favorite.is_pipeline() {
+            self.switch_to_modules();
+            self.run_pipeline(favorite);
+            return;
+        }
+
         let tab = self.get_active_tab_mut();
 
         // Find and select the module
@@ -1028,30 +1139,15 @@ impl TuiState {
             log::debug!("Selected module at index {}", module_idx);
         } else {
             log::warn!("Module '{}' not found in current project", favorite.module);
-            tab.command_output = vec![format!(
+            tab.command_output.set_lines(vec![format!(
                 "Error: Module '{}' not found in current project",
                 favorite.module
-            )];
+            )]);
             return;
         }
 
-        // Set profiles
-        for profile in &mut tab.profiles {
-            if favorite.profiles.contains(&profile.name) {
-                if !profile.is_active() {
-                    profile.state = crate::ui::state::ProfileState::ExplicitlyEnabled;
-                }
-            } else if profile.auto_activated {
-                profile.state = crate::ui::state::ProfileState::ExplicitlyDisabled;
-            } else {
-                profile.state = crate::ui::state::ProfileState::Default;
-            }
-        }
-
-        // Set flags
-        for flag in &mut tab.flags {
-            flag.enabled = favorite.flags.contains(&flag.name);
-        }
+        // Set profiles and flags
+        tab.apply_options(&favorite.profiles, &favorite.flags);
 
         // Switch to modules view
         self.switch_to_modules();
@@ -1178,11 +1274,16 @@ impl TuiState {
         let tab = self.get_active_tab();
         let project_root = tab.project_root.clone();
 
+        let active_profiles = self.collect_active_maven_profiles();
+
         // Detect Spring Boot capabilities and decide launch strategy
-        match crate::maven::detect_spring_boot_capabilities(&project_root, module) {
+        match crate::maven::detect_spring_boot_capabilities(
+            &project_root,
+            module,
+            &active_profiles,
+        ) {
             Ok(detection) => {
                 let strategy = self.decide_launch_strategy(&detection);
-                let active_profiles = self.collect_active_maven_profiles();
                 let jvm_args = self.build_jvm_args_for_launcher();
 
                 self.execute_launch_command(
@@ -1260,11 +1361,11 @@ impl TuiState {
 
         {
             let tab = self.get_active_tab_mut();
-            tab.command_output = vec![
+            tab.command_output.set_lines(vec![
                 format!("Error detecting launch strategy: {}", error),
                 String::new(),
                 "Falling back to spring-boot:run...".to_string(),
-            ];
+            ]);
         }
 
         // Fallback to traditional spring-boot:run
@@ -1511,13 +1612,11 @@ impl TuiState {
 }
 
 // Helper functions
-fn visual_rows(line: &str, width: usize) -> usize {
+fn rows_for_width(display_width: usize, width: usize) -> usize {
     if width == 0 {
         return 1;
     }
-    let display_width = UnicodeWidthStr::width(line);
-    let rows = display_width.div_ceil(width);
-    rows.max(1)
+    display_width.div_ceil(width).max(1)
 }
 
 fn column_for_byte_index(s: &str, byte_index: usize) -> usize {
@@ -1634,4 +1733,77 @@ mod tests {
         profile.state = ProfileState::ExplicitlyDisabled;
         assert_eq!(profile.to_maven_arg(), Some("!test".to_string()));
     }
+
+    #[test]
+    fn test_output_metrics_incremental_matches_rebuild() {
+        let mut buffer: OutputBuffer = (0..50).map(|i| "x".repeat(i * 3)).collect();
+        let mut metrics = OutputMetrics::new(40, &buffer);
+
+        buffer.extend((0..20).map(|i| "y".repeat(i * 7)));
+        buffer.trim_to(30);
+        metrics.sync(&buffer);
+
+        let rebuilt = OutputMetrics::new(40, &buffer);
+        assert_eq!(metrics.total_rows(), rebuilt.total_rows());
+
+        let target = SearchMatch {
+            line_index: buffer.end_seq() - 1,
+            start: 100,
+            end: 101,
+        };
+        assert_eq!(
+            metrics.row_for_match(&target, &buffer),
+            rebuilt.row_for_match(&target, &buffer)
+        );
+    }
+
+    #[test]
+    fn test_output_metrics_set_width_rewraps() {
+        let buffer: OutputBuffer = vec!["a".repeat(100), "b".repeat(10)].into();
+        let mut metrics = OutputMetrics::new(50, &buffer);
+        assert_eq!(metrics.total_rows(), 3);
+
+        metrics.set_width(20);
+        assert_eq!(metrics.total_rows(), 6);
+        assert_eq!(
+            metrics.total_rows(),
+            OutputMetrics::new(20, &buffer).total_rows()
+        );
+    }
+
+    #[test]
+    fn test_output_metrics_rebuilds_after_buffer_replaced() {
+        let mut buffer: OutputBuffer = vec!["one".to_string(), "two".to_string()].into();
+        let mut metrics = OutputMetrics::new(80, &buffer);
+
+        buffer.set_lines(vec!["a".repeat(200)]);
+        metrics.sync(&buffer);
+        assert_eq!(metrics.total_rows(), 3);
+
+        let target = SearchMatch {
+            line_index: buffer.first_seq(),
+            start: 170,
+            end: 171,
+        };
+        assert_eq!(metrics.row_for_match(&target, &buffer), Some(2));
+    }
+
+    #[test]
+    fn test_output_metrics_line_at_row() {
+        let mut buffer: OutputBuffer = vec!["a".repeat(25), "b".to_string(), "c".repeat(10)].into();
+        let mut metrics = OutputMetrics::new(10, &buffer);
+        let first = buffer.first_seq();
+
+        assert_eq!(metrics.line_at_row(0), Some((first, 0)));
+        assert_eq!(metrics.line_at_row(2), Some((first, 2)));
+        assert_eq!(metrics.line_at_row(3), Some((first + 1, 0)));
+        assert_eq!(metrics.line_at_row(4), Some((first + 2, 0)));
+        assert_eq!(metrics.line_at_row(5), None);
+
+        // Rows stay relative to the oldest retained line after eviction
+        buffer.trim_to(2);
+        metrics.sync(&buffer);
+        assert_eq!(metrics.line_at_row(0), Some((first + 1, 0)));
+        assert_eq!(metrics.line_at_row(1), Some((first + 2, 0)));
+    }
 }
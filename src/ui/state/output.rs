@@ -1,227 +1,75 @@
 //! Output display and scrolling management
 //!
-//! This module handles command output display, scrolling, clipboard operations,
-//! and output metrics calculation.
-
-use super::{OutputMetrics, TuiState};
+//! This module handles command output display, scrolling, and output metrics
+//! calculation.
+
+use super::{OutputBuffer, OutputMetrics, OutputStyle, StyledLineCache, TuiState};
+use crate::ui::search::SearchState;
+
+/// Borrowed state needed to draw the active tab's output
+pub struct OutputPaneView<'a> {
+    pub lines: &'a OutputBuffer,
+    pub metrics: Option<&'a OutputMetrics>,
+    pub offset: usize,
+    pub styles: &'a mut StyledLineCache,
+    /// Matches to highlight while search mode is active
+    pub search: Option<&'a SearchState>,
+}
 
 impl TuiState {
+    /// Borrow the active tab's output for drawing, preparing its styled line cache
+    pub fn output_pane_view(&mut self) -> OutputPaneView<'_> {
+        let search = if self.search_mod.is_some() {
+            self.search_state.as_ref()
+        } else {
+            None
+        };
+        let tab = &mut self.tabs[self.active_tab_index];
+        let style = OutputStyle::for_output(&tab.command_output);
+        tab.styled_lines.prepare(style, &tab.command_output);
+        OutputPaneView {
+            lines: &tab.command_output,
+            metrics: tab.output_metrics.as_ref(),
+            offset: tab.output_offset,
+            styles: &mut tab.styled_lines,
+            search,
+        }
+    }
+
     /// Synchronize the selected module's output to the display
     pub(crate) fn sync_selected_module_output(&mut self) {
         let module = self.selected_module().map(|m| m.to_string());
-        {
-            let tab = self.get_active_tab_mut();
-            if let Some(module) = module.as_deref() {
-                if let Some(module_output) = tab.module_outputs.get(module) {
-                    tab.command_output = module_output.lines.clone();
-                    tab.output_offset = module_output.scroll_offset;
-                } else {
-                    tab.command_output.clear();
-                    tab.output_offset = 0;
-                }
-            } else {
-                tab.command_output.clear();
-                tab.output_offset = 0;
-            }
-            tab.output_metrics = None;
-        }
+        self.get_active_tab_mut().show_module_output(module.as_deref());
         self.clamp_output_offset();
         self.refresh_search_matches();
     }
 
-    /// Copy output to clipboard using system tools or arboard fallback
-    pub fn yank_output(&mut self) {
-        // Extract data we need from tab first
-        let (output_text, lines) = {
-            let tab = self.get_active_tab();
-            if tab.command_output.is_empty() {
-                log::info!("No output to copy");
-                let tab = self.get_active_tab_mut();
-                tab.command_output.push(String::new());
-                tab.command_output.push("⚠ No output to copy".to_string());
-                return;
-            }
-            (tab.command_output.join("\n"), tab.command_output.len())
-        };
-
-        // Try to use system clipboard tools first (more reliable for terminal apps)
-        #[cfg(target_os = "linux")]
-        {
-            use std::io::Write;
-            use std::process::{Command, Stdio};
-
-            // Try wl-copy (Wayland) first
-            if let Ok(mut child) = Command::new("wl-copy").stdin(Stdio::piped()).spawn()
-                && let Some(mut stdin) = child.stdin.take()
-                && stdin.write_all(output_text.as_bytes()).is_ok()
-            {
-                drop(stdin);
-                if child.wait().is_ok() {
-                    log::info!("Copied {} lines via wl-copy", lines);
-                    let tab = self.get_active_tab_mut();
-                    tab.command_output.push(String::new());
-                    tab.command_output
-                        .push(format!("✓ Copied {} lines to clipboard", lines));
-                    return;
-                }
-            }
-
-            // Try xclip (X11) as fallback
-            if let Ok(mut child) = Command::new("xclip")
-                .arg("-selection")
-                .arg("clipboard")
-                .stdin(Stdio::piped())
-                .spawn()
-                && let Some(mut stdin) = child.stdin.take()
-                && stdin.write_all(output_text.as_bytes()).is_ok()
-            {
-                drop(stdin);
-                if child.wait().is_ok() {
-                    log::info!("Copied {} lines via xclip", lines);
-                    let tab = self.get_active_tab_mut();
-                    tab.command_output.push(String::new());
-                    tab.command_output
-                        .push(format!("✓ Copied {} lines to clipboard", lines));
-                    return;
-                }
-            }
-
-            // Try xsel as another X11 fallback
-            if let Ok(mut child) = Command::new("xsel")
-                .arg("--clipboard")
-                .stdin(Stdio::piped())
-                .spawn()
-                && let Some(mut stdin) = child.stdin.take()
-                && stdin.write_all(output_text.as_bytes()).is_ok()
-            {
-                drop(stdin);
-                if child.wait().is_ok() {
-                    log::info!("Copied {} lines via xsel", lines);
-                    let tab = self.get_active_tab_mut();
-                    tab.command_output.push(String::new());
-                    tab.command_output
-                        .push(format!("✓ Copied {} lines to clipboard", lines));
-                    return;
-                }
-            }
-        }
-
-        // Windows: Use PowerShell Set-Clipboard
-        #[cfg(target_os = "windows")]
-        {
-            use std::io::Write;
-            use std::process::{Command, Stdio};
-
-            // Try PowerShell Set-Clipboard
-            if let Ok(mut child) = Command::new("powershell")
-                .arg("-Command")
-                .arg("$input | Set-Clipboard")
-                .stdin(Stdio::piped())
-                .spawn()
-            {
-                if let Some(mut stdin) = child.stdin.take() {
-                    if stdin.write_all(output_text.as_bytes()).is_ok() {
-                        drop(stdin);
-                        if child.wait().is_ok() {
-                            log::info!("Copied {} lines via PowerShell Set-Clipboard", lines);
-                            let tab = self.get_active_tab_mut();
-                            tab.command_output.push(String::new());
-                            tab.command_output
-                                .push(format!("✓ Copied {} lines to clipboard", lines));
-                            return;
-                        }
-                    }
-                }
-            }
-
-            // Try clip.exe as fallback (built-in Windows command)
-            if let Ok(mut child) = Command::new("clip").stdin(Stdio::piped()).spawn() {
-                if let Some(mut stdin) = child.stdin.take() {
-                    if stdin.write_all(output_text.as_bytes()).is_ok() {
-                        drop(stdin);
-                        if child.wait().is_ok() {
-                            log::info!("Copied {} lines via clip.exe", lines);
-                            let tab = self.get_active_tab_mut();
-                            tab.command_output.push(String::new());
-                            tab.command_output
-                                .push(format!("✓ Copied {} lines to clipboard", lines));
-                            return;
-                        }
-                    }
-                }
-            }
-        }
-
-        // macOS: Use pbcopy
-        #[cfg(target_os = "macos")]
-        {
-            use std::io::Write;
-            use std::process::{Command, Stdio};
-
-            if let Ok(mut child) = Command::new("pbcopy").stdin(Stdio::piped()).spawn() {
-                if let Some(mut stdin) = child.stdin.take() {
-                    if stdin.write_all(output_text.as_bytes()).is_ok() {
-                        drop(stdin);
-                        if child.wait().is_ok() {
-                            log::info!("Copied {} lines via pbcopy", lines);
-                            let tab = self.get_active_tab_mut();
-                            tab.command_output.push(String::new());
-                            tab.command_output
-                                .push(format!("✓ Copied {} lines to clipboard", lines));
-                            return;
-                        }
-                    }
-                }
-            }
-        }
-
-        // Fallback to arboard if all system tools failed
-        let clipboard_result = if let Some(ref mut clipboard) = self.clipboard {
-            clipboard.set_text(output_text)
-        } else {
-            match arboard::Clipboard::new() {
-                Ok(mut clipboard) => {
-                    let result = clipboard.set_text(output_text);
-                    self.clipboard = Some(clipboard);
-                    result
-                }
-                Err(e) => {
-                    log::error!("Failed to initialize clipboard: {}", e);
-                    let tab = self.get_active_tab_mut();
-                    tab.command_output.push(String::new());
-                    tab.command_output
-                        .push(format!("✗ Clipboard not available: {}", e));
-                    return;
-                }
-            }
-        };
-
-        let tab = self.get_active_tab_mut();
-        match clipboard_result {
-            Ok(()) => {
-                log::info!("Copied {} lines to clipboard via arboard", lines);
-                tab.command_output.push(String::new());
-                tab.command_output
-                    .push(format!("✓ Copied {} lines to clipboard", lines));
-            }
-            Err(e) => {
-                log::error!("Failed to copy to clipboard: {}", e);
-                tab.command_output.push(String::new());
-                tab.command_output.push(format!("✗ Failed to copy: {}", e));
-            }
-        }
-    }
-
     /// Update output metrics for text wrapping calculations
     pub fn update_output_metrics(&mut self, width: u16) {
         let tab = self.get_active_tab_mut();
         tab.output_area_width = width;
-        if width == 0 || tab.command_output.is_empty() {
+        if width == 0 {
             tab.output_metrics = None;
             return;
         }
         let width_usize = width as usize;
-        tab.output_metrics = Some(OutputMetrics::new(width_usize, &tab.command_output));
+        match tab.output_metrics.as_mut() {
+            Some(metrics) => {
+                metrics.set_width(width_usize);
+                metrics.sync(&tab.command_output);
+            }
+            None => {
+                tab.output_metrics = Some(OutputMetrics::new(width_usize, &tab.command_output));
+            }
+        }
+    }
+
+    /// Bring output metrics up to date with lines appended or evicted since the last layout
+    pub(super) fn sync_output_metrics(&mut self) {
+        let tab = self.get_active_tab_mut();
+        if let Some(metrics) = tab.output_metrics.as_mut() {
+            metrics.sync(&tab.command_output);
+        }
     }
 
     /// Set output view dimensions and adjust scrolling
@@ -287,13 +135,7 @@ impl TuiState {
 
     /// Calculate maximum scroll offset based on output size
     pub(super) fn max_scroll_offset(&self) -> usize {
-        let tab = self.get_active_tab();
-        let height = tab.output_view_height as usize;
-        if height == 0 {
-            return 0;
-        }
-        let total = self.total_display_rows();
-        total.saturating_sub(height)
+        self.get_active_tab().max_scroll_offset()
     }
 }
 
@@ -533,7 +375,7 @@ mod tests {
         {
             let tab = state.get_active_tab_mut();
             let module_output = super::super::ModuleOutput {
-                lines: vec!["module line 1".to_string(), "module line 2".to_string()],
+                lines: vec!["module line 1".to_string(), "module line 2".to_string()].into(),
                 scroll_offset: 3,
                 ..Default::default()
             };
@@ -544,18 +386,51 @@ mod tests {
 
         let tab = state.get_active_tab();
         assert_eq!(tab.command_output.len(), 2);
-        assert_eq!(tab.command_output[0], "module line 1");
+        assert_eq!(&tab.command_output[0], "module line 1");
         // Offset gets clamped, so just verify it's set
         assert!(tab.output_offset <= 3);
     }
 
+    #[test]
+    fn test_switching_modules_keeps_output_metrics() {
+        let mut state = TuiState::new(
+            vec!["module1".to_string(), "module2".to_string()],
+            PathBuf::from("/test"),
+            Config::default(),
+        );
+        {
+            let tab = state.get_active_tab_mut();
+            tab.modules_list_state.select(Some(0));
+            tab.command_output = vec!["x".repeat(100), "short".to_string()].into();
+            tab.store_current_module_output();
+        }
+        state.update_output_metrics(40);
+
+        state.get_active_tab_mut().modules_list_state.select(Some(1));
+        state.sync_selected_module_output();
+        let tab = state.get_active_tab();
+        assert!(tab.output_metrics.is_none());
+        assert!(tab.module_outputs["module1"].metrics.is_some());
+
+        // The metrics come back with the lines, renumbered
+        state.get_active_tab_mut().modules_list_state.select(Some(0));
+        state.sync_selected_module_output();
+        let tab = state.get_active_tab();
+        let metrics = tab.output_metrics.as_ref().unwrap();
+        assert_eq!(metrics.total_rows(), 4);
+        assert_eq!(
+            metrics.line_at_row(3),
+            Some((tab.command_output.first_seq() + 1, 0))
+        );
+    }
+
     #[test]
     fn test_sync_selected_module_output_no_existing() {
         let mut state = create_test_state();
 
         {
             let tab = state.get_active_tab_mut();
-            tab.command_output = vec!["old output".to_string()];
+            tab.command_output.set_lines(vec!["old output".to_string()]);
             tab.output_offset = 5;
         }
 
@@ -0,0 +1,629 @@
+//! Output line storage
+//!
+//! Command output is kept in a chunked ring buffer: lines are packed into
+//! fixed-size chunks that share a single text allocation, so appending and
+//! evicting lines are O(1) and never shift the rest of the buffer.
+//!
+//! Every line receives a sequence number when it is appended. Sequence numbers
+//! are never reused, even after older lines have been evicted or the buffer has
+//! been cleared, which lets search matches and layout metrics refer to lines by
+//! a stable identity instead of a shifting vector position.
+//!
+//! Lines evicted with [`OutputBuffer::spill_to`] move to scrollback files
+//! instead of being dropped. The accessors returning `&str` only cover the
+//! lines held in memory; [`OutputBuffer::history_between`] reads the whole
+//! history, starting at [`OutputBuffer::history_first_seq`]. Spilled lines are
+//! capped: they are written to a few files in turn, and once the cap is
+//! exceeded the oldest file is dropped whole, so the disk space and the
+//! per-line offsets kept in memory stay bounded however long a build runs.
+//!
+//! Chunks are reference counted and copied on write, so cloning a buffer only
+//! shares them. Stored module outputs are snapshots of the live buffer: taking
+//! or restoring one costs a reference per chunk, and the only chunk ever copied
+//! is the partly filled last one when the live buffer appends to it again.
+
+use super::scrollback::{Scrollback, ScrollbackBlock};
+use std::borrow::Cow;
+use std::collections::VecDeque;
+use std::sync::Arc;
+
+/// Number of lines packed into a single chunk
+const CHUNK_LINES: usize = 256;
+
+/// Number of spilled lines read back from disk at once
+const SCROLLBACK_BLOCK_LINES: usize = 1024;
+
+/// Number of files the spilled lines of a buffer are spread over
+///
+/// Dropping the oldest file keeps at least this fraction of the spill limit
+/// less the size of one file.
+const SCROLLBACK_GENERATIONS: usize = 4;
+
+/// A block of consecutive lines stored in one contiguous string
+#[derive(Clone, Debug, Default)]
+struct Chunk {
+    text: String,
+    ends: Vec<usize>,
+}
+
+impl Chunk {
+    fn len(&self) -> usize {
+        self.ends.len()
+    }
+
+    fn is_full(&self) -> bool {
+        self.ends.len() >= CHUNK_LINES
+    }
+
+    fn push(&mut self, line: &str) {
+        self.text.push_str(line);
+        self.ends.push(self.text.len());
+    }
+
+    fn get(&self, index: usize) -> Option<&str> {
+        let end = *self.ends.get(index)?;
+        let start = if index == 0 { 0 } else { self.ends[index - 1] };
+        Some(&self.text[start..end])
+    }
+
+    fn clear(&mut self) {
+        self.text.clear();
+        self.ends.clear();
+    }
+}
+
+/// Chunked ring buffer of output lines with stable sequence numbers
+#[derive(Debug, Default)]
+pub struct OutputBuffer {
+    /// Chunks, possibly shared with snapshots of the buffer
+    chunks: VecDeque<Arc<Chunk>>,
+    /// Evicted chunk no snapshot used, kept around so its allocation can be reused
+    spare: Option<Chunk>,
+    /// Number of already evicted lines at the start of the front chunk
+    head: usize,
+    len: usize,
+    first_seq: usize,
+    /// Spilled lines, oldest file first, directly preceding the lines held in memory
+    scrollback: VecDeque<Scrollback>,
+}
+
+/// Clones share the chunks and the scrollback; nothing is copied but the
+/// chunk references, so a snapshot can be taken on the UI thread at any size.
+impl Clone for OutputBuffer {
+    fn clone(&self) -> Self {
+        Self {
+            chunks: self.chunks.clone(),
+            // The spare allocation belongs to the original
+            spare: None,
+            head: self.head,
+            len: self.len,
+            first_seq: self.first_seq,
+            scrollback: self.scrollback.clone(),
+        }
+    }
+}
+
+impl OutputBuffer {
+    pub fn new() -> Self {
+        Self::default()
+    }
+
+    /// Number of lines currently held
+    pub fn len(&self) -> usize {
+        self.len
+    }
+
+    pub fn is_empty(&self) -> bool {
+        self.len == 0
+    }
+
+    /// Sequence number of the oldest retained line
+    pub fn first_seq(&self) -> usize {
+        self.first_seq
+    }
+
+    /// Sequence number the next appended line will receive
+    pub fn end_seq(&self) -> usize {
+        self.first_seq + self.len
+    }
+
+    /// Convert a sequence number into a position in the buffer
+    pub fn position_of(&self, seq: usize) -> Option<usize> {
+        let position = seq.checked_sub(self.first_seq)?;
+        (position < self.len).then_some(position)
+    }
+
+    /// Append a line and return its sequence number
+    pub fn push(&mut self, line: impl AsRef<str>) -> usize {
+        if self.chunks.back().is_none_or(Chunk::is_full) {
+            let chunk = self.spare.take().unwrap_or_default();
+            self.chunks.push_back(Arc::new(chunk));
+        }
+        if let Some(chunk) = self.chunks.back_mut() {
+            // Copies the chunk first if a snapshot still shares it
+            Arc::make_mut(chunk).push(line.as_ref());
+        }
+        let seq = self.end_seq();
+        self.len += 1;
+        seq
+    }
+
+    /// Evict up to `count` of the oldest lines, returning how many were dropped
+    pub fn evict_front(&mut self, count: usize) -> usize {
+        let count = count.min(self.len);
+        let mut remaining = count;
+        while remaining > 0 {
+            let available = self.chunks.front().map(Chunk::len).unwrap_or(0) - self.head;
+            if remaining < available {
+                self.head += remaining;
+                remaining = 0;
+            } else {
+                remaining -= available;
+                self.recycle_front();
+            }
+        }
+        self.len -= count;
+        self.first_seq += count;
+        count
+    }
+
+    /// Evict the oldest lines so that at most `max_lines` remain
+    pub fn trim_to(&mut self, max_lines: usize) -> usize {
+        let evicted = self.evict_front(self.len.saturating_sub(max_lines));
+        if evicted > 0 {
+            // The history must stay contiguous
+            self.scrollback.clear();
+        }
+        evicted
+    }
+
+    /// Move the oldest lines to scrollback files so that at most `max_lines` stay in memory
+    ///
+    /// About `max_spilled` lines are kept on disk; beyond that the oldest file
+    /// of spilled lines is dropped. Lines are dropped instead when the
+    /// scrollback cannot be written. Returns how many lines left memory.
+    pub fn spill_to(&mut self, max_lines: usize, max_spilled: usize) -> usize {
+        let count = self.len.saturating_sub(max_lines);
+        if count == 0 {
+            return 0;
+        }
+        if max_spilled == 0 {
+            return self.trim_to(max_lines);
+        }
+        if let Err(e) = self.spill_front(count, max_spilled) {
+            log::warn!("Failed to spill output to disk, dropping old lines: {}", e);
+            self.scrollback.clear();
+        }
+        self.evict_front(count)
+    }
+
+    fn spill_front(&mut self, count: usize, max_spilled: usize) -> std::io::Result<()> {
+        let generation_lines = (max_spilled / SCROLLBACK_GENERATIONS).max(1);
+        if !self.scrollback.back().is_some_and(|scrollback| {
+            scrollback.len() < generation_lines && scrollback.can_append(self.first_seq)
+        }) {
+            self.scrollback.push_back(Scrollback::create(self.first_seq)?);
+        }
+
+        let mut text = String::new();
+        let mut ends = Vec::with_capacity(count);
+        for (_, line) in self.lines_between(self.first_seq, self.first_seq + count) {
+            text.push_str(line);
+            ends.push(text.len());
+        }
+        if let Some(scrollback) = self.scrollback.back_mut() {
+            scrollback.append(&text, &ends)?;
+        }
+
+        // Drop whole files of the oldest lines beyond the limit
+        while self.scrollback.len() > 1 && self.spilled_len() > max_spilled {
+            if let Some(dropped) = self.scrollback.pop_front() {
+                log::debug!("Dropped {} spilled output lines", dropped.len());
+            }
+        }
+        Ok(())
+    }
+
+    /// Number of lines moved to scrollback files
+    pub fn spilled_len(&self) -> usize {
+        self.scrollback.iter().map(Scrollback::len).sum()
+    }
+
+    /// Sequence number of the oldest line in the history, spilled or not
+    pub fn history_first_seq(&self) -> usize {
+        self.scrollback
+            .front()
+            .map_or(self.first_seq, Scrollback::first_seq)
+    }
+
+    /// Iterate over the history in `[start_seq, end_seq)`, reading spilled lines from disk
+    pub fn history_between(&self, start_seq: usize, end_seq: usize) -> HistoryLines<'_> {
+        let start = start_seq.max(self.history_first_seq());
+        HistoryLines {
+            buffer: self,
+            next: start,
+            end: end_seq.min(self.end_seq()).max(start),
+            block: ScrollbackBlock::default(),
+        }
+    }
+
+    /// Get a line of the history by its sequence number
+    pub fn history_line(&self, seq: usize) -> Option<Cow<'_, str>> {
+        if seq < self.history_first_seq() || seq >= self.end_seq() {
+            return None;
+        }
+        self.history_between(seq, seq + 1).next().map(|(_, line)| line)
+    }
+
+    /// Remove all lines; sequence numbers keep increasing from where they were
+    pub fn clear(&mut self) {
+        self.evict_front(self.len);
+        self.scrollback.clear();
+    }
+
+    /// Replace the whole content of the buffer
+    pub fn set_lines<I>(&mut self, lines: I)
+    where
+        I: IntoIterator,
+        I::Item: AsRef<str>,
+    {
+        self.clear();
+        self.extend(lines);
+    }
+
+    /// Replace the whole content with a snapshot of another buffer, sharing its storage
+    ///
+    /// The snapshot is renumbered so that sequence numbers keep increasing
+    /// from where they were, as with [`set_lines`](Self::set_lines).
+    pub fn restore(&mut self, snapshot: &OutputBuffer) {
+        let next_seq = self.end_seq();
+        let spare = self.spare.take();
+        *self = snapshot.clone();
+        self.spare = spare;
+
+        let shift = self.first_seq - self.history_first_seq();
+        self.first_seq = next_seq + shift;
+        let mut seq = next_seq;
+        for scrollback in &mut self.scrollback {
+            scrollback.set_first_seq(seq);
+            seq += scrollback.len();
+        }
+    }
+
+    /// Get a line by its position in the buffer
+    pub fn get(&self, index: usize) -> Option<&str> {
+        if index >= self.len {
+            return None;
+        }
+        let slot = self.head + index;
+        self.chunks.get(slot / CHUNK_LINES)?.get(slot % CHUNK_LINES)
+    }
+
+    /// Get a line by its sequence number
+    pub fn line(&self, seq: usize) -> Option<&str> {
+        self.get(self.position_of(seq)?)
+    }
+
+    pub fn first(&self) -> Option<&str> {
+        self.get(0)
+    }
+
+    pub fn last(&self) -> Option<&str> {
+        self.get(self.len.checked_sub(1)?)
+    }
+
+    /// Iterate over all lines, oldest first
+    pub fn iter(&self) -> impl DoubleEndedIterator<Item = &str> + ExactSizeIterator + '_ {
+        (0..self.len).map(move |index| self.get(index).unwrap_or_default())
+    }
+
+    /// Iterate over the lines whose sequence numbers fall in `[start_seq, end_seq)`
+    pub fn lines_between(
+        &self,
+        start_seq: usize,
+        end_seq: usize,
+    ) -> impl DoubleEndedIterator<Item = (usize, &str)> + '_ {
+        let start = start_seq.max(self.first_seq);
+        let end = end_seq.min(self.end_seq()).max(start);
+        (start..end).map(move |seq| (seq, self.line(seq).unwrap_or_default()))
+    }
+
+    /// Join lines of the history in `[start_seq, end_seq)` with a separator
+    pub fn join_between(&self, start_seq: usize, end_seq: usize, separator: &str) -> String {
+        let mut text = String::new();
+        for (index, (_, line)) in self.history_between(start_seq, end_seq).enumerate() {
+            if index > 0 {
+                text.push_str(separator);
+            }
+            text.push_str(&line);
+        }
+        text
+    }
+
+    /// Join the whole history with a separator
+    pub fn join(&self, separator: &str) -> String {
+        self.join_between(self.history_first_seq(), self.end_seq(), separator)
+    }
+
+    /// Copy all lines into owned strings
+    pub fn to_vec(&self) -> Vec<String> {
+        self.iter().map(str::to_string).collect()
+    }
+
+    fn recycle_front(&mut self) {
+        // Chunks still used by a snapshot are left to it
+        if let Some(Ok(mut chunk)) = self.chunks.pop_front().map(Arc::try_unwrap) {
+            chunk.clear();
+            self.spare = Some(chunk);
+        }
+        self.head = 0;
+    }
+}
+
+/// Iterator over the history of an output buffer
+///
+/// Spilled lines are read from disk a block at a time and yielded as owned
+/// strings; lines held in memory are borrowed.
+pub struct HistoryLines<'a> {
+    buffer: &'a OutputBuffer,
+    next: usize,
+    end: usize,
+    block: ScrollbackBlock,
+}
+
+impl<'a> Iterator for HistoryLines<'a> {
+    type Item = (usize, Cow<'a, str>);
+
+    fn next(&mut self) -> Option<Self::Item> {
+        if self.next >= self.end {
+            return None;
+        }
+        let seq = self.next;
+        self.next += 1;
+
+        if seq >= self.buffer.first_seq {
+            return Some((seq, Cow::Borrowed(self.buffer.line(seq).unwrap_or_default())));
+        }
+        if !self.block.contains(seq) {
+            let scrollback = self
+                .buffer
+                .scrollback
+                .iter()
+                .find(|scrollback| seq < scrollback.end_seq())?;
+            let block_end = (seq + SCROLLBACK_BLOCK_LINES)
+                .min(self.end)
+                .min(scrollback.end_seq());
+            self.block = scrollback.read(seq, block_end).unwrap_or_else(|e| {
+                log::warn!("Failed to read output scrollback: {}", e);
+                ScrollbackBlock::default()
+            });
+        }
+        let line = self.block.line(seq).unwrap_or_default();
+        Some((seq, Cow::Owned(line.to_string())))
+    }
+}
+
+impl<S: AsRef<str>> Extend<S> for OutputBuffer {
+    fn extend<I: IntoIterator<Item = S>>(&mut self, lines: I) {
+        for line in lines {
+            self.push(line);
+        }
+    }
+}
+
+impl<S: AsRef<str>> FromIterator<S> for OutputBuffer {
+    fn from_iter<I: IntoIterator<Item = S>>(lines: I) -> Self {
+        let mut buffer = Self::new();
+        buffer.extend(lines);
+        buffer
+    }
+}
+
+impl From<Vec<String>> for OutputBuffer {
+    fn from(lines: Vec<String>) -> Self {
+        lines.into_iter().collect()
+    }
+}
+
+impl std::ops::Index<usize> for OutputBuffer {
+    type Output = str;
+
+    fn index(&self, index: usize) -> &str {
+        match self.get(index) {
+            Some(line) => line,
+            None => panic!(
+                "output line index {} out of range for buffer of {} lines",
+                index, self.len
+            ),
+        }
+    }
+}
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+
+    fn buffer_of(count: usize) -> OutputBuffer {
+        (0..count).map(|i| format!("line {}", i)).collect()
+    }
+
+    #[test]
+    fn test_push_and_get() {
+        let mut buffer = OutputBuffer::new();
+        assert!(buffer.is_empty());
+        assert_eq!(buffer.push("first"), 0);
+        assert_eq!(buffer.push(String::from("second")), 1);
+        assert_eq!(buffer.len(), 2);
+        assert_eq!(buffer.get(0), Some("first"));
+        assert_eq!(&buffer[1], "second");
+        assert_eq!(buffer.get(2), None);
+    }
+
+    #[test]
+    fn test_empty_lines_are_kept() {
+        let buffer: OutputBuffer = vec![String::new(), "x".to_string(), String::new()].into();
+        assert_eq!(buffer.len(), 3);
+        assert_eq!(buffer.get(0), Some(""));
+        assert_eq!(buffer.get(2), Some(""));
+    }
+
+    #[test]
+    fn test_spans_multiple_chunks() {
+        let buffer = buffer_of(CHUNK_LINES * 3 + 7);
+        assert_eq!(buffer.len(), CHUNK_LINES * 3 + 7);
+        assert_eq!(buffer.get(CHUNK_LINES), Some(format!("line {}", CHUNK_LINES).as_str()));
+        assert_eq!(
+            buffer.last(),
+            Some(format!("line {}", CHUNK_LINES * 3 + 6).as_str())
+        );
+    }
+
+    #[test]
+    fn test_trim_keeps_sequence_numbers_stable() {
+        let mut buffer = buffer_of(1000);
+        let evicted = buffer.trim_to(300);
+        assert_eq!(evicted, 700);
+        assert_eq!(buffer.len(), 300);
+        assert_eq!(buffer.first_seq(), 700);
+        assert_eq!(buffer.first(), Some("line 700"));
+        assert_eq!(buffer.line(999), Some("line 999"));
+        assert_eq!(buffer.line(699), None);
+        assert_eq!(buffer.position_of(750), Some(50));
+    }
+
+    #[test]
+    fn test_eviction_then_append() {
+        let mut buffer = OutputBuffer::new();
+        for i in 0..5000 {
+            buffer.push(format!("line {}", i));
+            buffer.trim_to(100);
+        }
+        assert_eq!(buffer.len(), 100);
+        assert_eq!(buffer.first(), Some("line 4900"));
+        assert_eq!(buffer.last(), Some("line 4999"));
+        assert!(buffer.chunks.len() <= 100 / CHUNK_LINES + 2);
+        let collected: Vec<&str> = buffer.iter().collect();
+        assert_eq!(collected.len(), 100);
+        assert_eq!(collected[0], "line 4900");
+    }
+
+    #[test]
+    fn test_clear_continues_sequence() {
+        let mut buffer = buffer_of(10);
+        buffer.clear();
+        assert!(buffer.is_empty());
+        assert_eq!(buffer.first_seq(), 10);
+        assert_eq!(buffer.push("next"), 10);
+        assert_eq!(buffer.line(10), Some("next"));
+    }
+
+    #[test]
+    fn test_set_lines_replaces_content() {
+        let mut buffer = buffer_of(3);
+        buffer.set_lines(vec!["a", "b"]);
+        assert_eq!(buffer.to_vec(), vec!["a".to_string(), "b".to_string()]);
+        assert_eq!(buffer.first_seq(), 3);
+    }
+
+    #[test]
+    fn test_spilled_lines_stay_in_history() {
+        let mut buffer = buffer_of(3000);
+        assert_eq!(buffer.spill_to(500, usize::MAX), 2500);
+        assert_eq!(buffer.len(), 500);
+        assert_eq!(buffer.first(), Some("line 2500"));
+        assert_eq!(buffer.spilled_len(), 2500);
+        assert_eq!(buffer.history_first_seq(), 0);
+
+        buffer.push("line 3000");
+        buffer.spill_to(500, usize::MAX);
+        assert_eq!(buffer.spilled_len(), 2501);
+        assert_eq!(buffer.history_line(7).as_deref(), Some("line 7"));
+        assert_eq!(buffer.history_line(2500).as_deref(), Some("line 2500"));
+        assert_eq!(buffer.history_line(3001), None);
+
+        let history: Vec<(usize, String)> = buffer
+            .history_between(1020, 1030)
+            .map(|(seq, line)| (seq, line.into_owned()))
+            .collect();
+        assert_eq!(history.len(), 10);
+        assert_eq!(history[4], (1024, "line 1024".to_string()));
+        assert_eq!(buffer.history_between(0, usize::MAX).count(), 3001);
+        assert_eq!(buffer.join_between(2499, 2502, ","), "line 2499,line 2500,line 2501");
+
+        // Clearing or trimming drops the history with the lines
+        buffer.trim_to(100);
+        assert_eq!(buffer.history_first_seq(), buffer.first_seq());
+        buffer.set_lines(vec!["new"]);
+        assert_eq!(buffer.spilled_len(), 0);
+    }
+
+    #[test]
+    fn test_spilled_lines_are_capped() {
+        let mut buffer = OutputBuffer::new();
+        for i in 0..100 {
+            buffer.push(format!("line {}", i));
+            buffer.spill_to(10, 40);
+        }
+        // Whole files of ten lines are dropped past the cap
+        assert!(buffer.spilled_len() <= 40);
+        assert!(buffer.spilled_len() > 30);
+        assert_eq!(buffer.history_first_seq(), 90 - buffer.spilled_len());
+        let first = buffer.history_first_seq();
+        assert_eq!(
+            buffer.history_line(first).as_deref(),
+            Some(format!("line {}", first).as_str())
+        );
+        assert_eq!(buffer.history_between(0, usize::MAX).count(), 100 - first);
+
+        // Without room on disk the lines are dropped
+        buffer.spill_to(5, 0);
+        assert_eq!(buffer.spilled_len(), 0);
+        assert_eq!(buffer.len(), 5);
+    }
+
+    #[test]
+    fn test_snapshots_share_chunks_until_written() {
+        let mut live = buffer_of(CHUNK_LINES + 10);
+        let snapshot = live.clone();
+        assert!(Arc::ptr_eq(&live.chunks[0], &snapshot.chunks[0]));
+
+        // Appending copies only the partly filled chunk
+        live.push("appended");
+        assert!(Arc::ptr_eq(&live.chunks[0], &snapshot.chunks[0]));
+        assert!(!Arc::ptr_eq(&live.chunks[1], &snapshot.chunks[1]));
+        assert_eq!(snapshot.len(), CHUNK_LINES + 10);
+        assert_eq!(snapshot.last(), Some(format!("line {}", CHUNK_LINES + 9).as_str()));
+
+        // Evicting a shared chunk leaves it to the snapshot
+        live.trim_to(5);
+        assert!(live.spare.is_none());
+        assert_eq!(snapshot.first(), Some("line 0"));
+    }
+
+    #[test]
+    fn test_restore_continues_sequence() {
+        let mut stored = buffer_of(3000);
+        stored.spill_to(500, usize::MAX);
+        let mut live = buffer_of(10);
+        live.clear();
+
+        live.restore(&stored);
+        assert_eq!(live.history_first_seq(), 10);
+        assert_eq!(live.first_seq(), 2510);
+        assert_eq!(live.first(), Some("line 2500"));
+        assert_eq!(live.history_line(17).as_deref(), Some("line 7"));
+        assert_eq!(live.push("next"), 3010);
+        // The stored snapshot is unaffected
+        assert_eq!(stored.history_line(7).as_deref(), Some("line 7"));
+        assert_eq!(stored.len(), 500);
+    }
+
+    #[test]
+    fn test_join_between() {
+        let buffer = buffer_of(5);
+        assert_eq!(buffer.join("|"), "line 0|line 1|line 2|line 3|line 4");
+        assert_eq!(buffer.join_between(1, 3, "\n"), "line 1\nline 2");
+        assert_eq!(buffer.join_between(4, 100, ","), "line 4");
+        assert_eq!(buffer.join_between(3, 1, ","), "");
+    }
+}
@@ -0,0 +1,685 @@
+//! Parallel runs on marked modules
+//!
+//! Marked modules run a goal as separate Maven processes, queued in the
+//! order given by their [`BuildSchedule`] and started as the job queue admits
+//! them. Every process streams into the
+//! output of its own module, so selecting a module shows its build, and the
+//! build status popup sums up the progress and failures of the whole run.
+
+use super::build_planning::PlannedBuild;
+use super::commands::CommandOptions;
+use super::project_tab::append_lines;
+use super::{ModuleOutput, OutputBuffer, ProjectTab, TuiState};
+use crate::features::job_queue::{JobId, JobPriority, JobQueue};
+use crate::features::parallel_build::{BuildSchedule, JobState};
+use crate::maven::{self, ReactorGraph};
+use ratatui::widgets::ListState;
+use std::collections::HashMap;
+use std::sync::mpsc;
+use std::time::{Duration, Instant};
+
+/// How long a cancelled process that has not reported its PID yet is waited for
+const PID_WAIT: Duration = Duration::from_secs(2);
+
+/// Maven process of a module
+struct ModuleProcess {
+    receiver: mpsc::Receiver<maven::CommandUpdate>,
+    pid: Option<u32>,
+}
+
+impl ModuleProcess {
+    /// PID of the process, waiting for it while the process is being spawned
+    ///
+    /// None when the process could not be spawned.
+    fn wait_for_pid(&self) -> Option<u32> {
+        if self.pid.is_some() {
+            return self.pid;
+        }
+        let deadline = Instant::now() + PID_WAIT;
+        loop {
+            let remaining = deadline.checked_duration_since(Instant::now())?;
+            match self.receiver.recv_timeout(remaining) {
+                Ok(maven::CommandUpdate::Started(pid)) => return Some(pid),
+                Ok(_) => continue,
+                Err(_) => return None,
+            }
+        }
+    }
+}
+
+/// A goal running on several modules at once
+///
+/// The run stays on its tab once every module is done, so the status popup
+/// and the module markers keep showing its results until the next run.
+pub struct ParallelRun {
+    schedule: BuildSchedule,
+    args: Vec<String>,
+    options: CommandOptions,
+    processes: HashMap<String, ModuleProcess>,
+    started_at: Instant,
+    finished_at: Option<Instant>,
+    /// Whether the desktop notification of the finished run was taken
+    notified: bool,
+}
+
+impl ParallelRun {
+    pub fn schedule(&self) -> &BuildSchedule {
+        &self.schedule
+    }
+
+    /// Goals and options run on every module
+    pub fn command(&self) -> String {
+        self.args.join(" ")
+    }
+
+    pub fn elapsed(&self) -> Duration {
+        self.finished_at
+            .unwrap_or_else(Instant::now)
+            .duration_since(self.started_at)
+    }
+
+    pub fn is_finished(&self) -> bool {
+        self.schedule.is_finished()
+    }
+
+    pub fn has_processes(&self) -> bool {
+        !self.processes.is_empty()
+    }
+
+    /// Number of module processes running
+    pub fn running_count(&self) -> usize {
+        self.processes.len()
+    }
+
+    fn finish(&mut self, module: &str, result: Result<(), String>) {
+        self.processes.remove(module);
+        self.schedule.finish(module, result);
+        if self.schedule.is_finished() {
+            self.finished_at = Some(Instant::now());
+        }
+    }
+}
+
+impl ProjectTab {
+    /// Queue the marked modules whose turn has come in the job queue
+    pub(super) fn queue_ready_modules(&mut self, jobs: &mut JobQueue) {
+        let Some(run) = self.parallel_run.as_mut() else {
+            return;
+        };
+        for module in run.schedule.start_ready() {
+            jobs.enqueue(JobId::module(self.id, &module), JobPriority::Background);
+        }
+    }
+
+    /// Start the Maven process of a module admitted by the job queue
+    ///
+    /// Returns whether the process started.
+    pub(super) fn start_parallel_module(&mut self, module: &str) -> bool {
+        let Some(run) = self.parallel_run.as_mut() else {
+            return false;
+        };
+        if !run.schedule.start(module) {
+            return false;
+        }
+
+        let command = run.command();
+        let args: Vec<&str> = run.args.iter().map(String::as_str).collect();
+        log::info!("Starting {} for module {}", command, module);
+        let result = maven::execute_maven_command_async_with_options(
+            &self.project_root,
+            Some(module),
+            &args,
+            &run.options.profile_args,
+            self.config.maven_settings.as_deref(),
+            &run.options.flags,
+            false,
+            self.config.logging.as_ref(),
+        );
+        let (lines, started) = match result {
+            Ok(receiver) => {
+                run.processes
+                    .insert(module.to_string(), ModuleProcess { receiver, pid: None });
+                (vec![format!("Running: {} ...", command)], true)
+            }
+            Err(e) => {
+                log::error!("Failed to start command for module {}: {}", module, e);
+                let message = format!("Error starting command: {e}");
+                run.finish(module, Err(message.clone()));
+                (vec![format!("✗ {}", message)], false)
+            }
+        };
+        let output = ModuleOutput {
+            lines: OutputBuffer::from(lines),
+            scroll_offset: 0,
+            command: Some(command),
+            profiles: run.options.profile_names.clone(),
+            flags: run.options.flag_names.clone(),
+            metrics: None,
+        };
+        self.reset_module_output(module, output);
+        started
+    }
+
+    /// Replace a module's output, showing it when the module is selected
+    fn reset_module_output(&mut self, module: &str, output: ModuleOutput) {
+        let selected = self.get_selected_module().is_some_and(|selected| selected == module);
+        if selected {
+            self.stash_output_metrics();
+        }
+        self.module_outputs.insert(module.to_string(), output);
+        if selected {
+            self.show_module_output(Some(module));
+        }
+    }
+
+    /// Drain the processes of the parallel run into their modules' output
+    pub(crate) fn poll_parallel_run(&mut self) {
+        let Some(run) = self.parallel_run.as_ref() else {
+            return;
+        };
+        let output_config = self.config.output.as_ref().cloned().unwrap_or_default();
+        let max_updates_per_poll = output_config.max_updates_per_poll;
+
+        let mut updates = Vec::new();
+        for (module, process) in &run.processes {
+            let mut received = 0;
+            while received < max_updates_per_poll {
+                match process.receiver.try_recv() {
+                    Ok(update) => {
+                        let last = matches!(
+                            update,
+                            maven::CommandUpdate::Completed | maven::CommandUpdate::Error(_)
+                        );
+                        updates.push((module.clone(), update));
+                        received += 1;
+                        if last {
+                            break;
+                        }
+                    }
+                    Err(mpsc::TryRecvError::Empty) => break,
+                    Err(mpsc::TryRecvError::Disconnected) => {
+                        log::warn!("Command channel of module {} disconnected unexpectedly", module);
+                        updates.push((
+                            module.clone(),
+                            maven::CommandUpdate::Error("Command channel disconnected".to_string()),
+                        ));
+                        break;
+                    }
+                }
+            }
+            // Come back for the rest after the next frame
+            if received == max_updates_per_poll {
+                crate::utils::wakeup::wake();
+            }
+        }
+        if updates.is_empty() {
+            return;
+        }
+
+        let selected = self.get_selected_module().cloned();
+        let was_at_bottom = self.output_offset >= self.max_scroll_offset();
+        let mut selected_changed = false;
+
+        for (module, update) in updates {
+            let lines = match update {
+                maven::CommandUpdate::Started(pid) => {
+                    log::info!("Module {} started with PID: {}", module, pid);
+                    if let Some(process) = self
+                        .parallel_run
+                        .as_mut()
+                        .and_then(|run| run.processes.get_mut(&module))
+                    {
+                        process.pid = Some(pid);
+                    }
+                    continue;
+                }
+                maven::CommandUpdate::OutputLine(line) => vec![line],
+                maven::CommandUpdate::OutputBatch(lines) => lines,
+                maven::CommandUpdate::Completed => {
+                    log::info!("Module {} completed successfully in tab {}", module, self.id);
+                    if let Some(run) = self.parallel_run.as_mut() {
+                        run.finish(&module, Ok(()));
+                    }
+                    vec![String::new(), "✓ Command completed successfully".to_string()]
+                }
+                maven::CommandUpdate::Error(msg) => {
+                    log::error!("Module {} failed in tab {}: {}", module, self.id, msg);
+                    let line = format!("✗ {}", msg);
+                    if let Some(run) = self.parallel_run.as_mut() {
+                        run.finish(&module, Err(msg));
+                    }
+                    vec![String::new(), line]
+                }
+            };
+
+            if selected.as_deref() == Some(module.as_str()) {
+                self.append_output(lines, output_config.max_lines, output_config.spill_limit());
+                selected_changed = true;
+            } else {
+                let output = self.module_outputs.entry(module).or_default();
+                append_lines(
+                    &mut output.lines,
+                    lines,
+                    output_config.max_lines,
+                    output_config.spill_limit(),
+                );
+            }
+        }
+
+        if selected_changed {
+            if let Some(metrics) = self.output_metrics.as_mut() {
+                metrics.sync(&self.command_output);
+            }
+            // Follow the logs of a running module, like a single command
+            if was_at_bottom || self.is_busy() {
+                self.output_offset = self.max_scroll_offset();
+            }
+            self.store_current_module_output();
+        }
+    }
+
+    /// Desktop notification of a parallel run that finished, taken once
+    pub(crate) fn take_parallel_run_notification(&mut self) -> Option<(String, String, bool)> {
+        let run = self.parallel_run.as_mut()?;
+        if run.notified || !run.is_finished() {
+            return None;
+        }
+        run.notified = true;
+        let summary = run.schedule.summary();
+        log::info!(
+            "Parallel {} finished in tab {}: {} succeeded, {} failed, {} skipped",
+            run.command(),
+            self.id,
+            summary.succeeded,
+            summary.failed,
+            summary.skipped
+        );
+        if summary.failed == 0 && summary.skipped == 0 {
+            Some((
+                "LazyMVN - Build Complete".to_string(),
+                format!(
+                    "{} completed successfully on {} modules ✓",
+                    run.command(),
+                    summary.total()
+                ),
+                true,
+            ))
+        } else {
+            Some((
+                "LazyMVN - Build Failed".to_string(),
+                format!(
+                    "{}: {} succeeded, {} failed, {} skipped",
+                    run.command(),
+                    summary.succeeded,
+                    summary.failed,
+                    summary.skipped
+                ),
+                false,
+            ))
+        }
+    }
+
+    /// Kill the processes of the parallel run and skip the modules not started yet
+    ///
+    /// Returns whether the run was still going.
+    pub(super) fn cancel_parallel_run(&mut self) -> bool {
+        let Some(run) = self.parallel_run.as_mut() else {
+            return false;
+        };
+        if run.is_finished() {
+            return false;
+        }
+        run.schedule.cancel("cancelled");
+        // The user knows, no need to notify
+        run.notified = true;
+
+        let processes: Vec<(String, ModuleProcess)> = run.processes.drain().collect();
+        let mut killed = Vec::new();
+        for (module, process) in processes {
+            // A process still being spawned would outlive the run otherwise
+            if let Some(pid) = process.wait_for_pid() {
+                log::info!("Killing process {} of module {} in tab {}", pid, module, self.id);
+                if let Err(e) = maven::kill_process(pid) {
+                    log::error!("Failed to kill process {} of module {}: {}", pid, module, e);
+                }
+            }
+            run.finish(&module, Err("killed by user".to_string()));
+            killed.push(module);
+        }
+
+        let output_config = self.config.output.as_ref().cloned().unwrap_or_default();
+        let selected = self.get_selected_module().cloned();
+        for module in killed {
+            let lines = [String::new(), "⚠ Process killed by user".to_string()];
+            if selected.as_deref() == Some(module.as_str()) {
+                self.append_output(lines, output_config.max_lines, output_config.spill_limit());
+                self.store_current_module_output();
+            } else {
+                let output = self.module_outputs.entry(module).or_default();
+                append_lines(
+                    &mut output.lines,
+                    lines,
+                    output_config.max_lines,
+                    output_config.spill_limit(),
+                );
+            }
+        }
+        true
+    }
+}
+
+impl TuiState {
+    /// Mark or unmark the selected module for parallel runs
+    pub fn toggle_module_mark(&mut self) {
+        let Some(module) = self.selected_module().map(str::to_string) else {
+            return;
+        };
+        let tab = self.get_active_tab_mut();
+        if !tab.marked_modules.remove(&module) {
+            log::debug!("Marked module {}", module);
+            tab.marked_modules.insert(module);
+        }
+    }
+
+    /// Run a goal on every marked module, each as its own Maven process
+    ///
+    /// The reactor graph ordering the modules is read on a worker thread.
+    pub(super) fn run_marked_modules(&mut self, args: &[&str]) {
+        let tab = self.get_active_tab_mut();
+        let modules: Vec<String> = tab
+            .modules
+            .iter()
+            .filter(|module| tab.marked_modules.contains(*module))
+            .cloned()
+            .collect();
+        tab.command_output.push(format!("⏳ Ordering {} marked modules...", modules.len()));
+
+        let project_root = tab.project_root.clone();
+        let args: Vec<String> = args.iter().map(|arg| arg.to_string()).collect();
+        self.plan_build(move || PlannedBuild::Parallel {
+            graph: maven::load_reactor_graph(&project_root),
+            args,
+            modules,
+        });
+    }
+
+    /// Start a parallel run of a tab, ordered by the reactor graph when there is one
+    pub(super) fn start_parallel_run(
+        &mut self,
+        tab_index: usize,
+        args: Vec<String>,
+        modules: Vec<String>,
+        graph: Option<&ReactorGraph>,
+    ) {
+        if graph.is_none() {
+            log::warn!("Reactor graph unavailable, marked modules run without ordering");
+        }
+        let tab = &mut self.tabs[tab_index];
+        let max_concurrent = tab
+            .config
+            .parallel
+            .clone()
+            .unwrap_or_default()
+            .max_concurrent;
+        let schedule = BuildSchedule::new(graph, &modules, max_concurrent);
+        log::info!(
+            "Running {:?} on {} marked modules, at most {} at a time",
+            args,
+            modules.len(),
+            schedule.max_concurrent()
+        );
+
+        let options = CommandOptions::of(tab);
+        // Save last command for watch mode
+        tab.last_command = Some(args.clone());
+        tab.parallel_run = Some(ParallelRun {
+            schedule,
+            args,
+            options,
+            processes: HashMap::new(),
+            started_at: Instant::now(),
+            finished_at: None,
+            notified: false,
+        });
+        self.admit_jobs();
+
+        if tab_index == self.active_tab_index {
+            self.clamp_output_offset();
+            self.build_status_list_state.select(Some(0));
+            self.show_build_status();
+        }
+    }
+
+    /// State of a module in the active tab's parallel run
+    pub fn module_job_state(&self, module: &str) -> Option<&JobState> {
+        let run = self.get_active_tab().parallel_run.as_ref()?;
+        run.schedule().state_of(module)
+    }
+
+    /// Parallel build marker of each module of the active tab
+    ///
+    /// Modules of a run in progress show their state and other marked modules
+    /// a dot; once the run is over, unmarked modules keep showing its result.
+    /// Empty when no module is marked and there is no run.
+    pub fn module_markers(&self) -> Vec<&'static str> {
+        let tab = self.get_active_tab();
+        let run = tab.parallel_run.as_ref();
+        if tab.marked_modules.is_empty() && run.is_none() {
+            return Vec::new();
+        }
+        let running = run.is_some_and(|run| !run.is_finished());
+        tab.modules
+            .iter()
+            .map(|module| {
+                let state = run.and_then(|run| run.schedule().state_of(module));
+                match state {
+                    Some(state) if running => state.symbol(),
+                    _ if tab.marked_modules.contains(module) => "●",
+                    Some(state) => state.symbol(),
+                    None => " ",
+                }
+            })
+            .collect()
+    }
+
+    /// Footer line summing up the active tab's parallel run while it is going
+    pub fn parallel_status_line(&self) -> Option<String> {
+        let run = self.get_active_tab().parallel_run.as_ref()?;
+        if run.is_finished() {
+            return None;
+        }
+        let summary = run.schedule().summary();
+        let mut line = format!(
+            "⟳ {}: {}/{} modules done, {} running",
+            run.command(),
+            summary.done(),
+            summary.total(),
+            summary.running
+        );
+        if summary.queued > 0 {
+            line.push_str(&format!(", {} queued", summary.queued));
+        }
+        if summary.failed > 0 {
+            line.push_str(&format!(", {} failed", summary.failed));
+        }
+        line.push_str(" (P for details)");
+        Some(line)
+    }
+
+    /// Show the status of the active tab's parallel run
+    pub fn show_build_status(&mut self) {
+        if self.get_active_tab().parallel_run.is_none() {
+            log::debug!("No parallel run to show");
+            return;
+        }
+        self.show_build_status_popup = true;
+        if self.build_status_list_state.selected().is_none() {
+            self.build_status_list_state.select(Some(0));
+        }
+    }
+
+    /// Borrow the active tab's parallel run for drawing the status popup
+    pub fn build_status_view(&mut self) -> Option<(&ParallelRun, &mut ListState)> {
+        let run = self.tabs[self.active_tab_index].parallel_run.as_ref()?;
+        Some((run, &mut self.build_status_list_state))
+    }
+
+    pub fn hide_build_status(&mut self) {
+        self.show_build_status_popup = false;
+    }
+
+    fn build_status_len(&self) -> usize {
+        self.get_active_tab()
+            .parallel_run
+            .as_ref()
+            .map_or(0, |run| run.schedule().jobs().len())
+    }
+
+    pub fn next_build_status_item(&mut self) {
+        let len = self.build_status_len();
+        if len == 0 {
+            return;
+        }
+        let next = self
+            .build_status_list_state
+            .selected()
+            .map_or(0, |i| (i + 1) % len);
+        self.build_status_list_state.select(Some(next));
+    }
+
+    pub fn previous_build_status_item(&mut self) {
+        let len = self.build_status_len();
+        if len == 0 {
+            return;
+        }
+        let previous = self
+            .build_status_list_state
+            .selected()
+            .map_or(0, |i| if i == 0 { len - 1 } else { i - 1 });
+        self.build_status_list_state.select(Some(previous));
+    }
+
+    /// Select the module highlighted in the status popup to show its output
+    pub fn show_build_status_module_output(&mut self) {
+        let module = self.build_status_list_state.selected().and_then(|index| {
+            let run = self.get_active_tab().parallel_run.as_ref()?;
+            Some(run.schedule().jobs().get(index)?.module.clone())
+        });
+        let Some(module) = module else {
+            return;
+        };
+        let Some(index) = self
+            .get_active_tab()
+            .modules
+            .iter()
+            .position(|m| *m == module)
+        else {
+            return;
+        };
+
+        self.save_module_preferences();
+        self.get_active_tab_mut()
+            .modules_list_state
+            .select(Some(index));
+        self.sync_selected_module_output();
+        self.load_module_preferences();
+        self.hide_build_status();
+    }
+}
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+    use crate::core::config::Config;
+    use std::path::PathBuf;
+
+    fn create_test_state() -> TuiState {
+        let config = Config {
+            notifications_enabled: Some(false),
+            ..Config::default()
+        };
+        TuiState::new(
+            vec!["module1".to_string(), "module2".to_string()],
+            PathBuf::from("/test"),
+            config,
+        )
+    }
+
+    #[test]
+    fn test_module_output_is_routed_to_its_module() {
+        let mut state = create_test_state();
+        let (tx1, rx1) = mpsc::sync_channel(16);
+        let (tx2, rx2) = mpsc::sync_channel(16);
+        let modules = vec!["module1".to_string(), "module2".to_string()];
+        let tab = state.get_active_tab_mut();
+        let options = CommandOptions::of(tab);
+        let mut schedule = BuildSchedule::new(None, &modules, 2);
+        assert_eq!(schedule.start_ready(), modules);
+        for module in &modules {
+            assert!(schedule.start(module));
+        }
+        tab.parallel_run = Some(ParallelRun {
+            schedule,
+            args: vec!["test".to_string()],
+            options,
+            processes: HashMap::from([
+                ("module1".to_string(), ModuleProcess { receiver: rx1, pid: None }),
+                ("module2".to_string(), ModuleProcess { receiver: rx2, pid: None }),
+            ]),
+            started_at: Instant::now(),
+            finished_at: None,
+            notified: false,
+        });
+
+        tx1.send(maven::CommandUpdate::OutputLine("one".to_string()))
+            .unwrap();
+        tx2.send(maven::CommandUpdate::OutputLine("two".to_string()))
+            .unwrap();
+        tx2.send(maven::CommandUpdate::Error("exit code 1".to_string()))
+            .unwrap();
+        state.poll_command_updates();
+
+        let tab = state.get_active_tab();
+        assert!(tab.is_busy());
+        // module1 is selected, so its output is the live one
+        assert_eq!(tab.command_output.last(), Some("one"));
+        let other = &tab.module_outputs["module2"].lines;
+        assert!(other.iter().any(|line| line == "two"));
+        assert_eq!(other.last(), Some("✗ exit code 1"));
+        assert!(state.parallel_status_line().unwrap().contains("1 failed"));
+
+        tx1.send(maven::CommandUpdate::Completed).unwrap();
+        state.poll_command_updates();
+        let tab = state.get_active_tab();
+        assert!(!tab.is_busy());
+        let summary = tab.parallel_run.as_ref().unwrap().schedule().summary();
+        assert_eq!((summary.succeeded, summary.failed), (1, 1));
+        assert_eq!(
+            state.module_job_state("module1"),
+            Some(&JobState::Succeeded)
+        );
+    }
+
+    #[test]
+    fn test_pid_of_a_spawning_process_is_awaited() {
+        let (tx, rx) = mpsc::sync_channel(16);
+        let process = ModuleProcess { receiver: rx, pid: None };
+        tx.send(maven::CommandUpdate::OutputLine("$ mvn test".to_string()))
+            .unwrap();
+        tx.send(maven::CommandUpdate::Started(42)).unwrap();
+        assert_eq!(process.wait_for_pid(), Some(42));
+
+        // A process that failed to spawn never reports one
+        drop(tx);
+        assert_eq!(process.wait_for_pid(), None);
+    }
+
+    #[test]
+    fn test_toggle_module_mark() {
+        let mut state = create_test_state();
+        state.toggle_module_mark();
+        assert!(state.get_active_tab().marked_modules.contains("module1"));
+        state.toggle_module_mark();
+        assert!(state.get_active_tab().marked_modules.is_empty());
+    }
+}
@@ -72,10 +72,17 @@ impl TuiState {
 
     /// Check for and process any pending profile loading updates
     /// Should be called regularly from the main event loop
-    pub fn poll_profiles_updates(&mut self) {
+    ///
+    /// Returns whether the profiles pane changed, including spinner frames.
+    pub fn poll_profiles_updates(&mut self) -> bool {
         // Update spinner animation
-        if matches!(self.profile_loading_status, ProfileLoadingStatus::Loading) {
+        let spinning = matches!(self.profile_loading_status, ProfileLoadingStatus::Loading)
+            && self
+                .profile_spinner_tick
+                .is_none_or(|tick| tick.elapsed() >= super::PROFILE_SPINNER_INTERVAL);
+        if spinning {
             self.profile_spinner_frame = (self.profile_spinner_frame + 1) % 8;
+            self.profile_spinner_tick = Some(Instant::now());
         }
 
         // Check for timeout (30 seconds)
@@ -88,40 +95,106 @@ impl TuiState {
             );
             self.profiles_receiver = None;
             self.profile_loading_start_time = None;
-            return;
+            return true;
         }
 
-        if let Some(receiver) = self.profiles_receiver.as_ref() {
+        let Some(receiver) = self.profiles_receiver.as_ref() else {
+            return spinning;
+        };
+
+        let mut updates = Vec::new();
+        let disconnected = loop {
             match receiver.try_recv() {
-                Ok(Ok(profile_names)) => {
-                    log::info!(
-                        "Profiles loaded asynchronously: {} profiles",
-                        profile_names.len()
-                    );
-                    self.set_profiles(profile_names);
-                    self.profile_loading_status = ProfileLoadingStatus::Loaded;
-                    self.profiles_receiver = None;
-                    self.profile_loading_start_time = None;
-                }
-                Ok(Err(error)) => {
-                    log::error!("Failed to load profiles: {}", error);
-                    self.profile_loading_status = ProfileLoadingStatus::Error(error);
-                    self.profiles_receiver = None;
-                    self.profile_loading_start_time = None;
-                }
-                Err(mpsc::TryRecvError::Empty) => {
-                    // Still loading, nothing to do
-                }
-                Err(mpsc::TryRecvError::Disconnected) => {
-                    log::warn!("Profiles channel disconnected unexpectedly");
-                    self.profile_loading_status = ProfileLoadingStatus::Error(
-                        "Profile loading channel disconnected".to_string(),
-                    );
-                    self.profiles_receiver = None;
-                    self.profile_loading_start_time = None;
+                Ok(update) => updates.push(update),
+                Err(mpsc::TryRecvError::Empty) => break false,
+                Err(mpsc::TryRecvError::Disconnected) => break true,
+            }
+        };
+
+        let had_updates = !updates.is_empty();
+        for update in updates {
+            self.apply_profile_update(update);
+        }
+
+        if disconnected && self.profiles_receiver.is_some() {
+            log::warn!("Profiles channel disconnected unexpectedly");
+            self.profile_loading_status =
+                ProfileLoadingStatus::Error("Profile loading channel disconnected".to_string());
+            self.profiles_receiver = None;
+            self.profile_loading_start_time = None;
+        }
+        spinning || had_updates || disconnected
+    }
+
+    /// Apply one streamed profile discovery result to the active tab
+    fn apply_profile_update(&mut self, update: maven::ProfileUpdate) {
+        match update {
+            maven::ProfileUpdate::Discovered(profile_names) => {
+                self.merge_discovered_profiles(profile_names);
+            }
+            maven::ProfileUpdate::AutoActivated(profile_names) => {
+                log::debug!("Auto-activated profiles: {:?}", profile_names);
+                self.auto_activated_profiles = profile_names.into_iter().collect();
+                let tab = &mut self.tabs[self.active_tab_index];
+                for profile in &mut tab.profiles {
+                    profile.auto_activated = self.auto_activated_profiles.contains(&profile.name);
                 }
             }
+            maven::ProfileUpdate::Error(error) => {
+                log::error!("Failed to load profiles: {}", error);
+                self.profile_loading_status = ProfileLoadingStatus::Error(error);
+                self.profiles_receiver = None;
+                self.profile_loading_start_time = None;
+            }
+            maven::ProfileUpdate::Finished => {
+                let tab = self.get_active_tab();
+                log::info!(
+                    "Loaded {} profiles ({} auto-activated)",
+                    tab.profiles.len(),
+                    self.auto_activated_profiles.len()
+                );
+                self.profile_loading_status = ProfileLoadingStatus::Loaded;
+                self.profiles_receiver = None;
+                self.profile_loading_start_time = None;
+
+                // Load saved preferences for the current module now that every profile exists
+                self.load_module_preferences();
+            }
+        }
+    }
+
+    /// Add newly discovered profiles to the active tab, keeping the list sorted
+    fn merge_discovered_profiles(&mut self, profile_names: Vec<String>) {
+        let tab = &mut self.tabs[self.active_tab_index];
+        let selected_name = tab
+            .profiles_list_state
+            .selected()
+            .and_then(|index| tab.profiles.get(index))
+            .map(|profile| profile.name.clone());
+
+        let mut added = 0;
+        for name in profile_names {
+            if tab.profiles.iter().any(|profile| profile.name == name) {
+                continue;
+            }
+            let is_auto = self.auto_activated_profiles.contains(&name);
+            tab.profiles.push(MavenProfile::new(name, is_auto));
+            added += 1;
+        }
+        if added == 0 {
+            return;
         }
+
+        tab.profiles.sort_by(|a, b| a.name.cmp(&b.name));
+        let selected = selected_name
+            .and_then(|name| tab.profiles.iter().position(|profile| profile.name == name))
+            .unwrap_or(0);
+        tab.profiles_list_state.select(Some(selected));
+        log::debug!(
+            "Discovered {} new profiles ({} total)",
+            added,
+            tab.profiles.len()
+        );
     }
 
     /// Get the current spinner character for profile loading animation
@@ -137,17 +210,19 @@ impl TuiState {
         self.profile_loading_status = ProfileLoadingStatus::Loading;
         self.profile_loading_start_time = Some(Instant::now());
         self.profile_spinner_frame = 0;
+        self.profile_spinner_tick = None;
 
-        let tab = self.get_active_tab();
+        self.auto_activated_profiles.clear();
+
+        // Profiles stream in as they are discovered, so start from an empty list
+        let tab = self.get_active_tab_mut();
+        tab.profiles.clear();
+        tab.profiles_list_state.select(None);
         let project_root = tab.project_root.clone();
         let project_root_display = project_root.clone(); // Clone for logging
 
         std::thread::spawn(move || {
-            let result = maven::get_profiles(&project_root).map_err(|e| e.to_string());
-
-            if let Err(e) = tx.send(result) {
-                log::error!("Failed to send profiles result: {}", e);
-            }
+            maven::discover_profiles(&project_root, &tx);
         });
 
         log::info!(
@@ -159,6 +234,7 @@ impl TuiState {
     /// Sync output to show the selected profile's XML
     pub(super) fn sync_selected_profile_output(&mut self) {
         let tab = self.get_active_tab_mut();
+        tab.stash_output_metrics();
         if let Some(selected) = tab.profiles_list_state.selected() {
             if let Some(profile) = tab.profiles.get(selected) {
                 if let Some((xml, pom_path)) =
@@ -181,22 +257,22 @@ impl TuiState {
                         output.push(line.to_string());
                     }
 
-                    tab.command_output = output;
+                    tab.command_output.set_lines(output);
                     tab.output_offset = 0;
                 } else {
-                    tab.command_output = vec![
+                    tab.command_output.set_lines(vec![
                         format!("Profile: {}", profile.name),
                         String::new(),
                         "XML not found in POM files.".to_string(),
-                    ];
+                    ]);
                     tab.output_offset = 0;
                 }
             } else {
-                tab.command_output = vec!["No profile selected.".to_string()];
+                tab.command_output.set_lines(vec!["No profile selected.".to_string()]);
                 tab.output_offset = 0;
             }
         } else {
-            tab.command_output = vec!["No profile selected.".to_string()];
+            tab.command_output.set_lines(vec!["No profile selected.".to_string()]);
             tab.output_offset = 0;
         }
         tab.output_metrics = None;
@@ -329,6 +405,46 @@ mod tests {
         assert_eq!(state.profile_spinner_frame, 1);
     }
 
+    #[test]
+    fn test_poll_profiles_updates_streams_results() {
+        let mut state = create_test_state();
+        let (tx, rx) = mpsc::channel();
+        state.profiles_receiver = Some(rx);
+        state.profile_loading_status = ProfileLoadingStatus::Loading;
+
+        tx.send(maven::ProfileUpdate::Discovered(vec!["prod".to_string()]))
+            .unwrap();
+        tx.send(maven::ProfileUpdate::AutoActivated(vec!["dev".to_string()]))
+            .unwrap();
+        state.poll_profiles_updates();
+        assert_eq!(state.get_active_tab().profiles.len(), 1);
+        assert!(matches!(
+            state.profile_loading_status,
+            ProfileLoadingStatus::Loading
+        ));
+
+        tx.send(maven::ProfileUpdate::Discovered(vec![
+            "dev".to_string(),
+            "prod".to_string(),
+        ]))
+        .unwrap();
+        tx.send(maven::ProfileUpdate::Finished).unwrap();
+        state.poll_profiles_updates();
+
+        let tab = state.get_active_tab();
+        let names: Vec<&str> = tab.profiles.iter().map(|p| p.name.as_str()).collect();
+        assert_eq!(names, vec!["dev", "prod"]);
+        assert!(tab.profiles[0].auto_activated);
+        assert!(!tab.profiles[1].auto_activated);
+        // The selection follows the profile it was on
+        assert_eq!(tab.profiles_list_state.selected(), Some(1));
+        assert!(matches!(
+            state.profile_loading_status,
+            ProfileLoadingStatus::Loaded
+        ));
+        assert!(state.profiles_receiver.is_none());
+    }
+
     #[test]
     fn test_poll_profiles_updates_no_spinner_when_not_loading() {
         let mut state = create_test_state();
@@ -354,7 +470,7 @@ mod tests {
 
         let tab = state.get_active_tab();
         assert_eq!(tab.command_output.len(), 1);
-        assert_eq!(tab.command_output[0], "No profile selected.");
+        assert_eq!(&tab.command_output[0], "No profile selected.");
     }
 
     #[test]
@@ -399,7 +515,10 @@ mod tests {
         {
             let tab = state.get_active_tab_mut();
             tab.profiles_list_state.select(Some(0));
-            tab.output_metrics = Some(crate::ui::state::OutputMetrics::new(80, &[]));
+            tab.output_metrics = Some(crate::ui::state::OutputMetrics::new(
+                80,
+                &crate::ui::state::OutputBuffer::new(),
+            ));
         }
 
         state.sync_selected_profile_output();
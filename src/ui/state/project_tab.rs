@@ -4,14 +4,20 @@
 //! including modules, profiles, output, and running processes.
 
 use ratatui::widgets::ListState;
-use std::collections::HashMap;
+use std::collections::{HashMap, HashSet, VecDeque};
 use std::path::PathBuf;
 use std::sync::mpsc;
 use std::time::Instant;
 
 use crate::core::config;
+use crate::features::favorites::PipelineStep;
 use crate::maven;
-use crate::ui::state::{BuildFlag, MavenProfile, ModuleOutput, OutputMetrics};
+use crate::ui::state::build_planning::PlannedBuild;
+use crate::ui::state::jobs::QueuedCommand;
+use crate::ui::state::{
+    BuildFlag, MavenProfile, ModuleOutput, OutputBuffer, OutputMetrics, ParallelRun,
+    StyledLineCache,
+};
 use crate::utils::watcher::FileWatcher;
 
 /// A project tab representing a complete Maven project
@@ -30,12 +36,29 @@ pub struct ProjectTab {
     pub flags_list_state: ListState,
 
     // Command execution
-    pub command_output: Vec<String>,
+    pub command_output: OutputBuffer,
     pub output_offset: usize,
     pub is_command_running: bool,
     pub command_start_time: Option<Instant>,
     pub running_process_pid: Option<u32>,
     pub command_receiver: Option<mpsc::Receiver<maven::CommandUpdate>>,
+    /// Command waiting in the job queue for its turn to start
+    pub(super) queued_command: Option<QueuedCommand>,
+    /// Launch goal of the running command, until Maven starts the application
+    pub(super) launch_goal: Option<&'static str>,
+    /// Whether the running command counts against the job limits
+    pub(super) holds_job_slot: bool,
+    /// Build being planned on a worker thread, started once its plan arrives
+    pub(super) build_planning: Option<mpsc::Receiver<PlannedBuild>>,
+
+    // Commands to run once the running one succeeds
+    pub command_queue: VecDeque<PipelineStep>,
+    /// Step of the command started last, saved with the queue as a pipeline
+    pub(super) running_step: Option<PipelineStep>,
+
+    // Parallel execution on marked modules
+    pub marked_modules: HashSet<String>,
+    pub parallel_run: Option<ParallelRun>,
 
     // Module outputs cache
     pub module_outputs: HashMap<String, ModuleOutput>,
@@ -56,6 +79,9 @@ pub struct ProjectTab {
     pub output_view_height: u16,
     pub output_area_width: u16,
     pub output_metrics: Option<OutputMetrics>,
+    /// Module whose output the output pane shows, None while it shows something else
+    pub(super) output_module: Option<String>,
+    pub styled_lines: StyledLineCache,
 
     // Spring Boot starters (tab-specific)
     pub starters_cache: crate::features::starters::StartersCache,
@@ -159,12 +185,22 @@ impl ProjectTab {
             modules_list_state,
             profiles_list_state: ListState::default(),
             flags_list_state,
-            command_output: vec!["Ready. Select a module and press a command key.".to_string()],
+            command_output: OutputBuffer::from(vec![
+                "Ready. Select a module and press a command key.".to_string(),
+            ]),
             output_offset: 0,
             is_command_running: false,
             command_start_time: None,
             running_process_pid: None,
             command_receiver: None,
+            queued_command: None,
+            launch_goal: None,
+            holds_job_slot: true,
+            command_queue: VecDeque::new(),
+            running_step: None,
+            marked_modules: HashSet::new(),
+            parallel_run: None,
+            build_planning: None,
             module_outputs: HashMap::new(),
             config,
             module_preferences,
@@ -175,6 +211,8 @@ impl ProjectTab {
             output_view_height: 0,
             output_area_width: 0,
             output_metrics: None,
+            output_module: None,
+            styled_lines: StyledLineCache::default(),
             starters_cache,
         }
     }
@@ -208,7 +246,19 @@ impl ProjectTab {
 
     /// Check if this tab has a running process
     pub fn has_running_process(&self) -> bool {
-        self.is_command_running && self.running_process_pid.is_some()
+        (self.is_command_running && self.running_process_pid.is_some())
+            || self.parallel_run.as_ref().is_some_and(|run| run.has_processes())
+    }
+
+    /// Check if this tab runs or waits to run a command or a parallel build
+    pub fn is_busy(&self) -> bool {
+        self.is_command_running
+            || self.queued_command.is_some()
+            || self.build_planning.is_some()
+            || self
+                .parallel_run
+                .as_ref()
+                .is_some_and(|run| !run.is_finished())
     }
 
     /// Cleanup resources (kill process, save preferences)
@@ -229,6 +279,7 @@ impl ProjectTab {
             self.running_process_pid = None;
             self.is_command_running = false;
         }
+        self.cancel_parallel_run();
 
         // Save module preferences
         if let Err(e) = self.module_preferences.save(&self.project_root) {
@@ -243,7 +294,6 @@ impl ProjectTab {
     }
 
     /// Get the currently selected module
-    #[allow(dead_code)]
     pub fn get_selected_module(&self) -> Option<&String> {
         self.modules_list_state
             .selected()
@@ -255,6 +305,241 @@ impl ProjectTab {
     pub fn get_selected_module_index(&self) -> Option<usize> {
         self.modules_list_state.selected()
     }
+
+    /// Store the current command output for the selected module
+    pub(crate) fn store_current_module_output(&mut self) {
+        let Some(module) = self.get_selected_module().cloned() else {
+            return;
+        };
+        // Keep the execution context from the most recent command
+        let module_output = if let Some(existing) = self.module_outputs.get(&module) {
+            ModuleOutput {
+                lines: self.command_output.clone(),
+                scroll_offset: self.output_offset,
+                command: existing.command.clone(),
+                profiles: existing.profiles.clone(),
+                flags: existing.flags.clone(),
+                metrics: None,
+            }
+        } else {
+            ModuleOutput {
+                lines: self.command_output.clone(),
+                scroll_offset: self.output_offset,
+                ..Default::default()
+            }
+        };
+        self.output_module = Some(module.clone());
+        self.module_outputs.insert(module, module_output);
+    }
+
+    /// Keep the display metrics of the shown module output with its snapshot
+    ///
+    /// Called before the output pane shows something else, so that showing the
+    /// module again needs neither to measure its output nor to read its spilled
+    /// lines back.
+    pub(super) fn stash_output_metrics(&mut self) {
+        let Some(module) = self.output_module.take() else {
+            return;
+        };
+        // The metrics only fit a snapshot holding everything they measured
+        if let Some(output) = self.module_outputs.get_mut(&module)
+            && output.lines.end_seq() == self.command_output.end_seq()
+        {
+            output.metrics = self.output_metrics.take();
+        }
+    }
+
+    /// Show a module's stored output, or nothing, in the output pane
+    pub(super) fn show_module_output(&mut self, module: Option<&str>) {
+        self.stash_output_metrics();
+        match module.and_then(|module| self.module_outputs.get_mut(module)) {
+            Some(output) => {
+                let stored_first_seq = output.lines.history_first_seq();
+                self.command_output.restore(&output.lines);
+                self.output_offset = output.scroll_offset;
+                self.output_metrics = output.metrics.take().map(|mut metrics| {
+                    metrics.renumber(stored_first_seq, self.command_output.history_first_seq());
+                    metrics.sync(&self.command_output);
+                    metrics
+                });
+                self.output_module = module.map(str::to_string);
+            }
+            None => {
+                self.command_output.clear();
+                self.output_offset = 0;
+                self.output_metrics = None;
+            }
+        }
+    }
+
+    /// Number of display rows taken by the output, accounting for wrapping
+    pub(crate) fn total_display_rows(&self) -> usize {
+        if let Some(metrics) = self.output_metrics.as_ref() {
+            metrics.total_rows()
+        } else {
+            self.command_output.len()
+        }
+    }
+
+    /// Maximum output scroll offset for the current view height
+    pub(crate) fn max_scroll_offset(&self) -> usize {
+        let height = self.output_view_height as usize;
+        if height == 0 {
+            return 0;
+        }
+        self.total_display_rows().saturating_sub(height)
+    }
+
+    /// Drain pending updates from the running command into this tab's output
+    ///
+    /// Called for every tab, so background builds stay within their own
+    /// `max_lines` budget. Returns the desktop notification to send when the
+    /// command finished, as `(title, body, success)`.
+    pub(crate) fn poll_command_updates(&mut self) -> Option<(String, String, bool)> {
+        // Get output configuration from config or use defaults
+        let output_config = self.config.output.as_ref().cloned().unwrap_or_default();
+        let max_output_lines = output_config.max_lines;
+        let spill_limit = output_config.spill_limit();
+        let max_updates_per_poll = output_config.max_updates_per_poll;
+
+        // Collect pending updates first to avoid borrowing issues
+        let mut updates = Vec::new();
+        let mut should_clear_receiver = false;
+
+        if let Some(receiver) = self.command_receiver.as_ref() {
+            while updates.len() < max_updates_per_poll {
+                match receiver.try_recv() {
+                    Ok(update) => updates.push(update),
+                    Err(mpsc::TryRecvError::Empty) => break,
+                    Err(mpsc::TryRecvError::Disconnected) => {
+                        log::warn!("Command channel disconnected unexpectedly");
+                        should_clear_receiver = true;
+                        break;
+                    }
+                }
+            }
+            // Come back for the rest after the next frame
+            if updates.len() == max_updates_per_poll {
+                crate::utils::wakeup::wake();
+            }
+        }
+
+        // Check if we're currently at the bottom (for auto-scroll)
+        let was_at_bottom = self.output_offset >= self.max_scroll_offset();
+        let mut had_output_lines = false;
+        let mut need_notification = None;
+
+        for update in updates {
+            match update {
+                maven::CommandUpdate::Started(pid) => {
+                    log::info!("Command started with PID: {}", pid);
+                    self.running_process_pid = Some(pid);
+                }
+                maven::CommandUpdate::OutputLine(line) => {
+                    self.check_launch_started(std::slice::from_ref(&line));
+                    self.append_output([line], max_output_lines, spill_limit);
+                    had_output_lines = true;
+                }
+                maven::CommandUpdate::OutputBatch(lines) => {
+                    self.check_launch_started(&lines);
+                    self.append_output(lines, max_output_lines, spill_limit);
+                    had_output_lines = true;
+                }
+                maven::CommandUpdate::Completed => {
+                    log::info!("Command completed successfully in tab {}", self.id);
+                    self.command_output.push(String::new());
+                    self.command_output
+                        .push("✓ Command completed successfully".to_string());
+                    self.is_command_running = false;
+                    self.command_receiver = None;
+                    self.running_process_pid = None;
+
+                    need_notification = Some((
+                        "LazyMVN - Build Complete".to_string(),
+                        "Maven command completed successfully ✓".to_string(),
+                        true,
+                    ));
+                }
+                maven::CommandUpdate::Error(msg) => {
+                    log::error!("Command failed in tab {}: {}", self.id, msg);
+                    self.command_output.push(String::new());
+                    self.command_output.push(format!("✗ {}", msg));
+                    self.is_command_running = false;
+                    self.command_receiver = None;
+                    self.running_process_pid = None;
+
+                    need_notification = Some((
+                        "LazyMVN - Build Failed".to_string(),
+                        format!("Maven command failed: {}", msg),
+                        false,
+                    ));
+                }
+            }
+        }
+
+        if should_clear_receiver {
+            self.is_command_running = false;
+            self.command_receiver = None;
+        }
+
+        // Only update scroll and metrics once at the end if we had output lines
+        if had_output_lines {
+            if let Some(metrics) = self.output_metrics.as_mut() {
+                metrics.sync(&self.command_output);
+            }
+            // Auto-scroll to bottom while command is running (always follow logs)
+            // Only respect user's scroll position when command is not running
+            if was_at_bottom || self.is_command_running {
+                self.output_offset = self.max_scroll_offset();
+            }
+        }
+
+        if had_output_lines || need_notification.is_some() {
+            self.store_current_module_output();
+        }
+
+        need_notification
+    }
+
+    /// Append command output lines, keeping at most `max_lines` in memory
+    ///
+    /// Older lines are spilled to disk, up to `spill_limit` lines, when it is
+    /// set and dropped otherwise.
+    pub(super) fn append_output(
+        &mut self,
+        lines: impl IntoIterator<Item = String>,
+        max_lines: usize,
+        spill_limit: Option<usize>,
+    ) {
+        let excess = append_lines(&mut self.command_output, lines, max_lines, spill_limit);
+        if excess > 0 {
+            log::trace!(
+                "Moved {} lines out of the output buffer of tab {} (max: {}, spill limit: {:?})",
+                excess,
+                self.id,
+                max_lines,
+                spill_limit
+            );
+        }
+    }
+}
+
+/// Append lines to an output buffer, keeping at most `max_lines` in memory
+///
+/// Returns the number of lines moved out of memory.
+pub(super) fn append_lines(
+    output: &mut OutputBuffer,
+    lines: impl IntoIterator<Item = String>,
+    max_lines: usize,
+    spill_limit: Option<usize>,
+) -> usize {
+    output.extend(lines);
+
+    // Trim buffer if it exceeds max size
+    match spill_limit {
+        Some(max_spilled) => output.spill_to(max_lines, max_spilled),
+        None => output.trim_to(max_lines),
+    }
 }
 
 impl Drop for ProjectTab {
@@ -0,0 +1,328 @@
+//! Spilled output history
+//!
+//! Lines pushed out of the in-memory output buffer can be moved to a file in
+//! the lazymvn cache directory instead of being dropped. Their text is appended
+//! to the file and only the byte offset of each line stays in memory; the
+//! output buffer caps how many lines it keeps spilled.
+//!
+//! Files are removed once no buffer uses them. Those left behind by a process
+//! that crashed are removed when the next one creates its first file.
+//!
+//! Spilled lines are read back in blocks with positioned reads: drawing a
+//! screen of old output reads just those lines, and scanning the whole history
+//! never holds more than a block in memory.
+//!
+//! The file and its offsets only ever grow, so snapshots of an output buffer
+//! share them: a snapshot sees the lines that were spilled when it was taken,
+//! and whichever copy is still at the end of the file may keep appending.
+
+use std::fs::{File, OpenOptions};
+use std::io::{self, Read, Seek, SeekFrom, Write};
+use std::path::{Path, PathBuf};
+use std::sync::atomic::{AtomicUsize, Ordering};
+use std::sync::{Arc, Mutex, Once};
+
+/// Counter making the names of scrollback files unique within the process
+static NEXT_FILE_ID: AtomicUsize = AtomicUsize::new(0);
+
+/// Guards the removal of files left behind by earlier processes
+static PRUNE_STALE: Once = Once::new();
+
+/// Age after which a file of another process is stale where processes cannot be looked up
+#[cfg(not(target_os = "linux"))]
+const STALE_FILE_AGE: std::time::Duration = std::time::Duration::from_secs(24 * 60 * 60);
+
+/// Directory holding the scrollback files
+fn scrollback_dir() -> PathBuf {
+    dirs::cache_dir()
+        .unwrap_or_else(std::env::temp_dir)
+        .join("lazymvn")
+        .join("scrollback")
+}
+
+/// Remove the scrollback files of processes that are no longer running
+fn prune_stale_files(dir: &Path) {
+    let Ok(entries) = std::fs::read_dir(dir) else {
+        return;
+    };
+    let own_pid = std::process::id();
+    for entry in entries.flatten() {
+        let name = entry.file_name();
+        let Some(pid) = name
+            .to_str()
+            .and_then(|name| name.strip_prefix("lazymvn-"))
+            .filter(|name| name.ends_with(".scrollback"))
+            .and_then(|name| name.split('-').next())
+            .and_then(|pid| pid.parse::<u32>().ok())
+        else {
+            continue;
+        };
+        if pid == own_pid || process_is_alive(pid, &entry.path()) {
+            continue;
+        }
+        match std::fs::remove_file(entry.path()) {
+            Ok(()) => log::debug!("Removed stale scrollback file {:?}", entry.path()),
+            Err(e) => log::warn!("Failed to remove stale scrollback file {:?}: {}", entry.path(), e),
+        }
+    }
+}
+
+/// Whether the process that created a scrollback file may still be using it
+#[cfg(target_os = "linux")]
+fn process_is_alive(pid: u32, _path: &Path) -> bool {
+    Path::new("/proc").join(pid.to_string()).exists()
+}
+
+/// Whether the process that created a scrollback file may still be using it
+///
+/// Without a portable way to look up a process, a file counts as in use until
+/// it has not been written to for a day.
+#[cfg(not(target_os = "linux"))]
+fn process_is_alive(_pid: u32, path: &Path) -> bool {
+    std::fs::metadata(path)
+        .and_then(|metadata| metadata.modified())
+        .ok()
+        .and_then(|modified| std::time::SystemTime::now().duration_since(modified).ok())
+        .is_none_or(|age| age < STALE_FILE_AGE)
+}
+
+/// File holding spilled lines, removed once no buffer uses it
+#[derive(Debug)]
+struct ScrollbackFile {
+    path: PathBuf,
+    data: Mutex<ScrollbackData>,
+}
+
+#[derive(Debug)]
+struct ScrollbackData {
+    file: File,
+    /// Byte offset where each line starts, followed by the end of the last line
+    offsets: Vec<u64>,
+}
+
+impl ScrollbackFile {
+    fn create() -> io::Result<Self> {
+        let dir = scrollback_dir();
+        std::fs::create_dir_all(&dir)?;
+        PRUNE_STALE.call_once(|| prune_stale_files(&dir));
+        let path = dir.join(format!(
+            "lazymvn-{}-{}.scrollback",
+            std::process::id(),
+            NEXT_FILE_ID.fetch_add(1, Ordering::Relaxed)
+        ));
+        let file = OpenOptions::new()
+            .read(true)
+            .write(true)
+            .create_new(true)
+            .open(&path)?;
+        log::debug!("Created output scrollback file {:?}", path);
+        Ok(Self {
+            path,
+            data: Mutex::new(ScrollbackData {
+                file,
+                offsets: vec![0],
+            }),
+        })
+    }
+
+    fn lock(&self) -> std::sync::MutexGuard<'_, ScrollbackData> {
+        self.data.lock().unwrap_or_else(|e| e.into_inner())
+    }
+}
+
+impl Drop for ScrollbackFile {
+    fn drop(&mut self) {
+        if let Err(e) = std::fs::remove_file(&self.path) {
+            log::warn!("Failed to remove scrollback file {:?}: {}", self.path, e);
+        }
+    }
+}
+
+/// Lines spilled from an output buffer, oldest first
+///
+/// Clones share the file and see the lines spilled so far. Only a copy that
+/// has seen every line of the file may append to it; any other copy that
+/// needs to spill starts a file of its own.
+#[derive(Clone, Debug)]
+pub(super) struct Scrollback {
+    file: Arc<ScrollbackFile>,
+    first_seq: usize,
+    /// Number of lines of the file this copy sees
+    len: usize,
+}
+
+impl Scrollback {
+    /// Create an empty scrollback whose first line will be `first_seq`
+    pub fn create(first_seq: usize) -> io::Result<Self> {
+        Ok(Self {
+            file: Arc::new(ScrollbackFile::create()?),
+            first_seq,
+            len: 0,
+        })
+    }
+
+    pub fn first_seq(&self) -> usize {
+        self.first_seq
+    }
+
+    /// Renumber the lines so that the first one is `first_seq`
+    pub fn set_first_seq(&mut self, first_seq: usize) {
+        self.first_seq = first_seq;
+    }
+
+    pub fn len(&self) -> usize {
+        self.len
+    }
+
+    /// Sequence number following the last spilled line
+    pub fn end_seq(&self) -> usize {
+        self.first_seq + self.len()
+    }
+
+    /// Whether lines starting at `seq` can be appended
+    pub fn can_append(&self, seq: usize) -> bool {
+        seq == self.end_seq() && self.file.lock().offsets.len() == self.len + 1
+    }
+
+    /// Append lines stored back to back in `text`, ending at the byte offsets in `ends`
+    pub fn append(&mut self, text: &str, ends: &[usize]) -> io::Result<()> {
+        let mut data = self.file.lock();
+        if data.offsets.len() != self.len + 1 {
+            return Err(io::Error::other("scrollback file was extended by another copy"));
+        }
+        let base = data.offsets[self.len];
+        data.file.seek(SeekFrom::Start(base))?;
+        data.file.write_all(text.as_bytes())?;
+        data.offsets.extend(ends.iter().map(|&end| base + end as u64));
+        self.len += ends.len();
+        Ok(())
+    }
+
+    /// Read the lines in `[start_seq, end_seq)` back from the file
+    pub fn read(&self, start_seq: usize, end_seq: usize) -> io::Result<ScrollbackBlock> {
+        let start_seq = start_seq.clamp(self.first_seq, self.end_seq());
+        let end_seq = end_seq.clamp(start_seq, self.end_seq());
+        let (start, end) = (start_seq - self.first_seq, end_seq - self.first_seq);
+
+        let mut data = self.file.lock();
+        let base = data.offsets[start];
+        let ends: Vec<usize> = data.offsets[start + 1..=end]
+            .iter()
+            .map(|&offset| (offset - base) as usize)
+            .collect();
+        let mut bytes = vec![0; ends.last().copied().unwrap_or(0)];
+        data.file.seek(SeekFrom::Start(base))?;
+        data.file.read_exact(&mut bytes)?;
+        drop(data);
+
+        let text = String::from_utf8(bytes)
+            .unwrap_or_else(|e| String::from_utf8_lossy(e.as_bytes()).into_owned());
+        Ok(ScrollbackBlock {
+            first_seq: self.first_seq + start,
+            text,
+            ends,
+        })
+    }
+}
+
+/// Consecutive spilled lines read back into memory
+#[derive(Debug, Default)]
+pub(super) struct ScrollbackBlock {
+    first_seq: usize,
+    text: String,
+    ends: Vec<usize>,
+}
+
+impl ScrollbackBlock {
+    pub fn contains(&self, seq: usize) -> bool {
+        seq >= self.first_seq && seq < self.first_seq + self.ends.len()
+    }
+
+    pub fn line(&self, seq: usize) -> Option<&str> {
+        let index = seq.checked_sub(self.first_seq)?;
+        let end = *self.ends.get(index)?;
+        let start = if index == 0 { 0 } else { self.ends[index - 1] };
+        self.text.get(start..end)
+    }
+}
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+
+    fn spill(scrollback: &mut Scrollback, lines: &[&str]) {
+        let mut text = String::new();
+        let mut ends = Vec::new();
+        for line in lines {
+            text.push_str(line);
+            ends.push(text.len());
+        }
+        scrollback.append(&text, &ends).unwrap();
+    }
+
+    #[test]
+    fn test_reads_back_spilled_lines() {
+        let mut scrollback = Scrollback::create(10).unwrap();
+        spill(&mut scrollback, &["first", "", "third"]);
+        spill(&mut scrollback, &["fourth ✓"]);
+        assert_eq!(scrollback.end_seq(), 14);
+
+        let block = scrollback.read(11, 14).unwrap();
+        assert!(!block.contains(10));
+        assert_eq!(block.line(11), Some(""));
+        assert_eq!(block.line(12), Some("third"));
+        assert_eq!(block.line(13), Some("fourth ✓"));
+        assert_eq!(block.line(14), None);
+
+        let clamped = scrollback.read(0, 100).unwrap();
+        assert_eq!(clamped.line(10), Some("first"));
+    }
+
+    #[test]
+    fn test_only_the_copy_at_the_end_appends() {
+        let mut scrollback = Scrollback::create(0).unwrap();
+        spill(&mut scrollback, &["a", "b"]);
+        let mut clone = scrollback.clone();
+
+        assert!(scrollback.can_append(2));
+        assert!(!scrollback.can_append(3));
+        assert!(clone.can_append(2));
+
+        spill(&mut clone, &["c"]);
+        assert!(!scrollback.can_append(2));
+        assert!(scrollback.append("d", &[1]).is_err());
+        assert_eq!(scrollback.len(), 2);
+        assert_eq!(clone.read(0, 3).unwrap().line(2), Some("c"));
+        assert_eq!(scrollback.read(0, 3).unwrap().line(2), None);
+    }
+
+    #[test]
+    fn test_file_is_removed_with_last_user() {
+        let scrollback = Scrollback::create(0).unwrap();
+        let path = scrollback.file.path.clone();
+        let clone = scrollback.clone();
+        drop(scrollback);
+        assert!(path.exists());
+        drop(clone);
+        assert!(!path.exists());
+    }
+
+    #[cfg(target_os = "linux")]
+    #[test]
+    fn test_prunes_files_of_exited_processes() {
+        let dir = tempfile::tempdir().unwrap();
+        let stale = dir.path().join(format!("lazymvn-{}-0.scrollback", u32::MAX));
+        let own = dir
+            .path()
+            .join(format!("lazymvn-{}-0.scrollback", std::process::id()));
+        let other = dir.path().join("notes.txt");
+        for path in [&stale, &own, &other] {
+            std::fs::write(path, "line").unwrap();
+        }
+
+        prune_stale_files(dir.path());
+        assert!(!stale.exists());
+        assert!(own.exists());
+        assert!(other.exists());
+    }
+}
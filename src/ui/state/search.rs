@@ -4,20 +4,28 @@
 //! including search history, match navigation, and visual highlighting.
 
 use super::TuiState;
-use crate::ui::search::{SearchMatch, SearchState, collect_search_matches};
+use crate::ui::search::{SearchMatch, SearchState};
 use regex::Regex;
 
 impl TuiState {
     /// Check if there are active search results
+    ///
+    /// A running global search counts, since its hits are still streaming in.
     pub fn has_search_results(&self) -> bool {
-        self.search_state
-            .as_ref()
-            .map(|s| s.has_matches())
-            .unwrap_or(false)
+        self.global_search.is_some()
+            || self
+                .search_state
+                .as_ref()
+                .map(|s| s.has_matches())
+                .unwrap_or(false)
     }
 
     /// Perform live search without committing to history
     pub fn live_search(&mut self) {
+        // Searching all tabs runs in the background once submitted
+        if self.search_all_tabs {
+            return;
+        }
         if let Some(pattern) = self.search_input.clone() {
             if pattern.is_empty() {
                 self.search_state = None;
@@ -36,6 +44,8 @@ impl TuiState {
         self.search_input = Some(String::new());
         self.search_history_index = None;
         self.search_error = None;
+        self.search_all_tabs = false;
+        self.clear_global_search();
     }
 
     /// Cancel search input mode
@@ -43,6 +53,7 @@ impl TuiState {
         self.search_input = None;
         self.search_history_index = None;
         self.search_error = None;
+        self.search_all_tabs = false;
     }
 
     /// Add character to search input
@@ -101,7 +112,12 @@ impl TuiState {
     pub fn submit_search(&mut self) {
         if let Some(pattern) = self.search_input.clone() {
             if !pattern.is_empty() {
-                match self.apply_search_query(pattern.clone(), false) {
+                let result = if self.search_all_tabs {
+                    self.start_global_search(pattern.clone())
+                } else {
+                    self.apply_search_query(pattern.clone(), false)
+                };
+                match result {
                     Ok(_) => {
                         if !self.search_history.contains(&pattern) {
                             self.search_history.push(pattern);
@@ -124,21 +140,21 @@ impl TuiState {
     }
 
     /// Apply search query with regex matching
-    fn apply_search_query(
+    pub(super) fn apply_search_query(
         &mut self,
         query: String,
         keep_current: bool,
     ) -> Result<(), regex::Error> {
         let regex = Regex::new(&query)?;
-        let tab = self.get_active_tab();
-        let matches = collect_search_matches(&tab.command_output, &regex);
+        let mut search = SearchState::new(query, regex);
+        search.reset(&self.get_active_tab().command_output);
         let mut current_index = 0usize;
 
         if keep_current && let Some(existing) = self.search_state.as_ref() {
-            current_index = existing.current.min(matches.len().saturating_sub(1));
+            current_index = existing.current.min(search.total_matches().saturating_sub(1));
         }
 
-        self.search_state = Some(SearchState::new(query, matches));
+        self.search_state = Some(search);
 
         let current_match = if let Some(search) = self.search_state.as_mut() {
             search.jump_to_match(current_index);
@@ -154,20 +170,46 @@ impl TuiState {
         Ok(())
     }
 
-    /// Refresh search matches after output changes
+    /// Refresh search matches after the output was replaced
+    ///
+    /// Reuses the compiled regex and rescans the new output from the start.
     pub(super) fn refresh_search_matches(&mut self) {
-        if let Some(existing) = self.search_state.as_ref().cloned() {
-            let _ = self.apply_search_query(existing.query, true);
+        let tab = &self.tabs[self.active_tab_index];
+        let current_match = if let Some(search) = self.search_state.as_mut() {
+            let current = search.current;
+            search.reset(&tab.command_output);
+            search.jump_to_match(current.min(search.total_matches().saturating_sub(1)));
+            search.current_match().cloned()
         } else {
-            self.search_state = None;
+            None
+        };
+
+        if let Some(match_to_center) = current_match {
+            self.center_on_match(match_to_center);
+        }
+    }
+
+    /// Match lines streamed into the active tab since the last update
+    ///
+    /// Unlike `refresh_search_matches` this keeps the current match and does
+    /// not move the view, so following a running build is not disturbed.
+    pub(super) fn sync_search_matches(&mut self) {
+        let tab = &self.tabs[self.active_tab_index];
+        if let Some(search) = self.search_state.as_mut() {
+            search.sync(&tab.command_output);
         }
     }
 
     /// Navigate to next search match
     pub fn next_search_match(&mut self) {
+        if self.global_search.is_some() {
+            self.next_global_hit();
+            return;
+        }
+        let tab = &self.tabs[self.active_tab_index];
         let current_match = if let Some(search) = self.search_state.as_mut() {
             if search.has_matches() {
-                search.next_match();
+                search.next_match(&tab.command_output);
                 search.current_match().cloned()
             } else {
                 None
@@ -183,6 +225,10 @@ impl TuiState {
 
     /// Navigate to previous search match
     pub fn previous_search_match(&mut self) {
+        if self.global_search.is_some() {
+            self.previous_global_hit();
+            return;
+        }
         let current_match = if let Some(search) = self.search_state.as_mut() {
             if search.has_matches() {
                 search.previous_match();
@@ -200,7 +246,7 @@ impl TuiState {
     }
 
     /// Center view on a specific search match
-    fn center_on_match(&mut self, target: SearchMatch) {
+    pub(super) fn center_on_match(&mut self, target: SearchMatch) {
         self.pending_center = Some(target);
         self.apply_pending_center();
     }
@@ -224,7 +270,7 @@ impl TuiState {
             self.pending_center = None;
             return;
         }
-        if let Some(target_row) = metrics.row_for_match(&target) {
+        if let Some(target_row) = metrics.row_for_match(&target, &tab.command_output) {
             let view_height = tab.output_view_height as usize;
             let desired_offset = target_row.saturating_sub(view_height / 2);
             let max_offset = total_rows.saturating_sub(view_height);
@@ -243,18 +289,19 @@ impl TuiState {
         }
     }
 
-    /// Get styling information for search highlighting on a specific line
-    pub fn search_line_style(
-        &self,
-        line_index: usize,
-    ) -> Option<Vec<(ratatui::style::Style, std::ops::Range<usize>)>> {
-        self.search_state
-            .as_ref()
-            .and_then(|search| crate::ui::search::search_line_style(line_index, search))
-    }
-
     /// Get formatted status line for search UI
     pub fn search_status_line(&self) -> Option<ratatui::text::Line<'static>> {
+        if self.search_all_tabs
+            && let Some(buffer) = self.search_input.as_deref()
+        {
+            return Some(crate::ui::search::global_search_input_line(buffer));
+        }
+        if self.search_input.is_none()
+            && self.search_error.is_none()
+            && let Some(global) = self.global_search.as_ref()
+        {
+            return Some(crate::ui::search::global_search_status_line(global));
+        }
         crate::ui::search::search_status_line(
             self.search_input.as_deref(),
             self.search_error.as_deref(),
@@ -0,0 +1,245 @@
+//! Styled output line cache
+//!
+//! Colorizing a line means scanning it for log keywords or XML syntax on every
+//! frame it is visible. The segments computed for a line are kept in a
+//! least-recently-used cache keyed by the line's sequence number, which never
+//! changes while the line stays in the buffer. Entries are recycled in place on
+//! eviction, so once the cache is full styling lines allocates nothing.
+//!
+//! Search highlights are not cached: they are laid over plain text straight
+//! from the match list, which is why moving between matches never invalidates
+//! anything here.
+
+use super::OutputBuffer;
+use crate::ui::search::SearchState;
+use crate::utils::StyledSegment;
+use std::collections::HashMap;
+
+/// Number of styled lines kept per tab
+const DEFAULT_CAPACITY: usize = 4096;
+
+/// Number of header lines shown above the XML of a profile
+const XML_HEADER_LINES: usize = 3;
+
+/// Marker for a missing link in the recency list
+const NIL: usize = usize::MAX;
+
+/// How the lines of the output buffer are colorized
+#[derive(Clone, Copy, Debug, PartialEq, Eq)]
+pub enum OutputStyle {
+    /// Maven log keywords
+    Log,
+    /// Profile XML below a short header
+    Xml,
+}
+
+impl OutputStyle {
+    /// Pick the style for the buffer's content
+    pub fn for_output(lines: &OutputBuffer) -> Self {
+        // Profile XML starts with "Profile:"
+        if lines.first().is_some_and(|line| line.starts_with("Profile:")) {
+            OutputStyle::Xml
+        } else {
+            OutputStyle::Log
+        }
+    }
+}
+
+#[derive(Debug)]
+struct Entry {
+    seq: usize,
+    segments: Vec<StyledSegment>,
+    /// Next more recently used entry
+    newer: usize,
+    /// Next less recently used entry
+    older: usize,
+}
+
+/// LRU cache of the styled segments of output lines
+#[derive(Debug)]
+pub struct StyledLineCache {
+    capacity: usize,
+    style: OutputStyle,
+    entries: Vec<Entry>,
+    index: HashMap<usize, usize>,
+    newest: usize,
+    oldest: usize,
+    /// End of the buffer when the cache was last prepared
+    end_seq: usize,
+    /// Reused segments for lines drawn with search highlights
+    scratch: Vec<StyledSegment>,
+}
+
+impl Default for StyledLineCache {
+    fn default() -> Self {
+        Self::with_capacity(DEFAULT_CAPACITY)
+    }
+}
+
+impl StyledLineCache {
+    pub fn with_capacity(capacity: usize) -> Self {
+        Self {
+            capacity: capacity.max(1),
+            style: OutputStyle::Log,
+            entries: Vec::new(),
+            index: HashMap::new(),
+            newest: NIL,
+            oldest: NIL,
+            end_seq: 0,
+            scratch: Vec::new(),
+        }
+    }
+
+    /// Drop every entry when the style or the buffer changed
+    pub fn prepare(&mut self, style: OutputStyle, lines: &OutputBuffer) {
+        // Sequence numbers only move forward; anything else is a different buffer
+        if style != self.style || lines.end_seq() < self.end_seq {
+            self.clear();
+            self.style = style;
+        }
+        self.end_seq = lines.end_seq();
+    }
+
+    fn clear(&mut self) {
+        self.entries.clear();
+        self.index.clear();
+        self.newest = NIL;
+        self.oldest = NIL;
+    }
+
+    /// Get the segments of a line, styling it on a miss
+    ///
+    /// `position` is the line's position in the buffer, which decides whether
+    /// it belongs to the header of an XML view.
+    pub fn segments(&mut self, seq: usize, line: &str, position: usize) -> &[StyledSegment] {
+        if let Some(slot) = self.index.get(&seq).copied() {
+            self.touch(slot);
+            return &self.entries[slot].segments;
+        }
+
+        let slot = if self.entries.len() < self.capacity {
+            self.entries.push(Entry {
+                seq,
+                segments: Vec::new(),
+                newer: NIL,
+                older: NIL,
+            });
+            self.entries.len() - 1
+        } else {
+            // Recycle the least recently used entry together with its allocation
+            let slot = self.oldest;
+            self.unlink(slot);
+            self.index.remove(&self.entries[slot].seq);
+            slot
+        };
+
+        let entry = &mut self.entries[slot];
+        entry.seq = seq;
+        entry.segments.clear();
+        match self.style {
+            OutputStyle::Xml if position >= XML_HEADER_LINES => {
+                crate::utils::xml_line_segments(line, &mut entry.segments)
+            }
+            _ => crate::utils::log_line_segments(line, &mut entry.segments),
+        }
+        self.index.insert(seq, slot);
+        self.push_newest(slot);
+        &self.entries[slot].segments
+    }
+
+    /// Get the segments of a line with its search matches highlighted
+    pub fn search_segments(
+        &mut self,
+        seq: usize,
+        line: &str,
+        search: &SearchState,
+    ) -> &[StyledSegment] {
+        self.scratch.clear();
+        crate::ui::search::search_line_segments(seq, line, search, &mut self.scratch);
+        &self.scratch
+    }
+
+    fn touch(&mut self, slot: usize) {
+        if self.newest != slot {
+            self.unlink(slot);
+            self.push_newest(slot);
+        }
+    }
+
+    fn unlink(&mut self, slot: usize) {
+        let Entry { newer, older, .. } = self.entries[slot];
+        match newer {
+            NIL => self.newest = older,
+            newer => self.entries[newer].older = older,
+        }
+        match older {
+            NIL => self.oldest = newer,
+            older => self.entries[older].newer = newer,
+        }
+    }
+
+    fn push_newest(&mut self, slot: usize) {
+        self.entries[slot].newer = NIL;
+        self.entries[slot].older = self.newest;
+        match self.newest {
+            NIL => self.oldest = slot,
+            newest => self.entries[newest].newer = slot,
+        }
+        self.newest = slot;
+    }
+}
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+
+    #[test]
+    fn test_evicts_least_recently_used_line() {
+        let mut cache = StyledLineCache::with_capacity(2);
+        cache.segments(1, "[INFO] one", 0);
+        cache.segments(2, "two", 1);
+        cache.segments(1, "[INFO] one", 0);
+        cache.segments(3, "three", 2);
+
+        assert_eq!(cache.index.len(), 2);
+        assert!(cache.index.contains_key(&1));
+        assert!(cache.index.contains_key(&3));
+        assert!(!cache.index.contains_key(&2));
+    }
+
+    #[test]
+    fn test_recycles_entries_without_growing() {
+        let mut cache = StyledLineCache::with_capacity(8);
+        for seq in 0..100 {
+            let segments = cache.segments(seq, "x [WARNING] y", seq);
+            assert_eq!(segments.len(), 3);
+        }
+        assert_eq!(cache.index.len(), 8);
+        assert_eq!(cache.entries.len(), 8);
+    }
+
+    #[test]
+    fn test_prepare_clears_on_style_change_and_new_buffer() {
+        let mut lines: OutputBuffer = vec!["a".to_string(), "b".to_string()].into();
+        let mut cache = StyledLineCache::default();
+        cache.prepare(OutputStyle::for_output(&lines), &lines);
+        cache.segments(0, "a", 0);
+
+        // Appending lines keeps the styled ones
+        lines.push("c");
+        cache.prepare(OutputStyle::for_output(&lines), &lines);
+        assert_eq!(cache.index.len(), 1);
+
+        lines.set_lines(["Profile: dev", "", "", "<profile>"]);
+        cache.prepare(OutputStyle::for_output(&lines), &lines);
+        assert_eq!(cache.index.len(), 0);
+
+        let xml = cache.segments(lines.end_seq() - 1, "<profile>", 3).len();
+        assert_eq!(xml, 3);
+
+        let replaced = OutputBuffer::from(vec!["x".to_string()]);
+        cache.segments(0, "x", 0);
+        cache.prepare(OutputStyle::Xml, &replaced);
+        assert_eq!(cache.index.len(), 0);
+    }
+}
@@ -14,7 +14,7 @@ impl TuiState {
                 "Project already open in tab {}, switching to it",
                 existing_index
             );
-            self.active_tab_index = existing_index;
+            self.set_active_tab(existing_index);
             return Ok(existing_index);
         }
 
@@ -45,7 +45,9 @@ impl TuiState {
 
         self.next_tab_id += 1;
         self.tabs.push(tab);
-        self.active_tab_index = self.tabs.len() - 1;
+        let index = self.tabs.len() - 1;
+        self.restore_command_queue(index);
+        self.set_active_tab(index);
 
         // Add to recent projects
         let mut recent = crate::core::config::RecentProjects::load();
@@ -70,6 +72,7 @@ impl TuiState {
 
         // Cleanup the tab (kill processes, save preferences)
         self.tabs[index].cleanup();
+        self.jobs.remove_tab(self.tabs[index].id);
 
         // Remove the tab
         let removed_tab = self.tabs.remove(index);
@@ -80,15 +83,27 @@ impl TuiState {
         );
 
         // Adjust active tab index
-        if self.active_tab_index >= self.tabs.len() {
-            self.active_tab_index = self.tabs.len() - 1;
+        let active = if self.active_tab_index >= self.tabs.len() {
+            self.tabs.len() - 1
         } else if self.active_tab_index > index {
-            self.active_tab_index -= 1;
-        }
+            self.active_tab_index - 1
+        } else {
+            self.active_tab_index
+        };
+        self.set_active_tab(active);
 
         Ok(())
     }
 
+    /// Make a tab the active one, matching the search against its output
+    ///
+    /// Sequence numbers are per output buffer, so matches of the previous tab
+    /// mean nothing in the new one.
+    pub(super) fn set_active_tab(&mut self, index: usize) {
+        self.active_tab_index = index;
+        self.refresh_search_matches();
+    }
+
     /// Switch to a specific tab by index
     #[allow(dead_code)] // Public API - may be used by future features
     pub fn switch_to_tab(&mut self, index: usize) {
@@ -98,14 +113,14 @@ impl TuiState {
                 self.active_tab_index,
                 index
             );
-            self.active_tab_index = index;
+            self.set_active_tab(index);
         }
     }
 
     /// Switch to next tab
     pub fn next_tab(&mut self) {
         if !self.tabs.is_empty() {
-            self.active_tab_index = (self.active_tab_index + 1) % self.tabs.len();
+            self.set_active_tab((self.active_tab_index + 1) % self.tabs.len());
             log::debug!("Switched to next tab: {}", self.active_tab_index);
         }
     }
@@ -113,11 +128,12 @@ impl TuiState {
     /// Switch to previous tab
     pub fn prev_tab(&mut self) {
         if !self.tabs.is_empty() {
-            self.active_tab_index = if self.active_tab_index == 0 {
+            let index = if self.active_tab_index == 0 {
                 self.tabs.len() - 1
             } else {
                 self.active_tab_index - 1
             };
+            self.set_active_tab(index);
             log::debug!("Switched to previous tab: {}", self.active_tab_index);
         }
     }
@@ -170,7 +186,6 @@ impl TuiState {
     }
 
     /// Cleanup all tabs (kill all processes, save all preferences)
-    #[allow(dead_code)] // Public API - may be used by future features
     pub fn cleanup_all_tabs(&mut self) {
         log::info!("Cleaning up all {} tabs", self.tabs.len());
 
@@ -261,6 +276,34 @@ mod tests {
         assert_eq!(result.unwrap_err(), "Cannot close last tab");
     }
 
+    #[test]
+    fn test_closing_a_tab_matches_the_search_against_the_next_one() {
+        let mut state = create_test_state();
+        state
+            .get_active_tab_mut()
+            .command_output
+            .set_lines(vec!["error one", "error two", "error three"]);
+        let mut other = ProjectTab::new(
+            2,
+            PathBuf::from("/other"),
+            vec!["module1".to_string()],
+            Config::default(),
+        );
+        other.command_output.set_lines(vec!["fine", "error here"]);
+        state.tabs.push(other);
+
+        let regex = regex::Regex::new("error").unwrap();
+        state.search_state = Some(crate::ui::search::SearchState::new("error".to_string(), regex));
+        state.refresh_search_matches();
+        assert_eq!(state.search_state.as_ref().unwrap().total_matches(), 3);
+
+        state.close_tab(0).unwrap();
+        let search = state.search_state.as_ref().unwrap();
+        assert_eq!(search.total_matches(), 1);
+        let first_seq = state.get_active_tab().command_output.first_seq();
+        assert_eq!(search.matches[0].line_index, first_seq + 1);
+    }
+
     #[test]
     fn test_close_tab_out_of_bounds() {
         let mut state = create_test_state();
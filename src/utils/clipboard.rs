@@ -0,0 +1,219 @@
+//! Clipboard tools
+//!
+//! Text is copied by piping it into a platform clipboard tool (wl-copy, xclip,
+//! xsel, PowerShell, clip.exe or pbcopy), which terminal applications handle
+//! more reliably than a clipboard library. The content is streamed into the
+//! tool's stdin, so it never has to be joined into a single string.
+//!
+//! Finding a working tool may take several failed spawns, so the outcome is
+//! remembered for the rest of the session: the tool that worked is tried
+//! first next time, and when none worked they are not tried again.
+
+use std::io::{self, BufWriter, Write};
+use std::process::{Command, Stdio};
+use std::sync::Mutex;
+
+/// External program copying its stdin to the clipboard
+#[derive(Clone, Copy, Debug, PartialEq, Eq)]
+pub struct ClipboardTool {
+    /// Name shown to the user
+    pub name: &'static str,
+    program: &'static str,
+    args: &'static [&'static str],
+}
+
+#[cfg(target_os = "linux")]
+const PLATFORM_TOOLS: &[ClipboardTool] = &[
+    ClipboardTool {
+        name: "wl-copy",
+        program: "wl-copy",
+        args: &[],
+    },
+    ClipboardTool {
+        name: "xclip",
+        program: "xclip",
+        args: &["-selection", "clipboard"],
+    },
+    ClipboardTool {
+        name: "xsel",
+        program: "xsel",
+        args: &["--clipboard"],
+    },
+];
+
+#[cfg(target_os = "windows")]
+const PLATFORM_TOOLS: &[ClipboardTool] = &[
+    ClipboardTool {
+        name: "PowerShell",
+        program: "powershell",
+        args: &["-Command", "$input | Set-Clipboard"],
+    },
+    ClipboardTool {
+        name: "clip.exe",
+        program: "clip",
+        args: &[],
+    },
+];
+
+#[cfg(target_os = "macos")]
+const PLATFORM_TOOLS: &[ClipboardTool] = &[ClipboardTool {
+    name: "pbcopy",
+    program: "pbcopy",
+    args: &[],
+}];
+
+#[cfg(not(any(target_os = "linux", target_os = "windows", target_os = "macos")))]
+const PLATFORM_TOOLS: &[ClipboardTool] = &[];
+
+/// What is known about the clipboard tools of this session
+#[derive(Clone, Copy, Debug, PartialEq, Eq)]
+enum Detection {
+    /// No tool has been tried yet
+    Unknown,
+    /// Index of the tool that worked last
+    Working(usize),
+    /// Every tool failed
+    Unavailable,
+}
+
+static DETECTION: Mutex<Detection> = Mutex::new(Detection::Unknown);
+
+/// Stream text into the clipboard through the first platform tool that works
+///
+/// `write` produces the text and is called again for each tool tried.
+/// Returns the tool used, or None when no tool works and the caller has to
+/// fall back to a clipboard library.
+pub fn copy_with<F>(write: F) -> Option<ClipboardTool>
+where
+    F: FnMut(&mut dyn Write) -> io::Result<()>,
+{
+    copy_with_tools(PLATFORM_TOOLS, &DETECTION, write)
+}
+
+fn copy_with_tools<F>(
+    tools: &[ClipboardTool],
+    detection: &Mutex<Detection>,
+    mut write: F,
+) -> Option<ClipboardTool>
+where
+    F: FnMut(&mut dyn Write) -> io::Result<()>,
+{
+    let known = *detection.lock().unwrap_or_else(|e| e.into_inner());
+    let order: Vec<usize> = match known {
+        Detection::Unavailable => return None,
+        Detection::Unknown => (0..tools.len()).collect(),
+        // Try the known tool first, then the others in case it stopped working
+        Detection::Working(index) => std::iter::once(index)
+            .chain((0..tools.len()).filter(|&other| other != index))
+            .collect(),
+    };
+
+    for index in order {
+        let tool = tools[index];
+        match pipe_into(tool, &mut write) {
+            Ok(()) => {
+                if known != Detection::Working(index) {
+                    log::info!("Using {} for clipboard operations", tool.name);
+                }
+                *detection.lock().unwrap_or_else(|e| e.into_inner()) = Detection::Working(index);
+                return Some(tool);
+            }
+            Err(e) => log::debug!("Clipboard tool {} failed: {}", tool.name, e),
+        }
+    }
+
+    log::info!("No clipboard tool available, falling back to the clipboard library");
+    *detection.lock().unwrap_or_else(|e| e.into_inner()) = Detection::Unavailable;
+    None
+}
+
+/// Run a clipboard tool and stream the text into its stdin
+fn pipe_into<F>(tool: ClipboardTool, write: &mut F) -> io::Result<()>
+where
+    F: FnMut(&mut dyn Write) -> io::Result<()>,
+{
+    let mut child = Command::new(tool.program)
+        .args(tool.args)
+        .stdin(Stdio::piped())
+        .stdout(Stdio::null())
+        .stderr(Stdio::null())
+        .spawn()?;
+
+    let written = match child.stdin.take() {
+        Some(stdin) => {
+            // The pipe closes when the writer is dropped, letting the tool finish
+            let mut stdin = BufWriter::new(stdin);
+            write(&mut stdin).and_then(|()| stdin.flush())
+        }
+        None => Err(io::Error::other("no stdin")),
+    };
+
+    let status = child.wait()?;
+    written?;
+    if status.success() {
+        Ok(())
+    } else {
+        Err(io::Error::other(format!("{} exited with {}", tool.name, status)))
+    }
+}
+
+#[cfg(all(test, unix))]
+mod tests {
+    use super::*;
+
+    const MISSING: ClipboardTool = ClipboardTool {
+        name: "missing",
+        program: "lazymvn-missing-clipboard-tool",
+        args: &[],
+    };
+
+    #[test]
+    fn test_remembers_the_working_tool() {
+        let dir = tempfile::tempdir().unwrap();
+        let target = dir.path().join("clipboard.txt");
+        let script = format!("cat > '{}'", target.display());
+        let script: &'static str = Box::leak(script.into_boxed_str());
+        let args: &'static [&'static str] = Box::leak(vec!["-c", script].into_boxed_slice());
+        let tools = [
+            MISSING,
+            ClipboardTool {
+                name: "sh",
+                program: "sh",
+                args,
+            },
+        ];
+        let detection = Mutex::new(Detection::Unknown);
+
+        let mut attempts = 0;
+        let used = copy_with_tools(&tools, &detection, |out| {
+            attempts += 1;
+            out.write_all(b"line 1\nline 2")
+        });
+        assert_eq!(used.map(|tool| tool.name), Some("sh"));
+        assert_eq!(std::fs::read_to_string(&target).unwrap(), "line 1\nline 2");
+        assert_eq!(*detection.lock().unwrap(), Detection::Working(1));
+        // The missing tool failed to spawn before any text was produced
+        assert_eq!(attempts, 1);
+
+        copy_with_tools(&tools, &detection, |out| out.write_all(b"again"));
+        assert_eq!(std::fs::read_to_string(&target).unwrap(), "again");
+    }
+
+    #[test]
+    fn test_gives_up_once_no_tool_works() {
+        let detection = Mutex::new(Detection::Unknown);
+        let tools = [MISSING];
+        assert_eq!(copy_with_tools(&tools, &detection, |_| Ok(())), None);
+        assert_eq!(*detection.lock().unwrap(), Detection::Unavailable);
+
+        let mut called = false;
+        assert_eq!(
+            copy_with_tools(&tools, &detection, |_| {
+                called = true;
+                Ok(())
+            }),
+            None
+        );
+        assert!(!called);
+    }
+}
@@ -26,3 +26,48 @@ pub fn get_git_branch(project_root: &std::path::Path) -> Option<String> {
         Some(branch.to_string())
     }
 }
+
+/// Files changed in a project's working tree, relative to the project root
+///
+/// Covers staged, unstaged and untracked files. With a base ref, changes
+/// committed since the current branch diverged from it are included too.
+/// Returns git's error message when the changes cannot be listed.
+pub fn changed_files(
+    project_root: &std::path::Path,
+    base_ref: Option<&str>,
+) -> Result<Vec<String>, String> {
+    let base = match base_ref {
+        Some(base_ref) => git_output(project_root, &["merge-base", base_ref, "HEAD"])
+            .map(|commit| commit.trim().to_string())?,
+        None => "HEAD".to_string(),
+    };
+
+    let diff = git_output(project_root, &["diff", "--name-only", "--relative", &base])?;
+    let untracked = git_output(project_root, &["ls-files", "--others", "--exclude-standard"])?;
+    let files: std::collections::BTreeSet<String> = diff
+        .lines()
+        .chain(untracked.lines())
+        .map(str::trim)
+        .filter(|file| !file.is_empty())
+        .map(str::to_string)
+        .collect();
+    Ok(files.into_iter().collect())
+}
+
+/// Run git in a project and return its standard output
+fn git_output(project_root: &std::path::Path, args: &[&str]) -> Result<String, String> {
+    let output = Command::new("git")
+        .arg("-C")
+        .arg(project_root)
+        // Report non-ASCII paths as they are instead of quoted
+        .args(["-c", "core.quotePath=false"])
+        .args(args)
+        .output()
+        .map_err(|e| format!("Failed to run git: {}", e))?;
+
+    if !output.status.success() {
+        let stderr = String::from_utf8_lossy(&output.stderr);
+        return Err(stderr.trim().to_string());
+    }
+    Ok(String::from_utf8_lossy(&output.stdout).into_owned())
+}
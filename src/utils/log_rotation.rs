@@ -0,0 +1,498 @@
+//! Log file rotation
+//!
+//! `debug.log` and `error.log` are rotated once they grow past a size limit or
+//! get older than an age limit. A rotated segment is renamed to
+//! `<name>.<timestamp>.log`, where the timestamp is the time of rotation in the
+//! session ID format, then gzip-compressed to `<name>.<timestamp>.log.gz` on a
+//! background thread. Only the most recent segments are kept.
+//!
+//! Since session IDs and segment timestamps sort the same way, the segments
+//! holding a session are the first one rotated after it started and every
+//! later one, followed by the current file.
+//!
+//! Several instances may log to the same files. Each one follows the path
+//! rather than its open file: when another instance rotated the file away,
+//! the new one is opened before writing, and sizes are read from the file
+//! itself so the writes of every instance count.
+
+use flate2::Compression;
+use flate2::read::GzDecoder;
+use flate2::write::GzEncoder;
+use std::fs::{self, File, OpenOptions};
+use std::io::{self, Read, Seek, SeekFrom, Write};
+use std::path::{Path, PathBuf};
+use std::sync::mpsc;
+use std::time::{Duration, SystemTime};
+
+/// Timestamp format shared by session IDs and rotated segments
+pub const STAMP_FORMAT: &str = "%Y%m%d-%H%M%S-%3f";
+
+/// When log files are rotated and how many rotated segments are kept
+#[derive(Clone, Copy, Debug, PartialEq, Eq)]
+pub struct LogRotation {
+    /// Rotate once the file reaches this many bytes
+    pub max_bytes: u64,
+    /// Rotate once the file is older than this
+    pub max_age: Duration,
+    /// Number of rotated segments kept per log file
+    pub retention: usize,
+}
+
+impl Default for LogRotation {
+    fn default() -> Self {
+        Self {
+            max_bytes: 10 * 1024 * 1024,
+            max_age: Duration::from_secs(24 * 60 * 60),
+            retention: 5,
+        }
+    }
+}
+
+/// Log file that rotates itself when flushed past its limits
+pub struct RotatingFile {
+    path: PathBuf,
+    file: File,
+    created: SystemTime,
+    rotation: LogRotation,
+    compressor: mpsc::Sender<PathBuf>,
+}
+
+impl RotatingFile {
+    /// Open a log file for appending
+    ///
+    /// Rotated segments are handed to `compressor`, see [`spawn_compressor`].
+    pub fn open(
+        path: PathBuf,
+        rotation: LogRotation,
+        compressor: mpsc::Sender<PathBuf>,
+    ) -> io::Result<Self> {
+        let (file, created) = open_append(&path)?;
+        Ok(Self {
+            path,
+            file,
+            created,
+            rotation,
+            compressor,
+        })
+    }
+
+    /// Current size of the file in bytes, written by any instance
+    pub fn len(&self) -> u64 {
+        self.file.metadata().map(|metadata| metadata.len()).unwrap_or(0)
+    }
+
+    fn rotation_due(&self) -> bool {
+        let len = self.len();
+        len > 0
+            && (len >= self.rotation.max_bytes
+                || self.created.elapsed().unwrap_or_default() >= self.rotation.max_age)
+    }
+
+    /// Open the file now at the path when it is not the one this instance has
+    ///
+    /// Another instance rotating the file renames it away from the path, and
+    /// writing on would land in its segment.
+    fn follow_path(&mut self) -> io::Result<()> {
+        let open = self.file.metadata()?;
+        match fs::metadata(&self.path) {
+            Ok(at_path) if same_file(&open, &at_path) => return Ok(()),
+            Ok(_) => {}
+            Err(e) if e.kind() == io::ErrorKind::NotFound => {}
+            Err(e) => return Err(e),
+        }
+        let (file, created) = open_append(&self.path)?;
+        self.file = file;
+        self.created = created;
+        Ok(())
+    }
+
+    /// Move the current file aside as a segment and start a new one
+    fn rotate(&mut self) -> io::Result<()> {
+        let now = chrono::Local::now().format(STAMP_FORMAT).to_string();
+        let mut stamp = now.clone();
+        let mut suffix = 1;
+        // Two rotations within the same millisecond
+        while segment_path(&self.path, &stamp, false).exists()
+            || segment_path(&self.path, &stamp, true).exists()
+        {
+            stamp = format!("{}-{}", now, suffix);
+            suffix += 1;
+        }
+        let segment = segment_path(&self.path, &stamp, false);
+
+        fs::rename(&self.path, &segment)?;
+        self.file = OpenOptions::new()
+            .create(true)
+            .append(true)
+            .open(&self.path)?;
+        self.created = SystemTime::now();
+        let _ = self.compressor.send(segment);
+        Ok(())
+    }
+}
+
+impl Write for RotatingFile {
+    fn write(&mut self, buf: &[u8]) -> io::Result<usize> {
+        self.follow_path()?;
+        self.file.write(buf)
+    }
+
+    /// Flush the file, rotating it when it is due
+    ///
+    /// Rotation only happens on flush, which the writer does between batches,
+    /// so a record is never split across segments.
+    fn flush(&mut self) -> io::Result<()> {
+        self.file.flush()?;
+        self.follow_path()?;
+        if self.rotation_due() {
+            self.rotate()?;
+        }
+        Ok(())
+    }
+}
+
+/// Open a log file for appending, with the time it was started
+fn open_append(path: &Path) -> io::Result<(File, SystemTime)> {
+    let file = OpenOptions::new().create(true).append(true).open(path)?;
+    let metadata = file.metadata()?;
+    let created = if metadata.len() == 0 {
+        SystemTime::now()
+    } else {
+        metadata
+            .created()
+            .or_else(|_| metadata.modified())
+            .unwrap_or_else(|_| SystemTime::now())
+    };
+    Ok((file, created))
+}
+
+/// Whether two metadata describe the same file
+#[cfg(unix)]
+fn same_file(a: &fs::Metadata, b: &fs::Metadata) -> bool {
+    use std::os::unix::fs::MetadataExt;
+    a.dev() == b.dev() && a.ino() == b.ino()
+}
+
+/// Whether two metadata describe the same file
+///
+/// Without inode numbers, creation times tell the files apart: a renamed file
+/// keeps its own, while the one replacing it usually gets a new one.
+#[cfg(not(unix))]
+fn same_file(a: &fs::Metadata, b: &fs::Metadata) -> bool {
+    match (a.created(), b.created()) {
+        (Ok(a), Ok(b)) => a == b,
+        _ => true,
+    }
+}
+
+/// Path of a rotated segment of `log_path`
+fn segment_path(log_path: &Path, stamp: &str, compressed: bool) -> PathBuf {
+    let stem = log_path.file_stem().unwrap_or_default().to_string_lossy();
+    let extension = if compressed { "log.gz" } else { "log" };
+    log_path.with_file_name(format!("{}.{}.{}", stem, stamp, extension))
+}
+
+/// Rotated segment of a log file
+#[derive(Clone, Debug, PartialEq, Eq)]
+struct Segment {
+    stamp: String,
+    path: PathBuf,
+    compressed: bool,
+}
+
+/// List the rotated segments of a log file, oldest first
+///
+/// While a segment is being compressed both of its files exist; the plain one
+/// is listed since it is complete.
+fn rotated_segments(log_path: &Path) -> io::Result<Vec<Segment>> {
+    let Some(dir) = log_path.parent() else {
+        return Ok(Vec::new());
+    };
+    let prefix = format!(
+        "{}.",
+        log_path.file_stem().unwrap_or_default().to_string_lossy()
+    );
+
+    let mut segments: Vec<Segment> = Vec::new();
+    for entry in fs::read_dir(dir)? {
+        let path = entry?.path();
+        let Some(name) = path.file_name().and_then(|name| name.to_str()) else {
+            continue;
+        };
+        let Some(rest) = name.strip_prefix(&prefix) else {
+            continue;
+        };
+        let (stamp, compressed) = if let Some(stamp) = rest.strip_suffix(".log.gz") {
+            (stamp, true)
+        } else if let Some(stamp) = rest.strip_suffix(".log") {
+            (stamp, false)
+        } else {
+            continue;
+        };
+        // The current file itself has no stamp
+        if stamp.is_empty() {
+            continue;
+        }
+        segments.push(Segment {
+            stamp: stamp.to_string(),
+            path: path.clone(),
+            compressed,
+        });
+    }
+
+    segments.sort_by(|a, b| a.stamp.cmp(&b.stamp).then(a.compressed.cmp(&b.compressed)));
+    segments.dedup_by(|later, kept| later.stamp == kept.stamp);
+    Ok(segments)
+}
+
+impl Segment {
+    fn open(&self) -> io::Result<Box<dyn Read>> {
+        let file = File::open(&self.path)?;
+        if self.compressed {
+            Ok(Box::new(GzDecoder::new(file)))
+        } else {
+            Ok(Box::new(file))
+        }
+    }
+}
+
+/// Read a log file from where a session started, across rotated segments
+///
+/// `start` is the offset in the file that was current when the session
+/// started; `session_id` is the time it started, in [`STAMP_FORMAT`].
+pub fn read_since(log_path: &Path, session_id: &str, start: u64) -> io::Result<Box<dyn Read>> {
+    let segments: Vec<Segment> = rotated_segments(log_path)?
+        .into_iter()
+        .filter(|segment| segment.stamp.as_str() >= session_id)
+        .collect();
+
+    let mut readers: Vec<Box<dyn Read>> = Vec::new();
+    for segment in &segments {
+        readers.push(segment.open()?);
+    }
+    let mut current = File::open(log_path)?;
+
+    // The session starts at `start` in the first file that holds it
+    match readers.first_mut() {
+        Some(first) => {
+            io::copy(&mut first.by_ref().take(start), &mut io::sink())?;
+        }
+        // An offset past the end means the file was truncated since
+        None if start <= current.metadata()?.len() => {
+            current.seek(SeekFrom::Start(start))?;
+        }
+        None => {}
+    }
+
+    let mut reader: Box<dyn Read> = Box::new(io::empty());
+    for segment in readers {
+        reader = Box::new(reader.chain(segment));
+    }
+    Ok(Box::new(reader.chain(current)))
+}
+
+/// Last lines of the rotated segments of a log file, at most `max_lines`
+///
+/// Segments are read newest first until enough lines were found, so right
+/// after a rotation the tail of the previous segment is still available.
+pub fn last_rotated_lines(log_path: &Path, max_lines: usize) -> io::Result<Vec<String>> {
+    let mut lines = Vec::new();
+    for segment in rotated_segments(log_path)?.iter().rev() {
+        if lines.len() >= max_lines {
+            break;
+        }
+        let mut text = String::new();
+        segment.open()?.read_to_string(&mut text)?;
+        let segment_lines: Vec<&str> = text.lines().collect();
+        let keep = segment_lines.len().min(max_lines - lines.len());
+        let mut tail: Vec<String> = segment_lines[segment_lines.len() - keep..]
+            .iter()
+            .map(|line| line.to_string())
+            .collect();
+        tail.append(&mut lines);
+        lines = tail;
+    }
+    Ok(lines)
+}
+
+/// Compress a rotated segment and remove the plain file
+fn compress_segment(segment: &Path) -> io::Result<PathBuf> {
+    let compressed = segment.with_extension("log.gz");
+    let partial = segment.with_extension("log.gz.tmp");
+
+    let mut input = File::open(segment)?;
+    let mut encoder = GzEncoder::new(File::create(&partial)?, Compression::default());
+    io::copy(&mut input, &mut encoder)?;
+    encoder.finish()?.sync_all()?;
+
+    fs::rename(&partial, &compressed)?;
+    fs::remove_file(segment)?;
+    Ok(compressed)
+}
+
+/// Delete the oldest rotated segments beyond the retention count
+fn enforce_retention(log_path: &Path, retention: usize) -> io::Result<()> {
+    let segments = rotated_segments(log_path)?;
+    let excess = segments.len().saturating_sub(retention);
+    for segment in &segments[..excess] {
+        fs::remove_file(&segment.path)?;
+        if !segment.compressed {
+            // The compressed copy of a segment caught mid-compression
+            let _ = fs::remove_file(segment.path.with_extension("log.gz"));
+        }
+    }
+    Ok(())
+}
+
+/// Compress rotated segments of `log_paths` on a background thread
+///
+/// Segments left uncompressed by an earlier run are compressed first. After
+/// each segment the oldest ones beyond the retention count are removed.
+pub fn spawn_compressor(
+    log_paths: Vec<PathBuf>,
+    rotation: LogRotation,
+) -> io::Result<mpsc::Sender<PathBuf>> {
+    let (sender, receiver) = mpsc::channel::<PathBuf>();
+
+    std::thread::Builder::new()
+        .name("log-compressor".to_string())
+        .spawn(move || {
+            // Recover segments rotated by a run that exited before compressing them
+            for log_path in &log_paths {
+                for segment in rotated_segments(log_path).unwrap_or_default() {
+                    if !segment.compressed {
+                        let _ = compress_segment(&segment.path);
+                    }
+                }
+                let _ = enforce_retention(log_path, rotation.retention);
+            }
+
+            for segment in receiver {
+                if let Err(e) = compress_segment(&segment) {
+                    // Records go through the writer thread, not back to this one
+                    log::warn!("Failed to compress log segment {}: {}", segment.display(), e);
+                }
+                for log_path in &log_paths {
+                    let _ = enforce_retention(log_path, rotation.retention);
+                }
+            }
+        })?;
+
+    Ok(sender)
+}
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+    use std::io::BufRead;
+
+    fn rotation(max_bytes: u64) -> LogRotation {
+        LogRotation {
+            max_bytes,
+            max_age: Duration::from_secs(3600),
+            retention: 2,
+        }
+    }
+
+    #[test]
+    fn test_rotates_on_flush_past_size_limit() {
+        let dir = tempfile::tempdir().unwrap();
+        let path = dir.path().join("debug.log");
+        let (sender, receiver) = mpsc::channel();
+        let mut file = RotatingFile::open(path.clone(), rotation(10), sender).unwrap();
+
+        writeln!(file, "first line").unwrap();
+        assert_eq!(file.len(), 11);
+        file.flush().unwrap();
+        assert_eq!(file.len(), 0);
+
+        let segment = receiver.try_recv().unwrap();
+        assert_eq!(fs::read_to_string(&segment).unwrap(), "first line\n");
+        assert_eq!(fs::read_to_string(&path).unwrap(), "");
+
+        let compressed = compress_segment(&segment).unwrap();
+        assert!(!segment.exists());
+        let segments = rotated_segments(&path).unwrap();
+        assert_eq!(segments.len(), 1);
+        assert_eq!(segments[0].path, compressed);
+        assert!(segments[0].compressed);
+    }
+
+    #[test]
+    fn test_follows_a_file_rotated_by_another_instance() {
+        let dir = tempfile::tempdir().unwrap();
+        let path = dir.path().join("debug.log");
+        let (sender, _receiver) = mpsc::channel();
+        let mut file = RotatingFile::open(path.clone(), rotation(1024), sender.clone()).unwrap();
+        let mut other = RotatingFile::open(path.clone(), rotation(10), sender).unwrap();
+
+        writeln!(file, "mine").unwrap();
+        writeln!(other, "theirs").unwrap();
+        // Both instances' writes count towards the size limit
+        assert_eq!(other.len(), 12);
+        other.flush().unwrap();
+        assert_eq!(fs::read_to_string(&path).unwrap(), "");
+
+        writeln!(file, "after rotation").unwrap();
+        file.flush().unwrap();
+        assert_eq!(fs::read_to_string(&path).unwrap(), "after rotation\n");
+        let segments = rotated_segments(&path).unwrap();
+        assert_eq!(segments.len(), 1);
+        assert_eq!(fs::read_to_string(&segments[0].path).unwrap(), "mine\ntheirs\n");
+    }
+
+    #[test]
+    fn test_read_since_spans_rotated_segments() {
+        let dir = tempfile::tempdir().unwrap();
+        let path = dir.path().join("debug.log");
+        fs::write(dir.path().join("debug.20260101-000000-000.log"), "too old\n").unwrap();
+        fs::write(
+            dir.path().join("debug.20260102-000000-000.log"),
+            "before\nstart\n",
+        )
+        .unwrap();
+        let compressed = compress_segment(&dir.path().join("debug.20260102-000000-000.log"));
+        assert!(compressed.is_ok());
+        fs::write(dir.path().join("debug.20260103-000000-000.log"), "middle\n").unwrap();
+        fs::write(&path, "current\n").unwrap();
+
+        let reader = read_since(&path, "20260101-120000-000", 7).unwrap();
+        let lines: Vec<String> = io::BufReader::new(reader)
+            .lines()
+            .collect::<Result<_, _>>()
+            .unwrap();
+        assert_eq!(lines, vec!["start", "middle", "current"]);
+    }
+
+    #[test]
+    fn test_last_rotated_lines_reads_newest_segments_first() {
+        let dir = tempfile::tempdir().unwrap();
+        let path = dir.path().join("debug.log");
+        fs::write(dir.path().join("debug.20260101-000000-000.log"), "a\nb\n").unwrap();
+        fs::write(dir.path().join("debug.20260102-000000-000.log"), "c\nd\n").unwrap();
+        compress_segment(&dir.path().join("debug.20260102-000000-000.log")).unwrap();
+
+        assert_eq!(last_rotated_lines(&path, 3).unwrap(), vec!["b", "c", "d"]);
+        assert!(last_rotated_lines(&path, 0).unwrap().is_empty());
+    }
+
+    #[test]
+    fn test_retention_keeps_newest_segments() {
+        let dir = tempfile::tempdir().unwrap();
+        let path = dir.path().join("error.log");
+        for day in 1..=4 {
+            let name = format!("error.2026010{}-000000-000.log", day);
+            fs::write(dir.path().join(name), "x").unwrap();
+        }
+        fs::write(dir.path().join("debug.20260101-000000-000.log"), "x").unwrap();
+
+        enforce_retention(&path, 2).unwrap();
+        let stamps: Vec<String> = rotated_segments(&path)
+            .unwrap()
+            .into_iter()
+            .map(|segment| segment.stamp)
+            .collect();
+        assert_eq!(stamps, vec!["20260103-000000-000", "20260104-000000-000"]);
+        assert!(dir.path().join("debug.20260101-000000-000.log").exists());
+    }
+}
@@ -1,21 +1,102 @@
+//! File logger
+//!
+//! Formatting and writing records happens on a background thread so logging
+//! from hot paths never waits on the disk. Records are handed over through an
+//! unbounded channel, whose sending side is lock-free, and written in batches
+//! through buffered writers. The memory held by queued records is bounded:
+//! once the budget is used up new records are dropped and counted, and the
+//! writer reports how many were lost. Call [`flush`] (or keep a [`FlushGuard`]
+//! alive) to make sure queued records reach the files before exiting.
+
 use log::{LevelFilter, Metadata, Record, SetLoggerError};
 use std::fs::{File, OpenOptions};
-use std::io::Write;
-use std::path::PathBuf;
-use std::sync::Mutex;
+use std::io::{BufWriter, Read, Seek, SeekFrom, Write};
+use std::path::{Path, PathBuf};
+use std::sync::atomic::{AtomicUsize, Ordering};
+use std::sync::{OnceLock, mpsc};
+use std::time::{Duration, SystemTime};
 
+use super::log_rotation::{self, LogRotation, RotatingFile};
 use super::version;
 
+/// Maximum number of bytes held by records waiting to be written
+const QUEUE_BUDGET_BYTES: usize = 8 * 1024 * 1024;
+
+/// Size of the chunks read backwards when tailing a log file
+const TAIL_CHUNK_BYTES: u64 = 64 * 1024;
+
+/// How long a flush waits for the writer thread to catch up
+const FLUSH_TIMEOUT: Duration = Duration::from_secs(2);
+
+/// Number of lines of each log kept from the current session
+const SESSION_LOG_LINES: usize = 500;
+
 static LOGGER: Logger = Logger {
-    file: Mutex::new(None),
-    error_file: Mutex::new(None),
-    session_id: Mutex::new(None),
+    sender: OnceLock::new(),
+    budget: QueueBudget::new(QUEUE_BUDGET_BYTES),
+    session_id: OnceLock::new(),
 };
 
 struct Logger {
-    file: Mutex<Option<File>>,
-    error_file: Mutex<Option<File>>,
-    session_id: Mutex<Option<String>>,
+    sender: OnceLock<mpsc::Sender<Message>>,
+    budget: QueueBudget,
+    session_id: OnceLock<String>,
+}
+
+/// Message handled by the writer thread
+enum Message {
+    Record(QueuedRecord),
+    /// Write everything queued before, then acknowledge
+    Flush(mpsc::Sender<()>),
+}
+
+struct QueuedRecord {
+    time: SystemTime,
+    level: log::Level,
+    text: String,
+}
+
+impl QueuedRecord {
+    /// Memory accounted against the queue budget
+    fn cost(&self) -> usize {
+        std::mem::size_of::<Message>() + self.text.len()
+    }
+}
+
+/// Memory budget shared by the logging threads and the writer thread
+struct QueueBudget {
+    limit: usize,
+    queued_bytes: AtomicUsize,
+    dropped: AtomicUsize,
+}
+
+impl QueueBudget {
+    const fn new(limit: usize) -> Self {
+        Self {
+            limit,
+            queued_bytes: AtomicUsize::new(0),
+            dropped: AtomicUsize::new(0),
+        }
+    }
+
+    /// Reserve room for a record, or count it as dropped when the budget is used up
+    fn reserve(&self, bytes: usize) -> bool {
+        let queued = self.queued_bytes.fetch_add(bytes, Ordering::Relaxed);
+        if queued + bytes > self.limit {
+            self.queued_bytes.fetch_sub(bytes, Ordering::Relaxed);
+            self.dropped.fetch_add(1, Ordering::Relaxed);
+            return false;
+        }
+        true
+    }
+
+    fn release(&self, bytes: usize) {
+        self.queued_bytes.fetch_sub(bytes, Ordering::Relaxed);
+    }
+
+    fn take_dropped(&self) -> usize {
+        self.dropped.swap(0, Ordering::Relaxed)
+    }
 }
 
 impl log::Log for Logger {
@@ -24,49 +105,113 @@ impl log::Log for Logger {
     }
 
     fn log(&self, record: &Record) {
-        if self.enabled(record.metadata()) {
-            let timestamp = chrono::Local::now().format("%Y-%m-%d %H:%M:%S%.3f");
-            let session_id = self.session_id.lock().unwrap();
-            let session_prefix = session_id
-                .as_ref()
-                .map(|id| format!("[SESSION:{}] ", id))
-                .unwrap_or_default();
-            let log_line = format!(
-                "{}[{}] {} - {}",
-                session_prefix,
-                timestamp,
-                record.level(),
-                record.args()
-            );
+        if !self.enabled(record.metadata()) {
+            return;
+        }
+        let Some(sender) = self.sender.get() else {
+            return;
+        };
+
+        // Only the message is rendered here; timestamps and prefixes are the writer's job
+        let record = QueuedRecord {
+            time: SystemTime::now(),
+            level: record.level(),
+            text: record.args().to_string(),
+        };
+        let cost = record.cost();
+        if self.budget.reserve(cost) && sender.send(Message::Record(record)).is_err() {
+            self.budget.release(cost);
+        }
+    }
 
-            // Log to main debug file
-            let mut file_guard = self.file.lock().unwrap();
-            if let Some(file) = file_guard.as_mut() {
-                let _ = writeln!(file, "{}", log_line);
-            }
+    fn flush(&self) {
+        let Some(sender) = self.sender.get() else {
+            return;
+        };
+        let (ack_tx, ack_rx) = mpsc::channel();
+        if sender.send(Message::Flush(ack_tx)).is_ok() {
+            let _ = ack_rx.recv_timeout(FLUSH_TIMEOUT);
+        }
+    }
+}
 
-            // Also log errors to dedicated error file
-            if record.level() == log::Level::Error {
-                let mut error_file_guard = self.error_file.lock().unwrap();
-                if let Some(error_file) = error_file_guard.as_mut() {
-                    let _ = writeln!(error_file, "{}", log_line);
+/// Format a record the way it appears in the log files
+fn format_record(session_id: Option<&str>, record: &QueuedRecord) -> String {
+    let timestamp = chrono::DateTime::<chrono::Local>::from(record.time)
+        .format("%Y-%m-%d %H:%M:%S%.3f");
+    let session_prefix = session_id
+        .map(|id| format!("[SESSION:{}] ", id))
+        .unwrap_or_default();
+    format!(
+        "{}[{}] {} - {}",
+        session_prefix, timestamp, record.level, record.text
+    )
+}
+
+/// Write queued records until every sender is gone
+///
+/// Records are taken from the channel in batches; the writers are flushed
+/// whenever the queue runs empty, so the files stay current while idle.
+fn write_records(
+    receiver: mpsc::Receiver<Message>,
+    budget: &QueueBudget,
+    session_id: Option<&str>,
+    debug: impl Write,
+    errors: impl Write,
+) {
+    let mut debug = BufWriter::new(debug);
+    let mut errors = BufWriter::new(errors);
+    let mut acks = Vec::new();
+
+    while let Ok(first) = receiver.recv() {
+        let mut next = Some(first);
+        while let Some(message) = next {
+            match message {
+                Message::Record(record) => {
+                    let line = format_record(session_id, &record);
+                    let _ = writeln!(debug, "{}", line);
+                    // Also log errors to dedicated error file
+                    if record.level == log::Level::Error {
+                        let _ = writeln!(errors, "{}", line);
+                    }
+                    budget.release(record.cost());
                 }
+                Message::Flush(ack) => acks.push(ack),
             }
+            next = receiver.try_recv().ok();
         }
-    }
 
-    fn flush(&self) {
-        let mut file_guard = self.file.lock().unwrap();
-        if let Some(file) = file_guard.as_mut() {
-            let _ = file.flush();
+        let dropped = budget.take_dropped();
+        if dropped > 0 {
+            let _ = writeln!(
+                debug,
+                "[{}] WARN - {} log records dropped, the log queue was full",
+                chrono::Local::now().format("%Y-%m-%d %H:%M:%S%.3f"),
+                dropped
+            );
         }
-        let mut error_file_guard = self.error_file.lock().unwrap();
-        if let Some(error_file) = error_file_guard.as_mut() {
-            let _ = error_file.flush();
+        let _ = debug.flush();
+        let _ = errors.flush();
+        for ack in acks.drain(..) {
+            let _ = ack.send(());
         }
     }
 }
 
+/// Flush queued log records to the log files
+pub fn flush() {
+    log::logger().flush();
+}
+
+/// Flushes the log files when dropped, including on early returns
+pub struct FlushGuard;
+
+impl Drop for FlushGuard {
+    fn drop(&mut self) {
+        flush();
+    }
+}
+
 /// Get the system log directory for LazyMVN
 fn get_log_dir() -> Result<PathBuf, std::io::Error> {
     let dirs = directories::ProjectDirs::from("com", "lazymvn", "lazymvn").ok_or_else(|| {
@@ -94,25 +239,72 @@ pub fn get_error_log_path() -> Option<PathBuf> {
     get_log_dir().ok().map(|dir| dir.join("error.log"))
 }
 
+/// Get the path to the index of session start offsets
+fn get_session_index_path() -> Option<PathBuf> {
+    get_log_dir().ok().map(|dir| dir.join("sessions.idx"))
+}
+
+/// Where a session starts in the debug and error logs
+#[derive(Clone, Copy, Debug, Default, PartialEq, Eq)]
+struct SessionOffsets {
+    debug: u64,
+    error: u64,
+}
+
+/// Append a session's start offsets to the session index
+///
+/// Each line holds `<session id>\t<debug offset>\t<error offset>`.
+fn record_session_start(
+    index_path: &Path,
+    session_id: &str,
+    offsets: SessionOffsets,
+) -> Result<(), std::io::Error> {
+    let mut index = OpenOptions::new()
+        .create(true)
+        .append(true)
+        .open(index_path)?;
+    writeln!(index, "{}\t{}\t{}", session_id, offsets.debug, offsets.error)
+}
+
+/// Look up a session's start offsets in the session index
+fn find_session_offsets(index_path: &Path, session_id: &str) -> Option<SessionOffsets> {
+    let index = std::fs::read_to_string(index_path).ok()?;
+    // Later sessions are appended, so search from the end
+    index.lines().rev().find_map(|line| {
+        let mut fields = line.split('\t');
+        if fields.next()? != session_id {
+            return None;
+        }
+        Some(SessionOffsets {
+            debug: fields.next()?.parse().ok()?,
+            error: fields.next()?.parse().ok()?,
+        })
+    })
+}
+
 /// Get the current session ID
-#[allow(dead_code)]
 pub fn get_session_id() -> Option<String> {
-    LOGGER.session_id.lock().ok()?.clone()
+    LOGGER.session_id.get().cloned()
 }
 
-/// Extract logs for the current session from a log file
-#[allow(dead_code)]
+/// Extract the last `max_lines` logs of the current session from a log file
+///
+/// Reading starts at `start`, the offset where the session began, so earlier
+/// sessions are never scanned. Segments rotated since are read in order,
+/// only the lines kept being held in memory.
 fn extract_session_logs(
-    log_path: &PathBuf,
+    log_path: &Path,
     session_id: &str,
+    start: u64,
+    max_lines: usize,
 ) -> Result<Vec<String>, std::io::Error> {
+    use std::collections::VecDeque;
     use std::io::{BufRead, BufReader};
 
-    let file = File::open(log_path)?;
-    let reader = BufReader::new(file);
+    let reader = BufReader::new(log_rotation::read_since(log_path, session_id, start)?);
     let session_marker = format!("[SESSION:{}]", session_id);
 
-    let mut session_logs = Vec::new();
+    let mut session_logs = VecDeque::with_capacity(max_lines);
     let mut in_session = false;
 
     for line in reader.lines() {
@@ -121,23 +313,32 @@ fn extract_session_logs(
         // Check if this line belongs to our session
         if line.contains(&session_marker) {
             in_session = true;
-            session_logs.push(line);
         } else if in_session {
             // Check if we've hit a new session
             if line.contains("[SESSION:") && !line.contains(&session_marker) {
                 break;
             }
-            session_logs.push(line);
+        } else {
+            continue;
+        }
+        if session_logs.len() == max_lines {
+            session_logs.pop_front();
+        }
+        if max_lines > 0 {
+            session_logs.push_back(line);
         }
     }
 
-    Ok(session_logs)
+    Ok(session_logs.into())
 }
 
-/// Get concatenated logs from the current session (debug + error logs)
-#[allow(dead_code)]
+/// Get concatenated logs from the current session (last 500 lines of debug and error logs)
 pub fn get_current_session_logs() -> Result<String, String> {
     let session_id = get_session_id().ok_or("No session ID available")?;
+    flush();
+    let offsets = get_session_index_path()
+        .and_then(|path| find_session_offsets(&path, &session_id))
+        .unwrap_or_default();
 
     let mut all_logs = Vec::new();
 
@@ -154,8 +355,8 @@ pub fn get_current_session_logs() -> Result<String, String> {
     if let Some(debug_path) = get_debug_log_path()
         && debug_path.exists()
     {
-        all_logs.push("=== Debug Logs ===".to_string());
-        match extract_session_logs(&debug_path, &session_id) {
+        all_logs.push(format!("=== Debug Logs (last {} lines) ===", SESSION_LOG_LINES));
+        match extract_session_logs(&debug_path, &session_id, offsets.debug, SESSION_LOG_LINES) {
             Ok(logs) => {
                 if logs.is_empty() {
                     all_logs.push("(No debug logs for this session)".to_string());
@@ -174,8 +375,8 @@ pub fn get_current_session_logs() -> Result<String, String> {
     if let Some(error_path) = get_error_log_path()
         && error_path.exists()
     {
-        all_logs.push("=== Error Logs ===".to_string());
-        match extract_session_logs(&error_path, &session_id) {
+        all_logs.push(format!("=== Error Logs (last {} lines) ===", SESSION_LOG_LINES));
+        match extract_session_logs(&error_path, &session_id, offsets.error, SESSION_LOG_LINES) {
             Ok(logs) => {
                 if logs.is_empty() {
                     all_logs.push("(No errors for this session)".to_string());
@@ -195,7 +396,8 @@ pub fn get_current_session_logs() -> Result<String, String> {
 /// Initialize the logger with the specified log level
 /// Level can be: "off", "error", "warn", "info", "debug", "trace"
 /// In development mode, defaults to "debug" if None is provided
-pub fn init(log_level: Option<&str>) -> Result<(), SetLoggerError> {
+/// Log files are rotated and pruned according to `rotation`
+pub fn init(log_level: Option<&str>, rotation: LogRotation) -> Result<(), SetLoggerError> {
     // Determine the log level filter
     let level_filter = match log_level {
         Some("off") => LevelFilter::Off,
@@ -227,28 +429,60 @@ pub fn init(log_level: Option<&str>) -> Result<(), SetLoggerError> {
         let debug_log_path = log_dir.join("debug.log");
         let error_log_path = log_dir.join("error.log");
 
-        let file = OpenOptions::new()
-            .create(true)
-            .append(true)
-            .open(&debug_log_path)
+        let compressor = log_rotation::spawn_compressor(
+            vec![debug_log_path.clone(), error_log_path.clone()],
+            rotation,
+        )
+        .expect("Failed to start log compressor thread");
+
+        let file = RotatingFile::open(debug_log_path.clone(), rotation, compressor.clone())
             .expect("Failed to open log file");
 
-        let error_file = OpenOptions::new()
-            .create(true)
-            .append(true)
-            .open(&error_log_path)
+        let error_file = RotatingFile::open(error_log_path.clone(), rotation, compressor)
             .expect("Failed to open error log file");
 
         // Generate a unique session ID
-        let session_id = format!("{}", chrono::Local::now().format("%Y%m%d-%H%M%S-%3f"));
+        let session_id = format!("{}", chrono::Local::now().format(log_rotation::STAMP_FORMAT));
+        let _ = LOGGER.session_id.set(session_id.clone());
+
+        // Remember where this session starts so its logs can be read without a scan
+        let offsets = SessionOffsets {
+            debug: file.len(),
+            error: error_file.len(),
+        };
+        if let Err(e) =
+            record_session_start(&log_dir.join("sessions.idx"), &session_id, offsets)
+        {
+            eprintln!("Warning: Failed to update the session log index: {}", e);
+        }
 
-        *LOGGER.file.lock().unwrap() = Some(file);
-        *LOGGER.error_file.lock().unwrap() = Some(error_file);
-        *LOGGER.session_id.lock().unwrap() = Some(session_id.clone());
+        let (sender, receiver) = mpsc::channel();
+        let writer_session_id = session_id.clone();
+        std::thread::Builder::new()
+            .name("log-writer".to_string())
+            .spawn(move || {
+                write_records(
+                    receiver,
+                    &LOGGER.budget,
+                    Some(writer_session_id.as_str()),
+                    file,
+                    error_file,
+                )
+            })
+            .expect("Failed to start log writer thread");
+        let _ = LOGGER.sender.set(sender);
 
         log::set_logger(&LOGGER)?;
         log::set_max_level(level_filter);
 
+        // Records queued before a panic would be lost when the process aborts
+        let previous_hook = std::panic::take_hook();
+        std::panic::set_hook(Box::new(move |info| {
+            log::error!("Panic: {}", info);
+            flush();
+            previous_hook(info);
+        }));
+
         log::info!("=== LazyMVN Session Started ===");
         log::info!("Session ID: {}", session_id);
         log::info!("Log level: {:?}", level_filter);
@@ -263,26 +497,48 @@ pub fn init(log_level: Option<&str>) -> Result<(), SetLoggerError> {
 }
 
 /// Read the last N lines from a file (tail-like functionality)
-fn read_last_lines(path: &PathBuf, max_lines: usize) -> Result<Vec<String>, std::io::Error> {
-    use std::io::{BufRead, BufReader};
-
-    let file = File::open(path)?;
-    let reader = BufReader::new(file);
+///
+/// The file is read backwards in chunks from its end until enough lines were
+/// found, so the cost depends on the size of the tail, not of the file.
+fn read_last_lines(path: &Path, max_lines: usize) -> Result<Vec<String>, std::io::Error> {
+    let mut file = File::open(path)?;
+    let mut start = file.metadata()?.len();
+
+    let mut chunks = Vec::new();
+    let mut newlines = 0;
+    // The newline ending the last line does not start another one
+    while start > 0 && newlines <= max_lines {
+        let chunk_len = TAIL_CHUNK_BYTES.min(start);
+        start -= chunk_len;
+        let mut chunk = vec![0; chunk_len as usize];
+        file.seek(SeekFrom::Start(start))?;
+        file.read_exact(&mut chunk)?;
+        newlines += chunk.iter().filter(|&&byte| byte == b'\n').count();
+        chunks.push(chunk);
+    }
 
-    // Read all lines and keep the last N
-    let all_lines: Vec<String> = reader.lines().collect::<Result<Vec<_>, _>>()?;
+    let tail: Vec<u8> = chunks.into_iter().rev().flatten().collect();
+    let text = String::from_utf8_lossy(&tail);
+    let lines: Vec<&str> = text.lines().collect();
+    let start_idx = lines.len().saturating_sub(max_lines);
 
-    let start_idx = if all_lines.len() > max_lines {
-        all_lines.len() - max_lines
-    } else {
-        0
-    };
+    Ok(lines[start_idx..].iter().map(|line| line.to_string()).collect())
+}
 
-    Ok(all_lines[start_idx..].to_vec())
+/// Read the last N lines of a log file, continuing into its rotated segments
+fn read_log_tail(path: &Path, max_lines: usize) -> Result<Vec<String>, std::io::Error> {
+    let lines = read_last_lines(path, max_lines)?;
+    if lines.len() >= max_lines {
+        return Ok(lines);
+    }
+    let mut tail = log_rotation::last_rotated_lines(path, max_lines - lines.len())?;
+    tail.extend(lines);
+    Ok(tail)
 }
 
 /// Get all available logs (last 500 lines from debug and error logs)
 pub fn get_all_logs() -> String {
+    flush();
     let mut output = Vec::new();
 
     // Add debug logs
@@ -290,7 +546,7 @@ pub fn get_all_logs() -> String {
         && debug_path.exists()
     {
         output.push("=== Debug Logs (last 500 lines) ===".to_string());
-        match read_last_lines(&debug_path, 500) {
+        match read_log_tail(&debug_path, 500) {
             Ok(lines) => {
                 if lines.is_empty() {
                     output.push("(No debug logs)".to_string());
@@ -310,7 +566,7 @@ pub fn get_all_logs() -> String {
         && error_path.exists()
     {
         output.push("=== Error Logs (last 500 lines) ===".to_string());
-        match read_last_lines(&error_path, 500) {
+        match read_log_tail(&error_path, 500) {
             Ok(lines) => {
                 if lines.is_empty() {
                     output.push("(No error logs)".to_string());
@@ -326,3 +582,135 @@ pub fn get_all_logs() -> String {
 
     output.join("\n")
 }
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+
+    fn record(level: log::Level, text: &str) -> Message {
+        Message::Record(QueuedRecord {
+            time: SystemTime::now(),
+            level,
+            text: text.to_string(),
+        })
+    }
+
+    #[test]
+    fn test_writer_splits_errors_and_releases_budget() {
+        let budget = QueueBudget::new(usize::MAX);
+        let (sender, receiver) = mpsc::channel();
+        for message in [
+            record(log::Level::Info, "started"),
+            record(log::Level::Error, "failed"),
+        ] {
+            if let Message::Record(record) = &message {
+                assert!(budget.reserve(record.cost()));
+            }
+            sender.send(message).unwrap();
+        }
+        let (ack_tx, ack_rx) = mpsc::channel();
+        sender.send(Message::Flush(ack_tx)).unwrap();
+        drop(sender);
+
+        let mut debug = Vec::new();
+        let mut errors = Vec::new();
+        write_records(receiver, &budget, Some("s1"), &mut debug, &mut errors);
+
+        let debug = String::from_utf8(debug).unwrap();
+        let errors = String::from_utf8(errors).unwrap();
+        assert_eq!(debug.lines().count(), 2);
+        assert!(debug.starts_with("[SESSION:s1] ["));
+        assert!(debug.contains("] INFO - started"));
+        assert_eq!(errors.lines().count(), 1);
+        assert!(errors.contains("] ERROR - failed"));
+        assert!(ack_rx.try_recv().is_ok());
+        assert_eq!(budget.queued_bytes.load(Ordering::Relaxed), 0);
+    }
+
+    #[test]
+    fn test_read_last_lines_reads_across_chunks() {
+        let dir = tempfile::tempdir().unwrap();
+        let path = dir.path().join("debug.log");
+        let line = "x".repeat(1000);
+        let content: String = (0..200).map(|i| format!("{} {}\n", i, line)).collect();
+        std::fs::write(&path, content).unwrap();
+
+        let lines = read_last_lines(&path, 150).unwrap();
+        assert_eq!(lines.len(), 150);
+        assert!(lines[0].starts_with("50 "));
+        assert!(lines[149].starts_with("199 "));
+
+        assert_eq!(read_last_lines(&path, 500).unwrap().len(), 200);
+        assert!(read_last_lines(&path, 0).unwrap().is_empty());
+    }
+
+    #[test]
+    fn test_session_logs_start_at_indexed_offset() {
+        let dir = tempfile::tempdir().unwrap();
+        let log_path = dir.path().join("debug.log");
+        let index_path = dir.path().join("sessions.idx");
+
+        let old = "[SESSION:a] [t] INFO - old\n";
+        let new = "[SESSION:b] [t] INFO - new\ncontinued\n";
+        std::fs::write(&log_path, format!("{}{}", old, new)).unwrap();
+        let a = SessionOffsets { debug: 0, error: 0 };
+        let b = SessionOffsets {
+            debug: old.len() as u64,
+            error: 0,
+        };
+        record_session_start(&index_path, "a", a).unwrap();
+        record_session_start(&index_path, "b", b).unwrap();
+
+        assert_eq!(find_session_offsets(&index_path, "b"), Some(b));
+        assert_eq!(find_session_offsets(&index_path, "c"), None);
+
+        let logs = extract_session_logs(&log_path, "b", b.debug, 500).unwrap();
+        assert_eq!(logs, vec!["[SESSION:b] [t] INFO - new", "continued"]);
+    }
+
+    #[test]
+    fn test_session_logs_keep_their_last_lines() {
+        let dir = tempfile::tempdir().unwrap();
+        let log_path = dir.path().join("debug.log");
+        let lines: String = (0..1000)
+            .map(|i| format!("[SESSION:s] [t] INFO - line {}\n", i))
+            .collect();
+        std::fs::write(&log_path, format!("[SESSION:old] [t] INFO - old\n{}", lines)).unwrap();
+
+        let logs = extract_session_logs(&log_path, "s", 0, 3).unwrap();
+        assert_eq!(
+            logs,
+            vec![
+                "[SESSION:s] [t] INFO - line 997",
+                "[SESSION:s] [t] INFO - line 998",
+                "[SESSION:s] [t] INFO - line 999",
+            ]
+        );
+        assert!(extract_session_logs(&log_path, "s", 0, 0).unwrap().is_empty());
+    }
+
+    #[test]
+    fn test_budget_drops_records_and_writer_reports_them() {
+        let budget = QueueBudget::new(100);
+        assert!(budget.reserve(60));
+        assert!(!budget.reserve(60));
+        assert!(!budget.reserve(41));
+        budget.release(60);
+        assert!(budget.reserve(100));
+        budget.release(100);
+
+        let (sender, receiver) = mpsc::channel();
+        let kept = record(log::Level::Debug, "kept");
+        if let Message::Record(record) = &kept {
+            assert!(budget.reserve(record.cost()));
+        }
+        sender.send(kept).unwrap();
+        drop(sender);
+
+        let mut debug = Vec::new();
+        write_records(receiver, &budget, None, &mut debug, std::io::sink());
+        let debug = String::from_utf8(debug).unwrap();
+        assert!(debug.contains("2 log records dropped"));
+        assert_eq!(budget.take_dropped(), 0);
+    }
+}
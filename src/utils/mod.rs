@@ -1,19 +1,29 @@
 //! Utility modules
 //!
 //! This module provides various utility functions:
+//! - `clipboard`: Copying text through platform clipboard tools
 //! - `text`: Text processing (colorization, ANSI stripping, XML formatting)
-//! - `logger`: Logging configuration
+//! - `logger`: Logging to files from a background writer thread
+//! - `log_rotation`: Rotation and compression of log files
 //! - `watcher`: File watching for live reload
 //! - `loading`: Loading animations
 //! - `git`: Git repository operations
+//! - `wakeup`: Wakeups for the main event loop
+//! - `system_load`: Sampling of the load average and available memory
 
+pub mod clipboard;
 pub mod git;
 pub mod loading;
+pub mod log_rotation;
 pub mod logger;
+pub mod system_load;
 pub mod text;
 pub mod version;
+pub mod wakeup;
 pub mod watcher;
 
 // Re-export commonly used functions for convenience
 pub use git::get_git_branch;
-pub use text::{clean_log_line, colorize_log_line, colorize_xml_line};
+pub use text::{
+    StyledSegment, clean_log_bytes, clean_log_line, log_line_segments, xml_line_segments,
+};
@@ -0,0 +1,88 @@
+//! System load sampling
+//!
+//! The job queue admits builds according to how busy the machine is. On Linux
+//! the load average and the available memory are read from `/proc/loadavg`
+//! and `/proc/meminfo`; elsewhere they are unknown and only the number of job
+//! slots limits concurrency.
+
+use std::time::Instant;
+
+/// How busy the machine was when sampled
+#[derive(Clone, Debug, PartialEq)]
+pub struct SystemLoad {
+    /// One-minute load average
+    pub load_average: Option<f64>,
+    /// Memory available to new processes, in MiB
+    pub available_memory_mb: Option<u64>,
+    /// Number of CPUs available to this process
+    pub cpus: usize,
+    pub sampled_at: Instant,
+}
+
+impl SystemLoad {
+    /// Sample the current load of the machine
+    pub fn sample() -> Self {
+        Self {
+            load_average: read_proc("/proc/loadavg").and_then(|text| parse_load_average(&text)),
+            available_memory_mb: read_proc("/proc/meminfo")
+                .and_then(|text| parse_available_memory_mb(&text)),
+            cpus: cpu_count(),
+            sampled_at: Instant::now(),
+        }
+    }
+}
+
+/// Number of CPUs available to this process, at least 1
+pub fn cpu_count() -> usize {
+    std::thread::available_parallelism()
+        .map(|count| count.get())
+        .unwrap_or(1)
+}
+
+fn read_proc(path: &str) -> Option<String> {
+    if !cfg!(target_os = "linux") {
+        return None;
+    }
+    match std::fs::read_to_string(path) {
+        Ok(text) => Some(text),
+        Err(e) => {
+            log::debug!("Failed to read {}: {}", path, e);
+            None
+        }
+    }
+}
+
+/// One-minute load average from the content of `/proc/loadavg`
+fn parse_load_average(loadavg: &str) -> Option<f64> {
+    loadavg.split_whitespace().next()?.parse().ok()
+}
+
+/// `MemAvailable` in MiB from the content of `/proc/meminfo`
+fn parse_available_memory_mb(meminfo: &str) -> Option<u64> {
+    let line = meminfo
+        .lines()
+        .find(|line| line.starts_with("MemAvailable:"))?;
+    let kib: u64 = line.split_whitespace().nth(1)?.parse().ok()?;
+    Some(kib / 1024)
+}
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+
+    #[test]
+    fn test_parse_load_average() {
+        assert_eq!(parse_load_average("3.52 2.10 1.05 4/1234 56789\n"), Some(3.52));
+        assert_eq!(parse_load_average(""), None);
+    }
+
+    #[test]
+    fn test_parse_available_memory() {
+        let meminfo = "MemTotal:       16303452 kB\n\
+                       MemFree:          512000 kB\n\
+                       MemAvailable:    4194304 kB\n\
+                       Buffers:          102400 kB\n";
+        assert_eq!(parse_available_memory_mb(meminfo), Some(4096));
+        assert_eq!(parse_available_memory_mb("MemTotal: 1 kB\n"), None);
+    }
+}
@@ -5,293 +5,305 @@
 //! - Log line colorization
 //! - XML syntax highlighting
 
-use ratatui::{
-    style::{Color, Style},
-    text::{Line, Span},
-};
+use ratatui::style::{Color, Style};
+use std::borrow::Cow;
+use std::ops::Range;
 
 /// Clean a log line by removing ANSI escape sequences and carriage returns
 /// Returns None if the line is empty after cleaning
 pub fn clean_log_line(raw: &str) -> Option<String> {
-    let mut result = String::with_capacity(raw.len());
-    let mut chars = raw.chars().peekable();
-
-    while let Some(ch) = chars.next() {
-        if ch == '\u{1b}'
-            && let Some('[') = chars.peek()
-        {
-            chars.next();
-            // Consume until we reach end of ANSI sequence
-            for next in chars.by_ref() {
-                if ('@'..='~').contains(&next) {
-                    break;
+    let cleaned = match strip_ansi_bytes(raw.as_bytes()) {
+        Cow::Borrowed(_) => Cow::Borrowed(raw),
+        // Only ASCII bytes are removed, so the remainder is still valid UTF-8
+        Cow::Owned(bytes) => Cow::Owned(String::from_utf8(bytes).ok()?),
+    };
+    trim_cleaned(cleaned).map(Cow::into_owned)
+}
+
+/// Clean a raw log line read from a process stream
+///
+/// Works directly on the bytes read from the pipe and borrows from them when
+/// the line has no escape codes or carriage returns. Returns None if the line
+/// is empty after cleaning or is not valid UTF-8.
+pub fn clean_log_bytes(raw: &[u8]) -> Option<Cow<'_, str>> {
+    let cleaned = match strip_ansi_bytes(raw) {
+        Cow::Borrowed(bytes) => Cow::Borrowed(std::str::from_utf8(bytes).ok()?),
+        Cow::Owned(bytes) => Cow::Owned(String::from_utf8(bytes).ok()?),
+    };
+    trim_cleaned(cleaned)
+}
+
+/// Remove ANSI CSI escape sequences and carriage returns from raw bytes
+///
+/// Returns the input unchanged, without allocating, when there is nothing to strip.
+pub fn strip_ansi_bytes(raw: &[u8]) -> Cow<'_, [u8]> {
+    let Some(first) = find_control_byte(raw) else {
+        return Cow::Borrowed(raw);
+    };
+
+    let mut result = Vec::with_capacity(raw.len());
+    result.extend_from_slice(&raw[..first]);
+    let mut i = first;
+    while i < raw.len() {
+        match raw[i] {
+            ESC if raw.get(i + 1) == Some(&b'[') => {
+                // Consume until we reach the final byte of the sequence
+                i += 2;
+                while i < raw.len() {
+                    let byte = raw[i];
+                    i += 1;
+                    if (b'@'..=b'~').contains(&byte) {
+                        break;
+                    }
                 }
             }
-            continue;
+            b'\r' => i += 1,
+            _ => {
+                // Copy everything up to the next control byte at once
+                let next = find_control_byte(&raw[i + 1..]).map_or(raw.len(), |pos| i + 1 + pos);
+                result.extend_from_slice(&raw[i..next]);
+                i = next;
+            }
         }
+    }
+    Cow::Owned(result)
+}
 
-        if ch != '\r' {
-            result.push(ch);
+const ESC: u8 = 0x1b;
+
+/// Find the first ESC or carriage return byte, scanning eight bytes at a time
+fn find_control_byte(bytes: &[u8]) -> Option<usize> {
+    const LOW_BITS: u64 = 0x0101_0101_0101_0101;
+    const HIGH_BITS: u64 = 0x8080_8080_8080_8080;
+    const ESC_PATTERN: u64 = LOW_BITS * ESC as u64;
+    const CR_PATTERN: u64 = LOW_BITS * b'\r' as u64;
+
+    // True when at least one byte of the word is zero
+    let has_zero_byte = |word: u64| word.wrapping_sub(LOW_BITS) & !word & HIGH_BITS != 0;
+
+    let mut offset = 0;
+    for chunk in bytes.chunks_exact(8) {
+        let mut word_bytes = [0u8; 8];
+        word_bytes.copy_from_slice(chunk);
+        let word = u64::from_ne_bytes(word_bytes);
+        if has_zero_byte(word ^ ESC_PATTERN) || has_zero_byte(word ^ CR_PATTERN) {
+            break;
         }
+        offset += 8;
     }
 
-    let trimmed = result.trim_end();
-    if trimmed.is_empty() {
+    bytes[offset..]
+        .iter()
+        .position(|&byte| byte == ESC || byte == b'\r')
+        .map(|pos| offset + pos)
+}
+
+/// Trim trailing whitespace, keeping borrowed text borrowed
+fn trim_cleaned(cleaned: Cow<'_, str>) -> Option<Cow<'_, str>> {
+    let trimmed_len = cleaned.trim_end().len();
+    if trimmed_len == 0 {
         return None;
     }
-    Some(trimmed.to_string())
+    Some(match cleaned {
+        Cow::Borrowed(text) => Cow::Borrowed(&text[..trimmed_len]),
+        Cow::Owned(mut text) => {
+            text.truncate(trimmed_len);
+            Cow::Owned(text)
+        }
+    })
 }
 
-/// Create a line with keyword-based coloring (simple approach)
-/// Highlights [INFO], [WARNING], [ERROR] keywords and command lines
-pub fn colorize_log_line(text: &str) -> Line<'static> {
-    let mut spans = Vec::new();
+/// Byte range of a line together with the style it is drawn with
+pub type StyledSegment = (Style, Range<usize>);
 
+/// Compute the styled segments of a log line into `segments`
+///
+/// Segments are byte ranges of `text`, so styling a line allocates nothing
+/// once `segments` has grown to fit.
+pub fn log_line_segments(text: &str, segments: &mut Vec<StyledSegment>) {
     // Check if this is a command line (starts with $)
     if text.starts_with("$ ") {
-        spans.push(Span::styled(
-            text.to_string(),
+        segments.push((
             Style::default()
                 .fg(Color::Cyan)
                 .add_modifier(ratatui::style::Modifier::BOLD),
+            0..text.len(),
         ));
-    } else if let Some(info_pos) = text.find("[INFO]") {
-        // Split around [INFO]
-        if info_pos > 0 {
-            spans.push(Span::raw(text[..info_pos].to_string()));
-        }
-        spans.push(Span::styled(
-            "[INFO]".to_string(),
-            Style::default().fg(Color::Green),
-        ));
-        let remaining = &text[info_pos + 6..];
-        if !remaining.is_empty() {
-            spans.push(Span::raw(remaining.to_string()));
-        }
+        return;
+    }
+
+    let keyword = if let Some(info_pos) = text.find("[INFO]") {
+        Some((info_pos, "[INFO]".len(), Color::Green))
     } else if let Some(warn_pos) = text.find("[WARNING]") {
-        // Split around [WARNING]
-        if warn_pos > 0 {
-            spans.push(Span::raw(text[..warn_pos].to_string()));
-        }
-        spans.push(Span::styled(
-            "[WARNING]".to_string(),
-            Style::default().fg(Color::Yellow),
-        ));
-        let remaining = &text[warn_pos + 9..];
-        if !remaining.is_empty() {
-            spans.push(Span::raw(remaining.to_string()));
-        }
-    } else if let Some(error_pos) = text.find("[ERROR]").or_else(|| text.find("[ERR]")) {
-        // Split around [ERROR] or [ERR]
-        let (keyword, len) = if text[error_pos..].starts_with("[ERROR]") {
-            ("[ERROR]", 7)
-        } else {
-            ("[ERR]", 5)
-        };
-
-        if error_pos > 0 {
-            spans.push(Span::raw(text[..error_pos].to_string()));
-        }
-        spans.push(Span::styled(
-            keyword.to_string(),
-            Style::default().fg(Color::Red),
-        ));
-        let remaining = &text[error_pos + len..];
-        if !remaining.is_empty() {
-            spans.push(Span::raw(remaining.to_string()));
-        }
+        Some((warn_pos, "[WARNING]".len(), Color::Yellow))
+    } else if let Some(error_pos) = text.find("[ERROR]") {
+        Some((error_pos, "[ERROR]".len(), Color::Red))
     } else {
+        text.find("[ERR]")
+            .map(|error_pos| (error_pos, "[ERR]".len(), Color::Red))
+    };
+
+    match keyword {
+        Some((pos, len, color)) => {
+            // Split around the keyword
+            if pos > 0 {
+                segments.push((Style::default(), 0..pos));
+            }
+            segments.push((Style::default().fg(color), pos..pos + len));
+            if pos + len < text.len() {
+                segments.push((Style::default(), pos + len..text.len()));
+            }
+        }
         // No special keywords, return as-is
-        spans.push(Span::raw(text.to_string()));
+        None => segments.push((Style::default(), 0..text.len())),
     }
-
-    Line::from(spans)
 }
 
-/// Colorize XML syntax for better readability
-/// Highlights tags, attributes, and values with different colors
-pub fn colorize_xml_line(text: &str) -> Line<'static> {
-    let mut spans = Vec::new();
-    let mut chars = text.chars().peekable();
-    let mut current = String::new();
-
-    while let Some(ch) = chars.next() {
-        if ch == '<' {
-            // Flush any accumulated text as normal
-            if !current.is_empty() {
-                spans.push(Span::raw(current.clone()));
-                current.clear();
-            }
-
-            // Start of tag
-            current.push(ch);
-
-            // Check if it's a closing tag or comment
-            let is_closing = chars.peek() == Some(&'/');
-            let is_comment = chars.peek() == Some(&'!');
-
-            // Consume the tag
-            let mut in_quotes = false;
-            let mut quote_char = ' ';
-
-            while let Some(&next_ch) = chars.peek() {
-                chars.next();
-                current.push(next_ch);
-
-                if next_ch == '"' || next_ch == '\'' {
-                    if in_quotes && quote_char == next_ch {
-                        in_quotes = false;
-                    } else if !in_quotes {
-                        in_quotes = true;
-                        quote_char = next_ch;
-                    }
-                }
-
-                if next_ch == '>' && !in_quotes {
-                    break;
-                }
-            }
+/// Compute the styled segments of an XML line into `segments`
+pub fn xml_line_segments(text: &str, segments: &mut Vec<StyledSegment>) {
+    let bytes = text.as_bytes();
+    let mut text_start = 0;
+    let mut i = 0;
 
-            // Colorize the tag
-            if is_comment {
-                // Comments in dark gray (more subtle)
-                spans.push(Span::styled(
-                    current.clone(),
-                    Style::default().fg(Color::DarkGray),
-                ));
-            } else {
-                // Parse tag name and attributes
-                colorize_xml_tag(&current, &mut spans, is_closing);
-            }
-            current.clear();
-        } else {
-            current.push(ch);
+    while i < bytes.len() {
+        if bytes[i] != b'<' {
+            i += 1;
+            continue;
         }
-    }
 
-    // Flush remaining text
-    if !current.is_empty() {
-        let trimmed = current.trim();
-        if !trimmed.is_empty() {
-            // Text content in white
-            spans.push(Span::raw(current));
-        } else {
-            // Preserve whitespace
-            spans.push(Span::raw(current));
+        // Flush any accumulated text as normal
+        if i > text_start {
+            segments.push((Style::default(), text_start..i));
         }
+        let tag_end = xml_tag_end(bytes, i);
+        xml_tag_segments(text, i..tag_end, segments);
+        i = tag_end;
+        text_start = tag_end;
     }
 
-    if spans.is_empty() {
-        spans.push(Span::raw(text.to_string()));
+    if text_start < text.len() || segments.is_empty() {
+        segments.push((Style::default(), text_start..text.len()));
     }
+}
 
-    Line::from(spans)
+/// Find the end of the tag starting at `start`, ignoring `>` inside quoted values
+///
+/// Returns the text length when the tag is not closed on this line.
+fn xml_tag_end(bytes: &[u8], start: usize) -> usize {
+    let mut quote = None;
+    for (offset, &byte) in bytes[start + 1..].iter().enumerate() {
+        match (quote, byte) {
+            (None, b'"' | b'\'') => quote = Some(byte),
+            (Some(open), _) if open == byte => quote = None,
+            (None, b'>') => return start + 1 + offset + 1,
+            _ => {}
+        }
+    }
+    bytes.len()
 }
 
 /// Helper to colorize XML tag components
-fn colorize_xml_tag(tag: &str, spans: &mut Vec<Span<'static>>, is_closing: bool) {
+fn xml_tag_segments(text: &str, tag: Range<usize>, segments: &mut Vec<StyledSegment>) {
+    let tag_text = &text[tag.clone()];
+    if tag_text.starts_with("<!") {
+        // Comments in dark gray (more subtle)
+        segments.push((Style::default().fg(Color::DarkGray), tag));
+        return;
+    }
+
     // Tag format: <tagname attr="value">
-    let content = tag.trim_start_matches('<').trim_end_matches('>');
+    let inner_start = tag.start + 1;
+    let inner_end = if tag_text.len() > 1 && tag_text.ends_with('>') {
+        tag.end - 1
+    } else {
+        tag.end
+    };
+    let inner = &text[inner_start..inner_end];
 
-    if content.starts_with('?') {
+    if inner.starts_with('?') {
         // XML declaration: <?xml ... ?> in light purple
-        spans.push(Span::styled(
-            tag.to_string(),
-            Style::default().fg(Color::LightMagenta),
-        ));
+        segments.push((Style::default().fg(Color::LightMagenta), tag));
         return;
     }
 
-    let mut parts = content.split_whitespace();
+    let name_start = inner_end - inner.trim_start().len();
+    let name_end = text[name_start..inner_end]
+        .find(char::is_whitespace)
+        .map_or(inner_end, |pos| name_start + pos);
+    if name_start == name_end {
+        // Fallback
+        segments.push((Style::default(), tag));
+        return;
+    }
 
-    // Tag name
-    if let Some(tag_name) = parts.next() {
-        // Opening bracket in dark gray
-        spans.push(Span::styled(
-            "<".to_string(),
-            Style::default().fg(Color::DarkGray),
-        ));
+    // Opening bracket in dark gray
+    let bracket_style = Style::default().fg(Color::DarkGray);
+    segments.push((bracket_style, tag.start..inner_start));
+    if name_start > inner_start {
+        segments.push((Style::default(), inner_start..name_start));
+    }
 
-        // Tag name: light blue for opening, light red for closing
-        let tag_color = if is_closing {
-            Color::LightRed
-        } else {
-            Color::LightBlue
-        };
-        spans.push(Span::styled(
-            tag_name.to_string(),
-            Style::default().fg(tag_color),
-        ));
+    // Tag name: light blue for opening, light red for closing
+    let tag_color = if tag_text.starts_with("</") {
+        Color::LightRed
+    } else {
+        Color::LightBlue
+    };
+    segments.push((Style::default().fg(tag_color), name_start..name_end));
 
-        // Attributes
-        let remainder: Vec<&str> = parts.collect();
-        if !remainder.is_empty() {
-            let attrs = remainder.join(" ");
-            colorize_xml_attributes(&attrs, spans);
-        }
+    xml_attribute_segments(text, name_end..inner_end, segments);
 
-        // Closing bracket in dark gray
-        spans.push(Span::styled(
-            ">".to_string(),
-            Style::default().fg(Color::DarkGray),
-        ));
-    } else {
-        // Fallback
-        spans.push(Span::raw(tag.to_string()));
+    // Closing bracket in dark gray
+    if inner_end < tag.end {
+        segments.push((bracket_style, inner_end..tag.end));
     }
 }
 
 /// Helper to colorize XML attributes
-fn colorize_xml_attributes(attrs: &str, spans: &mut Vec<Span<'static>>) {
-    let chars = attrs.chars();
-    let mut current = String::new();
-    let mut in_quotes = false;
-    let mut in_value = false;
-
-    for ch in chars {
-        if ch == '=' && !in_quotes {
-            // Attribute name in light yellow
-            if !current.trim().is_empty() {
-                spans.push(Span::raw(" ".to_string()));
-                spans.push(Span::styled(
-                    current.trim().to_string(),
-                    Style::default().fg(Color::LightYellow),
-                ));
-                current.clear();
-            }
-            spans.push(Span::styled(
-                "=".to_string(),
-                Style::default().fg(Color::DarkGray),
-            ));
-            in_value = true;
-        } else if ch == '"' || ch == '\'' {
-            if !in_quotes {
-                // Start of value
-                in_quotes = true;
-                current.push(ch);
-            } else {
-                // End of value - in light green
-                current.push(ch);
-                spans.push(Span::styled(
-                    current.clone(),
-                    Style::default().fg(Color::LightGreen),
-                ));
-                current.clear();
-                in_quotes = false;
-                in_value = false;
+fn xml_attribute_segments(text: &str, attrs: Range<usize>, segments: &mut Vec<StyledSegment>) {
+    let bytes = text.as_bytes();
+    let mut pending = attrs.start;
+    let mut i = attrs.start;
+
+    while i < attrs.end {
+        match bytes[i] {
+            b'=' => {
+                // Attribute name in light yellow
+                let run = &text[pending..i];
+                let name_start = pending + (run.len() - run.trim_start().len());
+                let name_end = pending + run.trim_end().len();
+                if name_start < name_end {
+                    push_plain(segments, pending..name_start);
+                    segments.push((Style::default().fg(Color::LightYellow), name_start..name_end));
+                    push_plain(segments, name_end..i);
+                } else {
+                    push_plain(segments, pending..i);
+                }
+                segments.push((Style::default().fg(Color::DarkGray), i..i + 1));
+                i += 1;
+                pending = i;
             }
-        } else if ch.is_whitespace() && !in_quotes && !in_value {
-            if !current.is_empty() {
-                spans.push(Span::raw(current.clone()));
-                current.clear();
+            quote @ (b'"' | b'\'') => {
+                // Quoted value in light green
+                push_plain(segments, pending..i);
+                let value_end = bytes[i + 1..attrs.end]
+                    .iter()
+                    .position(|&byte| byte == quote)
+                    .map_or(attrs.end, |pos| i + 1 + pos + 1);
+                segments.push((Style::default().fg(Color::LightGreen), i..value_end));
+                i = value_end;
+                pending = i;
             }
-        } else {
-            current.push(ch);
+            _ => i += 1,
         }
     }
 
-    if !current.is_empty() {
-        spans.push(Span::raw(current));
+    push_plain(segments, pending..attrs.end);
+}
+
+fn push_plain(segments: &mut Vec<StyledSegment>, range: Range<usize>) {
+    if !range.is_empty() {
+        segments.push((Style::default(), range));
     }
 }
 
@@ -321,56 +333,116 @@ mod tests {
     }
 
     #[test]
-    fn colorize_log_line_handles_plain_text() {
-        let line = colorize_log_line("Plain text");
-        assert_eq!(line.spans.len(), 1);
+    fn clean_log_bytes_borrows_plain_lines() {
+        let input = b"[INFO] Building module-a 1.0.0  ";
+        let result = clean_log_bytes(input);
+        assert!(matches!(result, Some(Cow::Borrowed("[INFO] Building module-a 1.0.0"))));
+    }
+
+    #[test]
+    fn clean_log_bytes_strips_escapes() {
+        let input = "\u{1b}[1;31mErreur\u{1b}[0m: réseau\r".as_bytes();
+        let result = clean_log_bytes(input);
+        assert_eq!(result.as_deref(), Some("Erreur: réseau"));
+    }
+
+    #[test]
+    fn clean_log_bytes_rejects_empty_and_invalid_lines() {
+        assert_eq!(clean_log_bytes(b"\x1b[0m  \r"), None);
+        assert_eq!(clean_log_bytes(&[0x66, 0x6f, 0xff]), None);
+    }
+
+    #[test]
+    fn strip_ansi_bytes_finds_escapes_past_word_boundary() {
+        let input = b"0123456789abcdef\x1b[32mgreen\x1b[0m and a lone \x1b escape";
+        let result = strip_ansi_bytes(input);
+        assert_eq!(&result[..], &b"0123456789abcdefgreen and a lone \x1b escape"[..]);
+        assert!(matches!(strip_ansi_bytes(b"no escapes here at all"), Cow::Borrowed(_)));
+    }
+
+    fn log_segments(text: &str) -> Vec<StyledSegment> {
+        let mut segments = Vec::new();
+        log_line_segments(text, &mut segments);
+        segments
+    }
+
+    fn xml_segments(text: &str) -> Vec<StyledSegment> {
+        let mut segments = Vec::new();
+        xml_line_segments(text, &mut segments);
+        segments
+    }
+
+    #[test]
+    fn log_segments_keep_plain_text_whole() {
+        assert_eq!(log_segments("Plain text").len(), 1);
+    }
+
+    #[test]
+    fn log_segments_highlight_info() {
+        assert!(log_segments("This is [INFO] message").len() >= 2);
     }
 
     #[test]
-    fn colorize_log_line_highlights_info() {
-        let line = colorize_log_line("This is [INFO] message");
-        assert!(line.spans.len() >= 2);
+    fn log_segments_highlight_warning() {
+        assert!(log_segments("This is [WARNING] message").len() >= 2);
     }
 
     #[test]
-    fn colorize_log_line_highlights_warning() {
-        let line = colorize_log_line("This is [WARNING] message");
-        assert!(line.spans.len() >= 2);
+    fn log_segments_highlight_error() {
+        assert!(log_segments("This is [ERROR] message").len() >= 2);
     }
 
     #[test]
-    fn colorize_log_line_highlights_error() {
-        let line = colorize_log_line("This is [ERROR] message");
-        assert!(line.spans.len() >= 2);
+    fn test_xml_segments_declaration() {
+        assert!(!xml_segments("<?xml version=\"1.0\"?>").is_empty());
     }
 
     #[test]
-    fn test_colorize_xml_declaration() {
-        let line = colorize_xml_line("<?xml version=\"1.0\"?>");
-        assert!(!line.spans.is_empty());
+    fn test_xml_segments_opening_tag() {
+        assert!(xml_segments("<project>").len() >= 3); // <, project, >
     }
 
     #[test]
-    fn test_colorize_xml_opening_tag() {
-        let line = colorize_xml_line("<project>");
-        assert!(line.spans.len() >= 3); // <, project, >
+    fn test_xml_segments_closing_tag() {
+        assert!(xml_segments("</project>").len() >= 3);
     }
 
     #[test]
-    fn test_colorize_xml_closing_tag() {
-        let line = colorize_xml_line("</project>");
-        assert!(line.spans.len() >= 3);
+    fn test_xml_segments_with_attributes() {
+        let segments = xml_segments("<project xmlns=\"http://maven.apache.org\">");
+        assert!(segments.len() >= 4); // <, project, attrs, >
     }
 
     #[test]
-    fn test_colorize_xml_with_attributes() {
-        let line = colorize_xml_line("<project xmlns=\"http://maven.apache.org\">");
-        assert!(line.spans.len() >= 4); // <, project, attrs, >
+    fn test_xml_segments_comment() {
+        assert_eq!(xml_segments("<!-- This is a comment -->").len(), 1);
+    }
+
+    #[test]
+    fn xml_segments_cover_the_original_text() {
+        let text = "  <dependency scope=\"test\" optional='true'>text</dependency> <!-- c -->";
+        let mut segments = Vec::new();
+        xml_line_segments(text, &mut segments);
+
+        let mut covered = 0;
+        for (_, range) in &segments {
+            assert_eq!(range.start, covered);
+            covered = range.end;
+        }
+        assert_eq!(covered, text.len());
+
+        let value = segments
+            .iter()
+            .find(|(_, range)| &text[range.clone()] == "\"test\"")
+            .unwrap();
+        assert_eq!(value.0, Style::default().fg(Color::LightGreen));
     }
 
     #[test]
-    fn test_colorize_xml_comment() {
-        let line = colorize_xml_line("<!-- This is a comment -->");
-        assert_eq!(line.spans.len(), 1);
+    fn log_segments_split_around_keyword() {
+        let mut segments = Vec::new();
+        log_line_segments("x [ERR] y", &mut segments);
+        assert_eq!(segments.len(), 3);
+        assert_eq!(segments[1], (Style::default().fg(Color::Red), 2..7));
     }
 }
@@ -0,0 +1,106 @@
+//! Main loop wakeups
+//!
+//! Every producer the main loop depends on — terminal input, Maven output
+//! readers, profile discovery, global search workers and the file watcher —
+//! delivers its results through its own channel and then calls [`wake`]. The
+//! main loop blocks in [`wait`] until one of them did or its next timer is due,
+//! and handles the work right away instead of polling every channel on a
+//! fixed tick.
+//!
+//! Wakeups are coalesced: any number of calls to [`wake`] between two waits
+//! release a single one, and a wakeup that arrives before the loop starts
+//! waiting is never lost.
+
+use std::sync::{Condvar, Mutex};
+use std::time::{Duration, Instant};
+
+static WAKEUP: Wakeup = Wakeup::new();
+
+struct Wakeup {
+    pending: Mutex<bool>,
+    signal: Condvar,
+}
+
+impl Wakeup {
+    const fn new() -> Self {
+        Self {
+            pending: Mutex::new(false),
+            signal: Condvar::new(),
+        }
+    }
+
+    fn wake(&self) {
+        let mut pending = self.pending.lock().unwrap_or_else(|e| e.into_inner());
+        *pending = true;
+        self.signal.notify_one();
+    }
+
+    fn wait(&self, timeout: Option<Duration>) -> bool {
+        let deadline = timeout.map(|timeout| Instant::now() + timeout);
+        let mut pending = self.pending.lock().unwrap_or_else(|e| e.into_inner());
+        while !*pending {
+            pending = match deadline {
+                Some(deadline) => {
+                    let left = deadline.saturating_duration_since(Instant::now());
+                    if left.is_zero() {
+                        return false;
+                    }
+                    self.signal
+                        .wait_timeout(pending, left)
+                        .map(|(guard, _)| guard)
+                        .unwrap_or_else(|e| e.into_inner().0)
+                }
+                None => self
+                    .signal
+                    .wait(pending)
+                    .unwrap_or_else(|e| e.into_inner()),
+            };
+        }
+        *pending = false;
+        true
+    }
+}
+
+/// Wake the main loop after handing it new work
+pub fn wake() {
+    WAKEUP.wake();
+}
+
+/// Block until [`wake`] is called or `timeout` elapses (forever when None)
+///
+/// Returns whether a wakeup was received.
+pub fn wait(timeout: Option<Duration>) -> bool {
+    WAKEUP.wait(timeout)
+}
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+    use std::sync::Arc;
+    use std::thread;
+
+    #[test]
+    fn test_wake_before_wait_is_not_lost() {
+        let wakeup = Wakeup::new();
+        wakeup.wake();
+        wakeup.wake();
+        assert!(wakeup.wait(Some(Duration::from_secs(5))));
+        // Both wakeups were coalesced into one
+        assert!(!wakeup.wait(Some(Duration::from_millis(10))));
+    }
+
+    #[test]
+    fn test_wait_returns_when_woken_from_another_thread() {
+        let wakeup = Arc::new(Wakeup::new());
+        let waker = Arc::clone(&wakeup);
+        let handle = thread::spawn(move || {
+            thread::sleep(Duration::from_millis(20));
+            waker.wake();
+        });
+
+        let started = Instant::now();
+        assert!(wakeup.wait(None));
+        assert!(started.elapsed() < Duration::from_secs(5));
+        handle.join().unwrap();
+    }
+}
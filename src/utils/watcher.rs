@@ -19,7 +19,9 @@ impl FileWatcher {
 
         let mut watcher = RecommendedWatcher::new(
             move |res| {
-                let _ = tx.send(res);
+                if tx.send(res).is_ok() {
+                    super::wakeup::wake();
+                }
             },
             Config::default(),
         )?;